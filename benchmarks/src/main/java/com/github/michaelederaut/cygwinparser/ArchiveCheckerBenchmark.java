@@ -0,0 +1,262 @@
+package com.github.michaelederaut.cygwinparser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.michaelederaut.cygwinparser.SetupIniContents.ArchInfo.DlStatus;
+
+/**
+ * {@link ArchiveChecker#FI_check_pckgs(String, SetupIniContents)} on a mirror tree written by
+ * {@link MirrorTreeGenerator} for a <tt>setup.ini</tt> of {@link SetupIniGenerator}.<br>
+ * <tt>check_pckgs</tt> reports full checks per second and, as secondary results, packages,
+ * archives and file system calls per second, their ratio gives the calls per package.
+ * The calls are counted the way the checker issues them: one <tt>stat</tt> for
+ * {@link File#exists()}, {@link File#isFile()} and {@link File#length()} each, and
+ * for the folder of a missing current archive one plus the walk of {@link Files#find},
+ * once per check as {@link PckgVersionIndex} keeps the folders listed.
+ * <tt>check_pckgs_wall</tt> reports the wall time of single checks.<br>
+ * The <tt>_indexed</tt> variants first walk the tree into a {@link MirrorIndex}, sequentially or
+ * on the common {@link ForkJoinPool}, and count the walk as part of the check, after it the
+ * checks issue no file system calls.<br>
+ * <tt>check_pckgs_concurrent</tt> checks on a fixed pool of <tt>I_nbr_threads_f1</tt> threads,
+ * on slow storage it should scale with the number of threads.<br>
+ * The tree is put below <tt>java.io.tmpdir</tt>, <tt>-p S_dna_tmp=/dev/shm</tt> puts it on tmpfs.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ArchiveCheckerBenchmark {
+
+	protected static final String S_dnr_site = "mirror.example.org";
+
+	@Param({"1000", "10000", "50000"})
+	public int I_nbr_pckgs_f1;
+
+	@Param({"0.05"})
+	public double D_missing;
+
+	@Param({"0.05"})
+	public double D_wrong_size;
+
+	@Param({"0.05"})
+	public double D_prev_only;
+
+	@Param({""})
+	public String S_dna_tmp;
+	
+	@Param({"false", "true"})
+	public boolean B_parallel_walk;
+	
+	@Param({"16"})
+	public int I_nbr_threads_f1;
+
+	protected Path             FP_dna_root;
+	protected SetupIniContents O_setup_ini_contents;
+	protected ArchiveChecker   O_checker, O_indexed_checker;
+	protected int              I_nbr_archives_f1;
+	protected long             L_nbr_fs_calls_f1;
+	protected ExecutorService  O_executor;
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Counters {
+		public long pckgs, archives, fs_calls;
+
+		@Setup(Level.Iteration)
+		public void FV_reset() {
+			this.pckgs    = 0;
+			this.archives = 0;
+			this.fs_calls = 0;
+		    }
+	}
+
+	@Setup(Level.Trial)
+	public void FV_setup() throws IOException {
+
+		MirrorTreeGenerator O_tree_generator;
+		File                F_pna_setup_ini;
+		MappedIniLineReader O_reader;
+
+		if (this.S_dna_tmp.isEmpty()) {
+		   this.FP_dna_root = Files.createTempDirectory("mirror-");
+		   }
+		else {
+		   this.FP_dna_root = Files.createTempDirectory(Paths.get(this.S_dna_tmp), "mirror-");
+		   }
+		F_pna_setup_ini = this.FP_dna_root.resolve("setup.ini").toFile();
+		new SetupIniGenerator(this.I_nbr_pckgs_f1).FV_write(F_pna_setup_ini);
+		O_reader = new MappedIniLineReader(F_pna_setup_ini);
+		try {
+			this.O_setup_ini_contents = IniFileParser.FO_parse(O_reader);
+		} finally {
+			O_reader.FV_close();
+		    }
+
+		this.O_checker = new ArchiveChecker(this.FP_dna_root.toString());
+		O_tree_generator = new MirrorTreeGenerator(this.D_missing, this.D_wrong_size, this.D_prev_only,
+				MirrorTreeGenerator.L_dflt_seed);
+		O_tree_generator.FV_write(this.O_checker, S_dnr_site, this.O_setup_ini_contents);
+
+		this.O_indexed_checker = new ArchiveChecker(this.FP_dna_root.toString());
+		this.O_executor        = Executors.newFixedThreadPool(this.I_nbr_threads_f1);
+		this.O_checker.FI_check_pckgs(S_dnr_site, this.O_setup_ini_contents);
+		FV_count_fs_calls();
+	}
+
+	/**
+	 * Counts the archives and the file system calls of one check from the download status
+	 * found by it, see {@link ArchiveChecker#FI_check_pckg_archive(String, PckgTable, int, ArchiveChecker.PckgVersion, ArchiveChecker.ArchPurpose)}.
+	 */
+	protected void FV_count_fs_calls() throws IOException {
+
+		PckgTable       O_pckg_table;
+		HashSet<String> HS_dna_listed;
+		DlStatus        E_dl_status;
+		File            F_dna_archives;
+		String          S_pnr_archive;
+		int i1, i2, i3, I_slot_f0;
+
+		O_pckg_table = this.O_setup_ini_contents.FO_get_pckg_table();
+		this.I_nbr_archives_f1 = 0;
+		this.L_nbr_fs_calls_f1 = 0;
+		HS_dna_listed = new HashSet<String>();
+		for (i1 = 0; i1 < O_pckg_table.I_nbr_pckgs_f1; i1++) {
+			for (i2 = 0; i2 < O_pckg_table.AY_nbr_versions[i1]; i2++) {
+				for (i3 = 0; i3 < PckgTable.I_nbr_purposes; i3++) {
+					I_slot_f0 = PckgTable.FI_get_slot(i1, i2, i3);
+					S_pnr_archive = O_pckg_table.AS_archive_paths[I_slot_f0];
+					if ((O_pckg_table.AI_version_ids[I_slot_f0] < 0) || (S_pnr_archive == null)) {
+					   continue;
+					   }
+					this.I_nbr_archives_f1++;
+					this.L_nbr_fs_calls_f1++;  // exists
+					E_dl_status = O_pckg_table.FE_get_dl_status(I_slot_f0);
+					if ((E_dl_status == DlStatus.unknown) || (E_dl_status == DlStatus.prev)) {
+					   F_dna_archives = new File(this.O_checker.FS_get_archive_pna(S_dnr_site, S_pnr_archive)).getParentFile();
+					   if ((i2 == 0) && HS_dna_listed.add(F_dna_archives.getPath())) {
+						  this.L_nbr_fs_calls_f1++;  // isDirectory
+						  if (F_dna_archives.isDirectory()) {  // attributes of the folder, opendir, attributes of each entry
+							 try (Stream<Path> AP_entries = Files.list(F_dna_archives.toPath())) {
+								this.L_nbr_fs_calls_f1 += 2 + AP_entries.count();
+							     }
+						     }
+					      }
+					   }
+					else {
+					   this.L_nbr_fs_calls_f1++;  // isFile
+					   if (E_dl_status != DlStatus.exists) {
+						  this.L_nbr_fs_calls_f1++;  // length
+					      }
+					   }
+				    }
+			    }
+		    }
+		return;
+	}
+
+	@TearDown(Level.Trial)
+	public void FV_tear_down() throws IOException {
+
+		this.O_executor.shutdown();
+		try (Stream<Path> AP_paths = Files.walk(this.FP_dna_root)) {
+			AP_paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		    }
+		return;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public int check_pckgs(final Counters PB_O_counters) {
+
+		int I_retval_nbr_checked_archives;
+
+		I_retval_nbr_checked_archives = this.O_checker.FI_check_pckgs(S_dnr_site, this.O_setup_ini_contents);
+		PB_O_counters.pckgs    += this.I_nbr_pckgs_f1;
+		PB_O_counters.archives += this.I_nbr_archives_f1;
+		PB_O_counters.fs_calls += this.L_nbr_fs_calls_f1;
+		return I_retval_nbr_checked_archives;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 2)
+	@Measurement(iterations = 10)
+	public int check_pckgs_wall() {
+		return this.O_checker.FI_check_pckgs(S_dnr_site, this.O_setup_ini_contents);
+	}
+	
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public int check_pckgs_concurrent(final Counters PB_O_counters) {
+		
+		int I_retval_nbr_checked_archives;
+		
+		I_retval_nbr_checked_archives = this.O_checker.FI_check_pckgs(
+				S_dnr_site, 
+				this.O_setup_ini_contents, 
+				this.O_executor, 
+				this.I_nbr_threads_f1);
+		PB_O_counters.pckgs    += this.I_nbr_pckgs_f1;
+		PB_O_counters.archives += this.I_nbr_archives_f1;
+		PB_O_counters.fs_calls += this.L_nbr_fs_calls_f1;
+		return I_retval_nbr_checked_archives;
+	}
+	
+	protected int FI_check_pckgs_indexed() {
+		
+		this.O_indexed_checker.FO_index_mirror(S_dnr_site, this.B_parallel_walk ? ForkJoinPool.commonPool() : null);
+		return this.O_indexed_checker.FI_check_pckgs(S_dnr_site, this.O_setup_ini_contents);
+	}
+	
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public int check_pckgs_indexed(final Counters PB_O_counters) {
+		
+		int I_retval_nbr_checked_archives;
+		
+		I_retval_nbr_checked_archives = FI_check_pckgs_indexed();
+		PB_O_counters.pckgs    += this.I_nbr_pckgs_f1;
+		PB_O_counters.archives += this.I_nbr_archives_f1;
+		PB_O_counters.fs_calls += this.O_indexed_checker.O_mirror_index.I_nbr_files_f1;  // about one per entry of the walk
+		return I_retval_nbr_checked_archives;
+	}
+	
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 2)
+	@Measurement(iterations = 10)
+	public int check_pckgs_indexed_wall() {
+		return FI_check_pckgs_indexed();
+	}
+}
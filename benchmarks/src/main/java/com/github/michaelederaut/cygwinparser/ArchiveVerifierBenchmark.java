@@ -0,0 +1,133 @@
+package com.github.michaelederaut.cygwinparser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link ArchiveVerifier#FO_verify(String, SetupIniContents, ExecutorService, int)} on a mirror tree
+ * written by {@link MirrorTreeGenerator}.<br>
+ * The archives are sparse files, their digests never match, so each run hashes the same archives.
+ * Besides the wall time of single runs the bytes hashed are reported as secondary result,
+ * divided by the wall time they give the throughput of the digest over files read in blocks.<br>
+ * The archives average 8 MiB, 100 packages are about 2 GiB, <tt>-p S_dna_tmp=/dev/shm</tt> puts them on tmpfs.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+public class ArchiveVerifierBenchmark {
+
+	protected static final String S_dnr_site = "mirror.example.org";
+
+	@Param({"100"})
+	public int I_nbr_pckgs_f1;
+
+	@Param({"1", "4"})
+	public int I_nbr_threads_f1;
+
+	@Param({"65536", "1048576"})
+	public int I_block_size_f1;
+
+	@Param({""})
+	public String S_dna_tmp;
+
+	protected Path             FP_dna_root;
+	protected SetupIniContents O_setup_ini_contents;
+	protected ArchiveChecker   O_checker;
+	protected ArchiveVerifier  O_verifier;
+	protected ExecutorService  O_executor;
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Counters {
+		public long bytes;
+
+		@Setup(Level.Iteration)
+		public void FV_reset() {
+			this.bytes = 0;
+		    }
+	}
+
+	@Setup(Level.Trial)
+	public void FV_setup() throws IOException {
+
+		File                F_pna_setup_ini;
+		MappedIniLineReader O_reader;
+
+		if (this.S_dna_tmp.isEmpty()) {
+		   this.FP_dna_root = Files.createTempDirectory("mirror-");
+		   }
+		else {
+		   this.FP_dna_root = Files.createTempDirectory(Paths.get(this.S_dna_tmp), "mirror-");
+		   }
+		F_pna_setup_ini = this.FP_dna_root.resolve("setup.ini").toFile();
+		new SetupIniGenerator(this.I_nbr_pckgs_f1).FV_write(F_pna_setup_ini);
+		O_reader = new MappedIniLineReader(F_pna_setup_ini);
+		try {
+			this.O_setup_ini_contents = IniFileParser.FO_parse(O_reader);
+		} finally {
+			O_reader.FV_close();
+		    }
+
+		this.O_checker = new ArchiveChecker(this.FP_dna_root.toString());
+		new MirrorTreeGenerator(0.0d, 0.0d, 0.0d, MirrorTreeGenerator.L_dflt_seed).FV_write(
+				this.O_checker, S_dnr_site, this.O_setup_ini_contents);
+		this.O_verifier = new ArchiveVerifier(this.O_checker, this.I_block_size_f1);
+		this.O_executor = Executors.newFixedThreadPool(this.I_nbr_threads_f1);
+	}
+
+	@Setup(Level.Invocation)
+	public void FV_check() {
+		this.O_checker.FI_check_pckgs(S_dnr_site, this.O_setup_ini_contents);  // back to sizeOk
+		return;
+	}
+
+	@TearDown(Level.Trial)
+	public void FV_tear_down() throws IOException {
+
+		this.O_executor.shutdown();
+		try (Stream<Path> AP_paths = Files.walk(this.FP_dna_root)) {
+			AP_paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		    }
+		return;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 1)
+	@Measurement(iterations = 5)
+	public ArchiveVerifier.Result verify(final Counters PB_O_counters) {
+
+		ArchiveVerifier.Result O_retval_result;
+
+		O_retval_result = this.O_verifier.FO_verify(
+				S_dnr_site,
+				this.O_setup_ini_contents,
+				this.O_executor,
+				this.I_nbr_threads_f1);
+		PB_O_counters.bytes += O_retval_result.L_nbr_bytes_f1;
+		return O_retval_result;
+	}
+}
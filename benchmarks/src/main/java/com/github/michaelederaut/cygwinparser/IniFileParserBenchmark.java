@@ -0,0 +1,238 @@
+package com.github.michaelederaut.cygwinparser;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.michaelederaut.cygwinparser.MappedIniLineReader.ByteLine;
+import com.github.michaelederaut.cygwinparser.SetupIniContents.ArchInfo;
+import com.github.michaelederaut.cygwinparser.SetupIniContents.PckgInfo;
+import com.github.michaelederaut.cygwinparser.SetupIniLexer.LineKind;
+
+/**
+ * {@link IniFileParser} on a <tt>setup.ini</tt> written by {@link SetupIniGenerator}:
+ * whole files through each reader, the state machine alone with a visitor keeping nothing,
+ * and the work of single parsing states per line:
+ * package headers, continuation lines of long descriptions and archive lines.<br>
+ * The per line benchmarks report the time of one line, their lines are taken in file order
+ * from the generated file and lexed in place, as {@link MappedIniLineReader} hands them out.<br>
+ * Allocation rates: <tt>java -jar target/benchmarks.jar IniFileParserBenchmark -prof gc</tt>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IniFileParserBenchmark {
+
+	protected static final int I_nbr_lines_per_op = 10000;
+
+	@Param({"1000", "20000", "200000"})
+	public int I_nbr_pckgs_f1;
+
+	@Param({"0.6"})
+	public double D_prev_density;
+
+	@Param({"3"})
+	public int I_nbr_ldesc_lines_f1;
+
+	protected File          F_pna_setup_ini;
+	protected ByteLine      AO_header_lines[], AO_ldesc_cont_lines[], AO_archive_lines[];
+	protected SetupIniLexer O_lexer;
+	protected ForkJoinPool  O_pool;
+
+	@Setup(Level.Trial)
+	public void FV_setup() throws IOException {
+
+		MappedIniLineReader O_reader;
+		ByteBuffer          O_buffer;
+		ByteLine            O_line;
+		CharSequence        S_line;
+		List<ByteLine>      AO_header_lines, AO_ldesc_cont_lines, AO_archive_lines;
+		boolean             B_in_ldesc;
+
+		this.F_pna_setup_ini = File.createTempFile("setup-" + this.I_nbr_pckgs_f1 + "-", ".ini");
+		this.F_pna_setup_ini.deleteOnExit();
+		new SetupIniGenerator(this.I_nbr_pckgs_f1, this.D_prev_density, this.I_nbr_ldesc_lines_f1,
+				SetupIniGenerator.L_dflt_seed).FV_write(this.F_pna_setup_ini);
+
+		AO_header_lines     = new ArrayList<ByteLine>();
+		AO_ldesc_cont_lines = new ArrayList<ByteLine>();
+		AO_archive_lines    = new ArrayList<ByteLine>();
+		B_in_ldesc = false;
+		O_reader = new MappedIniLineReader(this.F_pna_setup_ini);
+		try {  // the mapping stays valid after closing the channel
+			O_buffer = O_reader.FO_get_bytes();
+			while ((S_line = O_reader.FO_read_line()) != null) {
+				O_line = new ByteLine(O_buffer);
+				O_line.I_start_f0 = O_reader.FI_get_line_start_f0();
+				O_line.I_end_f0   = O_reader.FI_get_line_end_f0();
+				if (B_in_ldesc) {
+				   AO_ldesc_cont_lines.add(O_line);
+				   B_in_ldesc = (S_line.charAt(S_line.length() - 1) != '\"');
+				   }
+				else if ((S_line.length() > 0) && (S_line.charAt(0) == '@')) {
+				   AO_header_lines.add(O_line);
+				   }
+				else if (S_line.toString().startsWith("ldesc: ")) {
+				   B_in_ldesc = (S_line.charAt(S_line.length() - 1) != '\"');
+				   }
+				else if (S_line.toString().startsWith("install: ") || S_line.toString().startsWith("source: ")) {
+				   AO_archive_lines.add(O_line);
+				   }
+			    }
+		} finally {
+			O_reader.FV_close();
+		    }
+		this.AO_header_lines     = AO_header_lines.toArray(new ByteLine[0]);
+		this.AO_ldesc_cont_lines = AO_ldesc_cont_lines.toArray(new ByteLine[0]);
+		this.AO_archive_lines    = AO_archive_lines.toArray(new ByteLine[0]);
+		this.O_lexer = new SetupIniLexer(new SymbolTable());
+		this.O_pool  = new ForkJoinPool();
+	}
+
+	@TearDown(Level.Trial)
+	public void FV_tear_down() {
+		this.O_pool.shutdown();
+		this.F_pna_setup_ini.delete();
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public SetupIniContents parse_mapped() {
+
+		MappedIniLineReader O_reader;
+
+		O_reader = new MappedIniLineReader(this.F_pna_setup_ini);
+		try {
+			return IniFileParser.FO_parse(O_reader);
+		} finally {
+			O_reader.FV_close();
+		    }
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public SetupIniContents parse_parallel() {
+
+		MappedIniLineReader O_reader;
+
+		O_reader = new MappedIniLineReader(this.F_pna_setup_ini);
+		try {
+			return IniFileParser.FO_parse_parallel(O_reader, this.O_pool);
+		} finally {
+			O_reader.FV_close();
+		    }
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public SetupIniContents parse_stream() throws IOException {
+		return IniFileParser.FO_parse(new FileInputStream(this.F_pna_setup_ini), this.F_pna_setup_ini.getPath());
+	}
+
+	/**
+	 * The parser state machine and the lexer alone: packages go to a visitor, nothing is kept.
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void parse_visit(final Blackhole PO_O_blackhole) {
+
+		MappedIniLineReader O_reader;
+
+		O_reader = new MappedIniLineReader(this.F_pna_setup_ini);
+		try {
+			IniFileParser.FV_parse(O_reader, new SymbolTable(), 
+					(PckgInfo PI_O_pckg_info, int PI_I_line_nbr_f1) -> PO_O_blackhole.consume(PI_O_pckg_info));
+		} finally {
+			O_reader.FV_close();
+		    }
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void parse_visit_lenient(final Blackhole PO_O_blackhole) {
+
+		MappedIniLineReader O_reader;
+
+		O_reader = new MappedIniLineReader(this.F_pna_setup_ini);
+		try {
+			IniFileParser.FV_parse(O_reader, new SymbolTable(), 
+					(PckgInfo PI_O_pckg_info, int PI_I_line_nbr_f1) -> PO_O_blackhole.consume(PI_O_pckg_info),
+					new ParseDiagnostics());
+		} finally {
+			O_reader.FV_close();
+		    }
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	@OperationsPerInvocation(I_nbr_lines_per_op)
+	public void state_header(final Blackhole PO_O_blackhole) {
+
+		ByteLine O_line;
+		int i1;
+
+		for (i1 = 0; i1 < I_nbr_lines_per_op; i1++) {
+			O_line = this.AO_header_lines[i1 % this.AO_header_lines.length];
+			PO_O_blackhole.consume(this.O_lexer.FE_lex(O_line));
+			PO_O_blackhole.consume(this.O_lexer.FS_get_symbol(O_line));
+		    }
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	@OperationsPerInvocation(I_nbr_lines_per_op)
+	public void state_ldesc_cont(final Blackhole PO_O_blackhole) {
+
+		ByteLine O_line;
+		int i1;
+
+		for (i1 = 0; i1 < I_nbr_lines_per_op; i1++) {
+			O_line = this.AO_ldesc_cont_lines[i1 % this.AO_ldesc_cont_lines.length];
+			PO_O_blackhole.consume(this.O_lexer.FB_lex_ldesc_cont(O_line));
+			PO_O_blackhole.consume(this.O_lexer.B_closing_quote);
+		    }
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	@OperationsPerInvocation(I_nbr_lines_per_op)
+	public void state_archinfo(final Blackhole PO_O_blackhole) {
+
+		ArchInfo O_archinfo;
+		ByteLine O_line;
+		LineKind E_line_kind;
+		int i1;
+
+		for (i1 = 0; i1 < I_nbr_lines_per_op; i1++) {
+			O_line = this.AO_archive_lines[i1 % this.AO_archive_lines.length];
+			E_line_kind = this.O_lexer.FE_lex(O_line);
+			O_archinfo = new ArchInfo("1.0-1", this.O_lexer.FI_get_archive_size(O_line), O_line, this.O_lexer.I_hash_start_f0);
+			O_archinfo.S_pnr_archive = this.O_lexer.FS_get_archive_path(O_line);
+			PO_O_blackhole.consume(E_line_kind);
+			PO_O_blackhole.consume(O_archinfo);
+		    }
+	}
+}
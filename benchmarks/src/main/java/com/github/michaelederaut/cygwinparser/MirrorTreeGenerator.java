@@ -0,0 +1,164 @@
+package com.github.michaelederaut.cygwinparser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.SplittableRandom;
+
+/**
+ * Writes the archives of a {@link SetupIniContents} as a local mirror tree, the way
+ * {@link ArchiveChecker} expects it below <tt>root/site</tt>, for the benchmarks.<br>
+ * Each package gets one {@link Fate} drawn from a {@link SplittableRandom}, the archives are
+ * sparse files of the size given in <tt>setup.ini</tt>, so large trees are cheap on tmpfs.
+ */
+public class MirrorTreeGenerator {
+
+	public static final long L_dflt_seed = 0x3C4D5E6F7A8B9C0DL;
+
+	/**
+	 * What is on the mirror for one package.
+	 */
+	public enum Fate {
+		/** all archives of all versions, with the right size */
+		complete,
+		/** no archive and no folder at all */
+		missing,
+		/** all archives, the install archive of the current version one byte too long */
+		wrongSize,
+		/** the archives of the current version are missing, but the ones of another version are there */
+		prevOnly};
+
+	protected static final Fate AE_fates[] = Fate.values();
+
+	public final double D_missing, D_wrong_size, D_prev_only;
+	public final long   L_seed;
+
+	public final int AI_nbr_pckgs_f1[] = new int[AE_fates.length];  // indexed by ordinal of Fate, after FV_write
+	public int I_nbr_files_f1, I_nbr_dirs_f1;
+
+	/**
+	 *
+	 * @param PI_D_missing share of the packages with {@link Fate#missing}
+	 * @param PI_D_wrong_size share of the packages with {@link Fate#wrongSize}
+	 * @param PI_D_prev_only share of the packages with {@link Fate#prevOnly}
+	 */
+	public MirrorTreeGenerator(
+			final double PI_D_missing,
+			final double PI_D_wrong_size,
+			final double PI_D_prev_only,
+			final long   PI_L_seed) {
+
+		this.D_missing    = PI_D_missing;
+		this.D_wrong_size = PI_D_wrong_size;
+		this.D_prev_only  = PI_D_prev_only;
+		this.L_seed       = PI_L_seed;
+	}
+
+	protected Fate FE_get_fate(final SplittableRandom PB_O_random) {
+
+		double D_rand;
+
+		D_rand = PB_O_random.nextDouble();
+		if (D_rand < this.D_missing) {
+		   return Fate.missing;
+		   }
+		D_rand -= this.D_missing;
+		if (D_rand < this.D_wrong_size) {
+		   return Fate.wrongSize;
+		   }
+		D_rand -= this.D_wrong_size;
+		if (D_rand < this.D_prev_only) {
+		   return Fate.prevOnly;
+		   }
+		return Fate.complete;
+	}
+
+	protected void FV_write_archive(
+			final File PI_F_pna_archive,
+			final long PI_L_size) throws IOException {
+
+		File F_dna_archives;
+
+		F_dna_archives = PI_F_pna_archive.getParentFile();
+		if (!F_dna_archives.isDirectory()) {
+		   if (!F_dna_archives.mkdirs()) {
+			  throw new IOException("Unable to create folder \"" + F_dna_archives.getPath() + "\"");
+		      }
+		   this.I_nbr_dirs_f1++;
+		   }
+		try (RandomAccessFile O_file = new RandomAccessFile(PI_F_pna_archive, "rw")) {
+			O_file.setLength(PI_L_size);
+		    }
+		this.I_nbr_files_f1++;
+		return;
+	}
+
+	/**
+	 * Writes the tree, existing files of the same name are overwritten.
+	 *
+	 * @param PI_O_checker its root and {@link ArchiveChecker#FS_get_archive_pna(String, String)} place the archives
+	 */
+	public void FV_write(
+			final ArchiveChecker   PI_O_checker,
+			final String           PI_S_dnr_site,
+			final SetupIniContents PI_O_setup_ini_contents) {
+
+		RuntimeException E_rt;
+		SplittableRandom O_random;
+		PckgTable        O_pckg_table;
+		Fate             E_fate;
+		File             F_pna_archive;
+		String           S_msg_1, S_pnr_archive, S_pna_archive;
+		int i1, i2, i3, I_slot_f0, I_nbr_versions_f1;
+		long L_size;
+
+		O_random     = new SplittableRandom(this.L_seed);
+		O_pckg_table = PI_O_setup_ini_contents.FO_get_pckg_table();
+		S_pna_archive = null;
+		try {
+			for (i1 = 0; i1 < O_pckg_table.I_nbr_pckgs_f1; i1++) {
+				E_fate = FE_get_fate(O_random);
+				this.AI_nbr_pckgs_f1[E_fate.ordinal()]++;
+				if (E_fate == Fate.missing) {
+				   continue;
+				   }
+				I_nbr_versions_f1 = O_pckg_table.AY_nbr_versions[i1];
+				for (i2 = 0; i2 < I_nbr_versions_f1; i2++) {
+					if ((i2 == 0) && (E_fate == Fate.prevOnly)) {
+					   continue;
+					   }
+					for (i3 = 0; i3 < PckgTable.I_nbr_purposes; i3++) {
+						I_slot_f0 = PckgTable.FI_get_slot(i1, i2, i3);
+						S_pnr_archive = O_pckg_table.AS_archive_paths[I_slot_f0];
+						if (S_pnr_archive == null) {
+						   continue;
+						   }
+						S_pna_archive = PI_O_checker.FS_get_archive_pna(PI_S_dnr_site, S_pnr_archive);
+						L_size = O_pckg_table.AI_sizes[I_slot_f0];
+						if ((i2 == 0) && (i3 == 0) && (E_fate == Fate.wrongSize)) {
+						   L_size++;
+						   }
+						FV_write_archive(new File(S_pna_archive), L_size);
+					    }
+				    }
+				if ((E_fate == Fate.prevOnly) && (I_nbr_versions_f1 < 2)) {  // no [prev], put an older install archive next to the missing one
+				   I_slot_f0 = PckgTable.FI_get_slot(i1, 0, 0);
+				   S_pnr_archive = O_pckg_table.AS_archive_paths[I_slot_f0];
+				   if (S_pnr_archive != null) {
+					  S_pna_archive = PI_O_checker.FS_get_archive_pna(PI_S_dnr_site, S_pnr_archive);
+					  F_pna_archive = new File(S_pna_archive);
+					  F_pna_archive = new File(F_pna_archive.getParentFile(),
+							  new File(F_pna_archive.getParent()).getName() + "-0.0.1-1.tar.xz");
+					  S_pna_archive = F_pna_archive.getPath();
+					  FV_write_archive(F_pna_archive, O_pckg_table.AI_sizes[I_slot_f0]);
+				      }
+				   }
+			    }
+		} catch (IOException PI_E_io) {
+			S_msg_1 = "Unable to write archive \"" + S_pna_archive + "\"";
+			E_rt = new RuntimeException(S_msg_1, PI_E_io);
+			throw E_rt;
+		    }
+		return;
+	}
+}
@@ -0,0 +1,235 @@
+package com.github.michaelederaut.cygwinparser;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Writes synthetic <tt>setup.ini</tt> files for the benchmarks.<br>
+ * The output depends on the parameters and the seed only: package names, descriptions, categories,
+ * requires, versions, archive sizes and digests are drawn from a {@link SplittableRandom}.
+ * Packages are sorted by name, like in the files of the Cygwin mirrors, and only require packages
+ * of the same file or <tt>cygwin</tt>.
+ * <pre>
+ * java -cp target/benchmarks.jar com.github.michaelederaut.cygwinparser.SetupIniGenerator
+ *      nbr-packages setup.ini [prev-density [ldesc-lines [seed]]]
+ * </pre>
+ */
+public class SetupIniGenerator {
+
+	public static final long   L_dflt_seed          = 0x5E7C1A2B3C4D5E6FL;
+	public static final double D_dflt_prev_density  = 0.6;
+	public static final int    I_dflt_ldesc_lines   = 3;
+
+	protected static final String AS_stems[] = {
+			"lib", "python3", "perl", "mingw64-x86_64", "mingw64-i686", "gcc", "texlive-collection",
+			"xorg", "gtk", "qt5", "ruby", "ocaml", "tcl", "kde", "gnome", "boost", "openssl", "curl",
+			"vim", "emacs", "font", "git", "mesa", "poppler", "gstreamer", "octave", "R", "php"};
+	protected static final String AS_suffixes[] = {"", "", "", "-devel", "-doc", "-debuginfo", "0", "1", "2", "-tools"};
+	protected static final String AS_words[] = {
+			"library", "runtime", "development", "files", "documentation", "for", "the", "GNU", "utilities",
+			"compiler", "bindings", "Python", "Perl", "module", "X11", "client", "server", "toolkit", "data",
+			"image", "network", "interface", "support", "plugin", "fonts", "debug", "information", "a", "and",
+			"of", "to", "with", "C++", "GTK+", "implementation", "format", "parser", "(shared)", "headers"};
+	protected static final String AS_categories[] = {
+			"Base", "Devel", "Libs", "Net", "Utils", "Doc", "Python", "Perl", "X11", "Shells", "Editors",
+			"Graphics", "Text", "Science", "Debug", "Interpreters", "Web", "Database", "Games", "Math"};
+	protected static final char AC_hex[] = "0123456789abcdef".toCharArray();
+
+	public final int    I_nbr_pckgs_f1;
+	public final double D_prev_density;
+	public final int    I_nbr_ldesc_lines_f1;
+	public final long   L_seed;
+
+	/**
+	 *
+	 * @param PI_I_nbr_pckgs_f1 number of packages
+	 * @param PI_D_prev_density share of the packages having a <tt>[prev]</tt> version, 0 to 1
+	 * @param PI_I_nbr_ldesc_lines_f1 number of lines of each long description, at least 1
+	 * @param PI_L_seed seed of the random numbers
+	 */
+	public SetupIniGenerator(
+			final int    PI_I_nbr_pckgs_f1,
+			final double PI_D_prev_density,
+			final int    PI_I_nbr_ldesc_lines_f1,
+			final long   PI_L_seed) {
+
+		this.I_nbr_pckgs_f1       = PI_I_nbr_pckgs_f1;
+		this.D_prev_density       = PI_D_prev_density;
+		this.I_nbr_ldesc_lines_f1 = Math.max(1, PI_I_nbr_ldesc_lines_f1);
+		this.L_seed               = PI_L_seed;
+	}
+
+	public SetupIniGenerator(final int PI_I_nbr_pckgs_f1) {
+		this(PI_I_nbr_pckgs_f1, D_dflt_prev_density, I_dflt_ldesc_lines, L_dflt_seed);
+	}
+
+	/**
+	 *
+	 * @return unique package names, sorted
+	 */
+	public String[] FAS_get_pckg_names() {
+
+		SplittableRandom O_random;
+		String AS_retval_names[];
+		int i1;
+
+		O_random = new SplittableRandom(this.L_seed);
+		AS_retval_names = new String[this.I_nbr_pckgs_f1];
+		for (i1 = 0; i1 < this.I_nbr_pckgs_f1; i1++) {
+			AS_retval_names[i1] = AS_stems[O_random.nextInt(AS_stems.length)] + "-" + Integer.toString(i1, 36) +
+					AS_suffixes[O_random.nextInt(AS_suffixes.length)];
+		    }
+		Arrays.sort(AS_retval_names);
+		return AS_retval_names;
+	}
+
+	protected static void FV_append_words(
+			final StringBuilder    PB_SB_line,
+			final SplittableRandom PB_O_random,
+			final int              PI_I_nbr_words_f1) {
+
+		int i1;
+
+		for (i1 = 0; i1 < PI_I_nbr_words_f1; i1++) {
+			if (i1 > 0) {
+			   PB_SB_line.append(' ');
+			   }
+			PB_SB_line.append(AS_words[PB_O_random.nextInt(AS_words.length)]);
+		    }
+		return;
+	}
+
+	protected static void FV_append_archive(
+			final StringBuilder    PB_SB_stanza,
+			final SplittableRandom PB_O_random,
+			final String           PI_S_key,
+			final String           PI_S_name,
+			final String           PI_S_version,
+			final String           PI_S_suffix) {
+
+		int i1;
+
+		PB_SB_stanza.append(PI_S_key).append(": x86_64/release/").append(PI_S_name).append('/')
+		            .append(PI_S_name).append('-').append(PI_S_version).append(PI_S_suffix).append(".tar.xz ")
+		            .append(1 + PB_O_random.nextInt(1 << 24)).append(' ');
+		for (i1 = 0; i1 < 128; i1++) {
+			PB_SB_stanza.append(AC_hex[PB_O_random.nextInt(16)]);
+		    }
+		PB_SB_stanza.append('\n');
+		return;
+	}
+
+	protected static String FS_get_version(
+			final SplittableRandom PB_O_random,
+			final int              PI_I_major) {
+		return PI_I_major + "." + PB_O_random.nextInt(20) + "." + PB_O_random.nextInt(10) + "-" + (1 + PB_O_random.nextInt(3));
+	}
+
+	/**
+	 * Writes the whole file, lines end with LF and the last stanza is followed by an empty line,
+ * like in the files of the mirrors.
+	 */
+	public void FV_write(final Writer PB_O_writer) throws IOException {
+
+		SplittableRandom O_random;
+		StringBuilder    SB_stanza;
+		String           AS_names[], S_name;
+		int i1, i2, I_nbr_f1, I_major;
+
+		AS_names  = FAS_get_pckg_names();
+		O_random  = new SplittableRandom(this.L_seed ^ 0x9E3779B97F4A7C15L);
+		SB_stanza = new StringBuilder(4096);
+		PB_O_writer.write("# This file was generated by " + SetupIniGenerator.class.getSimpleName() + "\n" +
+				"release: cygwin\n" +
+				"arch: x86_64\n" +
+				"setup-timestamp: 1600000000\n" +
+				"setup-version: 2.905\n");
+		for (i1 = 0; i1 < AS_names.length; i1++) {
+			S_name = AS_names[i1];
+			SB_stanza.setLength(0);
+			SB_stanza.append("\n@ ").append(S_name).append('\n');
+			SB_stanza.append("sdesc: \"");
+			FV_append_words(SB_stanza, O_random, 2 + O_random.nextInt(5));
+			SB_stanza.append("\"\nldesc: \"");
+			for (i2 = 0; i2 < this.I_nbr_ldesc_lines_f1; i2++) {
+				if (i2 > 0) {
+				   SB_stanza.append('\n');
+				   }
+				FV_append_words(SB_stanza, O_random, 6 + O_random.nextInt(8));
+			    }
+			SB_stanza.append("\"\ncategory: ");
+			I_nbr_f1 = 1 + O_random.nextInt(3);
+			for (i2 = 0; i2 < I_nbr_f1; i2++) {
+				SB_stanza.append((i2 == 0) ? "" : " ").append(AS_categories[O_random.nextInt(AS_categories.length)]);
+			    }
+			SB_stanza.append("\nrequires: cygwin");
+			I_nbr_f1 = O_random.nextInt(5);
+			for (i2 = 0; i2 < I_nbr_f1; i2++) {
+				SB_stanza.append(' ').append(AS_names[O_random.nextInt(AS_names.length)]);
+			    }
+			SB_stanza.append('\n');
+			I_major = 1 + O_random.nextInt(9);
+			FV_append_version(SB_stanza, O_random, S_name, FS_get_version(O_random, I_major));
+			if (O_random.nextDouble() < this.D_prev_density) {
+			   SB_stanza.append("[prev]\n");
+			   FV_append_version(SB_stanza, O_random, S_name, FS_get_version(O_random, I_major - 1));
+			   }
+			PB_O_writer.write(SB_stanza.toString());
+		    }
+		PB_O_writer.write("\n");
+		return;
+	}
+
+	protected static void FV_append_version(
+			final StringBuilder    PB_SB_stanza,
+			final SplittableRandom PB_O_random,
+			final String           PI_S_name,
+			final String           PI_S_version) {
+
+		PB_SB_stanza.append("version: ").append(PI_S_version).append('\n');
+		FV_append_archive(PB_SB_stanza, PB_O_random, "install", PI_S_name, PI_S_version, "");
+		FV_append_archive(PB_SB_stanza, PB_O_random, "source", PI_S_name, PI_S_version, "-src");
+		return;
+	}
+
+	public void FV_write(final File PI_F_pna_setup_ini) {
+
+		RuntimeException E_rt;
+		String S_msg_1;
+
+		try (Writer O_writer = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(PI_F_pna_setup_ini), StandardCharsets.UTF_8), 1 << 16)) {
+			FV_write(O_writer);
+		} catch (IOException PI_E_io) {
+			S_msg_1 = "Unable to write " + this.I_nbr_pckgs_f1 + " packages to \"" + PI_F_pna_setup_ini.getPath() + "\"";
+			E_rt = new RuntimeException(S_msg_1, PI_E_io);
+			throw E_rt;
+		    }
+		return;
+	}
+
+	public static void main(final String PI_AS_args[]) {
+
+		SetupIniGenerator O_generator;
+
+		if (PI_AS_args.length < 2) {
+		   System.err.println("Usage: " + SetupIniGenerator.class.getName() +
+				   " nbr-packages setup.ini [prev-density [ldesc-lines [seed]]]");
+		   System.exit(1);
+		   }
+		O_generator = new SetupIniGenerator(
+				Integer.parseInt(PI_AS_args[0]),
+				(PI_AS_args.length > 2) ? Double.parseDouble(PI_AS_args[2]) : D_dflt_prev_density,
+				(PI_AS_args.length > 3) ? Integer.parseInt(PI_AS_args[3])   : I_dflt_ldesc_lines,
+				(PI_AS_args.length > 4) ? Long.parseLong(PI_AS_args[4])     : L_dflt_seed);
+		O_generator.FV_write(new File(PI_AS_args[1]));
+		return;
+	}
+}
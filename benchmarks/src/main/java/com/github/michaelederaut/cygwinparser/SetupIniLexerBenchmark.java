@@ -0,0 +1,147 @@
+package com.github.michaelederaut.cygwinparser;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.michaelederaut.basics.RegexpUtils;
+import com.github.michaelederaut.basics.RegexpUtils.GroupMatchResult;
+import com.github.michaelederaut.cygwinparser.SetupIniLexer.LineKind;
+
+/**
+ * Recognition of one package stanza: the regular expressions formerly applied by
+ * {@link IniFileParser} per line versus {@link SetupIniLexer}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SetupIniLexerBenchmark {
+
+	protected static final String S_hash =
+			"0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef" +
+			"fedcba9876543210fedcba9876543210fedcba9876543210fedcba9876543210";
+
+	protected static final String AS_stanza[] = new String[] {
+			"@ libxml2",
+			"sdesc: \"Gnome XML library (runtime)\"",
+			"ldesc: \"Libxml2 is the XML C parser and toolkit developed for the Gnome",
+			"project.  XML itself is a metalanguage to design markup languages, i.e.",
+			"text language where semantic and structure are added to the content\"",
+			"category: Libs",
+			"requires: cygwin libiconv2 liblzma5 zlib0",
+			"version: 2.9.4-1",
+			"install: x86_64/release/libxml2/libxml2/libxml2-2.9.4-1.tar.xz 434088 " + S_hash,
+			"source: x86_64/release/libxml2/libxml2-2.9.4-1-src.tar.xz 5384772 " + S_hash,
+			"[prev]",
+			"version: 2.9.3-1",
+			"install: x86_64/release/libxml2/libxml2/libxml2-2.9.3-1.tar.xz 433960 " + S_hash,
+			"source: x86_64/release/libxml2/libxml2-2.9.3-1-src.tar.xz 5376352 " + S_hash};
+
+	protected Pattern AP_state_patterns[];
+	protected boolean AB_comment_check[], AB_archinfo[];
+
+	protected SetupIniLexer O_lexer;
+
+	@Setup
+	public void FV_setup() {
+
+		this.AP_state_patterns = new Pattern[] {
+				IniFileParser.P_pkg_hdr.O_patt,
+				IniFileParser.P_sdesc.O_patt,
+				IniFileParser.P_ldesc.O_patt,
+				IniFileParser.P_ldesc_cont.O_patt,
+				IniFileParser.P_ldesc_cont.O_patt,
+				IniFileParser.P_category.O_patt,
+				IniFileParser.P_requires.O_patt,
+				IniFileParser.P_version.O_patt,
+				IniFileParser.P_install.O_patt,
+				IniFileParser.P_source.O_patt,
+				null,
+				IniFileParser.P_version.O_patt,
+				IniFileParser.P_install.O_patt,
+				IniFileParser.P_source.O_patt};
+		// the regexp based parser checked for comments first, except while parsing archive lines
+		this.AB_comment_check = new boolean[] {true, true, true, true, true, true, true, false, false, false, true, false, false, false};
+		this.AB_archinfo      = new boolean[] {false, false, false, false, false, false, false, false, true, true, false, false, true, true};
+		this.O_lexer = new SetupIniLexer();
+	}
+
+	@Benchmark
+	public void regexp(final Blackhole PO_O_blackhole) {
+
+		GroupMatchResult O_grp_match_res;
+		Pattern P_state;
+		String S_line;
+		int i1;
+
+		for (i1 = 0; i1 < AS_stanza.length; i1++) {
+			S_line = AS_stanza[i1];
+			if (this.AB_comment_check[i1]) {
+			   O_grp_match_res = RegexpUtils.FO_match(S_line, IniFileParser.P_comment_line.O_patt);
+			   PO_O_blackhole.consume(O_grp_match_res);
+			   }
+			P_state = this.AP_state_patterns[i1];
+			if (P_state == null) {
+			   PO_O_blackhole.consume(S_line.startsWith(SetupIniLexer.PREV_MARKER));
+			   continue;
+			   }
+			O_grp_match_res = RegexpUtils.FO_match(S_line, P_state);
+			PO_O_blackhole.consume(O_grp_match_res);
+			if (this.AB_archinfo[i1]) {
+			   O_grp_match_res = RegexpUtils.FO_match(
+					   O_grp_match_res.AS_numbered_groups[1],
+					   IniFileParser.P_archinfo.O_patt);
+			   PO_O_blackhole.consume(O_grp_match_res);
+			   }
+		    }
+	}
+
+	@Benchmark
+	public void lexer(final Blackhole PO_O_blackhole) {
+
+		LineKind E_line_kind;
+		String S_line;
+		int i1;
+
+		for (i1 = 0; i1 < AS_stanza.length; i1++) {
+			S_line = AS_stanza[i1];
+			if ((i1 == 3) || (i1 == 4)) {
+			   PO_O_blackhole.consume(this.O_lexer.FB_lex_ldesc_cont(S_line));
+			   PO_O_blackhole.consume(this.O_lexer.FS_get_value(S_line));
+			   continue;
+			   }
+			E_line_kind = this.O_lexer.FE_lex(S_line);
+			switch (E_line_kind) {
+				case install:
+				case source:
+					PO_O_blackhole.consume(this.O_lexer.FS_get_archive_path(S_line));
+					PO_O_blackhole.consume(this.O_lexer.FS_get_archive_size(S_line));
+					PO_O_blackhole.consume(this.O_lexer.FS_get_archive_hash(S_line));
+					break;
+				case category:
+				case requires:
+					PO_O_blackhole.consume(this.O_lexer.FAS_get_tokens(S_line));
+					break;
+				case prev:
+					PO_O_blackhole.consume(E_line_kind);
+					break;
+				default:
+					PO_O_blackhole.consume(this.O_lexer.FS_get_value(S_line));
+			}
+		    }
+	}
+}
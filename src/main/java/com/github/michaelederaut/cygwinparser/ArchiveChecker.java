@@ -1,25 +1,28 @@
 package com.github.michaelederaut.cygwinparser;
 
 import java.awt.Color;
-import java.nio.file.FileVisitOption;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.io.File;
 import java.io.FileOutputStream;
-import java.io.FilenameFilter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.NavigableSet;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Stack;
-import java.util.TreeMap;
-import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.mutable.MutableInt;
 import org.apache.commons.text.StrBuilder;
-import org.apache.logging.log4j.core.util.ArrayUtils;
 import org.apache.poi.common.usermodel.HyperlinkType;
 import org.apache.poi.openxml4j.exceptions.OpenXML4JRuntimeException;
 import org.apache.poi.ss.usermodel.Cell;
@@ -36,23 +39,16 @@ import org.apache.poi.xssf.usermodel.XSSFFont;
 import org.apache.poi.xssf.usermodel.XSSFHyperlink;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
-import java.util.function.BiPredicate;
-import java.util.stream.Collectors;
 
-import com.github.michaelederaut.basics.LineNbrRandomAccessFile;
-import com.github.michaelederaut.basics.RegexpUtils;
-import com.github.michaelederaut.basics.RegexpUtils.GroupMatchResult;
-import com.github.michaelederaut.basics.RegexpUtils.NamedPattern;
 import com.github.michaelederaut.cygwinparser.SetupIniContents.ArchInfo;
 import com.github.michaelederaut.cygwinparser.SetupIniContents.ArchInfo.DlStatus;
-import com.github.michaelederaut.cygwinparser.SetupIniContents.PckgInfo;
-import com.github.michaelederaut.cygwinparser.SetupIniContents.PckgVersionInfo;
-import com.github.michaelederaut.cygwinparser.SetupIniContents.PckgArchInfos;
 
 public class ArchiveChecker {
 
 	protected enum PckgVersion {current, prev} ;
 	protected enum ArchPurpose {install, source};
+	protected static final PckgVersion AE_pckg_versions[] = PckgVersion.values();
+	protected static final ArchPurpose AE_arch_purposes[] = ArchPurpose.values();
 	
 	public enum PckgCompletionDegree {
 			
@@ -81,10 +77,6 @@ public class ArchiveChecker {
 	
 	protected static final int I_min_nbr_archive_fn_parts = 4;
 	protected static final String S_archive_suffixes = "xz|bz2";
-	protected static final String S_re_pckg_install = "^\\-(\\S+?)\\.(tar\\.("       + S_archive_suffixes + "))$";
-	protected static final String S_re_pckg_src     = "^\\-(\\S+?)\\-(src\\.tar\\.(" + S_archive_suffixes + "))$";
-	protected static final NamedPattern P_pckg_install = new NamedPattern(S_re_pckg_install);
-	protected static final NamedPattern P_pckg_src = new NamedPattern(S_re_pckg_src);
 	protected static final String S_work_sheet_name = "install incomplete";
 	protected static final String AS_header_row[] = 
 			new String[] {"Name" , 
@@ -103,88 +95,8 @@ public class ArchiveChecker {
 	protected XSSFColor        O_color_blue;
 	
 	public String S_dna_cygw_repository_root;
-	
-	/**
-	 * 
-	 * @param PI_S_bn_archive String basename to be examined
-	 * @return equivalent install basename of type String, if the argument<br>
-	 * is a valid source archive, null otherwise. 
-	 */
-	public static String FS_get_install_archive_name(final String PI_S_bn_archive) {
-	    
-	    	 GroupMatchResult O_grp_match_result;
-	    	 String S_version_src;
-	    	 
-	    	 String S_retval = null;
-	    	 
-	    	 O_grp_match_result = RegexpUtils.FO_match(PI_S_bn_archive, P_pckg_src.O_patt);
-	    	 if (O_grp_match_result.I_array_size_f1 < 4) {
-            	  return S_retval;
-                  }
-	    	
-	    	S_version_src = O_grp_match_result.AS_numbered_groups[1];
-	    	S_retval = S_version_src.substring(4);
-	    	return S_retval;
-	    }
-	
-	protected class PckgNameFilter {
-		
-		public String S_prefix;
-	    public ArchPurpose E_arch_purpose;
-	    public NamedPattern P_tail;
-	    public Stack<String> AS_versions;
-			  
-	    protected PckgNameFilter(
-				final String PI_S_prefix,
-				final ArchPurpose PI_E_arch_purpose) {
-			
-			this.S_prefix = PI_S_prefix;
-			this.E_arch_purpose = PI_E_arch_purpose;
-			if (PI_E_arch_purpose == ArchPurpose.install) {
-			   this.P_tail = P_pckg_install;	
-			   }
-			else {
-			   this.P_tail = P_pckg_src;
-			    }
-			this.AS_versions = new Stack<String>();
-		    }	
-  
-	   	public BiPredicate<Path, BasicFileAttributes> FB_is_regular =
-        		  (Path PI_O_path,  BasicFileAttributes PI_attrs) ->   {
-        			  
-        	 GroupMatchResult O_grp_match_result;		  
-        	 Path P_bn;
-        	 int I_len_prefix;		  
-        	 String S_pn, S_bn, S_suffix, S_version;
-        	
-        	 boolean B_retval = false;
-        	  
-        	 if (!PI_attrs.isRegularFile()) {
-        	 	 return B_retval;
-        	     }
-        	 P_bn = PI_O_path.getFileName();
-        	 S_bn = P_bn.toString();
-        	  
-             if (!S_bn.startsWith(this.S_prefix)) {
-            	return B_retval;
-                }
-              I_len_prefix = this.S_prefix.length();
-              S_suffix = S_bn.substring(I_len_prefix);
-              O_grp_match_result = RegexpUtils.FO_match(S_suffix, this.P_tail.O_patt);
-              if (O_grp_match_result.I_array_size_f1 < 4) {
-            	  return B_retval;
-                  }
-              S_version = O_grp_match_result.AS_numbered_groups[1];
-              if (this.E_arch_purpose == ArchPurpose.install) {
-			  	  if (S_version.endsWith("-src")) {
-			         return B_retval;
-			    	 }
-			      }
-              this.AS_versions.push(S_version);
-			  B_retval = true;
-	          return B_retval;
-	    };
-	}
+	public MirrorIndex O_mirror_index;  // checks of its site are answered from it, see FO_index_mirror
+	protected volatile PckgVersionIndex O_version_index;  // versions of the archives of the folders listed, see FV_find_other_version
 	
 //----------------------
 	
@@ -236,245 +148,430 @@ public class ArchiveChecker {
 		this.S_dna_cygw_repository_root = PI_S_dna_cygw_repository_root;
 	    }
 	
-	public int FI_check_pckg_archives(
-			  final String          PI_S_dnr_site,
-			//  final ArchInfo       PB_O_arch_info,
-			  final PckgArchInfos  PB_O_pckg_arch_infos,
-			 
-			  final int             PI_I_pckg_nr_f0,
-			  final PckgVersion     PI_E_ver,
-			  final ArchPurpose     PI_E_purpose) {
+	/**
+	 * 
+	 * @param PI_S_pnr_archive path of the archive relative to the site, as in <tt>setup.ini</tt>
+	 * @return absolute pathname of the archive on the local mirror
+	 */
+	public String FS_get_archive_pna(
+			final String PI_S_dnr_site,
+			final String PI_S_pnr_archive) {
+		return this.S_dna_cygw_repository_root + File.separator + PI_S_dnr_site + File.separator + PI_S_pnr_archive;
+	    }
+	
+	/**
+	 * Walks the folder of a site once, the following checks of this site are answered
+	 * from the {@link MirrorIndex} instead of the file system.
+	 * 
+	 * @param PI_O_pool pool to walk the folders in parallel on, null to walk them sequentially
+	 * @return the index, also stored in {@link #O_mirror_index}
+	 */
+	public MirrorIndex FO_index_mirror(
+			final String       PI_S_dnr_site,
+			final ForkJoinPool PI_O_pool) {
+		
+		this.O_mirror_index = MirrorIndex.FO_build(
+				Paths.get(this.S_dna_cygw_repository_root, PI_S_dnr_site), 
+				PI_S_dnr_site, 
+				PI_O_pool);
+		return this.O_mirror_index;
+	    }
+	
+	/**
+	 * Checks one archive on the mirror, the result is stored in its slot of <tt>PB_O_pckg_table</tt>.
+	 * 
+	 * @param PI_I_slot_f0 slot of the archive, see {@link PckgTable#FI_get_slot(int, int, int)}
+	 * @return 1 if the archive exists, 0 otherwise
+	 */
+	public int FI_check_pckg_archive(
+			  final String      PI_S_dnr_site,
+			  final PckgTable   PB_O_pckg_table,
+			  final int         PI_I_slot_f0,
+			  final PckgVersion PI_E_ver,
+			  final ArchPurpose PI_E_purpose) {
 		
 		  AssertionError E_assert;
 		  RuntimeException E_rt;
 		  
-		  File F_pna_archive, F_dna_archives;
-		  Path FP_dna_archives;
-		  
-		  NamedPattern P_pckg;
-		  GroupMatchResult O_grp_match_result;
-		  PckgNameFilter   O_file_filter;
-		  List<String> AS_vers_prev, AS_bn_prev;
-		  Object AO_bn_prev[];
-		  ArchInfo O_arch_info;
-		  String S_msg_1, S_msg_2, S_pna_archive, S_pnr_archive, S_pckg_name, S_bn_archive_requested, 
-		         S_version_received, S_bn_tail, S_bn_suffix, S_arch_type,
-		          AS_archive_pnr_parts[], /* AS_bn_prev[], */ S_vers_prev;  
-	      int I_retval_nbr_checked_archives, I_nbr_archive_fn_parts_f1, I_idx_pckg_name_f0, I_idx_bn_archive_f0, 
-	          I_len_dnr_pckg_f1, I_nbr_prev_versions_f1, I_idx_completion_category_f0,
-	          I_idx_purpose_f0;
+		  File F_pna_archive;
+		  String S_msg_1, S_msg_2, S_pna_archive, S_pnr_archive, AS_archive_pnr_parts[];  
+	      int I_retval_nbr_checked_archives, I_nbr_archive_fn_parts_f1;
 	      long L_size_actual, L_size_expected;
-	      
-	      final BiPredicate<Path, BasicFileAttributes> F_B_is_regular =
-        		  (Path PI_O_path,  BasicFileAttributes PI_attrs) ->   {
-        			 String S_pn;
-        			 boolean B_retval = false;
-        			 if (PI_attrs.isRegularFile()) {
-        				 S_pn = PI_O_path.toString();
-        		//		 if (P_pckg_install.O_patt.ma)
-        			 };
-	    			  return B_retval;
-	    		  };  
 	         
 	      I_retval_nbr_checked_archives = 0;
-	      
-	   //   S_pnr_archive = PB_O_pckg_arch_infos.S_pnr_archive;
-	      S_pnr_archive = PB_O_pckg_arch_infos.S_name;  // TODO
-	      S_pna_archive = this.S_dna_cygw_repository_root + "\\" + PI_S_dnr_site + "\\" + S_pnr_archive;
+	      S_pnr_archive = PB_O_pckg_table.AS_archive_paths[PI_I_slot_f0];
+	      if ((PB_O_pckg_table.AI_version_ids[PI_I_slot_f0] < 0) || (S_pnr_archive == null)) {
+	    	 return I_retval_nbr_checked_archives;
+	         }
+	      S_pna_archive = FS_get_archive_pna(PI_S_dnr_site, S_pnr_archive);
 	      
 	      AS_archive_pnr_parts = S_pnr_archive.split("/");
-	      I_nbr_archive_fn_parts_f1 = ArrayUtils.getLength(AS_archive_pnr_parts);
+	      I_nbr_archive_fn_parts_f1 = AS_archive_pnr_parts.length;
 	      if (I_nbr_archive_fn_parts_f1 < I_min_nbr_archive_fn_parts) {
 	    	 S_msg_1 = "Pathname \"" + S_pna_archive + "\" doesnt have the minimun required " + I_min_nbr_archive_fn_parts + " parts.";
 	    	 E_assert = new AssertionError(S_msg_1);
-	    	 S_msg_2 = "Unable to determine package name from package indexed " + PI_I_pckg_nr_f0;
+	    	 S_msg_2 = "Unable to determine package name from package indexed " + (PI_I_slot_f0 / PckgTable.I_nbr_slots);
 	    	 E_rt = new RuntimeException(S_msg_2, E_assert);
 	    	 throw E_rt;
 	    	 }
-	     I_idx_purpose_f0 = PI_E_purpose.ordinal();	 
-	     LOOP_COMPLETION_CATEGORIES:
-	     for (I_idx_completion_category_f0 = 0; 
-	          I_idx_completion_category_f0 < I_nbr_purpose_completion_degrees; 
-	    	  I_idx_completion_category_f0++) {
-	    	  
-	          O_arch_info = PB_O_pckg_arch_infos.AAO_archinfos[I_idx_purpose_f0][I_idx_completion_category_f0];
-	          if (O_arch_info == null) {
-	        	  continue LOOP_COMPLETION_CATEGORIES;
-	              }
-		      O_arch_info.S_version = null;
-		      I_idx_bn_archive_f0 = I_nbr_archive_fn_parts_f1 - 1;
-		      I_idx_pckg_name_f0  = I_nbr_archive_fn_parts_f1 - 2;
-		      S_pckg_name = AS_archive_pnr_parts[I_idx_pckg_name_f0];
-		      S_bn_archive_requested = AS_archive_pnr_parts[I_idx_bn_archive_f0];
-		      I_len_dnr_pckg_f1 = S_pckg_name.length();
-		      S_bn_tail = S_bn_archive_requested.substring(I_len_dnr_pckg_f1);
-		      if (PI_E_purpose == ArchPurpose.install) {
-		         P_pckg = P_pckg_install;
-		    	 }
-		      else {
-		    	 P_pckg = P_pckg_src;
-		    	   }
-		      O_grp_match_result = RegexpUtils.FO_match(S_bn_tail, P_pckg.O_patt);     
-		    	    
-		      F_pna_archive = new File(S_pna_archive);
-		      if (F_pna_archive.exists()) {
-		    	  I_retval_nbr_checked_archives = 1;   
-		    	  O_arch_info.E_dl_status = DlStatus.exists; 
-		          }
-		      else {  
-		         if (PI_E_ver == PckgVersion.current) { // check if there are (previous/other) versions of this archive in the same folder
-		    	    if (O_grp_match_result.I_array_size_f1 >= 4) {
-		    		   S_version_received = O_grp_match_result.AS_numbered_groups[1];
-		    		   S_bn_suffix         = O_grp_match_result.AS_numbered_groups[2];
-		    		   S_arch_type         = O_grp_match_result.AS_numbered_groups[3];
-		//    		   O_file_filter = new PckgNameFilter(S_pckg_name, PI_E_purpose);
-		    		   O_file_filter =  new PckgNameFilter(S_pckg_name, PI_E_purpose);
-		    		  
-		    		  F_dna_archives = F_pna_archive.getParentFile();
-		    		  if (F_dna_archives.isDirectory()) {
-		    			  // https://stackoverflow.com/questions/2056221/recursively-list-files-in-java
-		    			  FP_dna_archives = Paths.get(F_dna_archives.getAbsolutePath());
-		    			  try {
-							AO_bn_prev = Files.find(FP_dna_archives, 3, O_file_filter.FB_is_regular).collect(Collectors.toList()).toArray();
-						} catch (IOException|ClassCastException PI_E_io) {
-							S_msg_1 = "Unable to find archives under \"" + F_dna_archives.getAbsolutePath();
-							E_rt = new RuntimeException(S_msg_1, PI_E_io);
-							throw E_rt;
-						}
-			    		//  AS_bn_prev = F_dna_archives.list(O_file_filter);
-			    		I_nbr_prev_versions_f1 =  AO_bn_prev.length;
-			    		if (I_nbr_prev_versions_f1 > 0) {
-			    			 AS_vers_prev = O_file_filter.AS_versions;
-			    			 S_vers_prev = AS_vers_prev.get(0);
-			    		     O_arch_info.E_dl_status = DlStatus.prev;
-			    		     O_arch_info.S_version = S_vers_prev;
-			    		     return I_retval_nbr_checked_archives;
-			    	         }
-		    		      }
-		    	      }
-		    	    } // END version == current
-		         } // END archive exists
-		      
-		      if (F_pna_archive.isFile()) {
-		    	  I_retval_nbr_checked_archives = 1;   
-		    	  O_arch_info.E_dl_status = DlStatus.isFile;
-		    	  if (O_grp_match_result.I_array_size_f1 >= 4) {
-		    		 S_version_received = O_grp_match_result.AS_numbered_groups[1];
-		    		 O_arch_info.S_version = S_version_received;
-		    	     }
-		          }
-		      else {
-		    	  return I_retval_nbr_checked_archives;
-		          }
-		      
-		      L_size_actual = F_pna_archive.length();
-		      L_size_expected = O_arch_info.I_size;
-		      if (L_size_actual == L_size_expected) {
-		    	 O_arch_info.E_dl_status = DlStatus.sizeOk; 
-		         }
-		      else {
-		    	  return I_retval_nbr_checked_archives;
-		          }
-		       } // END LOOP LOOP_COMPLETION_CATEGORIES
+	      PB_O_pckg_table.AS_versions_found[PI_I_slot_f0] = null;
+	      
+	      if ((this.O_mirror_index != null) && this.O_mirror_index.S_dnr_site.equals(PI_S_dnr_site) &&
+	    	  this.O_mirror_index.FB_is_complete(S_pnr_archive)) {
+	    	 I_retval_nbr_checked_archives = FI_check_pckg_archive(
+	    			 this.O_mirror_index, 
+	    			 PB_O_pckg_table, 
+	    			 PI_I_slot_f0, 
+	    			 S_pnr_archive);
+	    	 if ((I_retval_nbr_checked_archives == 0) && (PI_E_ver == PckgVersion.current)) {
+	    		FV_find_other_version(PI_S_dnr_site, PB_O_pckg_table, PI_I_slot_f0, S_pnr_archive, PI_E_purpose);
+	    	    }
+	    	 return I_retval_nbr_checked_archives;
+	         }
+	    	    
+	      F_pna_archive = new File(S_pna_archive);
+	      if (!F_pna_archive.exists()) {
+	    	 PB_O_pckg_table.FV_set_dl_status(PI_I_slot_f0, DlStatus.unknown);  // not found, reset in case of a re-check
+	         if (PI_E_ver == PckgVersion.current) {  // check if there are (previous/other) versions of this archive in the same folder
+	        	FV_find_other_version(PI_S_dnr_site, PB_O_pckg_table, PI_I_slot_f0, S_pnr_archive, PI_E_purpose);
+	    	    }
+	         return I_retval_nbr_checked_archives;
+	         } // END archive exists
+	      
+	      I_retval_nbr_checked_archives = 1;   
+	      PB_O_pckg_table.FV_set_dl_status(PI_I_slot_f0, DlStatus.exists);
+	      if (!F_pna_archive.isFile()) {
+	    	  return I_retval_nbr_checked_archives;
+	          }
+	      PB_O_pckg_table.FV_set_dl_status(PI_I_slot_f0, DlStatus.isFile);
+	      
+	      L_size_actual = F_pna_archive.length();
+	      L_size_expected = PB_O_pckg_table.AI_sizes[PI_I_slot_f0];
+	      if (L_size_actual == L_size_expected) {
+	    	 PB_O_pckg_table.FV_set_dl_status(PI_I_slot_f0, DlStatus.sizeOk); 
+	         }
 	      return I_retval_nbr_checked_archives;
 	      } 
 	
+	/**
+	 * Same as the check on the file system, the archive is looked up in <tt>PI_O_mirror_index</tt>.
+	 */
+	protected int FI_check_pckg_archive(
+			  final MirrorIndex    PI_O_mirror_index,
+			  final PckgTable      PB_O_pckg_table,
+			  final int            PI_I_slot_f0,
+			  final String         PI_S_pnr_archive) {
+		
+		  int I_retval_nbr_checked_archives, I_file_id;
+		  
+		  I_retval_nbr_checked_archives = 0;
+		  I_file_id = PI_O_mirror_index.FI_get_file_id(PI_S_pnr_archive);
+		  if (I_file_id < 0) {
+			 if (PI_O_mirror_index.FB_is_dir(PI_S_pnr_archive)) {  // exists, but no regular file
+				PB_O_pckg_table.FV_set_dl_status(PI_I_slot_f0, DlStatus.exists);
+				I_retval_nbr_checked_archives = 1;
+				return I_retval_nbr_checked_archives;
+			    }
+			 PB_O_pckg_table.FV_set_dl_status(PI_I_slot_f0, DlStatus.unknown);  // not found, reset in case of a re-check
+			 return I_retval_nbr_checked_archives;
+		     }
+		  
+		  I_retval_nbr_checked_archives = 1;
+		  PB_O_pckg_table.FV_set_dl_status(PI_I_slot_f0, DlStatus.isFile);
+		  if (PI_O_mirror_index.AL_sizes[I_file_id] == PB_O_pckg_table.AI_sizes[PI_I_slot_f0]) {
+			 PB_O_pckg_table.FV_set_dl_status(PI_I_slot_f0, DlStatus.sizeOk); 
+		     }
+		  return I_retval_nbr_checked_archives;
+	      }
 	
-	protected int FI_check_pckg_version(
-			  final String          PI_S_dnr_site,
-			  final PckgArchInfos PI_O_pckg_arch_infos,
-			  final int             PI_I_pckg_nr_f0,
-			  final PckgVersion     PI_E_ver) {
-		
-		      int I_retval_nbr_checked_archives, I_res_nbr_f1;
-		      
-		      
-		      I_retval_nbr_checked_archives = 0;
-		      
-		   //   AO_archinfo = PI_O_pckg_ver_info.O_install;
-		   //   if (O_archinfo != null) {
-		         I_res_nbr_f1 = FI_check_pckg_archives(
-		    		  PI_S_dnr_site,
-		    		  PI_O_pckg_arch_infos,
-		    		  PI_I_pckg_nr_f0,
-		    		  PI_E_ver,
-		    		  ArchPurpose.install
-		    		  );
-		          I_retval_nbr_checked_archives += I_res_nbr_f1;
-		    //      }
-		      
-		   //   AO_archinfo = PI_O_pckg_ver_info.AO_src;
-		   //   if (O_archinfo != null) {
-		         I_res_nbr_f1 = FI_check_pckg_archives(
-		    		  PI_S_dnr_site,
-		    		  PI_O_pckg_arch_infos,
-		    		  PI_I_pckg_nr_f0,
-		    		  PI_E_ver,
-		    		  ArchPurpose.source
-		    		  );  
-		          I_retval_nbr_checked_archives += I_res_nbr_f1;
-		    //      }
-		      return I_retval_nbr_checked_archives;     
+	/**
+	 * 
+	 * @return index of the folders of the site, built from {@link #O_mirror_index} if it is one of this site
+	 */
+	protected PckgVersionIndex FO_get_version_index(final String PI_S_dnr_site) {
+		
+		PckgVersionIndex O_retval_version_index;
+		MirrorIndex      O_mirror_index;
+		
+		O_mirror_index = this.O_mirror_index;
+		if ((O_mirror_index != null) && !O_mirror_index.S_dnr_site.equals(PI_S_dnr_site)) {
+		   O_mirror_index = null;
+		   }
+		O_retval_version_index = this.O_version_index;
+		if ((O_retval_version_index == null) || 
+			!O_retval_version_index.S_dnr_site.equals(PI_S_dnr_site) ||
+			(O_retval_version_index.O_mirror_index != O_mirror_index)) {
+		   O_retval_version_index = new PckgVersionIndex(
+				   PI_S_dnr_site, 
+				   Paths.get(this.S_dna_cygw_repository_root, PI_S_dnr_site), 
+				   O_mirror_index);
+		   this.O_version_index = O_retval_version_index;
+		   }
+		return O_retval_version_index;
+	}
+	
+	/**
+	 * Starts a new {@link PckgVersionIndex}, so the folders are listed again by the following check.
+	 */
+	protected void FV_reset_version_index(final String PI_S_dnr_site) {
+		
+		this.O_version_index = null;
+		FO_get_version_index(PI_S_dnr_site);
+		return;
+	}
+	
+	/**
+	 * Looks for older versions of a missing archive in its folder and below. The newest one is stored in 
+	 * {@link PckgTable#AS_versions_found} with status {@link DlStatus#prev}.<br>
+	 * Only searched if the basename requested is one of an archive of the purpose.
+	 */
+	protected void FV_find_other_version(
+			final String      PI_S_dnr_site,
+			final PckgTable   PB_O_pckg_table,
+			final int         PI_I_slot_f0,
+			final String      PI_S_pnr_archive,
+			final ArchPurpose PI_E_purpose) {
+		
+		PckgVersionIndex.ArchiveName O_archive_name;
+		String S_pnr_dir, S_version_found;
+		int I_pos_slash_f0;
+		
+		I_pos_slash_f0 = PI_S_pnr_archive.lastIndexOf('/');
+		O_archive_name = PckgVersionIndex.ArchiveName.FO_parse(PI_S_pnr_archive.substring(I_pos_slash_f0 + 1));
+		if ((I_pos_slash_f0 < 0) || (O_archive_name == null) || (O_archive_name.E_purpose != PI_E_purpose)) {
+		   return;
+		   }
+		S_pnr_dir = PI_S_pnr_archive.substring(0, I_pos_slash_f0);
+		S_version_found = FO_get_version_index(PI_S_dnr_site).FS_get_newest_version(
+				S_pnr_dir, 
+				O_archive_name.S_pckg_name, 
+				O_archive_name.S_version,
+				PI_E_purpose);
+		if (S_version_found != null) {
+		   PB_O_pckg_table.FV_set_dl_status(PI_I_slot_f0, DlStatus.prev);
+		   PB_O_pckg_table.AS_versions_found[PI_I_slot_f0] = S_version_found;
+		   }
+		return;
 	}
 	
 	public int FI_check_pckgs(
 			final String           PI_S_dnr_site,
 			final SetupIniContents PB_O_setup_ini_contents) {
 		
-		PckgInfo O_pckg_info;
-		ArchInfo AO_archinfos_install[];
-		PckgVersionInfo O_pckg_ver_info_curr, O_pckg_ver_info_prev;
-		String S_ver_requested;
-		int I_retval_nbr_checked_archives, I_nbr_pckgs_f1, I_res_nbr_f1,
-		I_nbr_archinfos_f1, i1;
+		int I_retval_nbr_checked_archives;
+		
+		I_retval_nbr_checked_archives = FI_check_pckgs(PI_S_dnr_site, PB_O_setup_ini_contents.FO_get_pckg_table());
+		return I_retval_nbr_checked_archives;	
+	}
+	
+	/**
+	 * Checks all packages of a table, e.g. one read from a {@link CatalogSnapshot}, 
+	 * see {@link PckgTable#PckgTable(CatalogSnapshot, SymbolTable)}.
+	 * 
+	 * @param PB_O_pckg_table receives the download status of each archive
+	 * @return number of archives found
+	 */
+	public int FI_check_pckgs(
+			final String    PI_S_dnr_site,
+			final PckgTable PB_O_pckg_table) {
+		
+		int I_retval_nbr_checked_archives, I_nbr_pckgs_f1, I_res_nbr_f1, i1;
 		
 		I_retval_nbr_checked_archives = 0;
+		FV_reset_version_index(PI_S_dnr_site);
 		
-		I_nbr_pckgs_f1 = PB_O_setup_ini_contents.AO_pckg_info.size();
+		I_nbr_pckgs_f1 = PB_O_pckg_table.I_nbr_pckgs_f1;
 		for (i1 = 0; i1 < I_nbr_pckgs_f1; i1++) {
-			O_pckg_info = PB_O_setup_ini_contents.AO_pckg_info.get(i1);
-			// O_pckg_ver_info_curr = O_pckg_info.O_version_current;
-			AO_archinfos_install =  O_pckg_info.AAO_archinfos[0];
-			S_ver_requested = AO_archinfos_install[0].S_version;
-			
-			O_pckg_ver_info_curr = new PckgVersionInfo(
-					O_pckg_info.S_name, 
-					  O_pckg_info.AAO_archinfos[0][0],
-					  O_pckg_info.AAO_archinfos[1][0]);
-			
-//			PckgArchInfos pai = new PckgArchInfos (
-//				    		S_ver_requested,
-//				    		O_pckg_info.AAO_archinfos);
-			
-//			I_res_nbr_f1 = FI_check_pckg_version(
-//					PI_S_dnr_site,
-//					O_pckg_ver_info_curr,
-//					i1,
-//					PckgVersion.current);
-			
-			I_res_nbr_f1 = FI_check_pckg_version(
-					PI_S_dnr_site,
-				    new PckgArchInfos (
-				    		S_ver_requested,
-				    		O_pckg_info.AAO_archinfos),
-					        i1,
-					        PckgVersion.current);
-			
+			I_res_nbr_f1 = FI_check_pckg(PI_S_dnr_site, PB_O_pckg_table, i1);
 			I_retval_nbr_checked_archives += I_res_nbr_f1;  
-			
-			// O_pckg_ver_info_prev = O_pckg_info.O_version_prev;
-			I_nbr_archinfos_f1 = AO_archinfos_install.length;
-			if (I_nbr_archinfos_f1 >= 3) {
-				I_res_nbr_f1 = FI_check_pckg_version(
+		    }		
+		return I_retval_nbr_checked_archives;	
+	}
+	
+	/**
+	 * Checks only some packages, e.g. the ones changed according to
+	 * {@link IniFileParser#FO_parse_incremental(SetupIniContents, MappedIniLineReader)}.<br>
+	 * The download status of the other packages is left as it is.
+	 * 
+	 * @param PI_AS_pckg_names names of the packages to be checked, unknown names are ignored
+	 */
+	public int FI_check_pckgs(
+			final String             PI_S_dnr_site,
+			final SetupIniContents   PB_O_setup_ini_contents,
+			final Collection<String> PI_AS_pckg_names) {
+		
+		PckgTable O_pckg_table;
+		int I_retval_nbr_checked_archives, I_res_nbr_f1, I_pckg_id;
+		
+		I_retval_nbr_checked_archives = 0;
+		FV_reset_version_index(PI_S_dnr_site);
+		O_pckg_table = PB_O_setup_ini_contents.FO_get_pckg_table();
+		LOOP_PCKG_NAMES: for (String S_pckg_name: PI_AS_pckg_names) {
+			I_pckg_id = O_pckg_table.FI_get_pckg_id(S_pckg_name);
+			if (I_pckg_id < 0) {
+			   continue LOOP_PCKG_NAMES;
+			   }
+			I_res_nbr_f1 = FI_check_pckg(PI_S_dnr_site, O_pckg_table, I_pckg_id);
+			I_retval_nbr_checked_archives += I_res_nbr_f1;  
+		    }
+		return I_retval_nbr_checked_archives;	
+	}
+	
+	public int FI_check_pckgs(
+			final String           PI_S_dnr_site,
+			final SetupIniContents PB_O_setup_ini_contents,
+			final ExecutorService  PI_O_executor,
+			final int              PI_I_max_nbr_in_flight_f1) {
+		
+		int I_retval_nbr_checked_archives;
+		
+		I_retval_nbr_checked_archives = FI_check_pckgs(
+				PI_S_dnr_site, 
+				PB_O_setup_ini_contents.FO_get_pckg_table(), 
+				PI_O_executor, 
+				PI_I_max_nbr_in_flight_f1);
+		return I_retval_nbr_checked_archives;
+	}
+	
+	/**
+	 * Checks the packages concurrently, one task per package.<br>
+	 * The tasks only write the slots of their own package, so the result is identical to the one of
+	 * {@link #FI_check_pckgs(String, PckgTable)}. At most <tt>PI_I_max_nbr_in_flight_f1</tt>
+	 * packages are checked at the same time, independent of the number of threads of the executor,
+	 * e.g. a thread per task executor may be passed to keep that many <tt>stat</tt> calls outstanding
+	 * on storage with high latency.
+	 * 
+	 * @param PI_O_executor executor to run the checks on, it is not shut down
+	 * @param PI_I_max_nbr_in_flight_f1 maximum number of packages checked at the same time
+	 * @return number of archives found
+	 */
+	public int FI_check_pckgs(
+			final String           PI_S_dnr_site,
+			final PckgTable        PB_O_pckg_table,
+			final ExecutorService  PI_O_executor,
+			final int              PI_I_max_nbr_in_flight_f1) {
+		
+		RuntimeException      E_rt;
+		final PckgTable       O_pckg_table;
+		final Semaphore       O_in_flight;
+		List<Future<Integer>> AO_results;
+		Callable<Integer>     O_check;
+		String                S_msg_1;
+		int I_retval_nbr_checked_archives, I_nbr_pckgs_f1, i1;
+		
+		I_retval_nbr_checked_archives = 0;
+		FV_reset_version_index(PI_S_dnr_site);
+		O_pckg_table   = PB_O_pckg_table;
+		I_nbr_pckgs_f1 = O_pckg_table.I_nbr_pckgs_f1;
+		O_in_flight    = new Semaphore(PI_I_max_nbr_in_flight_f1);
+		AO_results     = new ArrayList<Future<Integer>>(I_nbr_pckgs_f1);
+		try {
+			for (i1 = 0; i1 < I_nbr_pckgs_f1; i1++) {
+				final int I_pckg_id = i1;
+				O_check = () -> {
+					try {
+						return FI_check_pckg(PI_S_dnr_site, O_pckg_table, I_pckg_id);
+					} finally {
+						O_in_flight.release();
+					    }
+				    };
+				O_in_flight.acquire();
+				try {
+					AO_results.add(PI_O_executor.submit(O_check));
+				} catch (RejectedExecutionException PI_E_rej) {
+					O_in_flight.release();
+					throw PI_E_rej;
+				    }
+			    }
+			for (Future<Integer> O_result: AO_results) {
+				I_retval_nbr_checked_archives += O_result.get().intValue();
+			    }
+		} catch (InterruptedException PI_E_int) {
+			for (Future<Integer> O_result: AO_results) {
+				O_result.cancel(true);
+			    }
+			Thread.currentThread().interrupt();
+			S_msg_1 = "Interrupted while checking the archives of site \"" + PI_S_dnr_site + "\"";
+			E_rt = new RuntimeException(S_msg_1, PI_E_int);
+			throw E_rt;
+		} catch (ExecutionException PI_E_exec) {
+			for (Future<Integer> O_result: AO_results) {
+				O_result.cancel(true);
+			    }
+			S_msg_1 = "Unable to check the archives of site \"" + PI_S_dnr_site + "\"";
+			E_rt = new RuntimeException(S_msg_1, PI_E_exec.getCause());
+			throw E_rt;
+		    }
+		return I_retval_nbr_checked_archives;
+	}
+	
+	public int FI_check_pckgs(
+			final String           PI_S_dnr_site,
+			final SetupIniContents PB_O_setup_ini_contents,
+			final int              PI_I_nbr_threads_f1) {
+		
+		int I_retval_nbr_checked_archives;
+		
+		I_retval_nbr_checked_archives = FI_check_pckgs(
+				PI_S_dnr_site, 
+				PB_O_setup_ini_contents.FO_get_pckg_table(), 
+				PI_I_nbr_threads_f1);
+		return I_retval_nbr_checked_archives;
+	}
+	
+	/**
+	 * Checks the packages on a pool of <tt>PI_I_nbr_threads_f1</tt> threads, which is shut down afterwards.
+	 * 
+	 * @see #FI_check_pckgs(String, PckgTable, ExecutorService, int)
+	 */
+	public int FI_check_pckgs(
+			final String    PI_S_dnr_site,
+			final PckgTable PB_O_pckg_table,
+			final int       PI_I_nbr_threads_f1) {
+		
+		ExecutorService O_executor;
+		int I_retval_nbr_checked_archives;
+		
+		O_executor = Executors.newFixedThreadPool(PI_I_nbr_threads_f1);
+		try {
+			I_retval_nbr_checked_archives = FI_check_pckgs(
+					PI_S_dnr_site, 
+					PB_O_pckg_table, 
+					O_executor, 
+					PI_I_nbr_threads_f1);
+		} finally {
+			O_executor.shutdown();
+		    }
+		return I_retval_nbr_checked_archives;
+	}
+	
+	/**
+	 * Checks the install and source archives of the current and, if any, the <tt>[prev]</tt> version.
+	 */
+	protected int FI_check_pckg(
+			final String    PI_S_dnr_site,
+			final PckgTable PB_O_pckg_table,
+			final int       PI_I_pckg_id) {
+		
+		PckgVersion E_ver;
+		ArchPurpose E_purpose;
+		int I_retval_nbr_checked_archives, I_res_nbr_f1, I_nbr_versions_f1, i1, i2;
+		
+		I_retval_nbr_checked_archives = 0;
+		I_nbr_versions_f1 = PB_O_pckg_table.AY_nbr_versions[PI_I_pckg_id];
+		for (i1 = 0; i1 < I_nbr_versions_f1; i1++) {
+			E_ver = AE_pckg_versions[i1];
+			for (i2 = 0; i2 < PckgTable.I_nbr_purposes; i2++) {
+				E_purpose = AE_arch_purposes[i2];
+				I_res_nbr_f1 = FI_check_pckg_archive(
 						PI_S_dnr_site,
-						new PckgArchInfos (
-				    		S_ver_requested,
-				    		O_pckg_info.AAO_archinfos),
-					        i1,
-						    PckgVersion.prev);
+						PB_O_pckg_table,
+						PckgTable.FI_get_slot(PI_I_pckg_id, i1, i2),
+						E_ver,
+						E_purpose);
 				I_retval_nbr_checked_archives += I_res_nbr_f1;  
 			    }
-		    }		
+		    }
 		return I_retval_nbr_checked_archives;	
 	}
 
@@ -559,11 +656,26 @@ public class ArchiveChecker {
 			final SetupIniContents PI_O_setup_ini_contents,
 			final MutableInt       PB_I_nbr_lines_written) {
 		
+		FV_eval_categories(PB_O_fs_output, PI_S_dnr_site, PI_O_setup_ini_contents.FO_get_pckg_table(), PB_I_nbr_lines_written);
+		return;
+	}
+	
+	/**
+	 * Writes the packages of each category which lack an archive of the expected size
+	 * or whose archive failed the verification, status {@link DlStatus#hashMismatch}.
+	 * 
+	 * @param PI_O_pckg_table packages with the download status determined by {@link #FI_check_pckgs(String, PckgTable)}
+	 */
+	public void FV_eval_categories(
+			final FileOutputStream PB_O_fs_output,
+			final String           PI_S_dnr_site,
+			final PckgTable        PI_O_pckg_table,
+			final MutableInt       PB_I_nbr_lines_written) {
+		
 		 RuntimeException                  E_rt;
 		 AssertionError                    E_assert;
-		 NullPointerException              E_np;
-		 TreeMap<String, TreeSet<String>>  HAS_categories;
-		 NavigableSet<String>              AS_categories, AS_packages;
+		 NavigableMap<String, PckgIdSet>   HO_category_pckgs;
+		 PckgIdSet                         AO_packages;
 		
 		// http://poi.apache.org/spreadsheet/quick-guide.html#NewWorkbook
 		// https://www.tutorialspoint.com/apache_poi/apache_poi_hyperlink.htm
@@ -572,23 +684,22 @@ public class ArchiveChecker {
 		 Row                               O_row;
 		 Cell                              O_cell;
 		
-		 ArchInfo                          O_arch_info_install, O_arch_info_src, AO_arch_infos[];
-		 PckgInfo                          O_pckg_info;
-		 PckgVersionInfo                   O_pckg_vers_info;
+		 PckgTable                         O_pckg_table;
+		 DlStatus                          E_dl_status;
 	//	 Stack<String>                     AS_outlines;
 		 Stack<RowContents>                AO_row_contents;
 		 RowContents                       O_row_contents_1;
-		 ArchPurposeContents               O_arch_purpose_contents_src, O_arch_purpose_contents_install, 
-		                                   AO_arch_purpose_contents[];
+		 ArchPurposeContents               AO_arch_purpose_contents[];
 		 
 		 File           F_pnr_archive;
-	     String         S_msg_1, S_msg_2, S_outline_c, S_outline_f, 
+	     String         S_msg_1, S_outline_c, S_outline_f, S_category, S_package, 
 	                    S_version_current, S_hyperlink_txt, S_hyperlink_destination,
 	                    S_ver_requested, S_pnr_archive, S_dnr_archive, S_prv_ver,
 	                    S_cell_header;
 	     StrBuilder     SB_outline_f;
 	     boolean        B_msg_install;
-	     int            i1, I_line_nbr_f1, I_nbr_lines_written_f1, I_min_lvl_package, I_min_lvl_category, I_dl_lvl_install, I_dl_lvl_src, I_pos_on_stack_f0;
+	     int            i1, i2, I_line_nbr_f1, I_nbr_lines_written_f1, I_min_lvl_package, I_min_lvl_category, I_dl_lvl, 
+	                    I_pckg_id, I_slot_f0;
 	   
 	    O_wb = new XSSFWorkbook();
 	    O_font_bold = O_wb.createFont();
@@ -628,15 +739,16 @@ public class ArchiveChecker {
 	    	O_cell.setCellValue(S_cell_header);
 	        }
 	    O_work_sheet.createFreezePane(0, 1);  // freeze first row
-		HAS_categories = PI_O_setup_ini_contents.HAS_categories;
+		O_pckg_table      = PI_O_pckg_table;
+		HO_category_pckgs = O_pckg_table.HO_category_pckgs;
 //		AS_outlines     = new Stack<String>();
 		AO_row_contents = new Stack<RowContents>();
-		AS_categories  = HAS_categories.navigableKeySet();
 		I_line_nbr_f1  = 0;
 		I_nbr_lines_written_f1 = PB_I_nbr_lines_written.getValue();
 		I_nbr_lines_written_f1++;
 		
-		for (String S_category: AS_categories) {
+		for (Map.Entry<String, PckgIdSet> O_category: HO_category_pckgs.entrySet()) {
+			S_category = O_category.getKey();
 			I_min_lvl_category = Integer.MAX_VALUE;
 			
 //			AS_outlines.clear();
@@ -649,108 +761,61 @@ public class ArchiveChecker {
 			System.out.println(S_outline_c);
 		//	PB_O_buff_wrtr.write(S_outline_f); PB_O_buff_wrtr.newLine();
 //			AS_outlines.push(S_outline_f);
-			AS_packages = HAS_categories.get(S_category);
-			for (String S_package: AS_packages) {
+			AO_packages = O_category.getValue();
+			for (I_pckg_id = AO_packages.FI_next(0); I_pckg_id >= 0; I_pckg_id = AO_packages.FI_next(I_pckg_id + 1)) {
 				I_min_lvl_package = Integer.MAX_VALUE;
+				S_package    = O_pckg_table.FS_get_name(I_pckg_id);
 				SB_outline_f = new StrBuilder(S_package);
 				
-				I_pos_on_stack_f0 = PI_O_setup_ini_contents.HS_package_names.get(S_package).I_pos_on_stack_f0;
-				O_pckg_info = PI_O_setup_ini_contents.AO_pckg_info.get(I_pos_on_stack_f0);
-		 	
-				AO_arch_infos = null;
-				if ((O_pckg_info == null) || 
-				    (O_pckg_info.AAO_archinfos == null) ||
-				    (O_pckg_info.AAO_archinfos.length == 0) ||
-				    ((AO_arch_infos = O_pckg_info.AAO_archinfos[0]) == null)) {
-						S_msg_1 = "Object of type \'" + O_pckg_info.getClass().getName() + "\' must not be null here.";
-						E_np = new NullPointerException(S_msg_1);
-						S_msg_2 = "Unable to obtain download-level of package/module: \'" + S_category + "/" + S_package + "\'";
-						E_rt = new RuntimeException(S_msg_2, E_np);
-						throw E_rt;
-					    }
-				 AO_arch_infos = O_pckg_info.AAO_archinfos[0];
-			     S_version_current = AO_arch_infos[0].S_version;
-				 B_msg_install                   = false;
-				 O_arch_purpose_contents_install = null;
-				
-				 O_pckg_vers_info = new PckgVersionInfo(  // TODO
-						 S_version_current,
-						 AO_arch_infos[0],
-						 AO_arch_infos[2]);
-				 S_version_current = O_pckg_vers_info.S_version;
+				 S_version_current = O_pckg_table.FS_get_version(PckgTable.FI_get_slot(I_pckg_id, 0, 0));
+				 B_msg_install     = false;
 				 SB_outline_f.append("(" + S_version_current + "):");
-				 O_arch_info_install = O_pckg_vers_info.O_install;
-				 S_hyperlink_txt = null;
-				 if (O_arch_info_install != null) {
-					 I_dl_lvl_install  = O_arch_info_install.E_dl_status.ordinal();
-					 if (I_dl_lvl_install < I_min_lvl_package) {
-						 I_min_lvl_package = I_dl_lvl_install; 
+				 AO_arch_purpose_contents = new ArchPurposeContents[PckgTable.I_nbr_purposes];
+				 LOOP_PURPOSES: for (i2 = 0; i2 < PckgTable.I_nbr_purposes; i2++) {
+					 I_slot_f0 = PckgTable.FI_get_slot(I_pckg_id, 0, i2);
+					 if (O_pckg_table.AI_version_ids[I_slot_f0] < 0) {
+						continue LOOP_PURPOSES; 
+					    }
+					 E_dl_status = O_pckg_table.FE_get_dl_status(I_slot_f0);
+					 I_dl_lvl  = E_dl_status.ordinal();
+					 if (I_dl_lvl < I_min_lvl_package) {
+						 I_min_lvl_package = I_dl_lvl; 
 					     }
-					 if (I_dl_lvl_install < DL_MINIMUM_REQUIREMENT) {
-		  			    SB_outline_f.append(" install");
-						if (I_dl_lvl_install == ArchInfo.I_dl_status_prev) {
-							SB_outline_f.append("(" + O_arch_info_install.S_version + ")");
-							S_prv_ver = O_arch_info_install.S_version;
-						    }
+					 if (I_dl_lvl < DL_MINIMUM_REQUIREMENT) {
+						if (i2 == 0) {
+						   SB_outline_f.append(" install");
+						   B_msg_install = true;
+						   }
 						else {
-							SB_outline_f.append(" " + O_arch_info_install.E_dl_status.name());
-							S_prv_ver = null;
-						    }
-					//	S_pnr_archive = O_pckg_vers_info.O_install.S_pnr_archive;
-						S_pnr_archive = O_pckg_info.S_name; // TODO
-					    F_pnr_archive = new File(S_pnr_archive);
-					    S_dnr_archive = F_pnr_archive.getParent();
-					     
-					     S_hyperlink_txt         = S_dnr_archive + "\\";
-					     S_hyperlink_destination = S_dna_cygw_repository_root + "/" + PI_S_dnr_site + "/" + S_dnr_archive;
-					     O_arch_purpose_contents_install = new ArchPurposeContents(
-					    		    O_arch_info_install.E_dl_status, 
-					    		    S_prv_ver, 
-					    		    S_hyperlink_txt,
-					    		    S_hyperlink_destination);
-						B_msg_install = true;
-					    } //  (I_dl_lvl_install < DL_MINIMUM_REQUIREMENT)
-				     }
-				     
-				 O_arch_info_src             = O_pckg_vers_info.O_src;
-				 O_arch_purpose_contents_src = null;
-				 
-				 if (O_arch_info_src != null) {
-					 I_dl_lvl_src     = O_arch_info_src.E_dl_status.ordinal();
-					 if (I_dl_lvl_src < I_min_lvl_package) {
-						 I_min_lvl_package = I_dl_lvl_src; 
-					     }
-					 if (I_dl_lvl_src < DL_MINIMUM_REQUIREMENT) {
-						if (B_msg_install) {
-							SB_outline_f.append(" ---");
-						    }
-						SB_outline_f.append(" src");
-						if (I_dl_lvl_src == ArchInfo.I_dl_status_prev) {
-							SB_outline_f.append("(" + O_arch_info_src.S_version + ")");
-							S_prv_ver = O_arch_info_src.S_version;
+						   if (B_msg_install) {
+							  SB_outline_f.append(" ---");
+						      }
+						   SB_outline_f.append(" src");
+						   }
+						if (I_dl_lvl == ArchInfo.I_dl_status_prev) {
+							S_prv_ver = O_pckg_table.AS_versions_found[I_slot_f0];
+							SB_outline_f.append("(" + S_prv_ver + ")");
 						    }
 						else {
-							SB_outline_f.append(" " + O_arch_info_src.E_dl_status.name());
+							SB_outline_f.append(" " + E_dl_status.name());
 							S_prv_ver = null;
-						   }
-					//	S_pnr_archive = O_pckg_vers_info.O_src.S_pnr_archive;
-						S_pnr_archive = O_pckg_info.S_name; // TODO
+						    }
+						S_pnr_archive = O_pckg_table.AS_archive_paths[I_slot_f0];
 					    F_pnr_archive = new File(S_pnr_archive);
 					    S_dnr_archive = F_pnr_archive.getParent();
 					     
 					    S_hyperlink_txt         = S_dnr_archive + "\\";
 					    S_hyperlink_destination = S_dna_cygw_repository_root + "/" + PI_S_dnr_site + "/" + S_dnr_archive;
-					    O_arch_purpose_contents_src = new ArchPurposeContents(
-					    		    O_arch_info_src.E_dl_status, 
+					    AO_arch_purpose_contents[i2] = new ArchPurposeContents(
+					    		    E_dl_status, 
 					    		    S_prv_ver, 
 					    		    S_hyperlink_txt,
 					    		    S_hyperlink_destination);
-						}
-				    }	 
+					    } //  (I_dl_lvl < DL_MINIMUM_REQUIREMENT)
+				     }
 				 if (I_min_lvl_package < DL_MINIMUM_REQUIREMENT) {
 					 S_outline_f = SB_outline_f.toString();
 //					 AS_outlines.push(S_outline_f);
-					 AO_arch_purpose_contents = new ArchPurposeContents[] {O_arch_purpose_contents_install, O_arch_purpose_contents_src};
 					 O_row_contents_1 = new RowContents(S_package, S_version_current, AO_arch_purpose_contents);
 					 AO_row_contents.push(O_row_contents_1);
 				     }
@@ -0,0 +1,376 @@
+package com.github.michaelederaut.cygwinparser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import com.github.michaelederaut.cygwinparser.SetupIniContents.ArchInfo.DlStatus;
+
+/**
+ * Verifies the SHA-512 digests of the archives found by {@link ArchiveChecker} against the ones of <tt>setup.ini</tt>.<br>
+ * Only archives with the expected size, status {@link DlStatus#sizeOk} or better, are read.
+ * Each one is hashed by one task of an executor, read in blocks of {@link #I_block_size_f1} bytes
+ * into a direct buffer reused by the thread.
+ * The verifier keeps the site and table of the current run, so it runs one verification at a time.<br>
+ * A matching archive is promoted to {@link DlStatus#hashOk}, a mismatching one is demoted to
+ * {@link DlStatus#hashMismatch}, an archive which cannot be read keeps its status.
+ * The slots of both are recorded in the {@link Result}.<br>
+ * With a {@link DigestCache} set, archives whose size, modification time and file key are unchanged
+ * are compared with the digest cached instead of being read, the digests computed are added to it.
+ */
+public class ArchiveVerifier {
+
+	public static final String S_digest_algorithm  = "SHA-512";
+	public static final int    I_dflt_block_size   = 1 << 20;
+
+	/**
+	 * Outcome of one verification run.
+	 */
+	public static class Result {
+
+		public int  I_nbr_archives_f1, I_nbr_hash_ok_f1, I_nbr_mismatches_f1, I_nbr_failures_f1;
+		public int  I_nbr_cached_f1;       // archives whose digest was taken from the cache
+		public long L_nbr_bytes_f1;        // bytes hashed, not counting the cached archives
+		public long L_nbr_nanos_f1;        // wall time of the run
+		public int  AI_mismatch_slots[];   // slots of the mismatching archives, ascending
+		public int  AI_failed_slots[];     // slots of the archives which could not be read, ascending
+		public IOException AE_failures[];  // cause of each failed slot
+
+		/**
+		 *
+		 * @return bytes hashed per second of wall time
+		 */
+		public double FD_get_bytes_per_sec() {
+			return (this.L_nbr_nanos_f1 == 0) ? 0.0d : (1.0e9d * this.L_nbr_bytes_f1 / this.L_nbr_nanos_f1);
+		}
+
+		@Override
+		public String toString() {
+			String S_retval;
+
+			S_retval = this.I_nbr_archives_f1 + " archives verified, " +
+					this.I_nbr_hash_ok_f1 + " ok, " +
+					this.I_nbr_mismatches_f1 + " mismatching, " +
+					this.I_nbr_failures_f1 + " unreadable, " +
+					this.I_nbr_cached_f1 + " from cache, " +
+					(this.L_nbr_bytes_f1 >> 20) + " MiB at " +
+					String.format("%.1f", FD_get_bytes_per_sec() / (1 << 20)) + " MiB/s";
+			return S_retval;
+		}
+	}
+
+	/**
+	 * Hashes the archive of one slot, then releases its permit of the semaphore limiting the archives in flight.<br>
+	 * An archive which cannot be read, e.g. removed or locked since it was checked, is recorded in {@link #E_io},
+	 * the other archives are verified nevertheless.
+	 */
+	protected class SlotVerifier implements Callable<Long> {
+
+		public final int       I_slot_f0;
+		public final Semaphore O_in_flight;
+		public boolean         B_hash_ok, B_cached;
+		public IOException     E_io;  // null if the archive was read
+
+		public SlotVerifier(
+				final int       PI_I_slot_f0,
+				final Semaphore PB_O_in_flight) {
+			this.I_slot_f0   = PI_I_slot_f0;
+			this.O_in_flight = PB_O_in_flight;
+		    }
+
+		@Override
+		public Long call() {
+
+			PckgTable           O_pckg_table;
+			DigestCache         O_digest_cache;
+			BasicFileAttributes O_attrs;
+			Path                FP_pna_archive;
+			String              S_pnr_archive;
+			byte AY_digest[];
+
+			O_pckg_table   = ArchiveVerifier.this.O_pckg_table;
+			O_digest_cache = ArchiveVerifier.this.O_digest_cache;
+			S_pnr_archive  = O_pckg_table.AS_archive_paths[this.I_slot_f0];
+			try {
+				FP_pna_archive = ArchiveVerifier.this.FP_get_archive(this.I_slot_f0);
+				if (O_digest_cache == null) {
+				   AY_digest = FAY_digest(FP_pna_archive, ArchiveVerifier.this.O_buffers.get());
+				   }
+				else {
+				   O_attrs   = Files.readAttributes(FP_pna_archive, BasicFileAttributes.class);  // before hashing, a later change is seen next time
+				   AY_digest = O_digest_cache.FAY_get_digest(S_pnr_archive, O_attrs);
+				   this.B_cached = (AY_digest != null);
+				   if (!this.B_cached) {
+					  AY_digest = FAY_digest(FP_pna_archive, ArchiveVerifier.this.O_buffers.get());
+					  O_digest_cache.FV_put(S_pnr_archive, O_attrs, AY_digest);
+				      }
+				   }
+			} catch (IOException PI_E_io) {
+				this.E_io = PI_E_io;
+				return Long.valueOf(0L);
+			} finally {
+				this.O_in_flight.release();
+			    }
+			this.B_hash_ok = O_pckg_table.FB_hash_equals(this.I_slot_f0, AY_digest, 0);
+			O_pckg_table.FV_set_dl_status(this.I_slot_f0, this.B_hash_ok ? DlStatus.hashOk : DlStatus.hashMismatch);
+			return Long.valueOf(this.B_cached ? 0L : O_pckg_table.AI_sizes[this.I_slot_f0]);  // equal to the size of the file, see DlStatus.sizeOk
+		}
+	}
+
+	public final ArchiveChecker O_checker;
+	public final int            I_block_size_f1;
+	public DigestCache          O_digest_cache;  // null to hash all archives
+
+	protected String    S_dnr_site;
+	protected PckgTable O_pckg_table;
+	protected final ThreadLocal<ByteBuffer> O_buffers;  // one direct buffer per thread, allocated once
+
+	/**
+	 *
+	 * @param PI_O_checker its root and {@link ArchiveChecker#FS_get_archive_pna(String, String)} locate the archives
+	 * @param PI_I_block_size_f1 bytes read at once
+	 */
+	public ArchiveVerifier(
+			final ArchiveChecker PI_O_checker,
+			final int            PI_I_block_size_f1) {
+		this.O_checker       = PI_O_checker;
+		this.I_block_size_f1 = PI_I_block_size_f1;
+		this.O_buffers       = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(PI_I_block_size_f1));
+	    }
+
+	public ArchiveVerifier(final ArchiveChecker PI_O_checker) {
+		this(PI_O_checker, I_dflt_block_size);
+	    }
+
+	protected Path FP_get_archive(final int PI_I_slot_f0) {
+		return Paths.get(this.O_checker.FS_get_archive_pna(this.S_dnr_site, this.O_pckg_table.AS_archive_paths[PI_I_slot_f0]));
+	}
+
+	/**
+	 * Computes the SHA-512 digest of a file.
+	 *
+	 * @param PI_I_block_size_f1 bytes read at once
+	 * @return the digest, {@link SetupIniContents.ArchInfo#I_len_hash_bytes} bytes
+	 */
+	public static byte[] FAY_digest(
+			final Path PI_FP_pna_archive,
+			final int  PI_I_block_size_f1) throws IOException {
+
+		byte AY_retval_digest[];
+
+		AY_retval_digest = FAY_digest(PI_FP_pna_archive, ByteBuffer.allocateDirect(PI_I_block_size_f1));
+		return AY_retval_digest;
+	}
+
+	/**
+	 * Computes the SHA-512 digest of a file, read through a channel into <tt>PB_O_buffer</tt>.
+	 * Nothing is mapped, so no mapping outlives the call or keeps the file from being deleted on Windows.
+	 *
+	 * @param PB_O_buffer buffer to read into, preferably direct, its contents are overwritten
+	 * @return the digest, {@link SetupIniContents.ArchInfo#I_len_hash_bytes} bytes
+	 */
+	public static byte[] FAY_digest(
+			final Path       PI_FP_pna_archive,
+			final ByteBuffer PB_O_buffer) throws IOException {
+
+		RuntimeException E_rt;
+		MessageDigest    O_digest;
+		String           S_msg_1;
+		int I_nbr_read_f1;
+
+		try {
+			O_digest = MessageDigest.getInstance(S_digest_algorithm);
+		} catch (NoSuchAlgorithmException PI_E_nsa) {
+			S_msg_1 = "Digest algorithm \"" + S_digest_algorithm + "\" not available";
+			E_rt = new RuntimeException(S_msg_1, PI_E_nsa);
+			throw E_rt;
+		    }
+		try (FileChannel O_channel = FileChannel.open(PI_FP_pna_archive, StandardOpenOption.READ)) {
+			do {
+				PB_O_buffer.clear();
+				I_nbr_read_f1 = O_channel.read(PB_O_buffer);
+				PB_O_buffer.flip();
+				O_digest.update(PB_O_buffer);
+			    } while (I_nbr_read_f1 >= 0);
+		    }
+		return O_digest.digest();
+	}
+
+	/**
+	 * Verifies the archives of a site, at most <tt>PI_I_max_nbr_in_flight_f1</tt> at the same time.<br>
+	 * The download status of <tt>PB_O_setup_ini_contents</tt> must have been determined by {@link ArchiveChecker} before.
+	 *
+	 * @param PI_O_executor executor to run the verification on, it is not shut down
+	 * @return counts, mismatching slots and throughput
+	 */
+	public Result FO_verify(
+			final String           PI_S_dnr_site,
+			final SetupIniContents PB_O_setup_ini_contents,
+			final ExecutorService  PI_O_executor,
+			final int              PI_I_max_nbr_in_flight_f1) {
+
+		Result O_retval_result;
+
+		O_retval_result = FO_verify(PI_S_dnr_site, PB_O_setup_ini_contents.FO_get_pckg_table(), PI_O_executor, PI_I_max_nbr_in_flight_f1);
+		return O_retval_result;
+	}
+
+	/**
+	 * Verifies the archives of a table, e.g. one read from a {@link CatalogSnapshot}.
+	 *
+	 * @see #FO_verify(String, SetupIniContents, ExecutorService, int)
+	 */
+	public Result FO_verify(
+			final String          PI_S_dnr_site,
+			final PckgTable       PB_O_pckg_table,
+			final ExecutorService PI_O_executor,
+			final int             PI_I_max_nbr_in_flight_f1) {
+
+		RuntimeException   E_rt;
+		Semaphore          O_in_flight;
+		Result             O_retval_result;
+		List<SlotVerifier> AO_slot_verifiers;
+		List<Future<Long>> AO_results;
+		SlotVerifier       O_slot_verifier;
+		String             S_msg_1;
+		int i1, I_nbr_slots_f1, I_nbr_mismatches_f1, I_nbr_failures_f1;
+		long L_start_nanos;
+
+		this.S_dnr_site   = PI_S_dnr_site;
+		this.O_pckg_table = PB_O_pckg_table;
+		O_retval_result   = new Result();
+		L_start_nanos     = System.nanoTime();
+
+		I_nbr_slots_f1    = this.O_pckg_table.AY_dl_status.length;
+		O_in_flight       = new Semaphore(PI_I_max_nbr_in_flight_f1);
+		AO_slot_verifiers = new ArrayList<SlotVerifier>();
+		AO_results        = new ArrayList<Future<Long>>();
+		try {
+			LOOP_SLOTS: for (i1 = 0; i1 < I_nbr_slots_f1; i1++) {
+				if ((this.O_pckg_table.AI_version_ids[i1] < 0) ||
+					(this.O_pckg_table.AS_archive_paths[i1] == null) ||
+					(this.O_pckg_table.AY_dl_status[i1] < DlStatus.sizeOk.ordinal())) {
+				   continue LOOP_SLOTS;
+				   }
+				O_slot_verifier = new SlotVerifier(i1, O_in_flight);
+				AO_slot_verifiers.add(O_slot_verifier);
+				O_in_flight.acquire();
+				try {
+					AO_results.add(PI_O_executor.submit(O_slot_verifier));
+				} catch (RejectedExecutionException PI_E_rej) {
+					O_in_flight.release();
+					throw PI_E_rej;
+				    }
+			    }
+			for (Future<Long> O_result: AO_results) {
+				O_retval_result.L_nbr_bytes_f1 += O_result.get().longValue();
+			    }
+		} catch (InterruptedException PI_E_int) {
+			for (Future<Long> O_result: AO_results) {
+				O_result.cancel(true);
+			    }
+			Thread.currentThread().interrupt();
+			S_msg_1 = "Interrupted while verifying the archives of site \"" + PI_S_dnr_site + "\"";
+			E_rt = new RuntimeException(S_msg_1, PI_E_int);
+			throw E_rt;
+		} catch (ExecutionException PI_E_exec) {
+			for (Future<Long> O_result: AO_results) {
+				O_result.cancel(true);
+			    }
+			S_msg_1 = "Unable to verify the archives of site \"" + PI_S_dnr_site + "\"";
+			E_rt = new RuntimeException(S_msg_1, PI_E_exec.getCause());
+			throw E_rt;
+		    }
+		finally {
+			if (this.O_digest_cache != null) {  // keep the digests computed so far, even if aborted
+			   this.O_digest_cache.FV_flush();
+			   }
+		    }
+		O_retval_result.L_nbr_nanos_f1 = System.nanoTime() - L_start_nanos;
+
+		O_retval_result.I_nbr_archives_f1 = AO_slot_verifiers.size();
+		O_retval_result.AI_mismatch_slots = new int[O_retval_result.I_nbr_archives_f1];
+		O_retval_result.AI_failed_slots   = new int[O_retval_result.I_nbr_archives_f1];
+		O_retval_result.AE_failures       = new IOException[O_retval_result.I_nbr_archives_f1];
+		I_nbr_mismatches_f1 = 0;
+		I_nbr_failures_f1   = 0;
+		for (SlotVerifier O_verifier: AO_slot_verifiers) {
+			if (O_verifier.E_io != null) {
+			   O_retval_result.AI_failed_slots[I_nbr_failures_f1] = O_verifier.I_slot_f0;
+			   O_retval_result.AE_failures[I_nbr_failures_f1]     = O_verifier.E_io;
+			   I_nbr_failures_f1++;
+			   continue;
+			   }
+			if (O_verifier.B_cached) {
+			   O_retval_result.I_nbr_cached_f1++;
+			   }
+			if (O_verifier.B_hash_ok) {
+			   O_retval_result.I_nbr_hash_ok_f1++;
+			   }
+			else {
+			   O_retval_result.AI_mismatch_slots[I_nbr_mismatches_f1++] = O_verifier.I_slot_f0;
+			   }
+		    }
+		O_retval_result.I_nbr_mismatches_f1 = I_nbr_mismatches_f1;
+		O_retval_result.AI_mismatch_slots   = Arrays.copyOf(O_retval_result.AI_mismatch_slots, I_nbr_mismatches_f1);
+		O_retval_result.I_nbr_failures_f1   = I_nbr_failures_f1;
+		O_retval_result.AI_failed_slots     = Arrays.copyOf(O_retval_result.AI_failed_slots, I_nbr_failures_f1);
+		O_retval_result.AE_failures         = Arrays.copyOf(O_retval_result.AE_failures, I_nbr_failures_f1);
+		return O_retval_result;
+	}
+
+	/**
+	 * Verifies the archives on a pool of <tt>PI_I_nbr_threads_f1</tt> threads, which is shut down afterwards.
+	 *
+	 * @see #FO_verify(String, SetupIniContents, ExecutorService, int)
+	 */
+	public Result FO_verify(
+			final String           PI_S_dnr_site,
+			final SetupIniContents PB_O_setup_ini_contents,
+			final int              PI_I_nbr_threads_f1) {
+
+		Result O_retval_result;
+
+		O_retval_result = FO_verify(PI_S_dnr_site, PB_O_setup_ini_contents.FO_get_pckg_table(), PI_I_nbr_threads_f1);
+		return O_retval_result;
+	}
+
+	/**
+	 * Verifies the archives of a table on a pool of <tt>PI_I_nbr_threads_f1</tt> threads, which is shut down afterwards.
+	 *
+	 * @see #FO_verify(String, PckgTable, ExecutorService, int)
+	 */
+	public Result FO_verify(
+			final String    PI_S_dnr_site,
+			final PckgTable PB_O_pckg_table,
+			final int       PI_I_nbr_threads_f1) {
+
+		ExecutorService O_executor;
+		Result          O_retval_result;
+
+		O_executor = Executors.newFixedThreadPool(PI_I_nbr_threads_f1);
+		try {
+			O_retval_result = FO_verify(PI_S_dnr_site, PB_O_pckg_table, O_executor, PI_I_nbr_threads_f1);
+		} finally {
+			O_executor.shutdown();
+		    }
+		return O_retval_result;
+	}
+}
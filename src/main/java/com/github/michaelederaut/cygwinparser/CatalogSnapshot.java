@@ -0,0 +1,1091 @@
+package com.github.michaelederaut.cygwinparser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.github.michaelederaut.cygwinparser.SetupIniContents.ArchInfo;
+import com.github.michaelederaut.cygwinparser.SetupIniContents.PckgArchInfos;
+import com.github.michaelederaut.cygwinparser.SetupIniContents.PckgInfo;
+import com.github.michaelederaut.cygwinparser.SetupIniContents.PckgPosition;
+
+/**
+ * Binary snapshot of a parsed <tt>setup.ini</tt>, read through a read-only memory mapping.<br>
+ * The snapshot is keyed by the absolute path, size, modification time and a 64 bit content hash
+ * of the <tt>setup.ini</tt> it was created from, see {@link #FO_open(File, File)}.
+ * The accessors read names, requires, versions, sizes and digests directly from the mapping,
+ * so several JVMs may share one snapshot without parsing or deserializing it.<br>
+ * A snapshot is never modified in place: {@link #FB_write(File, MappedIniLineReader, SetupIniContents)}
+ * writes a temporary file next to it and renames it.
+ * <p>
+ * Layout, all numbers big-endian, each section aligned to 8 bytes:
+ * <ul>
+ * <li>header: magic, {@link #I_format_version}, source key, counts and section offsets, source path in UTF-8</li>
+ * <li>strings: <tt>{offset, length}</tt> per string id, followed by the UTF-8 bytes</li>
+ * <li>packages: {@link #I_len_pckg_rec} bytes per package in the order of <tt>setup.ini</tt></li>
+ * <li>ints: string ids of the categories and requires of the packages</li>
+ * <li>names: package indices ordered by the UTF-8 bytes of their names</li>
+ * <li>categories: per category its string id and the indices of its packages</li>
+ * <li>ldesc: the long descriptions in the syntax of <tt>setup.ini</tt></li>
+ * </ul>
+ */
+public class CatalogSnapshot {
+
+	public static final long L_magic          = 0x4359475749534E50L;  // "CYGWISNP"
+	public static final int  I_format_version = 2;
+
+	public static final String S_bn_snapshot = "setup.ini.snapshot";
+
+	protected static final int I_len_hash_block = 1 << 20;  // multiple of 8
+
+	// header
+	protected static final int I_off_magic          = 0;
+	protected static final int I_off_format_version = 8;
+	protected static final int I_off_src_size       = 16;
+	protected static final int I_off_src_mtime      = 24;
+	protected static final int I_off_src_hash       = 32;
+	protected static final int I_off_nbr_pckgs      = 40;
+	protected static final int I_off_nbr_strings    = 44;
+	protected static final int I_off_sect_strings   = 48;
+	protected static final int I_off_sect_pckgs     = 52;
+	protected static final int I_off_sect_ints      = 56;
+	protected static final int I_off_sect_names     = 60;
+	protected static final int I_off_sect_cats      = 64;
+	protected static final int I_off_sect_ldesc     = 68;
+	protected static final int I_off_len_src_path   = 72;
+	protected static final int I_len_header         = 76;  // followed by the source path
+
+	// package record
+	protected static final int I_off_name_id      = 0;
+	protected static final int I_off_sdesc_id     = 4;
+	protected static final int I_off_ldesc_start  = 8;
+	protected static final int I_off_ldesc_len    = 12;
+	protected static final int I_off_cats_start   = 16;
+	protected static final int I_off_nbr_cats     = 20;
+	protected static final int I_off_reqs_start   = 24;
+	protected static final int I_off_nbr_reqs     = 28;
+	protected static final int I_off_line_nbr     = 32;
+	protected static final int I_off_stanza_start = 36;
+	protected static final int I_off_stanza_len   = 40;
+	protected static final int I_off_nbr_versions = 44;
+	protected static final int I_off_fingerprint  = 48;
+	protected static final int I_off_archives     = 56;
+
+	// archive slot, slot index = 2 * version index + purpose
+	protected static final int I_off_version_id = 0;
+	protected static final int I_off_size       = 4;
+	protected static final int I_off_path_id    = 8;
+	protected static final int I_off_hash       = 16;
+	protected static final int I_len_archive    = I_off_hash + ArchInfo.I_len_hash_bytes;
+
+	public static final int I_max_nbr_versions = 2;  // current and [prev]
+	public static final int I_nbr_purposes     = 2;  // install and source
+	public static final int I_len_pckg_rec     = I_off_archives + I_max_nbr_versions * I_nbr_purposes * I_len_archive;
+
+	public ByteBuffer       O_buffer;  // null once closed
+	public final String     S_pn;
+	protected final int     I_nbr_pckgs_f1, I_nbr_strings_f1;
+	protected final int     I_sect_strings_f0, I_sect_pckgs_f0, I_sect_ints_f0, I_sect_names_f0,
+	                        I_sect_cats_f0, I_sect_ldesc_f0;
+
+	protected CatalogSnapshot(
+			final ByteBuffer PI_O_buffer,
+			final String     PI_S_pn) {
+
+		this.O_buffer          = PI_O_buffer;
+		this.S_pn              = PI_S_pn;
+		this.I_nbr_pckgs_f1    = PI_O_buffer.getInt(I_off_nbr_pckgs);
+		this.I_nbr_strings_f1  = PI_O_buffer.getInt(I_off_nbr_strings);
+		this.I_sect_strings_f0 = PI_O_buffer.getInt(I_off_sect_strings);
+		this.I_sect_pckgs_f0   = PI_O_buffer.getInt(I_off_sect_pckgs);
+		this.I_sect_ints_f0    = PI_O_buffer.getInt(I_off_sect_ints);
+		this.I_sect_names_f0   = PI_O_buffer.getInt(I_off_sect_names);
+		this.I_sect_cats_f0    = PI_O_buffer.getInt(I_off_sect_cats);
+		this.I_sect_ldesc_f0   = PI_O_buffer.getInt(I_off_sect_ldesc);
+	}
+
+	/**
+	 * 64 bit FNV-1a over 8 byte words, followed by the remaining bytes one by one.
+	 *
+	 * @param PI_O_buffer bytes of <tt>setup.ini</tt>
+	 * @param PI_I_end_f0 first byte behind the range hashed, which starts at 0
+	 * @return content hash used as part of the key of a snapshot
+	 */
+	public static long FL_get_content_hash(
+			final ByteBuffer PI_O_buffer,
+			final int        PI_I_end_f0) {
+
+		long L_retval_hash;
+
+		L_retval_hash = FL_get_content_hash(StanzaScanner.L_fnv_offset_basis, PI_O_buffer, PI_I_end_f0);
+		return L_retval_hash;
+	}
+
+	/**
+	 * Continues a content hash, see {@link #FL_get_content_hash(ByteBuffer, int)}.
+	 *
+	 * @param PI_L_hash hash of the preceding bytes, a multiple of 8
+	 */
+	protected static long FL_get_content_hash(
+			final long       PI_L_hash,
+			final ByteBuffer PI_O_buffer,
+			final int        PI_I_end_f0) {
+
+		long L_retval_hash;
+		int i1, I_end_words_f0;
+
+		L_retval_hash  = PI_L_hash;
+		I_end_words_f0 = PI_I_end_f0 & ~7;
+		for (i1 = 0; i1 < I_end_words_f0; i1 += 8) {
+			L_retval_hash = (L_retval_hash ^ PI_O_buffer.getLong(i1)) * StanzaScanner.L_fnv_prime;
+		    }
+		for (i1 = I_end_words_f0; i1 < PI_I_end_f0; i1++) {
+			L_retval_hash = (L_retval_hash ^ (PI_O_buffer.get(i1) & 0xFFL)) * StanzaScanner.L_fnv_prime;
+		    }
+		return L_retval_hash;
+	}
+
+	/**
+	 * Same hash as {@link #FL_get_content_hash(ByteBuffer, int)} over the whole file, which is read in blocks
+	 * of {@link #I_len_hash_block} bytes through one buffer instead of being mapped.
+	 */
+	public static long FL_get_content_hash(final File PI_F_pna_setup_ini) {
+
+		RuntimeException E_rt;
+		ByteBuffer       O_block;
+		String           S_msg_1;
+		long             L_retval_hash;
+		int              I_nbr_read_f1;
+
+		L_retval_hash = StanzaScanner.L_fnv_offset_basis;
+		O_block       = ByteBuffer.allocateDirect(I_len_hash_block);
+		try (FileChannel O_channel = FileChannel.open(PI_F_pna_setup_ini.toPath(), StandardOpenOption.READ)) {
+			LOOP_BLOCKS: while (true) {
+				O_block.clear();
+				I_nbr_read_f1 = 0;
+				while (O_block.hasRemaining() && (I_nbr_read_f1 >= 0)) {  // only the last block may be partial
+					I_nbr_read_f1 = O_channel.read(O_block);
+				    }
+				L_retval_hash = FL_get_content_hash(L_retval_hash, O_block, O_block.position());
+				if (I_nbr_read_f1 < 0) {
+				   break LOOP_BLOCKS;
+				   }
+			    }
+		} catch (IOException PI_E_io) {
+			S_msg_1 = "Unable to read \"" + PI_F_pna_setup_ini.getPath() + "\"";
+			E_rt = new RuntimeException(S_msg_1, PI_E_io);
+			throw E_rt;
+		    }
+		return L_retval_hash;
+	}
+
+	protected static String FS_get_src_path(final File PI_F_pna_setup_ini) {
+		String S_retval_pn;
+
+		S_retval_pn = PI_F_pna_setup_ini.getAbsolutePath();
+		return S_retval_pn;
+	}
+
+	protected static long FL_get_mtime(final File PI_F_pna_setup_ini) {
+
+		RuntimeException E_rt;
+		String S_msg_1;
+		long L_retval_mtime;
+
+		try {
+			L_retval_mtime = Files.getLastModifiedTime(PI_F_pna_setup_ini.toPath()).toMillis();
+		} catch (IOException PI_E_io) {
+			S_msg_1 = "Unable to determine the modification time of \"" + PI_F_pna_setup_ini.getPath() + "\"";
+			E_rt = new RuntimeException(S_msg_1, PI_E_io);
+			throw E_rt;
+		    }
+		return L_retval_mtime;
+	}
+
+	/**
+	 * Maps a snapshot if it was created from the current contents of <tt>PI_F_pna_setup_ini</tt>.<br>
+	 * The content hash is only computed if path, size and modification time match.
+	 *
+	 * @param PI_F_pna_snapshot snapshot, need not exist
+	 * @param PI_F_pna_setup_ini <tt>setup.ini</tt> the snapshot is expected to belong to
+	 * @return the snapshot, null if it does not exist, is of another format version or is out of date
+	 */
+	public static CatalogSnapshot FO_open(
+			final File PI_F_pna_snapshot,
+			final File PI_F_pna_setup_ini) {
+
+		RuntimeException    E_rt;
+		ByteBuffer          O_buffer;
+		CatalogSnapshot     O_retval_snapshot;
+		String              S_msg_1;
+		long                L_size_f1, L_src_hash;
+
+		if (!PI_F_pna_snapshot.isFile() || !PI_F_pna_setup_ini.isFile()) {
+		   return null;
+		   }
+		try (FileChannel O_channel = FileChannel.open(PI_F_pna_snapshot.toPath(), StandardOpenOption.READ)) {
+			L_size_f1 = O_channel.size();
+			if ((L_size_f1 < I_len_header) || (L_size_f1 > Integer.MAX_VALUE)) {
+			   return null;
+			   }
+			O_buffer = O_channel.map(FileChannel.MapMode.READ_ONLY, 0L, L_size_f1);  // remains valid after close
+		} catch (IOException PI_E_io) {
+			S_msg_1 = "Unable to map snapshot \"" + PI_F_pna_snapshot.getPath() + "\"";
+			E_rt = new RuntimeException(S_msg_1, PI_E_io);
+			throw E_rt;
+		    }
+		if (!FB_is_readable(O_buffer, PI_F_pna_setup_ini) ||
+		    (O_buffer.getLong(I_off_src_size) != PI_F_pna_setup_ini.length()) ||
+		    (O_buffer.getLong(I_off_src_mtime) != FL_get_mtime(PI_F_pna_setup_ini))) {
+		   return null;
+		   }
+		L_src_hash = FL_get_content_hash(PI_F_pna_setup_ini);  // read, a mapping would stay until collected
+		if (O_buffer.getLong(I_off_src_hash) != L_src_hash) {
+		   return null;
+		   }
+		O_retval_snapshot = new CatalogSnapshot(O_buffer, PI_F_pna_snapshot.getPath());
+		return O_retval_snapshot;
+	}
+
+	/**
+	 * Reads a snapshot of a former version of <tt>PI_F_pna_setup_ini</tt>, the source key is not checked.<br>
+	 * The snapshot is read into the heap rather than mapped, so it can be replaced on Windows as well
+	 * once the contents are brought up to date by
+	 * {@link IniFileParser#FO_parse_incremental(SetupIniContents, MappedIniLineReader, ParseDiagnostics)}.
+	 *
+	 * @return the snapshot, null if it does not exist, is of another format version or belongs to another file
+	 */
+	public static CatalogSnapshot FO_open_previous(
+			final File PI_F_pna_snapshot,
+			final File PI_F_pna_setup_ini) {
+
+		RuntimeException E_rt;
+		ByteBuffer       O_buffer;
+		CatalogSnapshot  O_retval_snapshot;
+		String           S_msg_1;
+		long             L_size_f1;
+
+		if (!PI_F_pna_snapshot.isFile()) {
+		   return null;
+		   }
+		try (FileChannel O_channel = FileChannel.open(PI_F_pna_snapshot.toPath(), StandardOpenOption.READ)) {
+			L_size_f1 = O_channel.size();
+			if ((L_size_f1 < I_len_header) || (L_size_f1 > Integer.MAX_VALUE)) {
+			   return null;
+			   }
+			O_buffer = ByteBuffer.allocate((int)L_size_f1);
+			while (O_buffer.hasRemaining() && (O_channel.read(O_buffer) >= 0)) {
+				continue;
+			    }
+		} catch (IOException PI_E_io) {
+			S_msg_1 = "Unable to read snapshot \"" + PI_F_pna_snapshot.getPath() + "\"";
+			E_rt = new RuntimeException(S_msg_1, PI_E_io);
+			throw E_rt;
+		    }
+		if (O_buffer.hasRemaining() || !FB_is_readable(O_buffer, PI_F_pna_setup_ini)) {
+		   return null;
+		   }
+		O_retval_snapshot = new CatalogSnapshot(O_buffer, PI_F_pna_snapshot.getPath());
+		return O_retval_snapshot;
+	}
+
+	/**
+	 *
+	 * @return true if the snapshot is of this format version and was created from a file of this path
+	 */
+	protected static boolean FB_is_readable(
+			final ByteBuffer PI_O_buffer,
+			final File       PI_F_pna_setup_ini) {
+
+		byte AY_src_path[];
+
+		if ((PI_O_buffer.getLong(I_off_magic) != L_magic) ||
+		    (PI_O_buffer.getInt(I_off_format_version) != I_format_version)) {
+		   return false;
+		   }
+		AY_src_path = FS_get_src_path(PI_F_pna_setup_ini).getBytes(StandardCharsets.UTF_8);
+		if ((PI_O_buffer.getInt(I_off_len_src_path) != AY_src_path.length) ||
+		    (I_len_header + AY_src_path.length > PI_O_buffer.limit()) ||
+		    !PI_O_buffer.slice(I_len_header, AY_src_path.length).equals(ByteBuffer.wrap(AY_src_path))) {
+		   return false;
+		   }
+		return FB_is_complete(PI_O_buffer, I_len_header + AY_src_path.length);
+	}
+
+	/**
+	 * Checks the sections against each other and the size, as a truncated or partly overwritten snapshot
+	 * would make the accessors read outside of it.
+	 *
+	 * @param PI_I_end_header_f0 end of the source path
+	 * @return true if the sections are in the order written, fit their counts and the last one ends with the file
+	 */
+	protected static boolean FB_is_complete(
+			final ByteBuffer PI_O_buffer,
+			final int        PI_I_end_header_f0) {
+
+		long L_nbr_pckgs_f1, L_nbr_strings_f1, L_sect_strings_f0, L_sect_pckgs_f0, L_sect_ints_f0,
+		     L_sect_names_f0, L_sect_cats_f0, L_sect_ldesc_f0, L_last_pckg_rec_f0, L_end_ldesc_f0;
+
+		L_nbr_pckgs_f1    = PI_O_buffer.getInt(I_off_nbr_pckgs);
+		L_nbr_strings_f1  = PI_O_buffer.getInt(I_off_nbr_strings);
+		L_sect_strings_f0 = PI_O_buffer.getInt(I_off_sect_strings);
+		L_sect_pckgs_f0   = PI_O_buffer.getInt(I_off_sect_pckgs);
+		L_sect_ints_f0    = PI_O_buffer.getInt(I_off_sect_ints);
+		L_sect_names_f0   = PI_O_buffer.getInt(I_off_sect_names);
+		L_sect_cats_f0    = PI_O_buffer.getInt(I_off_sect_cats);
+		L_sect_ldesc_f0   = PI_O_buffer.getInt(I_off_sect_ldesc);
+		if ((L_nbr_pckgs_f1 < 0L) || (L_nbr_strings_f1 < 0L) ||
+		    (L_sect_pckgs_f0 < PI_I_end_header_f0) ||
+		    (L_sect_pckgs_f0 + L_nbr_pckgs_f1 * I_len_pckg_rec > L_sect_ints_f0) ||
+		    (L_sect_ints_f0 > L_sect_cats_f0) ||
+		    (L_sect_cats_f0 > L_sect_strings_f0) ||
+		    (L_sect_strings_f0 + 8L * L_nbr_strings_f1 > L_sect_names_f0) ||
+		    (L_sect_names_f0 + 4L * L_nbr_pckgs_f1 > L_sect_ldesc_f0) ||
+		    (L_sect_ldesc_f0 > PI_O_buffer.limit())) {
+		   return false;
+		   }
+		L_end_ldesc_f0 = L_sect_ldesc_f0;
+		if (L_nbr_pckgs_f1 > 0L) {  // the long descriptions are written in package order
+		   L_last_pckg_rec_f0 = L_sect_pckgs_f0 + (L_nbr_pckgs_f1 - 1L) * I_len_pckg_rec;
+		   L_end_ldesc_f0 += (long)PI_O_buffer.getInt((int)L_last_pckg_rec_f0 + I_off_ldesc_start) +
+		                           PI_O_buffer.getInt((int)L_last_pckg_rec_f0 + I_off_ldesc_len);
+		   }
+		return (L_end_ldesc_f0 == PI_O_buffer.limit());
+	}
+
+	/**
+	 * Counts the bytes written as long, {@link DataOutputStream#size()} stops at {@link Integer#MAX_VALUE}.<br>
+	 * Fails as soon as the snapshot outgrows the int offsets of the format.
+	 */
+	protected static class LengthOutputStream extends FilterOutputStream {
+
+		public long L_len_f1;
+
+		public LengthOutputStream(final OutputStream PB_O_out) {
+			super(PB_O_out);
+			this.L_len_f1 = 0L;
+		    }
+
+		protected void FV_add(final int PI_I_len_f1) throws IOException {
+
+			String S_msg_1;
+
+			this.L_len_f1 += PI_I_len_f1;
+			if (this.L_len_f1 > Integer.MAX_VALUE) {
+			   S_msg_1 = "Snapshot exceeds the maximum of " + Integer.MAX_VALUE + " bytes.";
+			   throw new IOException(S_msg_1);
+			   }
+			return;
+		    }
+
+		@Override
+		public void write(final int PI_I_byte) throws IOException {
+			FV_add(1);
+			this.out.write(PI_I_byte);
+		    }
+
+		@Override
+		public void write(
+				final byte PI_AY_bytes[],
+				final int  PI_I_off_f0,
+				final int  PI_I_len_f1) throws IOException {
+			FV_add(PI_I_len_f1);
+			this.out.write(PI_AY_bytes, PI_I_off_f0, PI_I_len_f1);
+		    }
+
+		/**
+		 *
+		 * @return number of bytes written so far, the offset of the next one
+		 */
+		public int FI_get_offset() {
+			return (int)this.L_len_f1;
+		    }
+	}
+
+	protected static void FV_align(
+			final DataOutputStream   PB_O_data_out,
+			final LengthOutputStream PI_O_len_out) throws IOException {
+
+		while ((PI_O_len_out.L_len_f1 & 7) != 0) {
+			PB_O_data_out.writeByte(0);
+		    }
+		return;
+	}
+
+	protected static int FI_get_id(
+			final SymbolTable PB_O_strings,
+			final String      PI_S_string) {
+
+		int I_retval_id;
+
+		if (PI_S_string == null) {
+		   return -1;
+		   }
+		I_retval_id = PB_O_strings.FI_intern(PI_S_string, 0, PI_S_string.length());
+		return I_retval_id;
+	}
+
+	/**
+	 *
+	 * @return the long description in the syntax of <tt>setup.ini</tt>, the bytes it was parsed from if available
+	 */
+	protected static byte[] FAY_get_ldesc(final PckgInfo PI_O_pckg_info) {
+
+		byte AY_retval_ldesc[];
+
+		if (PI_O_pckg_info.S_ldesc == null) {
+		   AY_retval_ldesc = new byte[PI_O_pckg_info.I_ldesc_len_f1];
+		   PI_O_pckg_info.O_ldesc_bytes.get(PI_O_pckg_info.I_ldesc_start_f0, AY_retval_ldesc);
+		   }
+		else {
+		   AY_retval_ldesc = ("ldesc: \"" + PI_O_pckg_info.S_ldesc + "\"").getBytes(StandardCharsets.UTF_8);
+		   }
+		return AY_retval_ldesc;
+	}
+
+	/**
+	 * Creates or replaces a snapshot.<br>
+	 * The key is computed from the bytes the contents were parsed from, so a <tt>setup.ini</tt>
+	 * replaced while parsing leads to a snapshot which is not accepted by {@link #FO_open(File, File)}.
+	 *
+	 * @param PI_F_pna_snapshot snapshot to be written
+	 * @param PI_O_rdr_setup_ini reader the contents were parsed from, not closed yet
+	 * @param PI_O_setup_ini_contents parsed contents, with fingerprints if available,
+	 * see {@link SetupIniContents#FV_set_fingerprints(MappedIniLineReader)}
+	 * @return false if the existing snapshot could not be replaced, e.g. because another process maps it on Windows
+	 */
+	public static boolean FB_write(
+			final File                PI_F_pna_snapshot,
+			final MappedIniLineReader PI_O_rdr_setup_ini,
+			final SetupIniContents    PI_O_setup_ini_contents) {
+
+		RuntimeException         E_rt;
+		IllegalArgumentException E_ill_arg;
+		ByteArrayOutputStream    O_byte_out;
+		DataOutputStream         O_data_out;
+		LengthOutputStream       O_len_out;
+		ByteBuffer               O_snapshot;
+		SymbolTable              O_strings;
+		PckgInfo                 O_pckg_info;
+		PckgPosition             O_pckg_pos;
+		ArchInfo                 O_archinfo;
+		File                     F_pna_setup_ini;
+		Path                     O_pna_tmp;
+		List<byte[]>             AAY_ldescs;
+		Map<String, PckgIdSet>   O_category_pckgs;
+		Integer                  AI_name_order[];
+		byte                     AY_src_path[], AY_bytes[], AAY_strings[][];
+		int                      AI_name_ids[], AI_ldesc_starts[];
+		int i1, i2, i3, I_nbr_pckgs_f1, I_nbr_strings_f1, I_nbr_versions_f1, I_pos_f0, I_nbr_ints_f0, I_archive_slot_f0;
+		int I_sect_strings_f0, I_sect_pckgs_f0, I_sect_ints_f0, I_sect_names_f0, I_sect_cats_f0, I_sect_ldesc_f0;
+		long                     L_len_f1, L_len_ldesc_f1;
+		boolean                  B_retval_written;
+		String                   S_msg_1, S_msg_2;
+
+		F_pna_setup_ini = new File(PI_O_rdr_setup_ini.S_pn);
+		AY_src_path     = FS_get_src_path(F_pna_setup_ini).getBytes(StandardCharsets.UTF_8);
+		I_nbr_pckgs_f1  = PI_O_setup_ini_contents.AO_pckg_info.size();
+		O_strings       = new SymbolTable(4 * I_nbr_pckgs_f1);
+		AI_name_ids     = new int[I_nbr_pckgs_f1];
+		AI_ldesc_starts = new int[I_nbr_pckgs_f1];
+		AAY_ldescs      = new ArrayList<byte[]>(I_nbr_pckgs_f1);
+		L_len_ldesc_f1  = 0L;
+		L_len_f1 = (long)I_len_pckg_rec * (I_nbr_pckgs_f1 + 16);  // estimate of the other sections
+		for (i1 = 0; i1 < I_nbr_pckgs_f1; i1++) {
+			O_pckg_info = PI_O_setup_ini_contents.AO_pckg_info.get(i1);
+			AI_name_ids[i1] = FI_get_id(O_strings, O_pckg_info.S_name);
+			AY_bytes = FAY_get_ldesc(O_pckg_info);
+			AAY_ldescs.add(AY_bytes);
+			AI_ldesc_starts[i1] = (int)L_len_ldesc_f1;
+			L_len_ldesc_f1 += AY_bytes.length;
+		    }
+		L_len_f1 += L_len_ldesc_f1;
+		if (L_len_f1 > Integer.MAX_VALUE) {  // offsets of the format are ints
+		   S_msg_1 = "Snapshot of about " + L_len_f1 + " bytes exceeds the maximum of " + Integer.MAX_VALUE + " bytes.";
+		   E_ill_arg = new IllegalArgumentException(S_msg_1);
+		   S_msg_2 = "Unable to create snapshot \"" + PI_F_pna_snapshot.getPath() + "\"";
+		   E_rt = new RuntimeException(S_msg_2, E_ill_arg);
+		   throw E_rt;
+		   }
+
+		O_byte_out = new ByteArrayOutputStream((int)L_len_f1);
+		O_len_out  = new LengthOutputStream(O_byte_out);
+		O_data_out = new DataOutputStream(O_len_out);
+		try {
+			// header, offsets and counts are filled in below
+			O_data_out.writeLong(L_magic);
+			O_data_out.writeInt(I_format_version);
+			O_data_out.writeInt(0);
+			O_data_out.writeLong(PI_O_rdr_setup_ini.I_limit_f0);
+			O_data_out.writeLong(FL_get_mtime(F_pna_setup_ini));
+			O_data_out.writeLong(FL_get_content_hash(PI_O_rdr_setup_ini.O_buffer, PI_O_rdr_setup_ini.I_limit_f0));
+			while (O_len_out.FI_get_offset() < I_off_len_src_path) {
+				O_data_out.writeInt(0);
+			    }
+			O_data_out.writeInt(AY_src_path.length);
+			O_data_out.write(AY_src_path);
+			FV_align(O_data_out, O_len_out);
+
+			// packages, strings are collected on the way
+			I_sect_pckgs_f0 = O_len_out.FI_get_offset();
+			I_nbr_ints_f0 = 0;
+			for (i1 = 0; i1 < I_nbr_pckgs_f1; i1++) {
+				O_pckg_info = PI_O_setup_ini_contents.AO_pckg_info.get(i1);
+				O_pckg_pos  = PI_O_setup_ini_contents.HS_package_names.get(O_pckg_info.S_name);
+				I_nbr_versions_f1 = O_pckg_info.AAO_archinfos[0].length;
+				O_data_out.writeInt(AI_name_ids[i1]);
+				O_data_out.writeInt(FI_get_id(O_strings, O_pckg_info.S_sdesc));
+				O_data_out.writeInt(AI_ldesc_starts[i1]);
+				O_data_out.writeInt(AAY_ldescs.get(i1).length);
+				O_data_out.writeInt(I_nbr_ints_f0);
+				O_data_out.writeInt(O_pckg_info.AS_categories.length);
+				I_nbr_ints_f0 += O_pckg_info.AS_categories.length;
+				O_data_out.writeInt(I_nbr_ints_f0);
+				O_data_out.writeInt(O_pckg_info.AS_requires.length);
+				I_nbr_ints_f0 += O_pckg_info.AS_requires.length;
+				O_data_out.writeInt(O_pckg_pos.I_line_nbr_f1);
+				O_data_out.writeInt(O_pckg_pos.I_stanza_start_f0);
+				O_data_out.writeInt(O_pckg_pos.I_stanza_len_f1);
+				O_data_out.writeInt(I_nbr_versions_f1);
+				O_data_out.writeLong(O_pckg_pos.L_fingerprint);
+				for (i2 = 0; i2 < I_max_nbr_versions; i2++) {
+					for (i3 = 0; i3 < I_nbr_purposes; i3++) {
+						O_archinfo = (i2 < I_nbr_versions_f1) ? O_pckg_info.AAO_archinfos[i3][i2] : null;
+						if (O_archinfo == null) {
+						   O_data_out.writeInt(-1);
+						   O_data_out.writeInt(0);
+						   O_data_out.writeInt(-1);
+						   O_data_out.write(new byte[I_len_archive - 12]);
+						   continue;
+						   }
+						O_data_out.writeInt(FI_get_id(O_strings, O_archinfo.S_version));
+						O_data_out.writeInt(O_archinfo.I_size);
+						O_data_out.writeInt(FI_get_id(O_strings, O_archinfo.S_pnr_archive));
+						O_data_out.writeInt(0);
+						O_data_out.writeLong(O_archinfo.L_hash_0);
+						O_data_out.writeLong(O_archinfo.L_hash_1);
+						O_data_out.writeLong(O_archinfo.L_hash_2);
+						O_data_out.writeLong(O_archinfo.L_hash_3);
+						O_data_out.writeLong(O_archinfo.L_hash_4);
+						O_data_out.writeLong(O_archinfo.L_hash_5);
+						O_data_out.writeLong(O_archinfo.L_hash_6);
+						O_data_out.writeLong(O_archinfo.L_hash_7);
+					    }
+				    }
+			    }
+
+			// categories and requires
+			I_sect_ints_f0 = O_len_out.FI_get_offset();
+			for (PckgInfo O_pckg: PI_O_setup_ini_contents.AO_pckg_info) {
+				for (String S_category: O_pckg.AS_categories) {
+					O_data_out.writeInt(FI_get_id(O_strings, S_category));
+				    }
+				for (String S_require: O_pckg.AS_requires) {
+					O_data_out.writeInt(FI_get_id(O_strings, S_require));
+				    }
+			    }
+			FV_align(O_data_out, O_len_out);
+
+			// category index, package ids of the table are the indices
+			I_sect_cats_f0 = O_len_out.FI_get_offset();
+			O_category_pckgs = PI_O_setup_ini_contents.FO_get_pckg_table().HO_category_pckgs;
+			O_data_out.writeInt(O_category_pckgs.size());
+			for (Map.Entry<String, PckgIdSet> O_category: O_category_pckgs.entrySet()) {
+				O_data_out.writeInt(FI_get_id(O_strings, O_category.getKey()));
+				O_data_out.writeInt(O_category.getValue().FI_cardinality());
+				for (i2 = O_category.getValue().FI_next(0); i2 >= 0; i2 = O_category.getValue().FI_next(i2 + 1)) {
+					O_data_out.writeInt(i2);
+				    }
+			    }
+			FV_align(O_data_out, O_len_out);
+
+			// strings, all ids are known now
+			I_nbr_strings_f1 = O_strings.FI_size();
+			AAY_strings = new byte[I_nbr_strings_f1][];
+			for (i1 = 0; i1 < I_nbr_strings_f1; i1++) {
+				AAY_strings[i1] = O_strings.FS_get_symbol(i1).getBytes(StandardCharsets.UTF_8);
+			    }
+			I_sect_strings_f0 = O_len_out.FI_get_offset();
+			I_pos_f0 = I_sect_strings_f0 + 8 * I_nbr_strings_f1;
+			for (i1 = 0; i1 < I_nbr_strings_f1; i1++) {
+				O_data_out.writeInt(I_pos_f0);
+				O_data_out.writeInt(AAY_strings[i1].length);
+				I_pos_f0 += AAY_strings[i1].length;
+			    }
+			for (i1 = 0; i1 < I_nbr_strings_f1; i1++) {
+				O_data_out.write(AAY_strings[i1]);
+			    }
+			FV_align(O_data_out, O_len_out);
+
+			// package indices ordered by name
+			AI_name_order = new Integer[I_nbr_pckgs_f1];
+			for (i1 = 0; i1 < I_nbr_pckgs_f1; i1++) {
+				AI_name_order[i1] = i1;
+			    }
+			Arrays.sort(AI_name_order, (PI_I_pckg_1, PI_I_pckg_2) -> Arrays.compareUnsigned(
+					AAY_strings[AI_name_ids[PI_I_pckg_1]], AAY_strings[AI_name_ids[PI_I_pckg_2]]));
+			I_sect_names_f0 = O_len_out.FI_get_offset();
+			for (i1 = 0; i1 < I_nbr_pckgs_f1; i1++) {
+				O_data_out.writeInt(AI_name_order[i1]);
+			    }
+			FV_align(O_data_out, O_len_out);
+
+			I_sect_ldesc_f0 = O_len_out.FI_get_offset();
+			for (byte AY_ldesc[]: AAY_ldescs) {
+				O_data_out.write(AY_ldesc);
+			    }
+			O_data_out.flush();
+		} catch (IOException PI_E_io) {
+			S_msg_1 = "Unable to serialize the contents of \"" + PI_O_rdr_setup_ini.S_pn + "\"";
+			E_rt = new RuntimeException(S_msg_1, PI_E_io);
+			throw E_rt;
+		    }
+		O_snapshot = ByteBuffer.wrap(O_byte_out.toByteArray());
+		O_snapshot.putInt(I_off_nbr_pckgs,    I_nbr_pckgs_f1);
+		O_snapshot.putInt(I_off_nbr_strings,  I_nbr_strings_f1);
+		O_snapshot.putInt(I_off_sect_strings, I_sect_strings_f0);
+		O_snapshot.putInt(I_off_sect_pckgs,   I_sect_pckgs_f0);
+		O_snapshot.putInt(I_off_sect_ints,    I_sect_ints_f0);
+		O_snapshot.putInt(I_off_sect_names,   I_sect_names_f0);
+		O_snapshot.putInt(I_off_sect_cats,    I_sect_cats_f0);
+		O_snapshot.putInt(I_off_sect_ldesc,   I_sect_ldesc_f0);
+
+		O_pna_tmp = null;
+		try {
+			O_pna_tmp = Files.createTempFile(PI_F_pna_snapshot.getAbsoluteFile().getParentFile().toPath(),
+					PI_F_pna_snapshot.getName(), ".tmp");
+			try (FileChannel O_channel = FileChannel.open(O_pna_tmp, StandardOpenOption.WRITE)) {
+				while (O_snapshot.hasRemaining()) {
+					O_channel.write(O_snapshot);
+				    }
+			    }
+			try {
+				Files.move(O_pna_tmp, PI_F_pna_snapshot.toPath(),
+						StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException PI_E_atomic_move) {
+				Files.move(O_pna_tmp, PI_F_pna_snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			    }
+			B_retval_written = true;
+		} catch (FileSystemException PI_E_fs) {
+			B_retval_written = false;
+		} catch (IOException PI_E_io) {
+			S_msg_1 = "Unable to write snapshot \"" + PI_F_pna_snapshot.getPath() + "\"";
+			E_rt = new RuntimeException(S_msg_1, PI_E_io);
+			throw E_rt;
+		    }
+		finally {
+			if (O_pna_tmp != null) {
+			   O_pna_tmp.toFile().delete();  // left over only if the move failed
+			   }
+		    }
+		return B_retval_written;
+	}
+
+	//------- accessors, reading directly from the mapping
+
+	public int FI_get_nbr_pckgs() {
+		return this.I_nbr_pckgs_f1;
+	}
+
+	public int FI_get_nbr_strings() {
+		return this.I_nbr_strings_f1;
+	}
+
+	protected int FI_get_pckg_rec(final int PI_I_pckg_idx_f0) {
+		int I_retval_pos_f0;
+
+		I_retval_pos_f0 = this.I_sect_pckgs_f0 + PI_I_pckg_idx_f0 * I_len_pckg_rec;
+		return I_retval_pos_f0;
+	}
+
+	protected int FI_get_archive_rec(
+			final int PI_I_pckg_idx_f0,
+			final int PI_I_version_idx_f0,
+			final int PI_I_purpose_f0) {
+		int I_retval_pos_f0;
+
+		I_retval_pos_f0 = FI_get_pckg_rec(PI_I_pckg_idx_f0) + I_off_archives +
+				          (PI_I_version_idx_f0 * I_nbr_purposes + PI_I_purpose_f0) * I_len_archive;
+		return I_retval_pos_f0;
+	}
+
+	/**
+	 *
+	 * @param PI_I_string_id id as stored in the snapshot
+	 * @return the decoded String, null for id -1
+	 */
+	public String FS_get_string(final int PI_I_string_id) {
+
+		String S_retval;
+		int I_pos_f0;
+
+		if (PI_I_string_id < 0) {
+		   return null;
+		   }
+		I_pos_f0 = this.I_sect_strings_f0 + 8 * PI_I_string_id;
+		S_retval = MappedIniLineReader.FS_decode(
+				this.O_buffer,
+				this.O_buffer.getInt(I_pos_f0),
+				this.O_buffer.getInt(I_pos_f0) + this.O_buffer.getInt(I_pos_f0 + 4));
+		return S_retval;
+	}
+
+	public int FI_get_name_id(final int PI_I_pckg_idx_f0) {
+		return this.O_buffer.getInt(FI_get_pckg_rec(PI_I_pckg_idx_f0) + I_off_name_id);
+	}
+
+	public String FS_get_name(final int PI_I_pckg_idx_f0) {
+		return FS_get_string(FI_get_name_id(PI_I_pckg_idx_f0));
+	}
+
+	public int FI_get_sdesc_id(final int PI_I_pckg_idx_f0) {
+		return this.O_buffer.getInt(FI_get_pckg_rec(PI_I_pckg_idx_f0) + I_off_sdesc_id);
+	}
+
+	public String FS_get_sdesc(final int PI_I_pckg_idx_f0) {
+		return FS_get_string(FI_get_sdesc_id(PI_I_pckg_idx_f0));
+	}
+
+	public String FS_get_ldesc(final int PI_I_pckg_idx_f0) {
+
+		String S_retval_ldesc;
+		int I_pckg_rec_f0, I_start_f0;
+
+		I_pckg_rec_f0 = FI_get_pckg_rec(PI_I_pckg_idx_f0);
+		I_start_f0 = this.I_sect_ldesc_f0 + this.O_buffer.getInt(I_pckg_rec_f0 + I_off_ldesc_start);
+		S_retval_ldesc = IniFileParser.FS_parse_ldesc(new MappedIniLineReader(
+				this.O_buffer,
+				I_start_f0,
+				I_start_f0 + this.O_buffer.getInt(I_pckg_rec_f0 + I_off_ldesc_len)));
+		return S_retval_ldesc;
+	}
+
+	/**
+	 *
+	 * @param PI_AS_strings already decoded strings indexed by id, null if they are to be decoded
+	 */
+	protected String[] FAS_get_strings(
+			final String PI_AS_strings[],
+			final int    PI_I_pckg_idx_f0,
+			final int    PI_I_off_start,
+			final int    PI_I_off_nbr) {
+
+		String AS_retval[];
+		int i1, I_pckg_rec_f0, I_pos_f0, I_string_id;
+
+		I_pckg_rec_f0 = FI_get_pckg_rec(PI_I_pckg_idx_f0);
+		I_pos_f0   = this.I_sect_ints_f0 + 4 * this.O_buffer.getInt(I_pckg_rec_f0 + PI_I_off_start);
+		AS_retval  = new String[this.O_buffer.getInt(I_pckg_rec_f0 + PI_I_off_nbr)];
+		for (i1 = 0; i1 < AS_retval.length; i1++) {
+			I_string_id = this.O_buffer.getInt(I_pos_f0 + 4 * i1);
+			AS_retval[i1] = (PI_AS_strings == null) ? FS_get_string(I_string_id) : PI_AS_strings[I_string_id];
+		    }
+		return AS_retval;
+	}
+
+	public String[] FAS_get_categories(final int PI_I_pckg_idx_f0) {
+		return FAS_get_strings(null, PI_I_pckg_idx_f0, I_off_cats_start, I_off_nbr_cats);
+	}
+
+	public String[] FAS_get_requires(final int PI_I_pckg_idx_f0) {
+		return FAS_get_strings(null, PI_I_pckg_idx_f0, I_off_reqs_start, I_off_nbr_reqs);
+	}
+
+	public int FI_get_nbr_categories(final int PI_I_pckg_idx_f0) {
+		return this.O_buffer.getInt(FI_get_pckg_rec(PI_I_pckg_idx_f0) + I_off_nbr_cats);
+	}
+
+	/**
+	 *
+	 * @param PI_I_idx_f0 index on the list of categories of the package
+	 * @return string id of the category
+	 */
+	public int FI_get_category_id(
+			final int PI_I_pckg_idx_f0,
+			final int PI_I_idx_f0) {
+		return this.O_buffer.getInt(this.I_sect_ints_f0 +
+				4 * (this.O_buffer.getInt(FI_get_pckg_rec(PI_I_pckg_idx_f0) + I_off_cats_start) + PI_I_idx_f0));
+	}
+
+	public int FI_get_nbr_requires(final int PI_I_pckg_idx_f0) {
+		return this.O_buffer.getInt(FI_get_pckg_rec(PI_I_pckg_idx_f0) + I_off_nbr_reqs);
+	}
+
+	/**
+	 *
+	 * @param PI_I_idx_f0 index on the <tt>requires:</tt> list of the package
+	 * @return string id of the package required
+	 */
+	public int FI_get_require_id(
+			final int PI_I_pckg_idx_f0,
+			final int PI_I_idx_f0) {
+		return this.O_buffer.getInt(this.I_sect_ints_f0 +
+				4 * (this.O_buffer.getInt(FI_get_pckg_rec(PI_I_pckg_idx_f0) + I_off_reqs_start) + PI_I_idx_f0));
+	}
+
+	public int FI_get_line_nbr_f1(final int PI_I_pckg_idx_f0) {
+		return this.O_buffer.getInt(FI_get_pckg_rec(PI_I_pckg_idx_f0) + I_off_line_nbr);
+	}
+
+	/**
+	 *
+	 * @return 1 for the current version only, 2 if there is a <tt>[prev]</tt> version too
+	 */
+	public int FI_get_nbr_versions(final int PI_I_pckg_idx_f0) {
+		return this.O_buffer.getInt(FI_get_pckg_rec(PI_I_pckg_idx_f0) + I_off_nbr_versions);
+	}
+
+	/**
+	 *
+	 * @param PI_I_version_idx_f0 0 for the current version, 1 for <tt>[prev]</tt>
+	 * @param PI_I_purpose_f0 0 for install, 1 for source
+	 * @return the version, null if there is no such archive
+	 */
+	public String FS_get_version(
+			final int PI_I_pckg_idx_f0,
+			final int PI_I_version_idx_f0,
+			final int PI_I_purpose_f0) {
+		return FS_get_string(FI_get_version_id(PI_I_pckg_idx_f0, PI_I_version_idx_f0, PI_I_purpose_f0));
+	}
+
+	/**
+	 *
+	 * @return string id of the version, -1 if there is no such archive
+	 */
+	public int FI_get_version_id(
+			final int PI_I_pckg_idx_f0,
+			final int PI_I_version_idx_f0,
+			final int PI_I_purpose_f0) {
+		return this.O_buffer.getInt(
+				FI_get_archive_rec(PI_I_pckg_idx_f0, PI_I_version_idx_f0, PI_I_purpose_f0) + I_off_version_id);
+	}
+
+	/**
+	 *
+	 * @return string id of the path of the archive, -1 if there is no such archive
+	 */
+	public int FI_get_path_id(
+			final int PI_I_pckg_idx_f0,
+			final int PI_I_version_idx_f0,
+			final int PI_I_purpose_f0) {
+		return this.O_buffer.getInt(
+				FI_get_archive_rec(PI_I_pckg_idx_f0, PI_I_version_idx_f0, PI_I_purpose_f0) + I_off_path_id);
+	}
+
+	/**
+	 *
+	 * @return path of the archive relative to the mirror root, null if there is no such archive
+	 */
+	public String FS_get_archive_path(
+			final int PI_I_pckg_idx_f0,
+			final int PI_I_version_idx_f0,
+			final int PI_I_purpose_f0) {
+		return FS_get_string(FI_get_path_id(PI_I_pckg_idx_f0, PI_I_version_idx_f0, PI_I_purpose_f0));
+	}
+
+	public int FI_get_size(
+			final int PI_I_pckg_idx_f0,
+			final int PI_I_version_idx_f0,
+			final int PI_I_purpose_f0) {
+		return this.O_buffer.getInt(
+				FI_get_archive_rec(PI_I_pckg_idx_f0, PI_I_version_idx_f0, PI_I_purpose_f0) + I_off_size);
+	}
+
+	/**
+	 *
+	 * @param PI_I_long_idx_f0 0 for the first 8 bytes of the digest
+	 * @return 8 bytes of the digest stored for the archive, as {@link ArchInfo#FL_get_long(byte[], int)} gives them
+	 */
+	public long FL_get_hash(
+			final int PI_I_pckg_idx_f0,
+			final int PI_I_version_idx_f0,
+			final int PI_I_purpose_f0,
+			final int PI_I_long_idx_f0) {
+		return this.O_buffer.getLong(
+				FI_get_archive_rec(PI_I_pckg_idx_f0, PI_I_version_idx_f0, PI_I_purpose_f0) + I_off_hash + 8 * PI_I_long_idx_f0);
+	}
+
+	/**
+	 *
+	 * @param PI_AY_digest computed digest, see {@link ArchInfo#FB_hash_equals(byte[], int)}
+	 * @return true if the digest equals the one stored for the archive
+	 */
+	public boolean FB_hash_equals(
+			final int  PI_I_pckg_idx_f0,
+			final int  PI_I_version_idx_f0,
+			final int  PI_I_purpose_f0,
+			final byte PI_AY_digest[],
+			final int  PI_I_start_f0) {
+
+		int i1, I_pos_f0;
+
+		I_pos_f0 = FI_get_archive_rec(PI_I_pckg_idx_f0, PI_I_version_idx_f0, PI_I_purpose_f0) + I_off_hash;
+		for (i1 = 0; i1 < ArchInfo.I_len_hash_bytes; i1 += 8) {
+			if (this.O_buffer.getLong(I_pos_f0 + i1) != ArchInfo.FL_get_long(PI_AY_digest, PI_I_start_f0 + i1)) {
+			   return false;
+			   }
+		    }
+		return true;
+	}
+
+	/**
+	 * Binary search over the UTF-8 bytes of the names, no String is decoded.
+	 *
+	 * @return index of the package, -1 if there is none of this name
+	 */
+	public int FI_find_pckg(final String PI_S_pckg_name) {
+
+		byte AY_name[];
+		int I_low_f0, I_high_f0, I_mid_f0, I_pckg_idx_f0, I_pos_f0, I_cmp;
+
+		AY_name   = PI_S_pckg_name.getBytes(StandardCharsets.UTF_8);
+		I_low_f0  = 0;
+		I_high_f0 = this.I_nbr_pckgs_f1 - 1;
+		while (I_low_f0 <= I_high_f0) {
+			I_mid_f0      = (I_low_f0 + I_high_f0) >>> 1;
+			I_pckg_idx_f0 = this.O_buffer.getInt(this.I_sect_names_f0 + 4 * I_mid_f0);
+			I_pos_f0      = this.I_sect_strings_f0 + 8 * FI_get_name_id(I_pckg_idx_f0);
+			I_cmp = this.O_buffer.slice(this.O_buffer.getInt(I_pos_f0), this.O_buffer.getInt(I_pos_f0 + 4))
+					.compareTo(ByteBuffer.wrap(AY_name));
+			if (I_cmp < 0) {
+			   I_low_f0 = I_mid_f0 + 1;
+			   }
+			else if (I_cmp > 0) {
+			   I_high_f0 = I_mid_f0 - 1;
+			   }
+			else {
+			   return I_pckg_idx_f0;
+			   }
+		    }
+		return -1;
+	}
+
+	//------- materialization
+
+	protected ArchInfo FO_get_archinfo(
+			final String PI_AS_strings[],
+			final int    PI_I_pckg_idx_f0,
+			final int    PI_I_version_idx_f0,
+			final int    PI_I_purpose_f0) {
+
+		ArchInfo O_retval_archinfo;
+		int I_pos_f0;
+
+		I_pos_f0 = FI_get_archive_rec(PI_I_pckg_idx_f0, PI_I_version_idx_f0, PI_I_purpose_f0);
+		if (this.O_buffer.getInt(I_pos_f0 + I_off_version_id) < 0) {
+		   return null;
+		   }
+		O_retval_archinfo = new ArchInfo(
+				PI_AS_strings[this.O_buffer.getInt(I_pos_f0 + I_off_version_id)],
+				this.O_buffer.getInt(I_pos_f0 + I_off_size),
+				this.O_buffer,
+				I_pos_f0 + I_off_hash);
+		O_retval_archinfo.S_pnr_archive = this.FS_get_string(this.O_buffer.getInt(I_pos_f0 + I_off_path_id));
+		return O_retval_archinfo;
+	}
+
+	protected PckgArchInfos FO_get_pckg_archinfos(
+			final String PI_AS_strings[],
+			final String PI_S_pckg_name,
+			final int    PI_I_pckg_idx_f0,
+			final int    PI_I_version_idx_f0) {
+
+		PckgArchInfos O_retval_archinfos;
+
+		O_retval_archinfos = new PckgArchInfos(PI_S_pckg_name, new ArchInfo[][] {
+			{FO_get_archinfo(PI_AS_strings, PI_I_pckg_idx_f0, PI_I_version_idx_f0, 0)},
+			{FO_get_archinfo(PI_AS_strings, PI_I_pckg_idx_f0, PI_I_version_idx_f0, 1)}});
+		return O_retval_archinfos;
+	}
+
+	/**
+	 * Creates a {@link PckgInfo} per package, as {@link IniFileParser#FV_parse(IniLineReader, PckgVisitor)} does.<br>
+	 * Equal strings are decoded once and shared, long descriptions stay in the mapping.
+	 *
+	 * @param PI_O_symbols table the strings are interned in, may be null
+	 * @param PI_O_visitor called with the package and the line number of its header
+	 */
+	public void FV_visit(
+			final SymbolTable PI_O_symbols,
+			final PckgVisitor PI_O_visitor) {
+
+		PckgInfo O_pckg_info;
+		String   AS_strings[], AS_categories[], AS_requires[], S_pckg_name;
+		int i1, I_pckg_rec_f0;
+
+		AS_strings = new String[this.I_nbr_strings_f1];
+		for (i1 = 0; i1 < this.I_nbr_strings_f1; i1++) {
+			AS_strings[i1] = FS_get_string(i1);
+			if (PI_O_symbols != null) {
+			   AS_strings[i1] = PI_O_symbols.FS_intern(AS_strings[i1]);
+			   }
+		    }
+		for (i1 = 0; i1 < this.I_nbr_pckgs_f1; i1++) {
+			I_pckg_rec_f0 = FI_get_pckg_rec(i1);
+			S_pckg_name   = AS_strings[FI_get_name_id(i1)];
+			AS_categories = FAS_get_strings(AS_strings, i1, I_off_cats_start, I_off_nbr_cats);
+			AS_requires   = FAS_get_strings(AS_strings, i1, I_off_reqs_start, I_off_nbr_reqs);
+			O_pckg_info = new PckgInfo(
+					S_pckg_name,
+					AS_strings[this.O_buffer.getInt(I_pckg_rec_f0 + I_off_sdesc_id)],
+					null,
+					this.O_buffer,
+					this.I_sect_ldesc_f0 + this.O_buffer.getInt(I_pckg_rec_f0 + I_off_ldesc_start),
+					this.O_buffer.getInt(I_pckg_rec_f0 + I_off_ldesc_len),
+					AS_categories,
+					AS_requires,
+					FO_get_pckg_archinfos(AS_strings, S_pckg_name, i1, 0),
+					FI_get_nbr_versions(i1) > 1 ? FO_get_pckg_archinfos(AS_strings, S_pckg_name, i1, 1) : null);
+			PI_O_visitor.FV_visit(O_pckg_info, FI_get_line_nbr_f1(i1));
+		    }
+		return;
+	}
+
+	/**
+	 * Restores the contents the snapshot was created from, including the stanza fingerprints
+	 * needed by {@link IniFileParser#FO_parse_incremental(SetupIniContents, MappedIniLineReader)}.
+	 * The line tables are not available, as for a {@link MappedIniLineReader}.
+	 */
+	public SetupIniContents FO_get_setup_ini_contents() {
+
+		SetupIniContents O_retval_contents;
+		PckgPosition     O_pckg_pos;
+		int i1, I_pckg_rec_f0;
+
+		O_retval_contents = new SetupIniContents((IniLineReader)null);
+		FV_visit(O_retval_contents.O_symbols, O_retval_contents::FV_add);
+		for (i1 = 0; i1 < this.I_nbr_pckgs_f1; i1++) {
+			O_pckg_pos    = O_retval_contents.HS_package_names.get(O_retval_contents.AO_pckg_info.get(i1).S_name);
+			I_pckg_rec_f0 = FI_get_pckg_rec(i1);
+			O_pckg_pos.I_stanza_start_f0 = this.O_buffer.getInt(I_pckg_rec_f0 + I_off_stanza_start);
+			O_pckg_pos.I_stanza_len_f1   = this.O_buffer.getInt(I_pckg_rec_f0 + I_off_stanza_len);
+			O_pckg_pos.L_fingerprint     = this.O_buffer.getLong(I_pckg_rec_f0 + I_off_fingerprint);
+		    }
+		return O_retval_contents;
+	}
+
+	/**
+	 * Drops the mapping, the channel is closed by {@link #FO_open(File, File)} already.<br>
+	 * The mapping is released once collected, so the snapshot may be replaced on Windows again.
+	 * The snapshot must not be used afterwards, tables and {@link SetupIniContents} obtained from it remain valid.
+	 */
+	public void FV_close() {
+		this.O_buffer = null;
+	}
+}
@@ -0,0 +1,408 @@
+package com.github.michaelederaut.cygwinparser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Graph of the <tt>requires:</tt> lists of a {@link PckgTable} in compressed sparse row form.<br>
+ * The dependencies of package i1 are <tt>AI_edge_targets[AI_edge_offsets[i1] .. AI_edge_offsets[i1 + 1])</tt>,
+ * package ids without duplicates. Requires naming no package of the table are counted in
+ * {@link #I_nbr_unresolved_f1} and left out, empty tokens of an empty <tt>requires:</tt> are skipped.<br>
+ * The strongly connected components are determined once by Tarjan's algorithm, their order
+ * is an install order: each component comes after all components it depends on.<br>
+ * The reverse edges, the direct dependants of package i1, are
+ * <tt>AI_dependant_ids[AI_dependant_offsets[i1] .. AI_dependant_offsets[i1 + 1])</tt>.
+ * The number of packages depending on a package directly or transitively is counted once for each
+ * component, it serves as criticality score of the package.
+ * The graph is immutable, queries may run concurrently.
+ */
+public class DependencyGraph {
+
+	public final PckgTable O_pckg_table;
+	public final int       I_nbr_pckgs_f1;
+	public final int       AI_edge_offsets[], AI_edge_targets[];
+	public final int       I_nbr_unresolved_f1;
+
+	// strongly connected components, numbered in install order
+	public final int       AI_scc_ids[];           // indexed by package id
+	public final int       I_nbr_sccs_f1;
+	public final int       AI_install_order[];     // package ids, dependencies first
+	protected final int    AI_scc_offsets[];       // component i1 is AI_install_order[AI_scc_offsets[i1] .. AI_scc_offsets[i1 + 1])
+
+	// reverse edges
+	public final int       AI_dependant_offsets[], AI_dependant_ids[];
+	public final int       AI_nbr_dependants_f1[];  // transitive, indexed by package id
+
+	public DependencyGraph(final PckgTable PI_O_pckg_table) {
+
+		int AI_targets[], AI_edge_targets[], AI_scc_ids[];
+		int i1, i2, I_nbr_pckgs_f1, I_nbr_edges_f1, I_nbr_unresolved_f1, I_nbr_targets_f1, I_target_id, I_start_f0, I_end_f0;
+
+		I_nbr_pckgs_f1 = PI_O_pckg_table.I_nbr_pckgs_f1;
+		this.O_pckg_table    = PI_O_pckg_table;
+		this.I_nbr_pckgs_f1  = I_nbr_pckgs_f1;
+		this.AI_edge_offsets = new int[I_nbr_pckgs_f1 + 1];
+		AI_edge_targets      = new int[PI_O_pckg_table.AI_require_ids.length];
+		I_nbr_edges_f1       = 0;
+		I_nbr_unresolved_f1  = 0;
+		AI_targets           = new int[16];
+		for (i1 = 0; i1 < I_nbr_pckgs_f1; i1++) {
+			this.AI_edge_offsets[i1] = I_nbr_edges_f1;
+			I_start_f0 = PI_O_pckg_table.AI_require_offsets[i1];
+			I_end_f0   = PI_O_pckg_table.AI_require_offsets[i1 + 1];
+			if ((I_end_f0 - I_start_f0) > AI_targets.length) {
+			   AI_targets = new int[I_end_f0 - I_start_f0];
+			   }
+			I_nbr_targets_f1 = 0;
+			for (i2 = I_start_f0; i2 < I_end_f0; i2++) {
+				if (PI_O_pckg_table.O_symbols.FS_get_symbol(PI_O_pckg_table.AI_require_ids[i2]).isEmpty()) {
+				   continue;
+				   }
+				I_target_id = PI_O_pckg_table.FI_get_pckg_id(PI_O_pckg_table.AI_require_ids[i2]);
+				if (I_target_id < 0) {
+				   I_nbr_unresolved_f1++;
+				   }
+				AI_targets[I_nbr_targets_f1] = I_target_id;
+				I_nbr_targets_f1++;
+			    }
+			Arrays.sort(AI_targets, 0, I_nbr_targets_f1);
+			for (i2 = 0; i2 < I_nbr_targets_f1; i2++) {
+				I_target_id = AI_targets[i2];
+				if ((I_target_id >= 0) && ((i2 == 0) || (AI_targets[i2 - 1] != I_target_id))) {
+				   AI_edge_targets[I_nbr_edges_f1] = I_target_id;
+				   I_nbr_edges_f1++;
+				   }
+			    }
+		    }
+		this.AI_edge_offsets[I_nbr_pckgs_f1] = I_nbr_edges_f1;
+		this.AI_edge_targets     = Arrays.copyOf(AI_edge_targets, I_nbr_edges_f1);
+		this.I_nbr_unresolved_f1 = I_nbr_unresolved_f1;
+
+		AI_scc_ids             = new int[I_nbr_pckgs_f1];
+		this.AI_install_order  = new int[I_nbr_pckgs_f1];
+		this.AI_scc_offsets    = new int[I_nbr_pckgs_f1 + 1];
+		this.I_nbr_sccs_f1     = FI_find_sccs(AI_scc_ids);
+		this.AI_scc_ids        = AI_scc_ids;
+
+		this.AI_dependant_offsets = new int[I_nbr_pckgs_f1 + 1];
+		this.AI_dependant_ids     = new int[I_nbr_edges_f1];
+		for (i1 = 0; i1 < I_nbr_edges_f1; i1++) {
+			this.AI_dependant_offsets[this.AI_edge_targets[i1] + 1]++;
+		    }
+		for (i1 = 0; i1 < I_nbr_pckgs_f1; i1++) {
+			this.AI_dependant_offsets[i1 + 1] += this.AI_dependant_offsets[i1];
+		    }
+		AI_targets = Arrays.copyOf(this.AI_dependant_offsets, I_nbr_pckgs_f1);  // next free position
+		for (i1 = 0; i1 < I_nbr_pckgs_f1; i1++) {
+			for (i2 = this.AI_edge_offsets[i1]; i2 < this.AI_edge_offsets[i1 + 1]; i2++) {
+				I_target_id = this.AI_edge_targets[i2];
+				this.AI_dependant_ids[AI_targets[I_target_id]++] = i1;
+			    }
+		    }
+		this.AI_nbr_dependants_f1 = new int[I_nbr_pckgs_f1];
+		FV_count_dependants(this.AI_nbr_dependants_f1);
+	}
+
+	/**
+	 * All packages of a component have the same dependants, so the reverse edges are traversed
+	 * once for each component, starting from its first package.
+	 *
+	 * @param PO_AI_nbr_dependants_f1 receives the number of transitive dependants of each package, itself not included
+	 */
+	protected void FV_count_dependants(final int PO_AI_nbr_dependants_f1[]) {
+
+		int AI_stamps[], AI_stack[];
+		int i1, i2, I_scc_id, I_pckg_id, I_source_id, I_stack_size_f1, I_nbr_reached_f1;
+
+		AI_stamps = new int[this.I_nbr_pckgs_f1];
+		AI_stack  = new int[this.I_nbr_pckgs_f1];
+		Arrays.fill(AI_stamps, -1);
+		for (I_scc_id = 0; I_scc_id < this.I_nbr_sccs_f1; I_scc_id++) {
+			I_pckg_id = this.AI_install_order[this.AI_scc_offsets[I_scc_id]];
+			AI_stamps[I_pckg_id] = I_scc_id;
+			AI_stack[0] = I_pckg_id;
+			I_stack_size_f1  = 1;
+			I_nbr_reached_f1 = 0;
+			while (I_stack_size_f1 > 0) {
+				I_pckg_id = AI_stack[--I_stack_size_f1];
+				for (i1 = this.AI_dependant_offsets[I_pckg_id]; i1 < this.AI_dependant_offsets[I_pckg_id + 1]; i1++) {
+					I_source_id = this.AI_dependant_ids[i1];
+					if (AI_stamps[I_source_id] != I_scc_id) {
+					   AI_stamps[I_source_id] = I_scc_id;
+					   AI_stack[I_stack_size_f1++] = I_source_id;
+					   I_nbr_reached_f1++;
+					   }
+				    }
+			    }
+			// any other package of the component has the start package as dependant instead of itself
+			for (i2 = this.AI_scc_offsets[I_scc_id]; i2 < this.AI_scc_offsets[I_scc_id + 1]; i2++) {
+				PO_AI_nbr_dependants_f1[this.AI_install_order[i2]] = I_nbr_reached_f1;
+			    }
+		    }
+	}
+
+	/**
+	 * Tarjan's algorithm without recursion, the call stack is kept in <tt>AI_call_stack</tt>
+	 * together with the position in the edge list of each package.
+	 *
+	 * @param PO_AI_scc_ids receives the component of each package
+	 * @return number of components
+	 */
+	protected int FI_find_sccs(final int PO_AI_scc_ids[]) {
+
+		int AI_index[], AI_low_link[], AI_scc_stack[], AI_call_stack[], AI_edge_pos[];
+		boolean AB_on_stack[];
+		int i1, I_root_id, I_pckg_id, I_target_id, I_next_index, I_scc_stack_size_f1, I_call_stack_size_f1,
+		    I_nbr_sccs_f1, I_nbr_ordered_f1, I_member_id;
+
+		AI_index      = new int[this.I_nbr_pckgs_f1];
+		AI_low_link   = new int[this.I_nbr_pckgs_f1];
+		AI_scc_stack  = new int[this.I_nbr_pckgs_f1];
+		AI_call_stack = new int[this.I_nbr_pckgs_f1];
+		AI_edge_pos   = new int[this.I_nbr_pckgs_f1];
+		AB_on_stack   = new boolean[this.I_nbr_pckgs_f1];
+		Arrays.fill(AI_index, -1);
+		I_next_index         = 0;
+		I_scc_stack_size_f1  = 0;
+		I_nbr_sccs_f1        = 0;
+		I_nbr_ordered_f1     = 0;
+
+		for (I_root_id = 0; I_root_id < this.I_nbr_pckgs_f1; I_root_id++) {
+			if (AI_index[I_root_id] >= 0) {
+			   continue;
+			   }
+			AI_call_stack[0] = I_root_id;
+			I_call_stack_size_f1 = 1;
+			AI_index[I_root_id] = AI_low_link[I_root_id] = I_next_index++;
+			AI_edge_pos[I_root_id] = this.AI_edge_offsets[I_root_id];
+			AI_scc_stack[I_scc_stack_size_f1++] = I_root_id;
+			AB_on_stack[I_root_id] = true;
+
+			LOOP_CALLS: while (I_call_stack_size_f1 > 0) {
+				I_pckg_id = AI_call_stack[I_call_stack_size_f1 - 1];
+				while (AI_edge_pos[I_pckg_id] < this.AI_edge_offsets[I_pckg_id + 1]) {
+					I_target_id = this.AI_edge_targets[AI_edge_pos[I_pckg_id]];
+					AI_edge_pos[I_pckg_id]++;
+					if (AI_index[I_target_id] < 0) {  // descend
+					   AI_index[I_target_id] = AI_low_link[I_target_id] = I_next_index++;
+					   AI_edge_pos[I_target_id] = this.AI_edge_offsets[I_target_id];
+					   AI_scc_stack[I_scc_stack_size_f1++] = I_target_id;
+					   AB_on_stack[I_target_id] = true;
+					   AI_call_stack[I_call_stack_size_f1++] = I_target_id;
+					   continue LOOP_CALLS;
+					   }
+					if (AB_on_stack[I_target_id]) {
+					   AI_low_link[I_pckg_id] = Math.min(AI_low_link[I_pckg_id], AI_index[I_target_id]);
+					   }
+				    }
+				// all dependencies done
+				if (AI_low_link[I_pckg_id] == AI_index[I_pckg_id]) {
+				   this.AI_scc_offsets[I_nbr_sccs_f1] = I_nbr_ordered_f1;
+				   do {
+					   I_member_id = AI_scc_stack[--I_scc_stack_size_f1];
+					   AB_on_stack[I_member_id] = false;
+					   PO_AI_scc_ids[I_member_id] = I_nbr_sccs_f1;
+					   this.AI_install_order[I_nbr_ordered_f1++] = I_member_id;
+				   } while (I_member_id != I_pckg_id);
+				   I_nbr_sccs_f1++;
+				   }
+				I_call_stack_size_f1--;
+				if (I_call_stack_size_f1 > 0) {
+				   i1 = AI_call_stack[I_call_stack_size_f1 - 1];
+				   AI_low_link[i1] = Math.min(AI_low_link[i1], AI_low_link[I_pckg_id]);
+				   }
+			    }
+		    }
+		this.AI_scc_offsets[I_nbr_sccs_f1] = I_nbr_ordered_f1;
+		return I_nbr_sccs_f1;
+	}
+
+	/**
+	 *
+	 * @return number of packages the package directly depends on, found at
+	 * <tt>AI_edge_targets[AI_edge_offsets[PI_I_pckg_id]]</tt> and on
+	 */
+	public int FI_get_nbr_dependencies(final int PI_I_pckg_id) {
+		return this.AI_edge_offsets[PI_I_pckg_id + 1] - this.AI_edge_offsets[PI_I_pckg_id];
+	}
+
+	/**
+	 * Adds everything the packages in <tt>PB_O_closure</tt> pull in, directly or transitively.
+	 *
+	 * @param PB_O_closure package ids to start from, receives the closure including them
+	 * @return number of packages in the closure
+	 */
+	public int FI_add_closure(final BitSet PB_O_closure) {
+
+		int AI_stack[];
+		int i1, I_stack_size_f1, I_pckg_id, I_target_id;
+
+		AI_stack = new int[Math.max(1, PB_O_closure.cardinality())];
+		I_stack_size_f1 = 0;
+		for (I_pckg_id = PB_O_closure.nextSetBit(0); I_pckg_id >= 0; I_pckg_id = PB_O_closure.nextSetBit(I_pckg_id + 1)) {
+			AI_stack[I_stack_size_f1++] = I_pckg_id;
+		    }
+		while (I_stack_size_f1 > 0) {
+			I_pckg_id = AI_stack[--I_stack_size_f1];
+			for (i1 = this.AI_edge_offsets[I_pckg_id]; i1 < this.AI_edge_offsets[I_pckg_id + 1]; i1++) {
+				I_target_id = this.AI_edge_targets[i1];
+				if (!PB_O_closure.get(I_target_id)) {
+				   PB_O_closure.set(I_target_id);
+				   if (I_stack_size_f1 == AI_stack.length) {
+					  AI_stack = Arrays.copyOf(AI_stack, 2 * AI_stack.length);
+				      }
+				   AI_stack[I_stack_size_f1++] = I_target_id;
+				   }
+			    }
+		    }
+		return PB_O_closure.cardinality();
+	}
+
+	/**
+	 *
+	 * @return number of packages requiring the package directly, found at
+	 * <tt>AI_dependant_ids[AI_dependant_offsets[PI_I_pckg_id]]</tt> and on
+	 */
+	public int FI_get_nbr_direct_dependants(final int PI_I_pckg_id) {
+		return this.AI_dependant_offsets[PI_I_pckg_id + 1] - this.AI_dependant_offsets[PI_I_pckg_id];
+	}
+
+	/**
+	 *
+	 * @return number of packages depending on the package directly or transitively
+	 */
+	public int FI_get_nbr_dependants(final int PI_I_pckg_id) {
+		return this.AI_nbr_dependants_f1[PI_I_pckg_id];
+	}
+
+	/**
+	 *
+	 * @return the packages depending on the package directly or transitively, itself not included
+	 */
+	public BitSet FO_get_dependants(final int PI_I_pckg_id) {
+
+		BitSet O_retval_dependants;
+		int AI_stack[];
+		int i1, I_stack_size_f1, I_pckg_id, I_source_id;
+
+		O_retval_dependants = new BitSet(this.I_nbr_pckgs_f1);
+		AI_stack = new int[this.AI_nbr_dependants_f1[PI_I_pckg_id] + 1];
+		AI_stack[0] = PI_I_pckg_id;
+		I_stack_size_f1 = 1;
+		while (I_stack_size_f1 > 0) {
+			I_pckg_id = AI_stack[--I_stack_size_f1];
+			for (i1 = this.AI_dependant_offsets[I_pckg_id]; i1 < this.AI_dependant_offsets[I_pckg_id + 1]; i1++) {
+				I_source_id = this.AI_dependant_ids[i1];
+				if ((I_source_id != PI_I_pckg_id) && !O_retval_dependants.get(I_source_id)) {
+				   O_retval_dependants.set(I_source_id);
+				   AI_stack[I_stack_size_f1++] = I_source_id;
+				   }
+			    }
+		    }
+		return O_retval_dependants;
+	}
+
+	/**
+	 *
+	 * @return all package ids, the ones with most transitive dependants first, ties by package id
+	 */
+	public int[] FAI_get_by_criticality() {
+
+		long AL_keys[];
+		int  AI_retval_pckg_ids[];
+		int  i1;
+
+		AL_keys = new long[this.I_nbr_pckgs_f1];
+		for (i1 = 0; i1 < this.I_nbr_pckgs_f1; i1++) {
+			AL_keys[i1] = (((long)(Integer.MAX_VALUE - this.AI_nbr_dependants_f1[i1])) << 32) | i1;
+		    }
+		Arrays.sort(AL_keys);
+		AI_retval_pckg_ids = new int[this.I_nbr_pckgs_f1];
+		for (i1 = 0; i1 < this.I_nbr_pckgs_f1; i1++) {
+			AI_retval_pckg_ids[i1] = (int)AL_keys[i1];
+		    }
+		return AI_retval_pckg_ids;
+	}
+
+	/**
+	 *
+	 * @return the package and everything installing it pulls in
+	 */
+	public BitSet FO_get_closure(final int PI_I_pckg_id) {
+
+		BitSet O_retval_closure;
+
+		O_retval_closure = new BitSet(this.I_nbr_pckgs_f1);
+		O_retval_closure.set(PI_I_pckg_id);
+		FI_add_closure(O_retval_closure);
+		return O_retval_closure;
+	}
+
+	/**
+	 *
+	 * @return the packages of <tt>PI_O_pckg_ids</tt> in install order, dependencies first
+	 */
+	public int[] FAI_get_install_order(final BitSet PI_O_pckg_ids) {
+
+		int AI_retval_order[];
+		int i1, I_pckg_id, I_nbr_ordered_f1;
+
+		AI_retval_order = new int[PI_O_pckg_ids.cardinality()];
+		I_nbr_ordered_f1 = 0;
+		for (i1 = 0; i1 < this.I_nbr_pckgs_f1; i1++) {
+			I_pckg_id = this.AI_install_order[i1];
+			if (PI_O_pckg_ids.get(I_pckg_id)) {
+			   AI_retval_order[I_nbr_ordered_f1++] = I_pckg_id;
+			   }
+		    }
+		return AI_retval_order;
+	}
+
+	/**
+	 *
+	 * @return true if the package depends on itself, directly or transitively
+	 */
+	public boolean FB_is_cyclic(final int PI_I_pckg_id) {
+
+		int i1, I_scc_id;
+
+		I_scc_id = this.AI_scc_ids[PI_I_pckg_id];
+		if ((this.AI_scc_offsets[I_scc_id + 1] - this.AI_scc_offsets[I_scc_id]) > 1) {
+		   return true;
+		   }
+		for (i1 = this.AI_edge_offsets[PI_I_pckg_id]; i1 < this.AI_edge_offsets[PI_I_pckg_id + 1]; i1++) {
+			if (this.AI_edge_targets[i1] == PI_I_pckg_id) {
+			   return true;
+			   }
+		    }
+		return false;
+	}
+
+	/**
+	 *
+	 * @return the package ids of one strongly connected component
+	 */
+	public int[] FAI_get_scc(final int PI_I_scc_id) {
+		return Arrays.copyOfRange(this.AI_install_order, this.AI_scc_offsets[PI_I_scc_id], this.AI_scc_offsets[PI_I_scc_id + 1]);
+	}
+
+	/**
+	 *
+	 * @return the dependency cycles, components of more than one package or with a package requiring itself
+	 */
+	public List<int[]> FAAI_get_cycles() {
+
+		List<int[]> AAI_retval_cycles;
+		int i1;
+
+		AAI_retval_cycles = new ArrayList<int[]>();
+		for (i1 = 0; i1 < this.I_nbr_sccs_f1; i1++) {
+			if (FB_is_cyclic(this.AI_install_order[this.AI_scc_offsets[i1]])) {
+			   AAI_retval_cycles.add(FAI_get_scc(i1));
+			   }
+		    }
+		return AAI_retval_cycles;
+	}
+}
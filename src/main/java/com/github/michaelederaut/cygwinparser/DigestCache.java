@@ -0,0 +1,621 @@
+package com.github.michaelederaut.cygwinparser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import com.github.michaelederaut.cygwinparser.SetupIniContents.ArchInfo;
+
+/**
+ * Persistent cache of the SHA-512 digests computed by {@link ArchiveVerifier}, kept next to the category logs of a site.<br>
+ * A digest is keyed by the pathname of the archive relative to the site, its size, modification time and file key,
+ * see {@link #FL_get_file_key(BasicFileAttributes)}. It is only returned if all of them are unchanged,
+ * so only new or touched archives are hashed again.
+ * <p>
+ * The file is append-only: a header of magic and {@link #I_format_version}, followed by one record per digest
+ * stored, a later record of the same pathname replacing an earlier one. Each record, all numbers big-endian:
+ * <ul>
+ * <li>length of the record, size, modification time and file key</li>
+ * <li>the digest, {@link ArchInfo#I_len_hash_bytes} bytes</li>
+ * <li>the pathname, length and UTF-8 bytes</li>
+ * <li>CRC32 of the record from size to pathname</li>
+ * </ul>
+ * Readers need no lock, they stop at the first incomplete record, e.g. one being appended or torn by a crash.
+ * Writers append and compact under an exclusive lock of the file <tt>{@link #S_ext_lock}</tt> next to the cache.
+ * Before appending, only the records added by other writers since the last read or append are read,
+ * the whole file only if it was replaced by a compaction or cut.
+ * Compaction writes the current records to a temporary file and renames it, readers having the old file open
+ * keep seeing it. Only one instance per JVM may write a cache, as file locks are held per JVM.
+ * <p>
+ * Within the JVM lookups take no lock. Digests stored are kept pending and appended in batches by one
+ * thread at a time, the file is read and written outside the lock guarding the entries.
+ */
+public class DigestCache {
+
+	public static final long L_magic          = 0x4359475744494753L;  // "CYGWDIGS"
+	public static final int  I_format_version = 1;
+
+	public static final String S_bn_digest_cache = "archives.digests";
+	public static final String S_ext_lock        = ".lock";
+
+	// compacted if it holds more than this many records and more than twice as many as there are pathnames
+	public static final int I_min_nbr_records_compaction = 1024;
+	// appended by FV_put once this many are pending, so a long verification loses little when aborted
+	public static final int I_max_nbr_pending = 1024;
+
+	protected static final int I_len_header = 16;  // magic, format version, unused
+
+	// record
+	protected static final int I_off_len_rec  = 0;
+	protected static final int I_off_size     = 4;
+	protected static final int I_off_mtime    = 12;
+	protected static final int I_off_file_key = 20;
+	protected static final int I_off_digest   = 28;
+	protected static final int I_off_len_path = I_off_digest + ArchInfo.I_len_hash_bytes;
+	protected static final int I_off_path     = I_off_len_path + 2;
+	protected static final int I_len_crc      = 4;
+	/** longest pathname stored, in UTF-8 bytes, as its length is an unsigned short */
+	public static final int I_max_len_path = 0xFFFF;
+
+	/**
+	 * Digest of one archive with the attributes it was computed for.
+	 */
+	public static class Entry {
+
+		public final long L_size, L_mtime, L_file_key;
+		public final byte AY_digest[];
+
+		public Entry(
+				final long PI_L_size,
+				final long PI_L_mtime,
+				final long PI_L_file_key,
+				final byte PI_AY_digest[]) {
+			this.L_size     = PI_L_size;
+			this.L_mtime    = PI_L_mtime;
+			this.L_file_key = PI_L_file_key;
+			this.AY_digest  = PI_AY_digest;
+		    }
+
+		public boolean FB_matches(
+				final long PI_L_size,
+				final long PI_L_mtime,
+				final long PI_L_file_key) {
+			return (this.L_size == PI_L_size) && (this.L_mtime == PI_L_mtime) && (this.L_file_key == PI_L_file_key);
+		}
+	}
+
+	public final File F_pna_cache;
+	public final File F_pna_lock;
+
+	protected final ConcurrentHashMap<String, Entry> HO_entries;
+	protected final Object        O_entries_lock;      // guards updates of HO_entries together with the pending digests
+	protected List<String>        AS_pending_pnrs;     // stored by FV_put, not yet appended
+	protected List<Entry>         AO_pending_entries;
+	protected final ReentrantLock O_writer_lock;       // held while reading or writing the file
+
+	// the file as last read or written, guarded by O_writer_lock
+	protected long                L_end_f0;            // end of the last complete record, 0 if unknown
+	protected long                L_file_key;          // see FL_get_file_key
+	protected int                 I_tail;              // last 4 bytes before L_end_f0, the CRC32 of the last record
+	protected int                 I_nbr_records_f1;    // including the replaced ones
+
+	protected DigestCache(final File PI_F_pna_cache) {
+		this.F_pna_cache        = PI_F_pna_cache;
+		this.F_pna_lock         = new File(PI_F_pna_cache.getPath() + S_ext_lock);
+		this.HO_entries         = new ConcurrentHashMap<String, Entry>();
+		this.O_entries_lock     = new Object();
+		this.AS_pending_pnrs    = new ArrayList<String>();
+		this.AO_pending_entries = new ArrayList<Entry>();
+		this.O_writer_lock      = new ReentrantLock();
+	    }
+
+	/**
+	 * Reads a cache.
+	 *
+	 * @param PI_F_pna_cache cache, need not exist, a file of another format is replaced by the first append
+	 * @return the cache, empty if the file does not exist
+	 */
+	public static DigestCache FO_open(final File PI_F_pna_cache) {
+
+		RuntimeException E_rt;
+		DigestCache      O_retval_cache;
+		String           S_msg_1;
+
+		O_retval_cache = new DigestCache(PI_F_pna_cache);
+		if (!PI_F_pna_cache.isFile()) {
+		   return O_retval_cache;
+		   }
+		try (FileChannel O_channel = FileChannel.open(PI_F_pna_cache.toPath(), StandardOpenOption.READ)) {
+			O_retval_cache.FL_catch_up(O_channel);
+		} catch (IOException PI_E_io) {
+			S_msg_1 = "Unable to read digest cache \"" + PI_F_pna_cache.getPath() + "\"";
+			E_rt = new RuntimeException(S_msg_1, PI_E_io);
+			throw E_rt;
+		    }
+		return O_retval_cache;
+	}
+
+	/**
+	 * 64 bit FNV-1a over the string form of the file key, e.g. device and inode.
+	 *
+	 * @return 0 if the file system has no file keys
+	 */
+	public static long FL_get_file_key(final BasicFileAttributes PI_O_attrs) {
+
+		Object O_file_key;
+		String S_file_key;
+		long L_retval_hash;
+		int i1;
+
+		O_file_key = PI_O_attrs.fileKey();
+		if (O_file_key == null) {
+		   return 0L;
+		   }
+		S_file_key    = O_file_key.toString();
+		L_retval_hash = StanzaScanner.L_fnv_offset_basis;
+		for (i1 = 0; i1 < S_file_key.length(); i1++) {
+			L_retval_hash = (L_retval_hash ^ S_file_key.charAt(i1)) * StanzaScanner.L_fnv_prime;
+		    }
+		return L_retval_hash;
+	}
+
+	/**
+	 * Reads the complete records from <tt>PI_L_start_f0</tt> on, from the header if 0.
+	 * {@link #I_tail} is set to the last 4 bytes read.
+	 *
+	 * @param PO_AS_pnrs receives the pathnames of the records
+	 * @param PO_AO_entries receives the entries of the records
+	 * @return end of the last complete record, 0 if the header is missing or of another format
+	 */
+	protected long FL_read(
+			final FileChannel PI_O_channel,
+			final long        PI_L_start_f0,
+			final List<String> PO_AS_pnrs,
+			final List<Entry>  PO_AO_entries) throws IOException {
+
+		ByteBuffer O_buffer;
+		CRC32      O_crc;
+		byte       AY_digest[], AY_path[];
+		long       L_size_f1;
+		int        I_pos_f0, I_len_rec_f1, I_len_path_f1, I_nbr_read_f1, i1;
+
+		L_size_f1 = PI_O_channel.size() - PI_L_start_f0;
+		if ((PI_L_start_f0 == 0L) && (L_size_f1 < I_len_header)) {
+		   return 0L;
+		   }
+		O_buffer = ByteBuffer.allocate((int)Math.min(L_size_f1, Integer.MAX_VALUE - 8));  // not mapped, a mapping would prevent truncating on Windows
+		I_nbr_read_f1 = 0;
+		while (O_buffer.hasRemaining() && (I_nbr_read_f1 >= 0)) {
+			I_nbr_read_f1 = PI_O_channel.read(O_buffer, PI_L_start_f0 + O_buffer.position());
+		    }
+		O_buffer.flip();
+		if (PI_L_start_f0 == 0L) {
+		   if ((O_buffer.limit() < I_len_header) ||
+			   (O_buffer.getLong(0) != L_magic) || (O_buffer.getInt(8) != I_format_version)) {
+			  return 0L;
+		      }
+		   I_pos_f0 = I_len_header;
+		   this.I_tail = O_buffer.getInt(I_len_header - 4);
+		   }
+		else {
+		   I_pos_f0 = 0;
+		   }
+		O_crc = new CRC32();
+		LOOP_RECORDS: while ((O_buffer.limit() - I_pos_f0) >= (I_off_path + I_len_crc)) {
+			I_len_rec_f1 = O_buffer.getInt(I_pos_f0 + I_off_len_rec);
+			if ((I_len_rec_f1 < (I_off_path + I_len_crc)) || (I_len_rec_f1 > (O_buffer.limit() - I_pos_f0))) {
+			   break LOOP_RECORDS;
+			   }
+			I_len_path_f1 = O_buffer.getShort(I_pos_f0 + I_off_len_path) & 0xFFFF;
+			if (I_len_rec_f1 != (I_off_path + I_len_path_f1 + I_len_crc)) {
+			   break LOOP_RECORDS;
+			   }
+			O_crc.reset();
+			O_crc.update(O_buffer.duplicate().position(I_pos_f0 + I_off_size).limit(I_pos_f0 + I_len_rec_f1 - I_len_crc));
+			if ((int)O_crc.getValue() != O_buffer.getInt(I_pos_f0 + I_len_rec_f1 - I_len_crc)) {
+			   break LOOP_RECORDS;
+			   }
+			AY_digest = new byte[ArchInfo.I_len_hash_bytes];
+			for (i1 = 0; i1 < ArchInfo.I_len_hash_bytes; i1++) {
+				AY_digest[i1] = O_buffer.get(I_pos_f0 + I_off_digest + i1);
+			    }
+			AY_path = new byte[I_len_path_f1];
+			for (i1 = 0; i1 < I_len_path_f1; i1++) {
+				AY_path[i1] = O_buffer.get(I_pos_f0 + I_off_path + i1);
+			    }
+			PO_AS_pnrs.add(new String(AY_path, StandardCharsets.UTF_8));
+			PO_AO_entries.add(new Entry(
+					O_buffer.getLong(I_pos_f0 + I_off_size),
+					O_buffer.getLong(I_pos_f0 + I_off_mtime),
+					O_buffer.getLong(I_pos_f0 + I_off_file_key),
+					AY_digest));
+			I_pos_f0 += I_len_rec_f1;
+			this.I_tail = O_buffer.getInt(I_pos_f0 - I_len_crc);
+		    }
+		return PI_L_start_f0 + I_pos_f0;
+	}
+
+	/**
+	 *
+	 * @return true if the file is the one last read or written, with the same bytes before {@link #L_end_f0}
+	 */
+	protected boolean FB_is_unchanged(final FileChannel PI_O_channel) throws IOException {
+
+		ByteBuffer O_tail;
+
+		if ((this.L_end_f0 == 0L) || (PI_O_channel.size() < this.L_end_f0)) {
+		   return false;
+		   }
+		if (FL_get_file_key(Files.readAttributes(this.F_pna_cache.toPath(), BasicFileAttributes.class)) != this.L_file_key) {
+		   return false;
+		   }
+		O_tail = ByteBuffer.allocate(4);
+		while (O_tail.hasRemaining()) {
+			if (PI_O_channel.read(O_tail, this.L_end_f0 - 4 + O_tail.position()) < 0) {
+			   return false;
+			   }
+		    }
+		return (O_tail.getInt(0) == this.I_tail);
+	}
+
+	/**
+	 * Reads the records appended by other writers since the last read or write,
+	 * all records if the file was replaced or cut, and adds them to {@link #HO_entries}.
+	 * Digests still pending are newer, they are applied again afterwards.
+	 * The caller holds {@link #O_writer_lock} or has the cache to itself.
+	 *
+	 * @return end of the last complete record, 0 if the header is missing or of another format
+	 */
+	protected long FL_catch_up(final FileChannel PI_O_channel) throws IOException {
+
+		List<String> AS_pnrs;
+		List<Entry>  AO_entries;
+		long L_start_f0, L_retval_end_f0;
+		int i1;
+
+		AS_pnrs    = new ArrayList<String>();
+		AO_entries = new ArrayList<Entry>();
+		if (FB_is_unchanged(PI_O_channel)) {
+		   L_start_f0 = this.L_end_f0;
+		   }
+		else {
+		   L_start_f0 = 0L;
+		   this.I_nbr_records_f1 = 0;
+		   }
+		L_retval_end_f0 = FL_read(PI_O_channel, L_start_f0, AS_pnrs, AO_entries);
+		synchronized (this.O_entries_lock) {
+			for (i1 = 0; i1 < AS_pnrs.size(); i1++) {
+				this.HO_entries.put(AS_pnrs.get(i1), AO_entries.get(i1));
+			    }
+			for (i1 = 0; i1 < this.AS_pending_pnrs.size(); i1++) {
+				this.HO_entries.put(this.AS_pending_pnrs.get(i1), this.AO_pending_entries.get(i1));
+			    }
+		    }
+		this.I_nbr_records_f1 += AS_pnrs.size();
+		this.L_end_f0   = L_retval_end_f0;
+		this.L_file_key = FL_get_file_key(Files.readAttributes(this.F_pna_cache.toPath(), BasicFileAttributes.class));
+		return L_retval_end_f0;
+	}
+
+	protected static ByteBuffer FO_get_header() {
+
+		ByteBuffer O_retval_header;
+
+		O_retval_header = ByteBuffer.allocate(I_len_header);
+		O_retval_header.putLong(L_magic).putInt(I_format_version).putInt(0).flip();
+		return O_retval_header;
+	}
+
+	protected static ByteBuffer FO_get_record(
+			final String PI_S_pnr,
+			final Entry  PI_O_entry) {
+
+		ByteBuffer O_retval_record;
+		CRC32      O_crc;
+		byte       AY_path[];
+		int        I_len_rec_f1;
+
+		AY_path      = PI_S_pnr.getBytes(StandardCharsets.UTF_8);
+		I_len_rec_f1 = I_off_path + AY_path.length + I_len_crc;
+		O_retval_record = ByteBuffer.allocate(I_len_rec_f1);
+		O_retval_record.putInt(I_len_rec_f1)
+		               .putLong(PI_O_entry.L_size)
+		               .putLong(PI_O_entry.L_mtime)
+		               .putLong(PI_O_entry.L_file_key)
+		               .put(PI_O_entry.AY_digest, 0, ArchInfo.I_len_hash_bytes)
+		               .putShort((short)AY_path.length)
+		               .put(AY_path);
+		O_crc = new CRC32();
+		O_crc.update(O_retval_record.array(), I_off_size, I_len_rec_f1 - I_off_size - I_len_crc);
+		O_retval_record.putInt((int)O_crc.getValue()).flip();
+		return O_retval_record;
+	}
+
+	protected static void FV_write_fully(
+			final FileChannel PB_O_channel,
+			final ByteBuffer  PB_O_buffer) throws IOException {
+
+		while (PB_O_buffer.hasRemaining()) {
+			PB_O_channel.write(PB_O_buffer);
+		    }
+		return;
+	}
+
+	protected FileChannel FO_lock() throws IOException {
+
+		FileChannel O_retval_lock_channel;
+
+		O_retval_lock_channel = FileChannel.open(this.F_pna_lock.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		O_retval_lock_channel.lock();  // released by closing the channel
+		return O_retval_lock_channel;
+	}
+
+	/**
+	 * Appends records to the end of the last complete record, as one write.
+	 *
+	 * @return the last 4 bytes written
+	 */
+	protected int FI_append(
+			final FileChannel  PB_O_channel,
+			final List<String> PI_AS_pnrs,
+			final List<Entry>  PI_AO_entries) throws IOException {
+
+		ByteBuffer AO_records[], O_batch;
+		int        I_len_batch_f1, i1;
+
+		AO_records = new ByteBuffer[PI_AS_pnrs.size()];
+		I_len_batch_f1 = 0;
+		for (i1 = 0; i1 < AO_records.length; i1++) {
+			AO_records[i1] = FO_get_record(PI_AS_pnrs.get(i1), PI_AO_entries.get(i1));
+			I_len_batch_f1 += AO_records[i1].remaining();
+		    }
+		O_batch = ByteBuffer.allocate(I_len_batch_f1);
+		for (i1 = 0; i1 < AO_records.length; i1++) {
+			O_batch.put(AO_records[i1]);
+		    }
+		O_batch.flip();
+		FV_write_fully(PB_O_channel, O_batch);
+		return O_batch.getInt(I_len_batch_f1 - I_len_crc);
+	}
+
+	/**
+	 *
+	 * @param PI_S_pnr pathname relative to the site, as in <tt>setup.ini</tt>
+	 * @param PI_O_attrs current attributes of the archive
+	 * @return the digest, null if there is none for these attributes
+	 */
+	public byte[] FAY_get_digest(
+			final String              PI_S_pnr,
+			final BasicFileAttributes PI_O_attrs) {
+
+		Entry O_entry;
+
+		O_entry = this.HO_entries.get(PI_S_pnr);
+		if ((O_entry == null) || !O_entry.FB_matches(
+				PI_O_attrs.size(),
+				PI_O_attrs.lastModifiedTime().toMillis(),
+				FL_get_file_key(PI_O_attrs))) {
+		   return null;
+		   }
+		return O_entry.AY_digest;
+	}
+
+	/**
+	 * Stores a digest. Once {@link #I_max_nbr_pending} are pending, they are appended by the calling thread
+	 * unless another one is writing, which then appends them with its own.<br>
+	 * A pathname longer than {@link #I_max_len_path} UTF-8 bytes is not cached.
+	 *
+	 * @param PI_O_attrs attributes of the archive read before it was hashed
+	 */
+	public void FV_put(
+			final String              PI_S_pnr,
+			final BasicFileAttributes PI_O_attrs,
+			final byte                PI_AY_digest[]) {
+
+		Entry   O_entry;
+		boolean B_flush;
+
+		if ((PI_S_pnr.length() > (I_max_len_path / 3)) &&
+		    (PI_S_pnr.getBytes(StandardCharsets.UTF_8).length > I_max_len_path)) {
+		   return;
+		   }
+		O_entry = new Entry(
+				PI_O_attrs.size(),
+				PI_O_attrs.lastModifiedTime().toMillis(),
+				FL_get_file_key(PI_O_attrs),
+				PI_AY_digest);
+		synchronized (this.O_entries_lock) {
+			this.HO_entries.put(PI_S_pnr, O_entry);
+			this.AS_pending_pnrs.add(PI_S_pnr);
+			this.AO_pending_entries.add(O_entry);
+			B_flush = (this.AS_pending_pnrs.size() >= I_max_nbr_pending);
+		    }
+		if (B_flush && this.O_writer_lock.tryLock()) {
+		   try {
+			   FV_write_pending();
+		   } finally {
+			   this.O_writer_lock.unlock();
+		       }
+		   }
+		return;
+	}
+
+	public int FI_get_nbr_entries() {
+		return this.HO_entries.size();
+	}
+
+	/**
+	 * Appends the digests stored since the last flush, waiting for a flush of another thread.<br>
+	 * Records appended by other writers in the meantime are read first, an incomplete record at the end is cut off.
+	 */
+	public void FV_flush() {
+
+		this.O_writer_lock.lock();
+		try {
+			FV_write_pending();
+		} finally {
+			this.O_writer_lock.unlock();
+		    }
+		return;
+	}
+
+	/**
+	 * Takes the pending digests and appends them, they are pending again if that fails.
+	 * The caller holds {@link #O_writer_lock}.
+	 */
+	protected void FV_write_pending() {
+
+		RuntimeException E_rt;
+		List<String>     AS_pnrs;
+		List<Entry>      AO_entries;
+		String           S_msg_1;
+		long L_end_f0;
+		int  I_tail;
+
+		synchronized (this.O_entries_lock) {
+			if (this.AS_pending_pnrs.isEmpty()) {
+			   return;
+			   }
+		    }
+		AS_pnrs    = null;
+		AO_entries = null;
+		try (FileChannel O_lock_channel = FO_lock();
+			 FileChannel O_channel = FileChannel.open(this.F_pna_cache.toPath(),
+					 StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			L_end_f0 = FL_catch_up(O_channel);
+			if (L_end_f0 == 0L) {  // new or of another format
+			   O_channel.truncate(0L);
+			   FV_write_fully(O_channel, FO_get_header());
+			   L_end_f0 = I_len_header;
+			   this.I_nbr_records_f1 = 0;
+			   this.I_tail = 0;
+			   }
+			O_channel.truncate(L_end_f0);
+			O_channel.position(L_end_f0);
+			synchronized (this.O_entries_lock) {
+				AS_pnrs    = this.AS_pending_pnrs;
+				AO_entries = this.AO_pending_entries;
+				this.AS_pending_pnrs    = new ArrayList<String>();
+				this.AO_pending_entries = new ArrayList<Entry>();
+			    }
+			I_tail = FI_append(O_channel, AS_pnrs, AO_entries);
+			O_channel.force(false);
+			this.L_end_f0 = O_channel.position();
+			this.L_file_key = FL_get_file_key(Files.readAttributes(this.F_pna_cache.toPath(), BasicFileAttributes.class));
+			this.I_tail = I_tail;
+			this.I_nbr_records_f1 += AS_pnrs.size();
+		} catch (IOException PI_E_io) {
+			this.L_end_f0 = 0L;  // read all again
+			if (AS_pnrs != null) {
+			   synchronized (this.O_entries_lock) {
+				   AS_pnrs.addAll(this.AS_pending_pnrs);
+				   AO_entries.addAll(this.AO_pending_entries);
+				   this.AS_pending_pnrs    = AS_pnrs;
+				   this.AO_pending_entries = AO_entries;
+			       }
+			   }
+			S_msg_1 = "Unable to append to digest cache \"" + this.F_pna_cache.getPath() + "\"";
+			E_rt = new RuntimeException(S_msg_1, PI_E_io);
+			throw E_rt;
+		    }
+		return;
+	}
+
+	/**
+	 * Rewrites the cache with one record per pathname if it holds more than
+	 * {@link #I_min_nbr_records_compaction} records and more than twice as many as pathnames.
+	 * Digests stored meanwhile are appended to the new file.
+	 *
+	 * @return true if compacted, false if not necessary or the cache is in use and cannot be replaced
+	 */
+	public boolean FB_compact() {
+
+		RuntimeException E_rt;
+		List<String>     AS_pnrs;
+		List<Entry>      AO_entries;
+		Path             O_pna_tmp;
+		String           S_msg_1;
+		boolean          B_retval_compacted;
+		int              I_tail;
+
+		O_pna_tmp = null;
+		this.O_writer_lock.lock();
+		try {
+			FV_write_pending();
+			try (FileChannel O_lock_channel = FO_lock()) {
+				if (this.F_pna_cache.isFile()) {
+				   try (FileChannel O_channel = FileChannel.open(this.F_pna_cache.toPath(), StandardOpenOption.READ)) {
+					   FL_catch_up(O_channel);
+				       }
+				   }
+				if ((this.I_nbr_records_f1 <= I_min_nbr_records_compaction) ||
+					(this.I_nbr_records_f1 <= 2 * this.HO_entries.size())) {
+				   return false;
+				   }
+				AS_pnrs    = new ArrayList<String>();
+				AO_entries = new ArrayList<Entry>();
+				for (Map.Entry<String, Entry> O_entry: this.HO_entries.entrySet()) {
+					AS_pnrs.add(O_entry.getKey());
+					AO_entries.add(O_entry.getValue());
+				    }
+				O_pna_tmp = Files.createTempFile(this.F_pna_cache.getAbsoluteFile().getParentFile().toPath(),
+						this.F_pna_cache.getName(), ".tmp");
+				try (FileChannel O_channel = FileChannel.open(O_pna_tmp, StandardOpenOption.WRITE)) {
+					FV_write_fully(O_channel, FO_get_header());
+					I_tail = AS_pnrs.isEmpty() ? 0 : FI_append(O_channel, AS_pnrs, AO_entries);
+					O_channel.force(false);
+					this.L_end_f0 = O_channel.position();
+				    }
+				try {
+					Files.move(O_pna_tmp, this.F_pna_cache.toPath(),
+							StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+				} catch (AtomicMoveNotSupportedException PI_E_atomic_move) {
+					Files.move(O_pna_tmp, this.F_pna_cache.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				    }
+				this.L_file_key = FL_get_file_key(Files.readAttributes(this.F_pna_cache.toPath(), BasicFileAttributes.class));
+				this.I_tail = I_tail;
+				this.I_nbr_records_f1 = AS_pnrs.size();
+				B_retval_compacted = true;
+			} catch (FileSystemException PI_E_fs) {
+				this.L_end_f0 = 0L;
+				B_retval_compacted = false;
+			} catch (IOException PI_E_io) {
+				this.L_end_f0 = 0L;
+				S_msg_1 = "Unable to compact digest cache \"" + this.F_pna_cache.getPath() + "\"";
+				E_rt = new RuntimeException(S_msg_1, PI_E_io);
+				throw E_rt;
+			    }
+		} finally {
+			this.O_writer_lock.unlock();
+			if (O_pna_tmp != null) {
+			   O_pna_tmp.toFile().delete();  // left over only if the move failed
+			   }
+		    }
+		return B_retval_compacted;
+	}
+
+	/**
+	 * Appends the pending digests and compacts the cache if due.
+	 */
+	public void FV_close() {
+
+		FV_flush();
+		FB_compact();
+		return;
+	}
+}
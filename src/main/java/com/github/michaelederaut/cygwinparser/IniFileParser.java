@@ -1,25 +1,31 @@
 package com.github.michaelederaut.cygwinparser;
 
-import static com.github.michaelederaut.basics.RegexpUtils.GroupMatchResult;
 import static com.github.michaelederaut.basics.RegexpUtils.NamedPattern;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Stack;
 import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.mutable.*;
 
-import com.github.michaelederaut.basics.EnumReflectionUtils;
 import com.github.michaelederaut.basics.LineNbrRandomAccessFile;
-import com.github.michaelederaut.basics.RegexpUtils;
 import com.github.michaelederaut.basics.StreamUtils;
-import com.github.michaelederaut.basics.LineNbrRandomAccessFile.ReadLinePolicy;
 import com.github.michaelederaut.cygwinparser.SetupIniContents.ArchInfo;
 import com.github.michaelederaut.cygwinparser.SetupIniContents.PckgArchInfos;
-import com.github.michaelederaut.cygwinparser.SetupIniContents.PckgVersionInfo;
 import com.github.michaelederaut.cygwinparser.SetupIniContents.PckgInfo;
+import com.github.michaelederaut.cygwinparser.SetupIniContents.PckgChanges;
+import com.github.michaelederaut.cygwinparser.SetupIniContents.PckgPosition;
+import com.github.michaelederaut.cygwinparser.SetupIniLexer.LineKind;
 import static com.github.michaelederaut.cygwinparser.ArchiveChecker.I_nbr_pckg_compl_degrees;
 
 public class IniFileParser {
@@ -34,32 +40,34 @@ private static final String VERSION           = "version";
 private static final String INSTALL           = "install";
 private static final String SOURCE            = "source";
 
+// Reference grammar of setup.ini. The lines are recognised by SetupIniLexer,
+// the patterns are kept to document the syntax and as baseline for the lexer benchmark.
 private static final String S_re_comment_line = "^\\#.*$";
-private static final NamedPattern P_comment_line =  NamedPattern.FO_compile(S_re_comment_line);
+static final NamedPattern P_comment_line =  NamedPattern.FO_compile(S_re_comment_line);
 
 // private static final String S_re_pkg_hdr = "^@\\s+({" + PKG_NAME + "}[A-Za-z0-9._+\\-]+)\\s*$";
 private static final String S_re_pkg_hdr = "^@\\s+(?<" + PKG_NAME + ">[A-Za-z0-9._+\\-]+)\\s*$";
-private static final NamedPattern P_pkg_hdr = NamedPattern.FO_compile(S_re_pkg_hdr);
+static final NamedPattern P_pkg_hdr = NamedPattern.FO_compile(S_re_pkg_hdr);
 
 // private static final String S_re_sdesc = "^" + DESCRIPTION_SHORT + "\\:\\s+\"({" + DESCRIPTION_SHORT + "}[^\"]*?)\"$";
 private static final String S_re_sdesc = "^" + DESCRIPTION_SHORT + "\\:\\s+\"(?<" + DESCRIPTION_SHORT + ">[^\"]*?)\"$";
-private static final NamedPattern P_sdesc =  NamedPattern.FO_compile(S_re_sdesc);
+static final NamedPattern P_sdesc =  NamedPattern.FO_compile(S_re_sdesc);
 
 // private static final String S_re_ldesc = "^" + DESCRIPTION_LONG + "\\:\\s+\"({" + DESCRIPTION_LONG + "}[^\"]*?)({" + CLOSING_QUOTE + "}\")?$";
 private static final String S_re_ldesc = "^" + DESCRIPTION_LONG + "\\:\\s+\"(?<" + DESCRIPTION_LONG +  ">[^\"]*?)(?<" + CLOSING_QUOTE + ">\")?$";
-private static final NamedPattern P_ldesc =  NamedPattern.FO_compile(S_re_ldesc);
+static final NamedPattern P_ldesc =  NamedPattern.FO_compile(S_re_ldesc);
 
 // private static final String S_re_ldesc_cont    = "^({" + DESCRIPTION_LONG + "}[^\"]*?)({" + CLOSING_QUOTE + "}\")?$";
 private static final String S_re_ldesc_cont    = "^(?<" + DESCRIPTION_LONG + ">[^\"]*?)(?<" + CLOSING_QUOTE + ">\")?$";
-private static final NamedPattern P_ldesc_cont = NamedPattern.FO_compile(S_re_ldesc_cont);
+static final NamedPattern P_ldesc_cont = NamedPattern.FO_compile(S_re_ldesc_cont);
 
 // private static final String S_re_catgegory = "^" + CATEGORY + "\\:\\s+({" + CATEGORY + "}[a-zA-Z0-9._+\\-]+)\\s*$";
-private static final String S_re_catgegory = "^" + CATEGORY + "\\:\\s+(?<" + CATEGORY + ">[a-zA-Z0-9._+\\-]+)\\s*$";
+private static final String S_re_catgegory = "^" + CATEGORY + "\\:\\s+(?<" + CATEGORY + ">[a-zA-Z0-9._+\\-]+(?:\\s+[a-zA-Z0-9._+\\-]+)*)\\s*$";
 static final NamedPattern   P_category     =  NamedPattern.FO_compile(S_re_catgegory);
 
 // private static final String S_re_requires = "^" + REQUIRES + "\\:\\s+({" + REQUIRES + "}[^\"]*?)$";
 private static final String S_re_requires = "^" + REQUIRES + "\\:\\s+(?<" + REQUIRES + ">[^\"]*?)$";
-private static final NamedPattern P_requires =  NamedPattern.FO_compile(S_re_requires);
+static final NamedPattern P_requires =  NamedPattern.FO_compile(S_re_requires);
 
 // private static final String S_re_version = "^" + VERSION + "\\:\\s+({" + VERSION + "}[a-zA-Z0-9._+\\-]+)\\s*$";
 private static final String S_re_version = "^" + VERSION + "\\:\\s+(?<" + VERSION + ">[a-zA-Z0-9._+\\-]+)\\s*$";
@@ -70,407 +78,795 @@ static final NamedPattern   P_archinfo    =  NamedPattern.FO_compile(S_re_archin
 
 // private static final String S_re_install = "^" + INSTALL + "\\:\\s+({" + INSTALL + "}[^\"]*?)$";
 private static final String S_re_install = "^" + INSTALL + "\\:\\s+(?<" + INSTALL + ">[^\"]*?)$";
-private static final NamedPattern P_install =  NamedPattern.FO_compile(S_re_install);
+static final NamedPattern P_install =  NamedPattern.FO_compile(S_re_install);
 
 //private static final String S_re_source = "^" + SOURCE + "\\:\\s+({" + SOURCE + "}[^\"]*?)$";
 private static final String S_re_source = "^" + SOURCE + "\\:\\s+(?<" + SOURCE + ">[^\"]*?)$";
-private static final NamedPattern P_source =  NamedPattern.FO_compile(S_re_source);
+static final NamedPattern P_source =  NamedPattern.FO_compile(S_re_source);
 
-private static final String PREV_MARKER = "[prev]";
+// States of the table driven parser, each one names the last line recognised of the stanza.
+private enum ParsingState {Init, PkgName, Sdesc, LdescCont, Ldesc, Category, Requires, 
+	Version,     Install,     Source,     Prev,
+	VersionPrev, InstallPrev, 
+	InterPgk};
 
-// private enum ParsingState {Init, PkgName, Sdesc, Ldesc, LdescCont, Category, Requires, InterPgk, Finished};
+private static final ParsingState AE_parsing_states[] = ParsingState.values();
+private static final int I_nbr_line_kinds = LineKind.values().length;
 
-private enum ParsingState {Init, PkgName, Sdesc, Ldesc, LdescCont, Category, Requires, 
-	Version,     Install,    Source,     Prev,
-	VersionPrev, InstallPrev, SourcePrev,
-	InterPgk, Finished;
-};
+// Actions of the transition table, lines not expected in a state are skipped.
+private static final int A_skip           = 0;
+private static final int A_header         = 1;
+private static final int A_sdesc          = 2;
+private static final int A_ldesc          = 3;
+private static final int A_ldesc_cont     = 4;
+private static final int A_ldesc_cont_hdr = 5;   // header inside of ldesc, see FV_parse
+private static final int A_category       = 6;
+private static final int A_requires       = 7;
+private static final int A_version        = 8;
+private static final int A_install        = 9;
+private static final int A_source         = 10;
+private static final int A_source_prev    = 11;
+private static final int A_prev           = 12;
+private static final int A_broken_hdr     = 13;  // header before the stanza is complete, skipped if strict
+private static final int A_broken         = 14;  // malformed stanza, fatal if strict
 
-private final static int  I_parsing_state_Source        = ParsingState.Source.ordinal();
-// private final static int  I_parsing_state_VersionPrev   = ParsingState.VersionPrev.ordinal();
-private final static int  I_parsing_state_finished      = ParsingState.Finished.ordinal();
-private final static int I_prev_offset = ParsingState.VersionPrev.ordinal() - ParsingState.Version.ordinal();
+/**
+ * Transitions of the parser: <tt>(action &lt;&lt; 8) | next state</tt>,
+ * indexed by <tt>state * {@link #I_nbr_line_kinds} + line kind</tt>.
+ */
+private static final int AI_transitions[] = FAI_get_transitions();
 
-private static class MutableParsingState  extends MutableObject<ParsingState> {
+private static void FV_set_transition(
+		final int          PB_AI_transitions[],
+		final ParsingState PI_E_parsing_state,
+		final LineKind     PI_E_line_kind,
+		final int          PI_I_action,
+		final ParsingState PI_E_parsing_state_next) {
 	
-	public ParsingState E_parsing_state;
-	public int          I_offset;
+	PB_AI_transitions[PI_E_parsing_state.ordinal() * I_nbr_line_kinds + PI_E_line_kind.ordinal()] =
+			(PI_I_action << 8) | PI_E_parsing_state_next.ordinal();
+	return;
+}
+
+private static int[] FAI_get_transitions() {
 	
-	public MutableParsingState(final ParsingState PI_E_parsing_state) {
-		this.E_parsing_state = PI_E_parsing_state;
-		return;
-	}
+	int AI_retval_transitions[];
 	
-	public MutableParsingState(
-			final ParsingState PI_E_parsing_state,
-			final int          PI_I_offset) {
-		this.E_parsing_state = PI_E_parsing_state;
-		this.I_offset        = PI_I_offset;
-	}
+	AI_retval_transitions = new int[AE_parsing_states.length * I_nbr_line_kinds];
+	for (ParsingState E_parsing_state: AE_parsing_states) {
+		for (LineKind E_line_kind: LineKind.values()) {
+			if ((E_line_kind == LineKind.blank) || (E_line_kind == LineKind.comment)) {
+			   FV_set_transition(AI_retval_transitions, E_parsing_state, E_line_kind, A_skip, E_parsing_state);
+			   }
+			else if (E_parsing_state == ParsingState.LdescCont) {  // any line continues the long description
+			   FV_set_transition(AI_retval_transitions, E_parsing_state, E_line_kind, A_ldesc_cont, E_parsing_state);
+			   }
+			else if (E_parsing_state == ParsingState.Source) {  // any other line than [prev] ends the stanza
+			   FV_set_transition(AI_retval_transitions, E_parsing_state, E_line_kind, A_skip, ParsingState.InterPgk);
+			   }
+			else if ((E_line_kind == LineKind.pckgHdr) && FB_is_incomplete(E_parsing_state)) {
+			   FV_set_transition(AI_retval_transitions, E_parsing_state, E_line_kind, A_broken_hdr, E_parsing_state);
+			   }
+			else {
+			   FV_set_transition(AI_retval_transitions, E_parsing_state, E_line_kind, A_skip, E_parsing_state);
+			   }
+		    }
+	    }
+	FV_set_transition(AI_retval_transitions, ParsingState.Init,        LineKind.pckgHdr,  A_header,         ParsingState.PkgName);
+	FV_set_transition(AI_retval_transitions, ParsingState.InterPgk,    LineKind.pckgHdr,  A_header,         ParsingState.PkgName);
+	FV_set_transition(AI_retval_transitions, ParsingState.PkgName,     LineKind.sdesc,    A_sdesc,          ParsingState.Sdesc);
+	FV_set_transition(AI_retval_transitions, ParsingState.Sdesc,       LineKind.ldesc,    A_ldesc,          ParsingState.Ldesc);
+	FV_set_transition(AI_retval_transitions, ParsingState.LdescCont,   LineKind.pckgHdr,  A_ldesc_cont_hdr, ParsingState.LdescCont);
+	FV_set_transition(AI_retval_transitions, ParsingState.Ldesc,       LineKind.category, A_category,       ParsingState.Category);
+	FV_set_transition(AI_retval_transitions, ParsingState.Category,    LineKind.requires, A_requires,       ParsingState.Requires);
+	FV_set_transition(AI_retval_transitions, ParsingState.Requires,    LineKind.version,  A_version,        ParsingState.Version);
+	FV_set_transition(AI_retval_transitions, ParsingState.Version,     LineKind.install,  A_install,        ParsingState.Install);
+	FV_set_transition(AI_retval_transitions, ParsingState.Install,     LineKind.source,   A_source,         ParsingState.Source);
+	FV_set_transition(AI_retval_transitions, ParsingState.Install,     LineKind.prev,     A_broken,         ParsingState.Install);
+	FV_set_transition(AI_retval_transitions, ParsingState.Source,      LineKind.pckgHdr,  A_header,         ParsingState.PkgName);
+	FV_set_transition(AI_retval_transitions, ParsingState.Source,      LineKind.prev,     A_prev,           ParsingState.Prev);
+	FV_set_transition(AI_retval_transitions, ParsingState.Prev,        LineKind.version,  A_version,        ParsingState.VersionPrev);
+	FV_set_transition(AI_retval_transitions, ParsingState.VersionPrev, LineKind.install,  A_install,        ParsingState.InstallPrev);
+	FV_set_transition(AI_retval_transitions, ParsingState.InstallPrev, LineKind.source,   A_source_prev,    ParsingState.InterPgk);
+	FV_set_transition(AI_retval_transitions, ParsingState.InstallPrev, LineKind.prev,     A_broken,         ParsingState.InstallPrev);
+	return AI_retval_transitions;
+}
+
+public static SetupIniContents FO_parse(final LineNbrRandomAccessFile PI_O_buff_reader) {
+		SetupIniContents O_retval_setup_ini_contents;
+		
+		O_retval_setup_ini_contents = FO_parse(new IniLineReader.LineNbrRafReader(PI_O_buff_reader));
+		return O_retval_setup_ini_contents;
+     }
+
+/**
+ * 
+ * @param PI_O_buff_reader source of the lines of <tt>setup.ini</tt>, e.g. a {@link MappedIniLineReader}
+ * @return the packages found
+ */
+public static SetupIniContents FO_parse(final IniLineReader PI_O_buff_reader) {
+		SetupIniContents O_retval_setup_ini_contents;
+		String S_msg_1;
+		
+		S_msg_1 = "Now reading lines from file: \'" + PI_O_buff_reader.S_pn + "\'";
+	    System.out.println(S_msg_1);
+	    
+	    O_retval_setup_ini_contents = FO_parse_lines(PI_O_buff_reader);
+	    return O_retval_setup_ini_contents;
+     }
+
+/**
+ * Lenient parse for files of unknown quality.<br>
+ * A malformed stanza, e.g. one lacking its <tt>ldesc</tt> or <tt>source</tt> line, cut off by the end
+ * of the file or with a blank <tt>sdesc</tt>, does not end the parse: it is skipped up to the next package
+ * header <tt>"@ "</tt> and recorded in <tt>PB_O_diagnostics</tt>. All other packages are returned, still in a single pass.
+ * 
+ * @param PI_O_buff_reader source of the lines of <tt>setup.ini</tt>
+ * @param PB_O_diagnostics receives one entry per skipped stanza
+ * @return the valid packages
+ */
+public static SetupIniContents FO_parse(
+		final IniLineReader    PI_O_buff_reader,
+		final ParseDiagnostics PB_O_diagnostics) {
 	
-	@Override
-	public ParsingState getValue() {
-		return this.E_parsing_state;
-	}
+		SetupIniContents O_retval_setup_ini_contents;
+		String S_msg_1;
+		
+		S_msg_1 = "Now reading lines leniently from file: \'" + PI_O_buff_reader.S_pn + "\'";
+	    System.out.println(S_msg_1);
+	    
+	    O_retval_setup_ini_contents = new SetupIniContents(PI_O_buff_reader);
+		FV_parse(
+				PI_O_buff_reader, 
+				O_retval_setup_ini_contents.O_symbols, 
+				O_retval_setup_ini_contents::FV_add, 
+				PB_O_diagnostics);
+	    return O_retval_setup_ini_contents;
+     }
+
+/**
+ * Parses forward-only input while it is read, compressed input like <tt>setup.xz</tt> or <tt>setup.zst</tt>
+ * is decompressed on the fly, see {@link StreamIniLineReader#FO_create(InputStream, String)}.
+ * 
+ * @param PI_O_input_stream input, closed after parsing
+ * @param PI_S_pn name of the input for messages
+ * @return the packages found
+ */
+public static SetupIniContents FO_parse(
+		final InputStream PI_O_input_stream,
+		final String      PI_S_pn) {
+	
+		StreamIniLineReader O_buff_reader;
+		SetupIniContents    O_retval_setup_ini_contents;
+		
+		O_buff_reader = StreamIniLineReader.FO_create(PI_O_input_stream, PI_S_pn);
+		try {
+			O_retval_setup_ini_contents = FO_parse(O_buff_reader);
+		} finally {
+			O_buff_reader.FV_close();
+		    }
+		return O_retval_setup_ini_contents;
+     }
+
+/**
+ * 
+ * @param PI_O_channel input, compressed or not, closed after parsing
+ * @param PI_S_pn name of the input for messages
+ * @return the packages found
+ */
+public static SetupIniContents FO_parse(
+		final ReadableByteChannel PI_O_channel,
+		final String              PI_S_pn) {
+	
+		SetupIniContents O_retval_setup_ini_contents;
+		
+		O_retval_setup_ini_contents = FO_parse(Channels.newInputStream(PI_O_channel), PI_S_pn);
+		return O_retval_setup_ini_contents;
+     }
+
+/**
+ * Parses one range of <tt>setup.ini</tt> on a {@link ForkJoinPool}.
+ */
+protected static class ChunkParser extends RecursiveTask<SetupIniContents> {
+	
+	private static final long serialVersionUID = 1L;
 	
+	public MappedIniLineReader O_buff_reader;
+	
+	public ChunkParser(final MappedIniLineReader PI_O_buff_reader) {
+		this.O_buff_reader = PI_O_buff_reader;
+	    }
 	
 	@Override
-	public void setValue(final ParsingState PI_E_parsing_state) {
-		this.E_parsing_state = PI_E_parsing_state; 
-	}
+	protected SetupIniContents compute() {
+		SetupIniContents O_retval_setup_ini_contents;
+		
+		O_retval_setup_ini_contents = FO_parse_lines(this.O_buff_reader);
+		return O_retval_setup_ini_contents;
+	    }
 }
 
-private static SetupIniContents.PckgArchInfos FO_parse_pck_info (
-		final LineNbrRandomAccessFile    PB_O_buff_reader,
-		final MutableParsingState        PB_OM_parsing_state) {
+public static final int I_nbr_chunks_per_thread = 4;
+
+/**
+ * Parses <tt>setup.ini</tt> in parallel.<br>
+ * The file is divided into byte ranges starting with a package header line <tt>"@ "</tt>
+ * outside of a long description,
+ * each range is parsed by a {@link ChunkParser} and the partial results are appended
+ * in file order, so the result is identical to the one of {@link #FO_parse(IniLineReader)}.
+ * 
+ * @param PI_O_buff_reader mapped file, must not have been read from yet
+ * @param PI_O_pool pool to run the chunk parsers on
+ * @return the packages found
+ */
+public static SetupIniContents FO_parse_parallel(
+		final MappedIniLineReader PI_O_buff_reader,
+		final ForkJoinPool        PI_O_pool) {
 	
-	RuntimeException                 E_rt;
-	AssertionError                   E_assert;
-
-	ParsingState                     E_parsing_state;
-	GroupMatchResult                 O_grp_match_res;
-//	PckgArchInfos                    O_pckg_arch_infos_install, O_pck_arch_infos_src;
-	ArchInfo                         O_arch_info_install, O_arch_info_src;
-                 
-	String                           S_msg_1, S_msg_2, S_line_input, S_pna_inp,
-	                                 S_version, S_pn_archive, S_size_install, S_size_src, S_chk_sum_install, S_chk_sum_src,
-	                                 S_archinfo,  AS_numbered_groups[];
-	int                              I_line_nbr_f1, I_offs_f1;
+	SetupIniContents   O_retval_setup_ini_contents, O_chunk_contents;
+	List<ChunkParser>  AO_chunk_parsers;
+	ChunkParser        O_chunk_parser;
+	String             S_msg_1;
+	int                i1, AI_boundaries[], I_nbr_chunks_f1, I_line_offset_f0;
 	
-	PckgArchInfos O_retval_pck_arch_infos = null;
-	E_parsing_state = PB_OM_parsing_state.getValue();
+	I_nbr_chunks_f1 = PI_O_pool.getParallelism() * I_nbr_chunks_per_thread;
+	AI_boundaries = PI_O_buff_reader.FAI_get_pckg_boundaries(I_nbr_chunks_f1);
+	I_nbr_chunks_f1 = AI_boundaries.length - 1;
+	if (I_nbr_chunks_f1 <= 1) {
+	   O_retval_setup_ini_contents = FO_parse(PI_O_buff_reader);
+	   return O_retval_setup_ini_contents;
+	   }
+	
+	S_msg_1 = "Now reading lines from file: \'" + PI_O_buff_reader.S_pn + "\' in " + I_nbr_chunks_f1 + " chunks";
+    System.out.println(S_msg_1);
+    
+	AO_chunk_parsers = new ArrayList<ChunkParser>(I_nbr_chunks_f1);
+	for (i1 = 0; i1 < I_nbr_chunks_f1; i1++) {
+		O_chunk_parser = new ChunkParser(new MappedIniLineReader(
+				PI_O_buff_reader, 
+				AI_boundaries[i1], 
+				AI_boundaries[i1 + 1]));
+		AO_chunk_parsers.add(O_chunk_parser);
+		PI_O_pool.execute(O_chunk_parser);
+	    }
+	
+	O_retval_setup_ini_contents = new SetupIniContents(PI_O_buff_reader);
+	I_line_offset_f0 = 0;
+	for (i1 = 0; i1 < I_nbr_chunks_f1; i1++) {
+		O_chunk_parser = AO_chunk_parsers.get(i1);
+		O_chunk_contents = O_chunk_parser.join();
+		O_retval_setup_ini_contents.FV_append(O_chunk_contents, I_line_offset_f0);
+		I_line_offset_f0 += O_chunk_parser.O_buff_reader.I_curr_line_nbr;
+	    }
+	return O_retval_setup_ini_contents;
+}
 
-	S_version = null;
-	O_arch_info_install = null;
-	O_arch_info_src     = null;
+/**
+ * Brings a parse result up to date with a new version of <tt>setup.ini</tt>.<br>
+ * The stanzas of the new file are fingerprinted by a {@link StanzaScanner}. Only stanzas whose
+ * fingerprint differs from the one recorded for the package are parsed, the other packages
+ * are kept and only moved to their new positions. <tt>PB_O_setup_ini_contents</tt> is patched in place.<br>
+ * Fingerprints are recorded by this method and by {@link SetupIniContents#FV_set_fingerprints(MappedIniLineReader)},
+ * packages without one count as changed. Package names are expected to be unique.
+ * 
+ * @param PB_O_setup_ini_contents result of the previous run, may be empty
+ * @param PI_O_buff_reader the new version of the file
+ * @return names of the packages added, changed and removed
+ * @see #FO_parse_incremental(SetupIniContents, MappedIniLineReader, ParseDiagnostics)
+ */
+public static PckgChanges FO_parse_incremental(
+		final SetupIniContents    PB_O_setup_ini_contents,
+		final MappedIniLineReader PI_O_buff_reader) {
 	
-	S_pna_inp = PB_O_buff_reader.S_pn;
-//	S_msg_1 = "Now reading lines from file: \"" + S_pna_inp + "\"";
-//	System.out.println(S_msg_1);
+	PckgChanges O_retval_changes;
 	
-	S_line_input = PB_O_buff_reader.FS_re_read_line();
-	I_line_nbr_f1 = PB_O_buff_reader.I_curr_line_nbr;
-	S_size_install    = null;
-	S_chk_sum_install = null;
-	S_size_src        = null;
-	S_chk_sum_src     = null;
+	O_retval_changes = FO_parse_incremental(PB_O_setup_ini_contents, PI_O_buff_reader, null);
+	return O_retval_changes;
+}
+
+/**
+ * Like {@link #FO_parse_incremental(SetupIniContents, MappedIniLineReader)}, with the changed stanzas
+ * parsed leniently if <tt>PB_O_diagnostics</tt> is given.<br>
+ * A malformed stanza is then skipped and recorded with its line numbers in the new file, a package
+ * of the previous run of this name counts as removed. A strict update throws on the first malformed stanza,
+ * leaving <tt>PB_O_setup_ini_contents</tt> as it was.
+ * 
+ * @param PB_O_diagnostics null for a strict update
+ */
+public static PckgChanges FO_parse_incremental(
+		final SetupIniContents    PB_O_setup_ini_contents,
+		final MappedIniLineReader PI_O_buff_reader,
+		final ParseDiagnostics    PB_O_diagnostics) {
 	
-	LOOP_INPUT_LINES: while (E_parsing_state.ordinal() < I_parsing_state_Source) {
-		if (S_line_input == null) {
-		   if  ((E_parsing_state == ParsingState.Install) || (E_parsing_state == ParsingState.Source)) {
-			  E_parsing_state = ParsingState.Finished;
-		      }
-		   else {
-			  S_msg_1 = "Unexepectd end of file at line: " +  I_line_nbr_f1 + ".";
-			  E_assert = new AssertionError(S_msg_1);
-			  S_msg_2 = "Unable to instantiate new object of type: \'" + 
-			             SetupIniContents.PckgVersionInfo.class.getName() + "\'";
-			  E_rt = new RuntimeException(S_msg_2, E_assert);
-			  throw E_rt;
-		      }
+	StanzaScanner                 O_stanza_scanner;
+	ParseDiagnostics              O_stanza_diagnostics;
+	PckgChanges                   O_retval_changes;
+	Stack<PckgInfo>               AO_pckg_info;
+	HashMap<String, PckgPosition> HS_package_names;
+	PckgPosition                  O_pckg_pos, O_pckg_pos_new;
+	PckgInfo                      O_pckg_info;
+	final PckgInfo                AO_pckg_info_parsed[];
+	String                        S_pckg_name, S_msg_1;
+	int                           I_stanza_len_f1, I_line_offset_f0;
+	
+	S_msg_1 = "Now updating packages from file: \'" + PI_O_buff_reader.S_pn + "\'";
+    System.out.println(S_msg_1);
+    
+	O_retval_changes    = new PckgChanges();
+	AO_pckg_info        = new Stack<PckgInfo>();
+	HS_package_names    = new HashMap<String, PckgPosition>();
+	AO_pckg_info_parsed = new PckgInfo[1];
+	O_stanza_diagnostics = (PB_O_diagnostics == null) ? null : new ParseDiagnostics();
+	O_stanza_scanner    = new StanzaScanner(PI_O_buff_reader, PB_O_setup_ini_contents.O_symbols);
+	
+	LOOP_STANZAS: while (O_stanza_scanner.FB_next()) {
+		S_pckg_name = O_stanza_scanner.S_pckg_name;
+		if (S_pckg_name == null) {
+		   continue LOOP_STANZAS;
 		   }
-		else if (E_parsing_state == ParsingState.Requires) {
-			O_grp_match_res = RegexpUtils.FO_match(S_line_input, P_version.O_patt);
-			if (O_grp_match_res.I_map_size_f1 >= 1) {
-			   S_version = O_grp_match_res.HS_named_groups.get(VERSION).S_grp_val;
-			   E_parsing_state = ParsingState.Version;		
-			   }
+		I_stanza_len_f1 = O_stanza_scanner.I_end_f0 - O_stanza_scanner.I_start_f0;
+		O_pckg_pos = PB_O_setup_ini_contents.HS_package_names.get(S_pckg_name);
+		if ((O_pckg_pos != null) && 
+			(O_pckg_pos.I_stanza_len_f1 == I_stanza_len_f1) && 
+			(O_pckg_pos.L_fingerprint == O_stanza_scanner.L_fingerprint)) {  // unchanged
+			O_pckg_info = PB_O_setup_ini_contents.AO_pckg_info.get(O_pckg_pos.I_pos_on_stack_f0);
 		    }
-		else if (E_parsing_state == ParsingState.Version) {
-			S_size_install    = null;
-			S_chk_sum_install = null;
-			S_size_src        = null;
-			S_chk_sum_src     = null;
-			O_grp_match_res = RegexpUtils.FO_match(S_line_input, P_install.O_patt);
-			if (O_grp_match_res.I_map_size_f1 >= 1) {
-			   S_archinfo = O_grp_match_res.HS_named_groups.get(INSTALL).S_grp_val;
-			   O_grp_match_res = RegexpUtils.FO_match(S_archinfo, P_archinfo.O_patt);
-			   if (O_grp_match_res.I_array_size_f1 >= 4) {
-				  AS_numbered_groups = O_grp_match_res.AS_numbered_groups;
-				  S_pn_archive = AS_numbered_groups[1];
-				  S_size_install       = AS_numbered_groups[2];
-				  S_chk_sum_install    = AS_numbered_groups[3];
-				  E_parsing_state = ParsingState.Install;
-			      }
+		else {
+			AO_pckg_info_parsed[0] = null;
+			FV_parse(
+					new MappedIniLineReader(PI_O_buff_reader, O_stanza_scanner.I_start_f0, O_stanza_scanner.I_end_f0),
+					PB_O_setup_ini_contents.O_symbols,
+					(PckgInfo PI_O_pckg_info, int PI_I_line_nbr_f1) -> {AO_pckg_info_parsed[0] = PI_O_pckg_info;},
+					O_stanza_diagnostics);
+			if ((O_stanza_diagnostics != null) && !O_stanza_diagnostics.FB_is_empty()) {  // lines counted from the stanza
+			   I_line_offset_f0 = O_stanza_scanner.I_line_nbr_f1 - 1;
+			   for (ParseDiagnostics.Diagnostic O_diagnostic: O_stanza_diagnostics.FAO_get_diagnostics()) {
+				   PB_O_diagnostics.FV_add(
+						   O_diagnostic.I_line_nbr_f1 + I_line_offset_f0, 
+						   (O_diagnostic.I_pckg_line_nbr_f1 == 0) ? 0 : O_diagnostic.I_pckg_line_nbr_f1 + I_line_offset_f0, 
+						   O_diagnostic.S_pckg_name, 
+						   O_diagnostic.S_state, 
+						   O_diagnostic.S_reason);
+			       }
+			   O_stanza_diagnostics = new ParseDiagnostics();
 			   }
-		    }
-		else if (E_parsing_state == ParsingState.Install) {
-			O_grp_match_res = RegexpUtils.FO_match(S_line_input, P_source.O_patt);
-			if (O_grp_match_res.I_map_size_f1 >= 1) {
-			   S_archinfo = O_grp_match_res.HS_named_groups.get(SOURCE).S_grp_val;
-			   O_grp_match_res = RegexpUtils.FO_match(S_archinfo, P_archinfo.O_patt);
-			   if (O_grp_match_res.I_array_size_f1 >= 4) {
-				  AS_numbered_groups = O_grp_match_res.AS_numbered_groups;
-				  S_pn_archive = AS_numbered_groups[1];
-				  S_size_src       = AS_numbered_groups[2];
-				  S_chk_sum_src    = AS_numbered_groups[3];
-				  O_retval_pck_arch_infos  =  new PckgArchInfos(
-					//	   S_pn_archive,
-						   S_version,
-						   new ArchInfo[][]{
-							   {new ArchInfo(S_version, S_size_install, S_chk_sum_install)},
-							   {new ArchInfo(S_version, S_size_src,     S_chk_sum_src)}});
-						  
-				  E_parsing_state = ParsingState.Source;
-			      }
+			O_pckg_info = AO_pckg_info_parsed[0];
+			if (O_pckg_info == null) {
+			   continue LOOP_STANZAS;
 			   }
-			   else if (StringUtils.startsWith(S_line_input, PREV_MARKER)) {
-				   E_parsing_state = ParsingState.Prev;	
+			PB_O_setup_ini_contents.O_ldesc_arena.FV_store(O_pckg_info);
+			if (O_pckg_pos == null) {
+			   O_retval_changes.AS_added.add(S_pckg_name);
+			   }
+			else {
+			   O_retval_changes.AS_changed.add(S_pckg_name);
 			   }
 		    }
-		try {
-			S_line_input = PB_O_buff_reader.FS_readLine();
-			I_line_nbr_f1 = PB_O_buff_reader.I_curr_line_nbr;
-		} catch (RuntimeException PI_E_rt) {
-		    S_msg_1 = "Error reading input file \"" + PB_O_buff_reader.S_pn + "\" at line: " + I_line_nbr_f1;
-		    E_rt = new RuntimeException(S_msg_1, PI_E_rt);
-		  throw E_rt;
-		  }
-	}   // END while
+		O_pckg_pos_new = new PckgPosition(O_stanza_scanner.I_line_nbr_f1, AO_pckg_info.size());
+		O_pckg_pos_new.I_stanza_start_f0 = O_stanza_scanner.I_start_f0;
+		O_pckg_pos_new.I_stanza_len_f1   = I_stanza_len_f1;
+		O_pckg_pos_new.L_fingerprint     = O_stanza_scanner.L_fingerprint;
+		AO_pckg_info.add(O_pckg_info);
+		HS_package_names.put(S_pckg_name, O_pckg_pos_new);
+	    }
 	
-	I_offs_f1 =  PB_OM_parsing_state.I_offset;
-	if (I_offs_f1 != 0) {
-	   EnumReflectionUtils.FV_modify_ordinal_by(E_parsing_state, I_offs_f1);
-	   }
-	PB_OM_parsing_state.setValue(E_parsing_state);
-	return O_retval_pck_arch_infos;
+	for (PckgInfo O_pckg_info_removed: PB_O_setup_ini_contents.AO_pckg_info) {
+		S_pckg_name = O_pckg_info_removed.S_name;
+		if (!HS_package_names.containsKey(S_pckg_name)) {
+		   O_retval_changes.AS_removed.add(S_pckg_name);
+		   }
+	    }
+	PB_O_setup_ini_contents.AO_pckg_info.clear();
+	PB_O_setup_ini_contents.AO_pckg_info.addAll(AO_pckg_info);
+	PB_O_setup_ini_contents.HS_package_names.clear();
+	PB_O_setup_ini_contents.HS_package_names.putAll(HS_package_names);
+	PB_O_setup_ini_contents.B_pckg_table_stale = true;
+	return O_retval_changes;
 }
 
-public static SetupIniContents FO_parse(final LineNbrRandomAccessFile PI_O_buff_reader) {
+protected static SetupIniContents FO_parse_lines(final IniLineReader PI_O_buff_reader) {
 		SetupIniContents O_retval_setup_ini_contents;
 		
+		O_retval_setup_ini_contents = new SetupIniContents(PI_O_buff_reader);
+		FV_parse(PI_O_buff_reader, O_retval_setup_ini_contents.O_symbols, O_retval_setup_ini_contents::FV_add);
+        return O_retval_setup_ini_contents;	    
+     }
+
+/**
+ * Joins the lines of a long description the same way as {@link #FV_parse(IniLineReader, PckgVisitor)}.
+ * 
+ * @param PI_O_buff_reader lines from <tt>"ldesc: ..."</tt> up to the closing quote
+ * @return the long description
+ */
+public static String FS_parse_ldesc(final IniLineReader PI_O_buff_reader) {
+	
+	SetupIniLexer O_lexer;
+	LineKind      E_line_kind;
+	StringBuilder SB_description_long;
+	CharSequence  S_line_input;
+	String        S_description_long_part;
+	
+	O_lexer = new SetupIniLexer();
+	S_line_input = PI_O_buff_reader.FO_read_line();
+	O_lexer.FE_lex(S_line_input);
+	SB_description_long = new StringBuilder(O_lexer.FS_get_value(S_line_input));
+	LOOP_INPUT_LINES: while ((S_line_input = PI_O_buff_reader.FO_read_line()) != null) {
+		E_line_kind = O_lexer.FE_lex(S_line_input);
+		if ((E_line_kind == LineKind.blank) || (E_line_kind == LineKind.comment)) {
+			continue LOOP_INPUT_LINES;
+		    }
+		if (O_lexer.FB_lex_ldesc_cont(S_line_input)) {
+			S_description_long_part = O_lexer.FS_get_value(S_line_input);
+			if (StringUtils.isNotBlank(S_description_long_part)) {
+				SB_description_long.append(" ");
+			   }
+			SB_description_long.append(S_description_long_part);
+		    }
+	    }
+	return SB_description_long.toString();
+}
+
+/**
+ * Streams the packages of <tt>setup.ini</tt> to a visitor.<br>
+ * Only the stanza being parsed is held in memory, each package is handed to <tt>PI_O_visitor</tt>
+ * as soon as its stanza ends. Together with a {@link MappedIniLineReader} the heap footprint
+ * is independent of the size of the file.<br>
+ * If the reader provides its bytes, long descriptions are not decoded but stored as byte ranges,
+ * see {@link PckgInfo#FS_get_ldesc()}.
+ * 
+ * @param PI_O_buff_reader source of the lines of <tt>setup.ini</tt>
+ * @param PI_O_visitor called for each package in file order
+ */
+public static void FV_parse(
+		final IniLineReader PI_O_buff_reader,
+		final PckgVisitor   PI_O_visitor) {
+	
+	FV_parse(PI_O_buff_reader, new SymbolTable(), PI_O_visitor);
+	return;
+}
+
+/**
+ * 
+ * @param PI_O_symbols table package names, categories, requires and versions are interned in
+ * @see #FV_parse(IniLineReader, PckgVisitor)
+ */
+public static void FV_parse(
+		final IniLineReader PI_O_buff_reader,
+		final SymbolTable   PI_O_symbols,
+		final PckgVisitor   PI_O_visitor) {
+	
+	FV_parse(PI_O_buff_reader, PI_O_symbols, PI_O_visitor, null);
+	return;
+}
+
+/**
+ * 
+ * @return true if a stanza ending in this state lacks mandatory lines
+ */
+protected static boolean FB_is_incomplete(final ParsingState PI_E_parsing_state) {
+	boolean B_retval;
+	
+	B_retval = (PI_E_parsing_state != ParsingState.Init)   &&
+			   (PI_E_parsing_state != ParsingState.Source) &&
+			   (PI_E_parsing_state != ParsingState.InterPgk);
+	return B_retval;
+}
+
+/**
+ * 
+ * @param PI_E_parsing_state last state reached by a stanza
+ * @return what the stanza lacks
+ */
+protected static String FS_get_missing_line(final ParsingState PI_E_parsing_state) {
+	String S_retval;
+	
+	switch (PI_E_parsing_state) {
+		case PkgName:     S_retval = "sdesc line missing";               break;
+		case Sdesc:       S_retval = "ldesc line missing";               break;
+		case LdescCont:   S_retval = "closing quote of ldesc missing";   break;
+		case Ldesc:       S_retval = "category line missing";            break;
+		case Category:    S_retval = "requires line missing";            break;
+		case Requires:    S_retval = "version line missing";             break;
+		case Version:     S_retval = "install line missing";             break;
+		case Install:     S_retval = "source line missing";              break;
+		case Prev:        S_retval = "version line after [prev] missing"; break;
+		case VersionPrev: S_retval = "install line after [prev] missing"; break;
+		case InstallPrev: S_retval = "source line after [prev] missing";  break;
+		default:          S_retval = "malformed stanza";
+	    }
+	return S_retval;
+}
+
+/**
+ * Records a complete stanza whose package was rejected, e.g. by {@link PckgInfo#FV_ctor} for a blank
+ * <tt>sdesc</tt>, an empty <tt>requires</tt> or no category.
+ * 
+ * @param PI_E_rt exception thrown while creating or visiting the package
+ */
+protected static void FV_add_rejected(
+		final ParseDiagnostics PB_O_diagnostics,
+		final int              PI_I_line_nbr_f1,
+		final int              PI_I_pckg_line_nbr_f1,
+		final String           PI_S_pckg_name,
+		final String           PI_S_state,
+		final RuntimeException PI_E_rt) {
+	
+	Throwable E_cause;
+	
+	E_cause = (PI_E_rt.getCause() == null) ? PI_E_rt : PI_E_rt.getCause();
+	PB_O_diagnostics.FV_add(PI_I_line_nbr_f1, PI_I_pckg_line_nbr_f1, PI_S_pckg_name, PI_S_state, 
+			"package rejected: " + E_cause.getMessage());
+	return;
+}
+
+/**
+ * The parser is a DFA: one lookup in {@link #AI_transitions} per line gives the action and the next state.
+ * 
+ * @param PB_O_diagnostics null for a strict parse, which throws on the first malformed stanza,
+ * otherwise malformed stanzas are skipped and recorded, see {@link #FO_parse(IniLineReader, ParseDiagnostics)}
+ * @see #FV_parse(IniLineReader, SymbolTable, PckgVisitor)
+ */
+public static void FV_parse(
+		final IniLineReader    PI_O_buff_reader,
+		final SymbolTable      PI_O_symbols,
+		final PckgVisitor      PI_O_visitor,
+		final ParseDiagnostics PB_O_diagnostics) {
+		
 		RuntimeException     E_rt;
 		NullPointerException E_np;
 		AssertionError       E_ass;
 		
-		ParsingState E_parsing_state;
-		GroupMatchResult O_grp_match_res;
-	//	SetupIniContents.PckgVersionInfo O_pkg_vers_info, O_pkg_vers_info_prev;
+		ParsingState  E_parsing_state;
+		LineKind      E_line_kind;
+		SetupIniLexer O_lexer;
 		SetupIniContents.PckgArchInfos O_pkg_arch_infos, O_pkg_arch_infos_prev;
+		ArchInfo      O_arch_info_install, O_arch_info_src;
+		ByteBuffer    O_ldesc_bytes;
 		
-		MutableParsingState OM_parsing_state;
-		
-		int I_line_nbr_f1, I_line_nbr_of_pckg_start_f1;
+		int I_line_nbr_f1, I_line_nbr_of_pckg_start_f1, I_ldesc_start_f0, I_ldesc_end_f0,
+		    I_state_f0, I_state_next_f0, I_transition, I_action;
 		StringBuilder SB_description_long;
-		String S_msg_1, S_msg_2, S_pna_inp, S_line_input,
-		S_pckg_name, S_description_short, S_description_long, S_description_long_part, S_closing_quote, 
-		S_category, AS_categories[], S_requires, AS_requires[];
-		ReadLinePolicy E_read_line_policy;
+		CharSequence S_line_input;
+		String S_msg_1, S_msg_2, S_reason,
+		S_pckg_name, S_description_short, S_description_long, S_description_long_part, 
+		S_version, AS_categories[], AS_requires[];
+		boolean B_lenient, B_after_blank;
 		
-		O_retval_setup_ini_contents = new SetupIniContents(PI_O_buff_reader);
+		B_lenient     = (PB_O_diagnostics != null);
+		B_after_blank = false;
 		SB_description_long = new StringBuilder();
-		E_parsing_state = ParsingState.Init;
+		O_lexer = new SetupIniLexer(PI_O_symbols);
+		O_ldesc_bytes = PI_O_buff_reader.FO_get_bytes();
+		I_state_f0 = ParsingState.Init.ordinal();
 		
 		S_pckg_name           = null;
 		S_description_short   = null;
 		S_description_long    = null;
+		S_version             = null;
 		AS_categories         = null;
 		AS_requires           = null;
 		O_pkg_arch_infos      = null; 
 		O_pkg_arch_infos_prev = null;
+		O_arch_info_install   = null;
 		
 		I_line_nbr_f1               = 0;
 		I_line_nbr_of_pckg_start_f1 = 0;
-		S_line_input                = null;
-		E_read_line_policy          = ReadLinePolicy.ReadNext;
+		I_ldesc_start_f0            = 0;
+		I_ldesc_end_f0              = 0;
 		
-		S_pna_inp = PI_O_buff_reader.S_pn;
-		S_msg_1 = "Now reading lines from file: \'" + S_pna_inp + "\'";
-	    System.out.println(S_msg_1);
-		
-		LOOP_INPUT_LINES: while (E_parsing_state.ordinal() < I_parsing_state_finished) {
+		LOOP_INPUT_LINES: while (true) {
+			try {
+				S_line_input = PI_O_buff_reader.FO_read_line();
+			} catch (RuntimeException PI_E_rt) {
+				S_msg_1 = "Error reading input file at line: " + I_line_nbr_f1;
+				E_rt = new RuntimeException(S_msg_1, PI_E_rt);
+				throw E_rt;
+			    }
+			if (S_line_input == null) {
+			   break LOOP_INPUT_LINES;
+			   }
 			I_line_nbr_f1 = PI_O_buff_reader.I_curr_line_nbr;
-			switch (E_read_line_policy) {
-				case ReadNext: 
-					try {
-						S_line_input = PI_O_buff_reader.FS_readLine();
-						I_line_nbr_f1 = PI_O_buff_reader.I_curr_line_nbr;
-					} catch (RuntimeException PI_E_rt) {
-						S_msg_1 = "Error reading input file at line: " + I_line_nbr_f1;
-						E_rt = new RuntimeException(S_msg_1, PI_E_rt);
-						throw E_rt;
-					    }
-					break;
-				case ReRead: 
-						try {
-							S_line_input = PI_O_buff_reader.FS_re_read_line();
-							I_line_nbr_f1 = PI_O_buff_reader.I_curr_line_nbr;
-						} catch (RuntimeException PI_E_rt) {
-							S_msg_1 = "Error re-reading input file at line: " + I_line_nbr_f1;
-							E_rt = new RuntimeException(S_msg_1, PI_E_rt);
-							throw E_rt;
-						    }
-				case SkipRead:
-						E_read_line_policy = ReadLinePolicy.ReadNext;
+			E_line_kind   = O_lexer.FE_lex(S_line_input);
+			I_transition    = AI_transitions[I_state_f0 * I_nbr_line_kinds + E_line_kind.ordinal()];
+			I_state_next_f0 = I_transition & 0xFF;
+			I_action        = I_transition >>> 8;
+			if (I_action == A_ldesc_cont_hdr) {  // inside of ldesc only a header after a blank line ends the stanza
+			   I_action = (B_lenient && B_after_blank) ? A_broken_hdr : A_ldesc_cont;
+			   }
+			try {
+				switch (I_action) {
+					case A_skip:
+						break;
+					case A_broken_hdr:
+						if (!B_lenient) {
+						   break;  // the header is skipped like any other unexpected line
+						   }
+						E_parsing_state = AE_parsing_states[I_state_f0];
+						PB_O_diagnostics.FV_add(I_line_nbr_f1, I_line_nbr_of_pckg_start_f1, S_pckg_name, E_parsing_state.name(), 
+								FS_get_missing_line(E_parsing_state) + " before next package");
+						S_pckg_name = null;
+						// the header starts the next package
+					case A_header:
+						if (S_pckg_name != null) {
+						   try {
+							   PI_O_visitor.FV_visit(new PckgInfo(
+									   S_pckg_name,
+									   S_description_short,
+									   S_description_long,
+									   O_ldesc_bytes,
+									   I_ldesc_start_f0,
+									   I_ldesc_end_f0 - I_ldesc_start_f0,
+									   AS_categories,
+									   AS_requires,
+									   O_pkg_arch_infos,
+									   O_pkg_arch_infos_prev),
+									   I_line_nbr_of_pckg_start_f1);
+						   } catch (RuntimeException PI_E_rt) {  // rejected by PckgInfo or the visitor
+							   if (!B_lenient) {
+								  throw PI_E_rt;
+								  }
+							   FV_add_rejected(PB_O_diagnostics, I_line_nbr_f1, I_line_nbr_of_pckg_start_f1, S_pckg_name, 
+									   AE_parsing_states[I_state_f0].name(), PI_E_rt);
+							   }
+						   }
+						S_description_short   = null;
+						S_description_long    = null;
+						AS_categories         = null;
+						AS_requires           = null;
+						O_pkg_arch_infos      = null; 
+						O_pkg_arch_infos_prev = null;
+						I_ldesc_start_f0      = 0;
+						I_ldesc_end_f0        = 0;
+						S_pckg_name = O_lexer.FS_get_symbol(S_line_input);
+						I_line_nbr_of_pckg_start_f1 = I_line_nbr_f1;
+						I_state_next_f0 = ParsingState.PkgName.ordinal();
+						break;
+					case A_sdesc:
+						S_description_short = O_lexer.FS_get_value(S_line_input);
+						break;
+					case A_ldesc:
+						if (O_ldesc_bytes != null) {  // decoded on demand
+						   I_ldesc_start_f0 = PI_O_buff_reader.FI_get_line_start_f0();
+						   I_ldesc_end_f0   = PI_O_buff_reader.FI_get_line_end_f0();
+						   }
+						else {
+						   S_description_long = O_lexer.FS_get_value(S_line_input);
+						   SB_description_long.setLength(0);
+						   SB_description_long.append(S_description_long);
+						   }
+						if (!O_lexer.B_closing_quote) {  // line containing long description will be continued
+						   I_state_next_f0 = ParsingState.LdescCont.ordinal();
+						   }
+						break;
+					case A_ldesc_cont:
+						if (!O_lexer.FB_lex_ldesc_cont(S_line_input)) {
+						   break;
+						   }
+						if (O_ldesc_bytes != null) {
+						   if (O_lexer.B_closing_quote) {
+							  I_ldesc_end_f0 = PI_O_buff_reader.FI_get_line_end_f0();
+						      }
+						   }
+						else {
+						   S_description_long_part = O_lexer.FS_get_value(S_line_input);
+						   if (StringUtils.isNotBlank(S_description_long_part)) {
+							  SB_description_long.append(" ");
+						      }
+						   SB_description_long.append(S_description_long_part);
+						   if (O_lexer.B_closing_quote) {
+							  S_description_long = SB_description_long.toString(); 
+						      }
+						   }
+						if (O_lexer.B_closing_quote) {  // lines containing long description complete
+						   I_state_next_f0 = ParsingState.Ldesc.ordinal();
+						   }
+						break;
+					case A_category:
+						AS_categories = O_lexer.FAS_get_tokens(S_line_input);
+						break;
+					case A_requires:
+						AS_requires = O_lexer.FAS_get_tokens(S_line_input);
+						break;
+					case A_version:
+						S_version = O_lexer.FS_get_symbol(S_line_input);
+						break;
+					case A_install:
+						O_arch_info_install = new ArchInfo(
+								S_version, 
+								O_lexer.FI_get_archive_size(S_line_input), 
+								S_line_input, 
+								O_lexer.I_hash_start_f0);
+						O_arch_info_install.S_pnr_archive = O_lexer.FS_get_archive_path(S_line_input);
+						break;
+					case A_source:
+					case A_source_prev:
+						O_arch_info_src = new ArchInfo(
+								S_version, 
+								O_lexer.FI_get_archive_size(S_line_input), 
+								S_line_input, 
+								O_lexer.I_hash_start_f0);
+						O_arch_info_src.S_pnr_archive = O_lexer.FS_get_archive_path(S_line_input);
+						if (I_action == A_source) {
+						   O_pkg_arch_infos = new PckgArchInfos(
+								   S_version, 
+								   new ArchInfo[][] {{O_arch_info_install}, {O_arch_info_src}});
+						   }
+						else {
+						   O_pkg_arch_infos_prev = new PckgArchInfos(
+								   S_version, 
+								   new ArchInfo[][] {{O_arch_info_install}, {O_arch_info_src}});
+						   }
+						break;
+					case A_prev:
+						break;
+					case A_broken:
+						E_parsing_state = AE_parsing_states[I_state_f0];
+						if (!B_lenient) {
+						   S_msg_1 =  "Error when parsing \'" + E_parsing_state.toString() + "\'";
+						   E_np = new NullPointerException(S_msg_1);
+						   S_msg_2 = "Error at line: " + I_line_nbr_f1 + "\n" +
+						             "last confirmed sucessful parsing state: " + E_parsing_state.toString();
+						   E_ass = new AssertionError(S_msg_2, E_np);
+						   throw E_ass;
+						   }
+						PB_O_diagnostics.FV_add(I_line_nbr_f1, I_line_nbr_of_pckg_start_f1, S_pckg_name, E_parsing_state.name(), 
+								FS_get_missing_line(E_parsing_state) + " before [prev]");
+						S_pckg_name     = null;
+						I_state_next_f0 = ParsingState.Init.ordinal();  // skip to the next header
 						break;
-			}
-			if (S_line_input == null) {
-				E_parsing_state = ParsingState.Finished;
-				   O_retval_setup_ini_contents.FV_add(
-						    S_pckg_name,
-							S_description_short,
-							S_description_long,
-							AS_categories,
-							AS_requires,
-							O_pkg_arch_infos, 
-							O_pkg_arch_infos_prev,
-							I_line_nbr_of_pckg_start_f1);   
-				   break LOOP_INPUT_LINES;
-			    }
-			if (StringUtils.isBlank(S_line_input)) {
-				continue LOOP_INPUT_LINES;
-			    }
-			O_grp_match_res = RegexpUtils.FO_match(S_line_input, P_comment_line.O_patt);
-			if (O_grp_match_res.I_array_size_f1 >= 1) {
-				continue LOOP_INPUT_LINES;
-			    }
-			if ((E_parsing_state == ParsingState.InterPgk) || (E_parsing_state == ParsingState.Init)) {
-				O_grp_match_res = RegexpUtils.FO_match(S_line_input, P_pkg_hdr.O_patt);
-				if (O_grp_match_res.I_map_size_f1 >= 1) {
-				   if (E_parsing_state == ParsingState.InterPgk) {
-					   O_retval_setup_ini_contents.FV_add(
-						   S_pckg_name,
-						   S_description_short,
-						   S_description_long,
-						   AS_categories,
-						   AS_requires,
-						   O_pkg_arch_infos, 
-						   O_pkg_arch_infos_prev,
-						   I_line_nbr_of_pckg_start_f1);   
-					   
-					   S_description_short  = null;
-					   S_description_long   = null;
-					   AS_categories          = null;
-					   AS_requires          = null;
-					   O_pkg_arch_infos      = null; 
-					   O_pkg_arch_infos_prev = null;
-				       }
-					
-					S_pckg_name = O_grp_match_res.HS_named_groups.get(PKG_NAME).S_grp_val;
-					I_line_nbr_of_pckg_start_f1 = I_line_nbr_f1;
-					E_parsing_state = ParsingState.PkgName;
-//					S_msg_1 = "Package-name: " + S_pkg_name;
-//					System.out.println(S_msg_1);
-					
-			        }
-			     }
-			else if (E_parsing_state == ParsingState.PkgName) {
-				O_grp_match_res = RegexpUtils.FO_match(S_line_input, P_sdesc.O_patt);
-				if (O_grp_match_res.I_map_size_f1 >= 1) {
-					S_description_short = O_grp_match_res.HS_named_groups.get(DESCRIPTION_SHORT).S_grp_val;
-					E_parsing_state = ParsingState.Sdesc;
-//					S_msg_1 = "Short-Descrition: " + S_description_short;
-//					System.out.println(S_msg_1);
-			        }
-		     }
-			else if (E_parsing_state == ParsingState.Sdesc) {
-				O_grp_match_res = RegexpUtils.FO_match(S_line_input, P_ldesc.O_patt);
-				SB_description_long = new StringBuilder();
-				if (O_grp_match_res.I_map_size_f1 >= 2) {
-				   S_description_long = O_grp_match_res.HS_named_groups.get(DESCRIPTION_LONG).S_grp_val;	
-			       S_closing_quote = O_grp_match_res.HS_named_groups.get(CLOSING_QUOTE).S_grp_val;
-			       if (StringUtils.isEmpty(S_closing_quote)) {  // line containing long description will be continued
-			    	   E_parsing_state = ParsingState.LdescCont;
-			    	   SB_description_long = new StringBuilder(S_description_long);
-			           }
-			       else {
-			    	   E_parsing_state = ParsingState.Ldesc; // line containing long description complete
-			           } 
-				   S_description_long_part = O_grp_match_res.HS_named_groups.get(DESCRIPTION_LONG).S_grp_val;
-			      // System.out.println(ParsingState.Sdesc.name());
-				}
-			}
-			else if (E_parsing_state == ParsingState.LdescCont)  {
-				O_grp_match_res = RegexpUtils.FO_match(S_line_input, P_ldesc_cont.O_patt);
-				if (O_grp_match_res.I_map_size_f1 >= 2) {
-					S_description_long_part =  O_grp_match_res.HS_named_groups.get(DESCRIPTION_LONG).S_grp_val;
-					
-					if (StringUtils.isNotBlank(S_description_long_part)) {
-						SB_description_long.append(" ");
-					   }
-					SB_description_long.append(S_description_long_part);
-					S_closing_quote = O_grp_match_res.HS_named_groups.get(CLOSING_QUOTE).S_grp_val;
-					if (StringUtils.isNotEmpty(S_closing_quote)) {  // lines containing long description complete
-					   E_parsing_state = ParsingState.Ldesc;
-					   S_description_long = SB_description_long.toString(); 
-					 }
-				}
-			}
-			else if (E_parsing_state == ParsingState.Ldesc) {
-				O_grp_match_res = RegexpUtils.FO_match(S_line_input, P_category.O_patt);
-				if (O_grp_match_res.I_map_size_f1 >= 1) {
-				   S_category = O_grp_match_res.HS_named_groups.get(CATEGORY).S_grp_val;
-				   AS_categories = S_category.split("\\s+");
-				   E_parsing_state = ParsingState.Category;
-				   }
-			    }
-			else if (E_parsing_state == ParsingState.Category)  {
-				O_grp_match_res = RegexpUtils.FO_match(S_line_input, P_requires.O_patt);
-				if (O_grp_match_res.I_map_size_f1 >= 1) {
-				   S_requires = O_grp_match_res.HS_named_groups.get(REQUIRES).S_grp_val;
-				   AS_requires = S_requires.split("\\s+");
-				   E_parsing_state = ParsingState.Requires;
-				   }
-			    }
-			else if (E_parsing_state == ParsingState.Requires)  {
-				OM_parsing_state = new MutableParsingState(E_parsing_state);
-				O_pkg_arch_infos = FO_parse_pck_info(PI_O_buff_reader, OM_parsing_state);
-				if (O_pkg_arch_infos == null) {
-					S_msg_1 =  "Error when parsing \'" + E_parsing_state.toString() + "\'";
-					E_np = new NullPointerException(S_msg_1);
-					S_msg_2 = "Error at line: " + I_line_nbr_f1 + "\n" +
-				              "last confirmed sucessful parsing state: " + OM_parsing_state.getValue().toString();
-					E_ass = new AssertionError(S_msg_2, E_np);
-					throw E_ass;
-				   }
-				else {
-				   E_parsing_state = OM_parsing_state.getValue();
-				   E_read_line_policy = ReadLinePolicy.ReRead;
-				   }
-			    }
-			else if ((E_parsing_state == ParsingState.Source) || (E_parsing_state == ParsingState.Install)) {
-				if (StringUtils.startsWith(S_line_input, PREV_MARKER)) {
-				   E_parsing_state = ParsingState.Prev;
-				   }
-				else {
-					E_parsing_state = ParsingState.InterPgk;  // no [prev] line_found
-					O_pkg_arch_infos_prev = null;
-					E_read_line_policy   = ReadLinePolicy.SkipRead;
 				    }
-		        }
-			else if (E_parsing_state == ParsingState.Prev) {
-				OM_parsing_state = new MutableParsingState(ParsingState.Requires /*,  I_prev_offset */);
-				O_pkg_arch_infos_prev = FO_parse_pck_info(PI_O_buff_reader, OM_parsing_state); // previous versions of the archives
-				if (O_pkg_arch_infos_prev == null) {
-					S_msg_1 =  "Error when parsing \'" + E_parsing_state.toString() + "\'";
-					E_np = new NullPointerException(S_msg_1);
-					S_msg_2 = "Error at line: " + I_line_nbr_f1 + "\n" +
-				              "last confirmed sucessful parsing state: " + OM_parsing_state.getValue().toString();
-					E_ass = new AssertionError(S_msg_2, E_np);
-					throw E_ass;
-				   }
-				else {
-				   E_parsing_state = OM_parsing_state.getValue();
-				   if ((E_parsing_state == ParsingState.Install) || (E_parsing_state == ParsingState.Source)) {
-					   E_parsing_state = ParsingState.InterPgk;
-				       }
+			} catch (NumberFormatException PI_E_nf) {
+				if (!B_lenient) {
+				   S_msg_1 = "Invalid archive size of package \'" + S_pckg_name + "\' at line: " + I_line_nbr_f1;
+				   E_rt = new RuntimeException(S_msg_1, PI_E_nf);
+				   throw E_rt;
 				   }
+				PB_O_diagnostics.FV_add(I_line_nbr_f1, I_line_nbr_of_pckg_start_f1, S_pckg_name, 
+						AE_parsing_states[I_state_f0].name(), PI_E_nf.getMessage());
+				S_pckg_name     = null;
+				I_state_next_f0 = ParsingState.Init.ordinal();
 			    }
-			if (E_parsing_state == ParsingState.Finished) {
-			   O_retval_setup_ini_contents.FV_add(
+			I_state_f0    = I_state_next_f0;
+			B_after_blank = (E_line_kind == LineKind.blank);
+		    }
+		
+		E_parsing_state = AE_parsing_states[I_state_f0];
+		if ((S_pckg_name != null) && FB_is_incomplete(E_parsing_state)) {
+		   if (B_lenient) {
+			  PB_O_diagnostics.FV_add(I_line_nbr_f1, I_line_nbr_of_pckg_start_f1, S_pckg_name, E_parsing_state.name(), 
+					  FS_get_missing_line(E_parsing_state) + " at end of file");
+			  S_pckg_name = null;
+		      }
+		   else if ((E_parsing_state.ordinal() >= ParsingState.Version.ordinal()) && (E_parsing_state != ParsingState.Prev)) {
+			  S_msg_1 = "Unexepectd end of file at line: " +  I_line_nbr_f1 + ".";
+			  E_ass = new AssertionError(S_msg_1);
+			  S_msg_2 = "Unable to instantiate new object of type: \'" + PckgInfo.class.getName() + "\'";
+			  E_rt = new RuntimeException(S_msg_2, E_ass);
+			  throw E_rt;
+		      }
+		   }
+		if (S_pckg_name != null) {
+		   try {
+			   PI_O_visitor.FV_visit(new PckgInfo(
 					   S_pckg_name,
 					   S_description_short,
 					   S_description_long,
+					   O_ldesc_bytes,
+					   I_ldesc_start_f0,
+					   I_ldesc_end_f0 - I_ldesc_start_f0,
 					   AS_categories,
 					   AS_requires,
-					   O_pkg_arch_infos, 
-					   O_pkg_arch_infos_prev,
-					   I_line_nbr_of_pckg_start_f1); 
-			   
-			   break LOOP_INPUT_LINES;	
-			}
-		}
-        return O_retval_setup_ini_contents;	    
+					   O_pkg_arch_infos,
+					   O_pkg_arch_infos_prev),
+					   I_line_nbr_of_pckg_start_f1);
+		   } catch (RuntimeException PI_E_rt) {
+			   if (!B_lenient) {
+				  throw PI_E_rt;
+				  }
+			   FV_add_rejected(PB_O_diagnostics, I_line_nbr_f1, I_line_nbr_of_pckg_start_f1, S_pckg_name, 
+					   E_parsing_state.name(), PI_E_rt);
+			   }
+		   }
+        return;	    
      }
 }
-
@@ -0,0 +1,76 @@
+package com.github.michaelederaut.cygwinparser;
+
+import java.nio.ByteBuffer;
+
+import com.github.michaelederaut.basics.LineNbrRandomAccessFile;
+
+/**
+ * Line source of {@link IniFileParser}, read forward only.<br>
+ * The returned lines are only valid until the next call of {@link #FO_read_line()}.
+ */
+public abstract class IniLineReader {
+
+	public String S_pn;
+	public int    I_curr_line_nbr;
+
+	/**
+	 *
+	 * @return the next line without line terminator, null at the end of the input
+	 */
+	public abstract CharSequence FO_read_line();
+
+	public abstract void FV_close();
+
+	/**
+	 *
+	 * @return the bytes of the whole input if the reader keeps them addressable, null otherwise.<br>
+	 * Only then the parser stores long descriptions as ranges of these bytes instead of Strings.
+	 */
+	public ByteBuffer FO_get_bytes() {
+		return null;
+	}
+
+	/**
+	 *
+	 * @return position of the first byte of the current line within {@link #FO_get_bytes()}
+	 */
+	public int FI_get_line_start_f0() {
+		return -1;
+	}
+
+	/**
+	 *
+	 * @return position of the first byte behind the current line without line terminator
+	 */
+	public int FI_get_line_end_f0() {
+		return -1;
+	}
+
+	/**
+	 * Adapter for the {@link LineNbrRandomAccessFile} the parser originally worked on.
+	 */
+	public static class LineNbrRafReader extends IniLineReader {
+
+		public LineNbrRandomAccessFile O_buff_reader;
+
+		public LineNbrRafReader(final LineNbrRandomAccessFile PI_O_buff_reader) {
+			this.O_buff_reader   = PI_O_buff_reader;
+			this.S_pn            = PI_O_buff_reader.S_pn;
+			this.I_curr_line_nbr = PI_O_buff_reader.I_curr_line_nbr;
+		}
+
+		@Override
+		public CharSequence FO_read_line() {
+			String S_retval_line;
+
+			S_retval_line = this.O_buff_reader.FS_readLine();
+			this.I_curr_line_nbr = this.O_buff_reader.I_curr_line_nbr;
+			return S_retval_line;
+		}
+
+		@Override
+		public void FV_close() {
+			this.O_buff_reader.FV_close();
+		}
+	}
+}
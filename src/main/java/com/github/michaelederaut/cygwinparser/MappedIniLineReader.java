@@ -0,0 +1,352 @@
+package com.github.michaelederaut.cygwinparser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+import com.github.michaelederaut.cygwinparser.SetupIniLexer.LineKind;
+
+/**
+ * Reads <tt>setup.ini</tt> through a read-only memory mapping of the whole file.<br>
+ * Lines are scanned as byte ranges of the mapping and handed out as one reusable
+ * {@link ByteLine}; a {@link String} is only decoded for the slices the parser keeps.<br>
+ * Unlike {@link com.github.michaelederaut.basics.LineNbrRandomAccessFile} no line
+ * or line-address table is built, so the heap footprint does not grow with the file size.<br>
+ * A reader may be restricted to a byte range of another one, see
+ * {@link #MappedIniLineReader(MappedIniLineReader, int, int)}.
+ */
+public class MappedIniLineReader extends IniLineReader {
+
+	/**
+	 * View of the current line. {@link #charAt(int)} returns the raw byte, which is sufficient
+	 * for the ASCII keys of <tt>setup.ini</tt>; {@link #subSequence(int, int)} and
+	 * {@link #toString()} decode UTF-8.
+	 */
+	public static class ByteLine implements CharSequence {
+
+		protected final ByteBuffer O_buffer;
+		public int I_start_f0, I_end_f0;
+
+		public ByteLine(final ByteBuffer PI_O_buffer) {
+			this.O_buffer = PI_O_buffer;
+		}
+
+		@Override
+		public int length() {
+			return this.I_end_f0 - this.I_start_f0;
+		}
+
+		@Override
+		public char charAt(final int PI_I_idx_f0) {
+			char C_retval;
+
+			C_retval = (char)(this.O_buffer.get(this.I_start_f0 + PI_I_idx_f0) & 0xFF);
+			return C_retval;
+		}
+
+		@Override
+		public CharSequence subSequence(
+				final int PI_I_start_f0,
+				final int PI_I_end_f0) {
+			String S_retval;
+
+			S_retval = FS_decode(this.O_buffer, this.I_start_f0 + PI_I_start_f0, this.I_start_f0 + PI_I_end_f0);
+			return S_retval;
+		}
+
+		@Override
+		public String toString() {
+			String S_retval;
+
+			S_retval = FS_decode(this.O_buffer, this.I_start_f0, this.I_end_f0);
+			return S_retval;
+		}
+	}
+
+	protected FileChannel O_channel;
+	public    ByteBuffer  O_buffer;
+	protected ByteLine    O_line;
+	protected int         I_pos_f0, I_limit_f0;
+
+	/**
+	 *
+	 * @param PI_O_buffer bytes of the file
+	 * @param PI_I_start_f0 first byte to be read
+	 * @param PI_I_end_f0 first byte behind the range to be read
+	 * @return decoded String
+	 */
+	public static String FS_decode(
+			final ByteBuffer PI_O_buffer,
+			final int        PI_I_start_f0,
+			final int        PI_I_end_f0) {
+
+		byte   AY_bytes[];
+		int    I_len_f1;
+		String S_retval;
+
+		I_len_f1 = PI_I_end_f0 - PI_I_start_f0;
+		AY_bytes = new byte[I_len_f1];
+		PI_O_buffer.get(PI_I_start_f0, AY_bytes, 0, I_len_f1);
+		S_retval = new String(AY_bytes, StandardCharsets.UTF_8);
+		return S_retval;
+	}
+
+	public MappedIniLineReader(final File PI_F_pna_setup_ini) {
+
+		RuntimeException         E_rt;
+		IllegalArgumentException E_ill_arg;
+		FileChannel              O_channel;
+		MappedByteBuffer         O_buffer;
+		String                   S_msg_1, S_msg_2;
+		long                     L_size_f1;
+
+		this.S_pn = PI_F_pna_setup_ini.getPath();
+		try {
+			O_channel = FileChannel.open(PI_F_pna_setup_ini.toPath(), StandardOpenOption.READ);
+			L_size_f1 = O_channel.size();
+			if (L_size_f1 > Integer.MAX_VALUE) {
+			   O_channel.close();
+			   S_msg_1 = "File size " + L_size_f1 + " exceeds the maximum of " + Integer.MAX_VALUE + " bytes.";
+			   E_ill_arg = new IllegalArgumentException(S_msg_1);
+			   S_msg_2 = "Unable to map file \"" + this.S_pn + "\"";
+			   E_rt = new RuntimeException(S_msg_2, E_ill_arg);
+			   throw E_rt;
+			   }
+			O_buffer = O_channel.map(FileChannel.MapMode.READ_ONLY, 0L, L_size_f1);
+		} catch (IOException PI_E_io) {
+			S_msg_1 = "Unable to instantiate a file-object of type \'" + MappedIniLineReader.class.getName() + "\' " +
+		              "from path \"" + this.S_pn + "\"";
+			E_rt = new RuntimeException(S_msg_1, PI_E_io);
+			throw E_rt;
+		    }
+		this.O_channel       = O_channel;
+		this.O_buffer        = O_buffer;
+		this.O_line          = new ByteLine(O_buffer);
+		this.I_pos_f0        = 0;
+		this.I_limit_f0      = O_buffer.limit();
+		this.I_curr_line_nbr = 0;
+	}
+	
+	/**
+	 * Reader for a byte range of an already mapped file.<br>
+	 * The mapping is shared, {@link #I_curr_line_nbr} counts from the start of the range.
+	 * 
+	 * @param PI_O_parent reader which mapped the file
+	 * @param PI_I_start_f0 first byte of the range, must be the start of a line
+	 * @param PI_I_end_f0 first byte behind the range
+	 */
+	public MappedIniLineReader(
+			final MappedIniLineReader PI_O_parent,
+			final int                 PI_I_start_f0,
+			final int                 PI_I_end_f0) {
+		
+		this(PI_O_parent.O_buffer, PI_I_start_f0, PI_I_end_f0);
+		this.S_pn = PI_O_parent.S_pn;
+	}
+	
+	/**
+	 * Reader for a byte range of a buffer, e.g. the long description of a {@link SetupIniContents.PckgInfo}.
+	 * 
+	 * @param PI_O_buffer bytes of the file, not modified
+	 * @param PI_I_start_f0 first byte of the range, must be the start of a line
+	 * @param PI_I_end_f0 first byte behind the range
+	 */
+	public MappedIniLineReader(
+			final ByteBuffer PI_O_buffer,
+			final int        PI_I_start_f0,
+			final int        PI_I_end_f0) {
+		
+		this.O_channel       = null;  // owned by the creator of the buffer
+		this.O_buffer        = PI_O_buffer.duplicate();
+		this.O_line          = new ByteLine(this.O_buffer);
+		this.I_pos_f0        = PI_I_start_f0;
+		this.I_limit_f0      = PI_I_end_f0;
+		this.I_curr_line_nbr = 0;
+	}
+	
+	/**
+	 * A line starting with <tt>"@ "</tt> only starts a package outside of a long description,
+	 * inside of an unterminated <tt>ldesc</tt> it continues the description like in {@link IniFileParser}.<br>
+	 * The lines in front of it are scanned backwards up to the first one telling whether a quote is open:
+	 * an <tt>ldesc</tt> line, closed or not, or a line ending with its only quote.
+	 * 
+	 * @param PI_O_buffer bytes of the file
+	 * @param PI_I_pos_f0 start of the line to be examined
+	 * @param PI_I_start_f0 start of a line outside of any long description, the backward scan stops there
+	 * @param PI_I_limit_f0 first byte behind the range
+	 * @param PB_O_lexer lexer for the lines scanned
+	 * @return true if the line starts with <tt>"@ "</tt> and is not inside of a long description
+	 */
+	public static boolean FB_is_pckg_start(
+			final ByteBuffer    PI_O_buffer,
+			final int           PI_I_pos_f0,
+			final int           PI_I_start_f0,
+			final int           PI_I_limit_f0,
+			final SetupIniLexer PB_O_lexer) {
+		
+		ByteLine O_line;
+		int I_next_line_f0, I_quote_f0;
+		
+		if ((PI_O_buffer.get(PI_I_pos_f0) != '@') || 
+			((PI_I_pos_f0 + 1) >= PI_I_limit_f0) ||
+			!SetupIniLexer.FB_is_space((char)PI_O_buffer.get(PI_I_pos_f0 + 1))) {
+		   return false;
+		   }
+		O_line = new ByteLine(PI_O_buffer);
+		I_next_line_f0 = PI_I_pos_f0;
+		while (I_next_line_f0 > PI_I_start_f0) {
+			O_line.I_end_f0   = I_next_line_f0 - 1;  // the line feed of the line in front
+			O_line.I_start_f0 = O_line.I_end_f0;
+			while ((O_line.I_start_f0 > PI_I_start_f0) && (PI_O_buffer.get(O_line.I_start_f0 - 1) != '\n')) {
+				O_line.I_start_f0--;
+			    }
+			if ((O_line.I_end_f0 > O_line.I_start_f0) && (PI_O_buffer.get(O_line.I_end_f0 - 1) == '\r')) {
+			   O_line.I_end_f0--;
+			   }
+			I_quote_f0 = SetupIniLexer.FI_index_of_quote(O_line, 0, O_line.length());
+			if (I_quote_f0 >= 0) {
+			   if (PB_O_lexer.FE_lex(O_line) == LineKind.ldesc) {
+				  return PB_O_lexer.B_closing_quote;
+			      }
+			   if (I_quote_f0 == (O_line.length() - 1)) {  // last line of a long description
+				  return true;
+			      }
+			   }
+			I_next_line_f0 = O_line.I_start_f0;
+		    }
+		return true;
+	}
+	
+	/**
+	 * 
+	 * @param PI_I_pos_f0 position to start searching from
+	 * @return position of the first line at or behind <tt>PI_I_pos_f0</tt> which starts<br>
+	 * a package, see {@link #FB_is_pckg_start(ByteBuffer, int, int, int, SetupIniLexer)},
+	 * the end of the range if there is none.
+	 */
+	public int FI_find_pckg_start(final int PI_I_pos_f0) {
+		
+		SetupIniLexer O_lexer;
+		int I_pos_f0;
+		
+		O_lexer  = new SetupIniLexer();
+		I_pos_f0 = PI_I_pos_f0;
+		if ((I_pos_f0 > this.I_pos_f0) && (this.O_buffer.get(I_pos_f0 - 1) != '\n')) {
+		   I_pos_f0 = FI_next_line_start(I_pos_f0);
+		   }
+		while (I_pos_f0 < this.I_limit_f0) {
+			if (FB_is_pckg_start(this.O_buffer, I_pos_f0, this.I_pos_f0, this.I_limit_f0, O_lexer)) {
+			   return I_pos_f0;
+			   }
+			I_pos_f0 = FI_next_line_start(I_pos_f0);
+		    }
+		return this.I_limit_f0;
+	}
+	
+	protected int FI_next_line_start(final int PI_I_pos_f0) {
+		int I_pos_f0;
+		
+		I_pos_f0 = PI_I_pos_f0;
+		while ((I_pos_f0 < this.I_limit_f0) && (this.O_buffer.get(I_pos_f0) != '\n')) {
+			I_pos_f0++;
+		    }
+		if (I_pos_f0 < this.I_limit_f0) {
+		   I_pos_f0++;
+		   }
+		return I_pos_f0;
+	}
+	
+	/**
+	 * Divides the unread part of the range into about <tt>PI_I_nbr_chunks_f1</tt> ranges of similar size,<br>
+	 * each of them except the first one starting with a package header line <tt>"@ "</tt> outside of a long description.
+	 * 
+	 * @param PI_I_nbr_chunks_f1 number of ranges wanted
+	 * @return boundaries, range i1 is <tt>[AI_retval[i1], AI_retval[i1 + 1])</tt>
+	 */
+	public int[] FAI_get_pckg_boundaries(final int PI_I_nbr_chunks_f1) {
+		
+		int AI_boundaries[], AI_retval_boundaries[];
+		int i1, I_nbr_boundaries_f1, I_boundary_f0, I_chunk_size_f1;
+		
+		AI_boundaries = new int[PI_I_nbr_chunks_f1 + 1];
+		AI_boundaries[0] = this.I_pos_f0;
+		I_nbr_boundaries_f1 = 1;
+		I_chunk_size_f1 = Math.max(1, (this.I_limit_f0 - this.I_pos_f0) / PI_I_nbr_chunks_f1);
+		for (i1 = 1; i1 < PI_I_nbr_chunks_f1; i1++) {
+			I_boundary_f0 = FI_find_pckg_start(this.I_pos_f0 + i1 * I_chunk_size_f1);
+			if (I_boundary_f0 > AI_boundaries[I_nbr_boundaries_f1 - 1]) {
+			   AI_boundaries[I_nbr_boundaries_f1] = I_boundary_f0;
+			   I_nbr_boundaries_f1++;
+			   }
+		    }
+		if (AI_boundaries[I_nbr_boundaries_f1 - 1] < this.I_limit_f0) {
+		   AI_boundaries[I_nbr_boundaries_f1] = this.I_limit_f0;
+		   I_nbr_boundaries_f1++;
+		   }
+		AI_retval_boundaries = new int[I_nbr_boundaries_f1];
+		System.arraycopy(AI_boundaries, 0, AI_retval_boundaries, 0, I_nbr_boundaries_f1);
+		return AI_retval_boundaries;
+	}
+
+	@Override
+	public CharSequence FO_read_line() {
+
+		ByteBuffer O_buffer;
+		int I_pos_f0, I_end_f0;
+
+		if (this.I_pos_f0 >= this.I_limit_f0) {
+		   return null;
+		   }
+		O_buffer = this.O_buffer;
+		I_pos_f0 = this.I_pos_f0;
+		while ((I_pos_f0 < this.I_limit_f0) && (O_buffer.get(I_pos_f0) != '\n')) {
+			I_pos_f0++;
+		    }
+		I_end_f0 = I_pos_f0;
+		if ((I_end_f0 > this.I_pos_f0) && (O_buffer.get(I_end_f0 - 1) == '\r')) {
+		   I_end_f0--;
+		   }
+		this.O_line.I_start_f0 = this.I_pos_f0;
+		this.O_line.I_end_f0   = I_end_f0;
+		this.I_pos_f0 = I_pos_f0 + 1;
+		this.I_curr_line_nbr++;
+		return this.O_line;
+	}
+
+	@Override
+	public ByteBuffer FO_get_bytes() {
+		return this.O_buffer;
+	}
+
+	@Override
+	public int FI_get_line_start_f0() {
+		return this.O_line.I_start_f0;
+	}
+
+	@Override
+	public int FI_get_line_end_f0() {
+		return this.O_line.I_end_f0;
+	}
+
+	@Override
+	public void FV_close() {
+
+		RuntimeException E_rt;
+		String S_msg_1;
+
+		if (this.O_channel == null) {
+		   return;
+		   }
+		try {
+			this.O_channel.close();
+		} catch (IOException PI_E_io) {
+			S_msg_1 = "Unable to close " + this.O_channel.getClass().getSimpleName() + " \"" + this.S_pn + "\"";
+			E_rt = new RuntimeException(S_msg_1, PI_E_io);
+			throw E_rt;
+		    }
+	}
+}
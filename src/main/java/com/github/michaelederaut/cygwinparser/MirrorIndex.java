@@ -0,0 +1,432 @@
+package com.github.michaelederaut.cygwinparser;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Snapshot of all files below the folder of one site of the local mirror, taken by one walk of the tree.<br>
+ * Files are kept by their pathname relative to the site with <tt>'/'</tt> as separator, as the archives
+ * are named in <tt>setup.ini</tt>, with size and time of last modification in parallel arrays, sorted by pathname.
+ * Lookups of {@link ArchiveChecker} are then answered from memory without calls to the file system,
+ * which matters on network shares where each <tt>stat</tt> is a round trip.<br>
+ * Symbolic links are followed like the checks on the file system do, a link to a folder above it is not
+ * descended. Such a folder, a folder which could not be listed and an entry whose attributes could not
+ * be read are recorded as not listed, see {@link #FB_is_complete(String)}, and the walk goes on.
+ * Changes to the tree after the walk are not seen.
+ */
+public class MirrorIndex {
+
+	public final String S_dnr_site;
+	public final Path   FP_dna_site;
+	public final int    I_nbr_files_f1;
+
+	// indexed by file id, sorted by pathname
+	public final String AS_pnr_files[];
+	public final long   AL_sizes[];
+	public final long   AL_mtimes[];  // milliseconds since the epoch
+
+	// folders and entries whose contents are not in the index, sorted
+	public final String AS_pnr_unlisted[];
+
+	protected final HashMap<String, Integer> HI_file_ids;
+	protected final HashSet<String>          HS_pnr_dirs;
+
+	/**
+	 * One file or folder found by the walk.
+	 */
+	protected static class Entry {
+		public String  S_pnr;
+		public long    L_size, L_mtime;
+		public boolean B_dir, B_unlisted;
+
+		public Entry(
+				final String              PI_S_pnr,
+				final BasicFileAttributes PI_O_attrs) {
+			this.S_pnr      = PI_S_pnr;
+			this.B_dir      = PI_O_attrs.isDirectory();
+			this.L_size     = PI_O_attrs.size();
+			this.L_mtime    = PI_O_attrs.lastModifiedTime().toMillis();
+			this.B_unlisted = false;
+		    }
+
+		/**
+		 * Folder or entry whose contents are not known.
+		 */
+		public Entry(
+				final String  PI_S_pnr,
+				final boolean PI_B_dir) {
+			this.S_pnr      = PI_S_pnr;
+			this.B_dir      = PI_B_dir;
+			this.B_unlisted = true;
+		    }
+	}
+
+	/**
+	 * Removes the trailing <tt>'/'</tt> of the pathname of a folder.
+	 */
+	protected static String FS_get_pnr_dir(final String PI_S_pnr_dir) {
+		return PI_S_pnr_dir.isEmpty() ? PI_S_pnr_dir : PI_S_pnr_dir.substring(0, PI_S_pnr_dir.length() - 1);
+	}
+
+	/**
+	 * Lists one folder and forks a task for each of its sub folders.
+	 */
+	protected static class DirWalker extends RecursiveTask<List<Entry>> {
+
+		private static final long serialVersionUID = 1L;
+
+		public Path      FP_dna_dir;
+		public String    S_pnr_dir;     // "" for the site, otherwise ending with '/'
+		public DirWalker O_parent;      // null for the site
+		public Object    O_file_key;    // null if the file system has none
+
+		public DirWalker(
+				final Path   PI_FP_dna_dir,
+				final String PI_S_pnr_dir) {
+			this(PI_FP_dna_dir, PI_S_pnr_dir, null, null);
+		    }
+
+		protected DirWalker(
+				final Path      PI_FP_dna_dir,
+				final String    PI_S_pnr_dir,
+				final DirWalker PI_O_parent,
+				final Object    PI_O_file_key) {
+			this.FP_dna_dir = PI_FP_dna_dir;
+			this.S_pnr_dir  = PI_S_pnr_dir;
+			this.O_parent   = PI_O_parent;
+			this.O_file_key = PI_O_file_key;
+		    }
+
+		/**
+		 * Like {@link Files#walkFileTree(Path, java.util.Set, int, java.nio.file.FileVisitor)} following links,
+		 * folders are compared by file key, by {@link Files#isSameFile(Path, Path)} if there is none.
+		 *
+		 * @return true if the folder is this one or one above it
+		 */
+		protected boolean FB_is_ancestor(
+				final Path   PI_FP_dna_dir,
+				final Object PI_O_file_key) {
+
+			DirWalker O_walker;
+
+			for (O_walker = this; O_walker != null; O_walker = O_walker.O_parent) {
+				if ((PI_O_file_key != null) && (O_walker.O_file_key != null)) {
+				   if (PI_O_file_key.equals(O_walker.O_file_key)) {
+					  return true;
+				      }
+				   }
+				else {
+				   try {
+					   if (Files.isSameFile(O_walker.FP_dna_dir, PI_FP_dna_dir)) {
+						  return true;
+					      }
+				   } catch (IOException PI_E_io) {
+					   continue;
+				       }
+				   }
+			    }
+			return false;
+		}
+
+		@Override
+		protected List<Entry> compute() {
+
+			List<Entry>         AO_retval_entries;
+			List<DirWalker>     AO_sub_walkers;
+			DirWalker           O_sub_walker;
+			BasicFileAttributes O_attrs;
+			Entry               O_entry;
+			String              S_pnr;
+
+			AO_retval_entries = new ArrayList<Entry>();
+			AO_sub_walkers    = new ArrayList<DirWalker>();
+			if ((this.O_parent == null) && (this.O_file_key == null)) {
+			   try {
+				   this.O_file_key = Files.readAttributes(this.FP_dna_dir, BasicFileAttributes.class).fileKey();
+			   } catch (IOException PI_E_io) {
+				   this.O_file_key = null;  // compared by path
+			       }
+			   }
+			try (DirectoryStream<Path> AP_entries = Files.newDirectoryStream(this.FP_dna_dir)) {
+				LOOP_ENTRIES: for (Path FP_entry: AP_entries) {
+					S_pnr = this.S_pnr_dir + FP_entry.getFileName().toString();
+					try {
+						O_attrs = Files.readAttributes(FP_entry, BasicFileAttributes.class);
+					} catch (IOException PI_E_io) {
+						if (Files.isSymbolicLink(FP_entry) && !Files.exists(FP_entry)) {
+						   continue LOOP_ENTRIES;  // dangling, missing for the file system as well
+						   }
+						AO_retval_entries.add(new Entry(S_pnr, false));
+						continue LOOP_ENTRIES;
+					    }
+					O_entry = new Entry(S_pnr, O_attrs);
+					if (O_attrs.isDirectory()) {
+					   AO_retval_entries.add(O_entry);
+					   if (FB_is_ancestor(FP_entry, O_attrs.fileKey())) {
+						  AO_retval_entries.add(new Entry(S_pnr, true));
+						  continue LOOP_ENTRIES;
+					      }
+					   O_sub_walker = new DirWalker(FP_entry, S_pnr + "/", this, O_attrs.fileKey());
+					   O_sub_walker.fork();
+					   AO_sub_walkers.add(O_sub_walker);
+					   }
+					else if (O_attrs.isRegularFile()) {
+					   AO_retval_entries.add(O_entry);
+					   }
+				    }
+			} catch (IOException | DirectoryIteratorException PI_E_io) {
+				AO_retval_entries.add(new Entry(FS_get_pnr_dir(this.S_pnr_dir), true));
+			    }
+			for (DirWalker O_walker: AO_sub_walkers) {
+				AO_retval_entries.addAll(O_walker.join());
+			    }
+			return AO_retval_entries;
+		}
+	}
+
+	protected MirrorIndex(
+			final Path        PI_FP_dna_site,
+			final String      PI_S_dnr_site,
+			final List<Entry> PB_AO_entries) {
+
+		TreeSet<String> HS_pnr_unlisted;
+		int I_nbr_files_f1, I_file_id;
+
+		this.FP_dna_site = PI_FP_dna_site;
+		this.S_dnr_site  = PI_S_dnr_site;
+		PB_AO_entries.sort(Comparator.comparing((Entry PI_O_entry) -> PI_O_entry.S_pnr));
+		I_nbr_files_f1 = 0;
+		for (Entry O_entry: PB_AO_entries) {
+			if (!O_entry.B_dir && !O_entry.B_unlisted) {
+			   I_nbr_files_f1++;
+			   }
+		    }
+		this.I_nbr_files_f1 = I_nbr_files_f1;
+		this.AS_pnr_files   = new String[I_nbr_files_f1];
+		this.AL_sizes       = new long[I_nbr_files_f1];
+		this.AL_mtimes      = new long[I_nbr_files_f1];
+		this.HI_file_ids    = new HashMap<String, Integer>(2 * I_nbr_files_f1);
+		this.HS_pnr_dirs    = new HashSet<String>();
+		HS_pnr_unlisted     = new TreeSet<String>();
+		I_file_id = 0;
+		for (Entry O_entry: PB_AO_entries) {
+			if (O_entry.B_unlisted) {
+			   HS_pnr_unlisted.add(O_entry.S_pnr);
+			   }
+			if (O_entry.B_dir) {
+			   if (!O_entry.S_pnr.isEmpty()) {
+				  this.HS_pnr_dirs.add(O_entry.S_pnr);
+			      }
+			   }
+			else if (!O_entry.B_unlisted) {
+			   this.AS_pnr_files[I_file_id] = O_entry.S_pnr;
+			   this.AL_sizes[I_file_id]     = O_entry.L_size;
+			   this.AL_mtimes[I_file_id]    = O_entry.L_mtime;
+			   this.HI_file_ids.put(O_entry.S_pnr, I_file_id);
+			   I_file_id++;
+			   }
+		    }
+		this.AS_pnr_unlisted = HS_pnr_unlisted.toArray(new String[0]);
+	}
+
+	/**
+	 * Walks the folder of a site.
+	 *
+	 * @param PI_FP_dna_site folder of the site, e.g. <tt>root/site</tt>
+	 * @param PI_S_dnr_site name of the site, see {@link ArchiveChecker#FI_check_pckgs(String, SetupIniContents)}
+	 * @param PI_O_pool pool to list the folders in parallel on, null to walk the tree sequentially
+	 * @return the index, empty if the folder does not exist
+	 */
+	public static MirrorIndex FO_build(
+			final Path         PI_FP_dna_site,
+			final String       PI_S_dnr_site,
+			final ForkJoinPool PI_O_pool) {
+
+		RuntimeException  E_rt;
+		final List<Entry> AO_entries;
+		String            S_msg_1;
+
+		if (!Files.isDirectory(PI_FP_dna_site)) {
+		   AO_entries = new ArrayList<Entry>();
+		   }
+		else if (PI_O_pool != null) {
+		   AO_entries = PI_O_pool.invoke(new DirWalker(PI_FP_dna_site, ""));
+		   }
+		else {
+		   AO_entries = new ArrayList<Entry>();
+		   try {
+			   Files.walkFileTree(PI_FP_dna_site, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+
+				   @Override
+				   public FileVisitResult preVisitDirectory(
+						   final Path                PI_FP_dna_dir,
+						   final BasicFileAttributes PI_O_attrs) {
+					   if (!PI_FP_dna_dir.equals(PI_FP_dna_site)) {
+						  AO_entries.add(new Entry(FS_get_pnr(PI_FP_dna_site, PI_FP_dna_dir), PI_O_attrs));
+					      }
+					   return FileVisitResult.CONTINUE;
+				       }
+
+				   @Override
+				   public FileVisitResult visitFile(
+						   final Path                PI_FP_pna_file,
+						   final BasicFileAttributes PI_O_attrs) {
+					   if (PI_O_attrs.isRegularFile()) {
+						  AO_entries.add(new Entry(FS_get_pnr(PI_FP_dna_site, PI_FP_pna_file), PI_O_attrs));
+					      }
+					   return FileVisitResult.CONTINUE;
+				       }
+
+				   /**
+				    * A folder which could not be opened, a link to a folder above it or an entry whose
+				    * attributes could not be read.
+				    */
+				   @Override
+				   public FileVisitResult visitFileFailed(
+						   final Path        PI_FP_pna,
+						   final IOException PI_E_io) {
+					   if (Files.isSymbolicLink(PI_FP_pna) && !Files.exists(PI_FP_pna)) {
+						  return FileVisitResult.CONTINUE;  // dangling, missing for the file system as well
+					      }
+					   AO_entries.add(new Entry(FS_get_pnr(PI_FP_dna_site, PI_FP_pna), 
+							   (PI_E_io instanceof FileSystemLoopException) || Files.isDirectory(PI_FP_pna)));
+					   return FileVisitResult.CONTINUE;
+				       }
+
+				   @Override
+				   public FileVisitResult postVisitDirectory(
+						   final Path        PI_FP_dna_dir,
+						   final IOException PI_E_io) {
+					   if (PI_E_io != null) {  // listing broke off
+						  AO_entries.add(new Entry(FS_get_pnr(PI_FP_dna_site, PI_FP_dna_dir), true));
+					      }
+					   return FileVisitResult.CONTINUE;
+				       }
+			       });
+		   } catch (IOException PI_E_io) {
+			   S_msg_1 = "Unable to walk folder \"" + PI_FP_dna_site + "\"";
+			   E_rt = new RuntimeException(S_msg_1, PI_E_io);
+			   throw E_rt;
+		       }
+		   }
+		return new MirrorIndex(PI_FP_dna_site, PI_S_dnr_site, AO_entries);
+	}
+
+	protected static String FS_get_pnr(
+			final Path PI_FP_dna_site,
+			final Path PI_FP_pna) {
+
+		String S_retval_pnr;
+
+		S_retval_pnr = PI_FP_dna_site.relativize(PI_FP_pna).toString();
+		if (PI_FP_pna.getFileSystem().getSeparator().charAt(0) != '/') {
+		   S_retval_pnr = S_retval_pnr.replace(PI_FP_pna.getFileSystem().getSeparator().charAt(0), '/');
+		   }
+		return S_retval_pnr;
+	}
+
+	/**
+	 *
+	 * @param PI_S_pnr pathname relative to the site, separated by <tt>'/'</tt>
+	 * @return id of the file, -1 if there is no such regular file
+	 */
+	public int FI_get_file_id(final String PI_S_pnr) {
+
+		Integer IO_file_id;
+
+		IO_file_id = this.HI_file_ids.get(PI_S_pnr);
+		return (IO_file_id == null) ? -1 : IO_file_id.intValue();
+	}
+
+	public boolean FB_is_dir(final String PI_S_pnr) {
+		return this.HS_pnr_dirs.contains(PI_S_pnr);
+	}
+
+	/**
+	 * Lookups of a pathname, or of the files below it, can only be answered from the index if neither it
+	 * nor a folder above or below it is one of {@link #AS_pnr_unlisted}, otherwise the file system is asked.
+	 *
+	 * @param PI_S_pnr pathname relative to the site, separated by <tt>'/'</tt>
+	 * @return true if the index knows all about the pathname
+	 */
+	public boolean FB_is_complete(final String PI_S_pnr) {
+
+		for (String S_pnr_unlisted: this.AS_pnr_unlisted) {
+			if (S_pnr_unlisted.isEmpty() || PI_S_pnr.equals(S_pnr_unlisted) || 
+				PI_S_pnr.startsWith(S_pnr_unlisted + "/") || S_pnr_unlisted.startsWith(PI_S_pnr + "/")) {
+			   return false;
+			   }
+		    }
+		return true;
+	}
+
+	/**
+	 * Files below a folder, like {@link Files#find(Path, int, java.util.function.BiPredicate, java.nio.file.FileVisitOption...)}.
+	 *
+	 * @param PI_S_pnr_dir folder relative to the site, without trailing <tt>'/'</tt>
+	 * @param PI_I_max_depth_f1 1 for the files of the folder itself, 2 including its sub folders, ...
+	 * @return ids of the files, ascending
+	 */
+	public int[] FAI_find_below(
+			final String PI_S_pnr_dir,
+			final int    PI_I_max_depth_f1) {
+
+		String S_prefix;
+		int AI_retval_file_ids[], I_nbr_file_ids_f1, I_start_f0, I_end_f0, I_nbr_slashes_f1, i1, i2;
+
+		S_prefix = PI_S_pnr_dir + "/";
+		I_start_f0 = Arrays.binarySearch(this.AS_pnr_files, S_prefix);
+		if (I_start_f0 < 0) {
+		   I_start_f0 = -I_start_f0 - 1;
+		   }
+		I_end_f0 = I_start_f0;
+		while ((I_end_f0 < this.I_nbr_files_f1) && this.AS_pnr_files[I_end_f0].startsWith(S_prefix)) {
+			I_end_f0++;
+		    }
+		AI_retval_file_ids = new int[I_end_f0 - I_start_f0];
+		I_nbr_file_ids_f1 = 0;
+		for (i1 = I_start_f0; i1 < I_end_f0; i1++) {
+			I_nbr_slashes_f1 = 0;
+			for (i2 = S_prefix.length(); i2 < this.AS_pnr_files[i1].length(); i2++) {
+				if (this.AS_pnr_files[i1].charAt(i2) == '/') {
+				   I_nbr_slashes_f1++;
+				   }
+			    }
+			if (I_nbr_slashes_f1 < PI_I_max_depth_f1) {
+			   AI_retval_file_ids[I_nbr_file_ids_f1++] = i1;
+			   }
+		    }
+		return Arrays.copyOf(AI_retval_file_ids, I_nbr_file_ids_f1);
+	}
+
+	/**
+	 *
+	 * @return name of the file without its folder
+	 */
+	public String FS_get_bn(final int PI_I_file_id) {
+
+		String S_pnr;
+
+		S_pnr = this.AS_pnr_files[PI_I_file_id];
+		return S_pnr.substring(S_pnr.lastIndexOf('/') + 1);
+	}
+}
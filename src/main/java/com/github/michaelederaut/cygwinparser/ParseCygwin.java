@@ -10,7 +10,9 @@ import java.io.FileWriter;
 import java.io.UnsupportedEncodingException;
 import java.nio.channels.FileChannel;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.concurrent.ForkJoinPool;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.mutable.MutableInt;
@@ -27,8 +29,14 @@ public class ParseCygwin {
 public static final String S_dnr_x86_64         = "x86_64";
 public static final String S_dnr_categories_log = "_category_logs";
 public static final String S_bn_setup_ini       = "setup.ini";
+// used if setup.ini has not been extracted, in order of preference
+public static final String AS_bn_setup_compressed[] = {"setup.zst", "setup.xz", "setup.bz2"};
 // public static final String S_bn_categories_log = "categories.log";
 public static final String S_bnt_categories_log = "categories";
+// verifies the SHA-512 digests of the archives found, reads the whole mirror
+public static final String S_opt_verify = "--verify";
+// checks the archives of that many packages at once, e.g. --threads=16 for a mirror on a network drive, default 1
+public static final String S_opt_threads = "--threads=";
 
 public static final String S_pna_setup_rc      = "C:\\cygwin64\\etc\\setup\\setup.rc";
 public static final String S_TIME_STAMP        = "yyyy-MM-dd_HH_mm-ss";
@@ -59,6 +67,38 @@ private static String FS_get_site_root(
     }
 
 
+/**
+ * 
+ * @return the number of threads given by {@link #S_opt_threads}, 1 if there is none
+ */
+protected static int FI_get_nbr_threads(final String PI_AS_args[]) {
+	
+	RuntimeException E_rt;
+	IllegalArgumentException E_ill_arg;
+	String S_msg_1, S_msg_2;
+	int I_retval_nbr_threads_f1;
+	
+	I_retval_nbr_threads_f1 = 1;
+	for (String S_arg: PI_AS_args) {
+		if (!S_arg.startsWith(S_opt_threads)) {
+		   continue;
+		   }
+		try {
+			I_retval_nbr_threads_f1 = Integer.parseInt(S_arg.substring(S_opt_threads.length()));
+		} catch (NumberFormatException PI_E_num) {
+			I_retval_nbr_threads_f1 = 0;
+		    }
+		if (I_retval_nbr_threads_f1 < 1) {
+		   S_msg_1 = "Option \"" + S_arg + "\" is not a positive number of threads.";
+		   E_ill_arg = new IllegalArgumentException(S_msg_1);
+		   S_msg_2 = "Unable to determine the number of threads checking the archives";
+		   E_rt = new RuntimeException(S_msg_2, E_ill_arg);
+		   throw E_rt;
+		   }
+	    }
+	return I_retval_nbr_threads_f1;
+    }
+
     public static void main( String[] PI_as_args ) {
    
     	IOException      E_io;
@@ -70,21 +110,30 @@ private static String FS_get_site_root(
     	
     	MutableInt       O_MI_nbr_lines_written;
     	
-        LineNbrRandomAccessFile O_rdr_setup_ini, O_buff_wrtr_categories_log;
+        LineNbrRandomAccessFile O_buff_wrtr_categories_log;
+        MappedIniLineReader O_rdr_setup_ini;
+        StreamIniLineReader O_rdr_setup_ini_stream;
     	SetupIniContents O_setup_ini_contents;
+    	PckgTable        O_pckg_table;
+    	SetupIniContents.PckgChanges O_pckg_changes;
+    	ParseDiagnostics O_diagnostics;
+    	CatalogSnapshot  O_snapshot, O_snapshot_prev;
     	SetupConfigContents O_config_contents;
     	SetupConfigContents.Site O_site_current;
     	ArchiveChecker   O_archive_checker;
+    	ArchiveVerifier  O_archive_verifier;
+    	ArchiveVerifier.Result O_verify_result;
     	
-    	File F_dna_86_64, F_dna_category_logs, F_pna_setup_ini, F_pna_categories_log,  F_pna_categories_xslx;
+    	File F_dna_86_64, F_dna_category_logs, F_pna_setup_ini, F_pna_setup_compressed, F_pna_snapshot, F_pna_categories_log,  F_pna_categories_xslx;
     	String S_site_root, S_dnr_site_root, S_dna_cygw_repositories_root, S_pna_cygw_repository_root, S_dna_x86_64, S_dna_catgegory_logs, S_pna_setup_ini, 
     	S_bntd_categories /* base-name truncated dot */,  
     	S_bn_categories_log, S_bn_categories_xlsx, S_pna_categories_log, S_pna_categories_xlsx, S_time_stamp, S_msg_1, S_msg_2;
     	
     	long L_timestamp_current;
-    	int I_nbr_lines_written_f1, I_flags_dummy, I_idx_mirror_f0;
-    	boolean B_dir_created;
+    	int I_nbr_lines_written_f1, I_flags_dummy, I_idx_mirror_f0, I_nbr_threads_f1, i1;
+    	boolean B_dir_created, B_compressed;
     	
+    	I_nbr_threads_f1 = FI_get_nbr_threads(PI_as_args);
     	O_config_contents = SetupConfigParser.FO_parse(S_pna_setup_rc);
     	I_idx_mirror_f0 = O_config_contents.I_idx_last_mirror_f0;
     	O_site_current = O_config_contents.AO_mirror_list.get(I_idx_mirror_f0);
@@ -131,6 +180,18 @@ private static String FS_get_site_root(
     	
     	S_pna_setup_ini = S_dna_x86_64 + "\\" + S_bn_setup_ini;
     	F_pna_setup_ini = new File(S_pna_setup_ini);
+    	B_compressed    = false;
+    	if (!F_pna_setup_ini.exists()) {
+    	   LOOP_COMPRESSED: for (String S_bn_setup_compressed: AS_bn_setup_compressed) {
+    		   F_pna_setup_compressed = new File(S_dna_x86_64 + "\\" + S_bn_setup_compressed);
+    		   if (F_pna_setup_compressed.exists()) {
+    			  S_pna_setup_ini = F_pna_setup_compressed.getPath();
+    			  F_pna_setup_ini = F_pna_setup_compressed;
+    			  B_compressed    = true;
+    			  break LOOP_COMPRESSED;
+    		      }
+    	       }
+    	   }
    
     	S_msg_1         = null;
     	if (!F_pna_setup_ini.exists()) {
@@ -150,19 +211,71 @@ private static String FS_get_site_root(
     	    throw E_rt;
     	    }
     	
-    	try {
-			O_rdr_setup_ini = new LineNbrRandomAccessFile(F_pna_setup_ini, LineNbrRandomAccessFile.READ_ONLY);
-		} catch (FileNotFoundException PI_E_fnf) {
-			S_msg_1 = "Unable to instantiate a file-object of type \'" + LineNbrRandomAccessFile.class.getName() + "\' " + 
-		              "from path \"" + F_pna_setup_ini.getPath() + "\"  with flag(s): \'" + LineNbrRandomAccessFile.READ_ONLY + "\'";
-			E_rt = new RuntimeException(S_msg_1, PI_E_fnf);
-			throw E_rt;
-		    }
-    	
-    	O_setup_ini_contents = IniFileParser.FO_parse(O_rdr_setup_ini);      // 1
-    	O_rdr_setup_ini.FV_close();
+    	F_pna_snapshot = new File(S_dna_catgegory_logs + "\\" + CatalogSnapshot.S_bn_snapshot);
+    	O_snapshot = B_compressed ? null : CatalogSnapshot.FO_open(F_pna_snapshot, F_pna_setup_ini);
+    	if (B_compressed) {  // decompressed while parsed, no snapshot
+    	   O_rdr_setup_ini_stream = StreamIniLineReader.FO_open(F_pna_setup_ini);
+    	   O_setup_ini_contents = IniFileParser.FO_parse(O_rdr_setup_ini_stream);                                   // 1
+    	   O_rdr_setup_ini_stream.FV_close();
+    	   O_pckg_table = O_setup_ini_contents.FO_get_pckg_table();
+    	   }
+    	else if (O_snapshot == null) {
+    	   O_rdr_setup_ini = new MappedIniLineReader(F_pna_setup_ini);
+    	   O_snapshot_prev = CatalogSnapshot.FO_open_previous(F_pna_snapshot, F_pna_setup_ini);
+    	   if (O_snapshot_prev == null) {
+    		  O_setup_ini_contents = IniFileParser.FO_parse_parallel(O_rdr_setup_ini, ForkJoinPool.commonPool());   // 1
+    		  O_setup_ini_contents.FV_set_fingerprints(O_rdr_setup_ini);
+    	      }
+    	   else {  // only the stanzas changed since the snapshot are parsed
+    		  System.out.println("Updating snapshot: \"" + F_pna_snapshot.getPath() + "\"");
+    		  O_setup_ini_contents = O_snapshot_prev.FO_get_setup_ini_contents();
+    		  O_diagnostics  = new ParseDiagnostics();
+    		  O_pckg_changes = IniFileParser.FO_parse_incremental(O_setup_ini_contents, O_rdr_setup_ini, O_diagnostics);  // 1
+    		  System.out.println(O_pckg_changes.AS_added.size() + " packages added, " + 
+    				  O_pckg_changes.AS_changed.size() + " changed, " + 
+    				  O_pckg_changes.AS_removed.size() + " removed.");
+    		  for (ParseDiagnostics.Diagnostic O_diagnostic: O_diagnostics.FAO_get_diagnostics()) {
+    			  System.out.println("Skipped: " + O_diagnostic);
+    		      }
+    		  O_snapshot_prev.FV_close();
+    	      }
+    	   if (!CatalogSnapshot.FB_write(F_pna_snapshot, O_rdr_setup_ini, O_setup_ini_contents)) {
+    		  System.out.println("Snapshot \"" + F_pna_snapshot.getPath() + "\" in use, not replaced.");
+    	      }
+    	   O_rdr_setup_ini.FV_close();
+    	   O_pckg_table = O_setup_ini_contents.FO_get_pckg_table();
+    	   }
+    	else {  // no PckgInfo is created, the table is filled from the mapping
+    	   System.out.println("Loading snapshot: \"" + F_pna_snapshot.getPath() + "\"");
+    	   try {
+    		   O_pckg_table = new PckgTable(O_snapshot, new SymbolTable());                                          // 1
+    	   } finally {
+    		   O_snapshot.FV_close();
+    	       }
+    	   }
     	O_archive_checker = new ArchiveChecker(S_dna_cygw_repositories_root);
-    	O_archive_checker.FI_check_pckgs(S_dnr_site_root, O_setup_ini_contents);  // 2
+    	O_archive_checker.FO_index_mirror(S_dnr_site_root, ForkJoinPool.commonPool());
+    	if (I_nbr_threads_f1 > 1) {
+    	   O_archive_checker.FI_check_pckgs(S_dnr_site_root, O_pckg_table, I_nbr_threads_f1);  // 2
+    	   }
+    	else {
+    	   O_archive_checker.FI_check_pckgs(S_dnr_site_root, O_pckg_table);  // 2
+    	   }
+    	if (Arrays.asList(PI_as_args).contains(S_opt_verify)) {
+    	   System.out.println("Verifying archives of site: \"" + S_dnr_site_root + "\"");
+    	   O_archive_verifier = new ArchiveVerifier(O_archive_checker);
+    	   O_archive_verifier.O_digest_cache = DigestCache.FO_open(new File(S_dna_catgegory_logs + "\\" + DigestCache.S_bn_digest_cache));
+    	   O_verify_result = O_archive_verifier.FO_verify(
+    			   S_dnr_site_root, 
+    			   O_pckg_table, 
+    			   Runtime.getRuntime().availableProcessors());
+    	   O_archive_verifier.O_digest_cache.FV_close();
+    	   System.out.println(O_verify_result);
+    	   for (i1 = 0; i1 < O_verify_result.I_nbr_failures_f1; i1++) {
+    		   System.out.println("Unreadable: " + O_pckg_table.AS_archive_paths[O_verify_result.AI_failed_slots[i1]] + 
+    				   " (" + O_verify_result.AE_failures[i1] + ")");
+    	       }
+    	   }
     	
     	L_timestamp_current = System.currentTimeMillis();
     	O_timemstamp_current = new Date(L_timestamp_current);		
@@ -191,7 +304,7 @@ private static String FS_get_site_root(
     	O_archive_checker.FV_eval_categories(                     // 3
     			O_fs_out_categories_xslx,
     			S_dnr_site_root,
-    			O_setup_ini_contents,
+    			O_pckg_table,
     			O_MI_nbr_lines_written);
 
     	I_nbr_lines_written_f1 = O_MI_nbr_lines_written.getValue();
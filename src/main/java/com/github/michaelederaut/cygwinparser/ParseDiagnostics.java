@@ -0,0 +1,107 @@
+package com.github.michaelederaut.cygwinparser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Problems found by a lenient parse, see {@link IniFileParser#FO_parse(IniLineReader, ParseDiagnostics)}.<br>
+ * Each malformed stanza is skipped up to the next package header and recorded as one {@link Diagnostic}.
+ * Only the first {@link #I_max_nbr_diagnostics_f1} diagnostics are kept, so a thoroughly broken file
+ * cannot exhaust the heap, the number of all problems is counted nevertheless.
+ */
+public class ParseDiagnostics {
+
+	public static final int I_dflt_max_nbr_diagnostics = 1000;
+
+	/**
+	 * One skipped stanza.
+	 */
+	public static class Diagnostic {
+
+		public final int    I_line_nbr_f1;       // line the problem was detected at
+		public final int    I_pckg_line_nbr_f1;  // line of the package header, 0 if none
+		public final String S_pckg_name;         // null if none
+		public final String S_state;             // last parsing state reached
+		public final String S_reason;
+
+		public Diagnostic(
+				final int    PI_I_line_nbr_f1,
+				final int    PI_I_pckg_line_nbr_f1,
+				final String PI_S_pckg_name,
+				final String PI_S_state,
+				final String PI_S_reason) {
+
+			this.I_line_nbr_f1      = PI_I_line_nbr_f1;
+			this.I_pckg_line_nbr_f1 = PI_I_pckg_line_nbr_f1;
+			this.S_pckg_name        = PI_S_pckg_name;
+			this.S_state            = PI_S_state;
+			this.S_reason           = PI_S_reason;
+		    }
+
+		@Override
+		public String toString() {
+			String S_retval;
+
+			S_retval = "line " + this.I_line_nbr_f1 + ": " + this.S_reason + " (state " + this.S_state;
+			if (this.S_pckg_name != null) {
+			   S_retval += ", package \'" + this.S_pckg_name + "\' at line " + this.I_pckg_line_nbr_f1;
+			   }
+			S_retval += ")";
+			return S_retval;
+		    }
+	}
+
+	public final int I_max_nbr_diagnostics_f1;
+
+	protected final List<Diagnostic> AO_diagnostics;
+	protected int I_nbr_problems_f1;
+
+	public ParseDiagnostics(final int PI_I_max_nbr_diagnostics_f1) {
+		this.I_max_nbr_diagnostics_f1 = PI_I_max_nbr_diagnostics_f1;
+		this.AO_diagnostics = new ArrayList<Diagnostic>(Math.min(PI_I_max_nbr_diagnostics_f1, 64));
+	    }
+
+	public ParseDiagnostics() {
+		this(I_dflt_max_nbr_diagnostics);
+	    }
+
+	public void FV_add(
+			final int    PI_I_line_nbr_f1,
+			final int    PI_I_pckg_line_nbr_f1,
+			final String PI_S_pckg_name,
+			final String PI_S_state,
+			final String PI_S_reason) {
+
+		this.I_nbr_problems_f1++;
+		if (this.AO_diagnostics.size() < this.I_max_nbr_diagnostics_f1) {
+		   this.AO_diagnostics.add(new Diagnostic(
+				   PI_I_line_nbr_f1, PI_I_pckg_line_nbr_f1, PI_S_pckg_name, PI_S_state, PI_S_reason));
+		   }
+		return;
+	}
+
+	/**
+	 *
+	 * @return the diagnostics kept, in file order
+	 */
+	public List<Diagnostic> FAO_get_diagnostics() {
+		return Collections.unmodifiableList(this.AO_diagnostics);
+	}
+
+	/**
+	 *
+	 * @return number of all problems found, including the ones not kept
+	 */
+	public int FI_get_nbr_problems() {
+		return this.I_nbr_problems_f1;
+	}
+
+	public boolean FB_is_empty() {
+		return (this.I_nbr_problems_f1 == 0);
+	}
+
+	public boolean FB_is_truncated() {
+		return (this.I_nbr_problems_f1 > this.AO_diagnostics.size());
+	}
+}
@@ -0,0 +1,501 @@
+package com.github.michaelederaut.cygwinparser;
+
+import java.util.Arrays;
+
+/**
+ * Immutable set of package ids of a {@link PckgTable}, organised like a Roaring bitmap.<br>
+ * The ids are split by their upper 16 bits into chunks. A chunk of up to {@link #I_max_array_size}
+ * ids is a sorted array of their lower 16 bits, a fuller one a bitmap of 1024 longs.
+ * Union, intersection and difference work chunk by chunk, the ids are iterated in ascending order
+ * by {@link #FI_next(int)}.<br>
+ * Sets are assembled by a {@link Builder} from ascending ids.
+ */
+public class PckgIdSet {
+
+	public static final int I_max_array_size = 4096;
+	protected static final int I_nbr_words   = 1 << 10;
+
+	protected static final int I_op_and     = 0;
+	protected static final int I_op_or      = 1;
+	protected static final int I_op_and_not = 2;
+
+	public static final PckgIdSet O_empty = new PckgIdSet(new char[0], new char[0][], new long[0][], new int[0]);
+
+	// indexed by chunk, either AAC_values or AAL_words of a chunk is null
+	protected final char AC_keys[];        // upper 16 bits, ascending
+	protected final char AAC_values[][];   // lower 16 bits, ascending
+	protected final long AAL_words[][];
+	protected final int  AI_cardinalities[];
+	protected final int  I_cardinality_f1;
+
+	protected PckgIdSet(
+			final char PI_AC_keys[],
+			final char PI_AAC_values[][],
+			final long PI_AAL_words[][],
+			final int  PI_AI_cardinalities[]) {
+
+		int i1, I_cardinality_f1;
+
+		this.AC_keys          = PI_AC_keys;
+		this.AAC_values       = PI_AAC_values;
+		this.AAL_words        = PI_AAL_words;
+		this.AI_cardinalities = PI_AI_cardinalities;
+		I_cardinality_f1 = 0;
+		for (i1 = 0; i1 < PI_AI_cardinalities.length; i1++) {
+			I_cardinality_f1 += PI_AI_cardinalities[i1];
+		    }
+		this.I_cardinality_f1 = I_cardinality_f1;
+	}
+
+	/**
+	 * Collects ascending package ids.
+	 */
+	public static class Builder {
+
+		protected char AC_keys[], AAC_values[][];
+		protected long AAL_words[][];
+		protected int  AI_cardinalities[], I_nbr_chunks_f1, I_last_id;
+
+		public Builder() {
+			this.AC_keys          = new char[4];
+			this.AAC_values       = new char[4][];
+			this.AAL_words        = new long[4][];
+			this.AI_cardinalities = new int[4];
+			this.I_nbr_chunks_f1  = 0;
+			this.I_last_id        = -1;
+		    }
+
+		/**
+		 *
+		 * @param PI_I_pckg_id greater than all ids added before
+		 */
+		public void FV_add(final int PI_I_pckg_id) {
+
+			RuntimeException         E_rt;
+			IllegalArgumentException E_ill_arg;
+			String S_msg_1, S_msg_2;
+			char   C_key, AC_values[];
+			long   AL_words[];
+			int    i1, I_chunk_f0, I_low, I_nbr_values_f1;
+
+			if (PI_I_pckg_id <= this.I_last_id) {
+			   S_msg_1 = "Package id " + PI_I_pckg_id + " not greater than the last one: " + this.I_last_id;
+			   E_ill_arg = new IllegalArgumentException(S_msg_1);
+			   S_msg_2 = "Unable to add package id to set of type: \'" + PckgIdSet.class.getName() + "\'";
+			   E_rt = new RuntimeException(S_msg_2, E_ill_arg);
+			   throw E_rt;
+			   }
+			this.I_last_id = PI_I_pckg_id;
+			C_key = (char)(PI_I_pckg_id >>> 16);
+			I_low = PI_I_pckg_id & 0xFFFF;
+			I_chunk_f0 = this.I_nbr_chunks_f1 - 1;
+			if ((I_chunk_f0 < 0) || (this.AC_keys[I_chunk_f0] != C_key)) {
+			   if (this.I_nbr_chunks_f1 == this.AC_keys.length) {
+				  this.AC_keys          = Arrays.copyOf(this.AC_keys, 2 * this.I_nbr_chunks_f1);
+				  this.AAC_values       = Arrays.copyOf(this.AAC_values, 2 * this.I_nbr_chunks_f1);
+				  this.AAL_words        = Arrays.copyOf(this.AAL_words, 2 * this.I_nbr_chunks_f1);
+				  this.AI_cardinalities = Arrays.copyOf(this.AI_cardinalities, 2 * this.I_nbr_chunks_f1);
+			      }
+			   I_chunk_f0 = this.I_nbr_chunks_f1++;
+			   this.AC_keys[I_chunk_f0]    = C_key;
+			   this.AAC_values[I_chunk_f0] = new char[16];
+			   }
+			I_nbr_values_f1 = this.AI_cardinalities[I_chunk_f0];
+			AC_values = this.AAC_values[I_chunk_f0];
+			if (AC_values == null) {
+			   this.AAL_words[I_chunk_f0][I_low >>> 6] |= 1L << I_low;
+			   }
+			else if (I_nbr_values_f1 < I_max_array_size) {
+			   if (I_nbr_values_f1 == AC_values.length) {
+				  AC_values = Arrays.copyOf(AC_values, 2 * I_nbr_values_f1);
+				  this.AAC_values[I_chunk_f0] = AC_values;
+			      }
+			   AC_values[I_nbr_values_f1] = (char)I_low;
+			   }
+			else {  // array full, change to bitmap
+			   AL_words = new long[I_nbr_words];
+			   for (i1 = 0; i1 < I_nbr_values_f1; i1++) {
+				   AL_words[AC_values[i1] >>> 6] |= 1L << AC_values[i1];
+			       }
+			   AL_words[I_low >>> 6] |= 1L << I_low;
+			   this.AAL_words[I_chunk_f0]  = AL_words;
+			   this.AAC_values[I_chunk_f0] = null;
+			   }
+			this.AI_cardinalities[I_chunk_f0]++;
+			return;
+		    }
+
+		public PckgIdSet FO_build() {
+
+			PckgIdSet O_retval_set;
+			char      AAC_values[][];
+			long      AAL_words[][];
+			int       i1;
+
+			AAC_values = new char[this.I_nbr_chunks_f1][];
+			AAL_words  = new long[this.I_nbr_chunks_f1][];
+			for (i1 = 0; i1 < this.I_nbr_chunks_f1; i1++) {
+				if (this.AAC_values[i1] != null) {
+				   AAC_values[i1] = Arrays.copyOf(this.AAC_values[i1], this.AI_cardinalities[i1]);
+				   }
+				else {
+				   AAL_words[i1] = this.AAL_words[i1].clone();  // the builder may go on
+				   }
+			    }
+			O_retval_set = new PckgIdSet(
+					Arrays.copyOf(this.AC_keys, this.I_nbr_chunks_f1),
+					AAC_values,
+					AAL_words,
+					Arrays.copyOf(this.AI_cardinalities, this.I_nbr_chunks_f1));
+			return O_retval_set;
+		    }
+	}
+
+	public int FI_cardinality() {
+		return this.I_cardinality_f1;
+	}
+
+	public boolean FB_is_empty() {
+		return (this.I_cardinality_f1 == 0);
+	}
+
+	public boolean FB_contains(final int PI_I_pckg_id) {
+
+		int I_chunk_f0, I_low;
+
+		if (PI_I_pckg_id < 0) {
+		   return false;
+		   }
+		I_chunk_f0 = Arrays.binarySearch(this.AC_keys, (char)(PI_I_pckg_id >>> 16));
+		if (I_chunk_f0 < 0) {
+		   return false;
+		   }
+		I_low = PI_I_pckg_id & 0xFFFF;
+		if (this.AAC_values[I_chunk_f0] != null) {
+		   return (Arrays.binarySearch(this.AAC_values[I_chunk_f0], (char)I_low) >= 0);
+		   }
+		return ((this.AAL_words[I_chunk_f0][I_low >>> 6] & (1L << I_low)) != 0);
+	}
+
+	/**
+	 * Iterates the set: <tt>for (i1 = O_set.FI_next(0); i1 >= 0; i1 = O_set.FI_next(i1 + 1))</tt>
+	 *
+	 * @return smallest package id of the set not less than <tt>PI_I_from</tt>, -1 if there is none
+	 */
+	public int FI_next(final int PI_I_from) {
+
+		char AC_values[];
+		long AL_words[], L_word;
+		int  I_chunk_f0, I_key, I_low, I_value_f0, I_word_f0;
+
+		if (PI_I_from < 0) {
+		   return FI_next(0);
+		   }
+		I_key = PI_I_from >>> 16;
+		I_chunk_f0 = Arrays.binarySearch(this.AC_keys, (char)I_key);
+		if (I_chunk_f0 < 0) {
+		   I_chunk_f0 = -I_chunk_f0 - 1;  // next chunk, starting at its smallest id
+		   I_low = 0;
+		   }
+		else {
+		   I_low = PI_I_from & 0xFFFF;
+		   }
+		LOOP_CHUNKS: for (; I_chunk_f0 < this.AC_keys.length; I_chunk_f0++) {
+			AC_values = this.AAC_values[I_chunk_f0];
+			if (AC_values != null) {
+			   I_value_f0 = Arrays.binarySearch(AC_values, (char)I_low);
+			   if (I_value_f0 < 0) {
+				  I_value_f0 = -I_value_f0 - 1;
+			      }
+			   if (I_value_f0 < AC_values.length) {
+				  return (this.AC_keys[I_chunk_f0] << 16) | AC_values[I_value_f0];
+			      }
+			   }
+			else {
+			   AL_words = this.AAL_words[I_chunk_f0];
+			   I_word_f0 = I_low >>> 6;
+			   L_word = AL_words[I_word_f0] & (-1L << I_low);
+			   while (true) {
+				   if (L_word != 0) {
+					  return (this.AC_keys[I_chunk_f0] << 16) | (64 * I_word_f0 + Long.numberOfTrailingZeros(L_word));
+				      }
+				   I_word_f0++;
+				   if (I_word_f0 == I_nbr_words) {
+					  break;
+				      }
+				   L_word = AL_words[I_word_f0];
+			       }
+			   }
+			I_low = 0;
+		    }
+		return -1;
+	}
+
+	public int[] FAI_to_array() {
+
+		int AI_retval_pckg_ids[];
+		int i1, I_pckg_id;
+
+		AI_retval_pckg_ids = new int[this.I_cardinality_f1];
+		i1 = 0;
+		for (I_pckg_id = FI_next(0); I_pckg_id >= 0; I_pckg_id = FI_next(I_pckg_id + 1)) {
+			AI_retval_pckg_ids[i1++] = I_pckg_id;
+		    }
+		return AI_retval_pckg_ids;
+	}
+
+	public PckgIdSet FO_and(final PckgIdSet PI_O_other) {
+		return FO_combine(PI_O_other, I_op_and);
+	}
+
+	public PckgIdSet FO_or(final PckgIdSet PI_O_other) {
+		return FO_combine(PI_O_other, I_op_or);
+	}
+
+	/**
+	 *
+	 * @return the ids of this set not contained in <tt>PI_O_other</tt>
+	 */
+	public PckgIdSet FO_and_not(final PckgIdSet PI_O_other) {
+		return FO_combine(PI_O_other, I_op_and_not);
+	}
+
+	protected PckgIdSet FO_combine(
+			final PckgIdSet PI_O_other,
+			final int       PI_I_op) {
+
+		PckgIdSet O_retval_set;
+		char AC_keys[], AAC_values[][];
+		long AAL_words[][];
+		int  AI_cardinalities[];
+		int  I_chunk_f0, I_chunk_other_f0, I_nbr_chunks_f1, I_key, I_key_other;
+
+		I_nbr_chunks_f1 = this.AC_keys.length + PI_O_other.AC_keys.length;
+		AC_keys          = new char[I_nbr_chunks_f1];
+		AAC_values       = new char[I_nbr_chunks_f1][];
+		AAL_words        = new long[I_nbr_chunks_f1][];
+		AI_cardinalities = new int[I_nbr_chunks_f1];
+		I_nbr_chunks_f1  = 0;
+		I_chunk_f0       = 0;
+		I_chunk_other_f0 = 0;
+		while ((I_chunk_f0 < this.AC_keys.length) || (I_chunk_other_f0 < PI_O_other.AC_keys.length)) {
+			I_key       = (I_chunk_f0 < this.AC_keys.length) ? this.AC_keys[I_chunk_f0] : Integer.MAX_VALUE;
+			I_key_other = (I_chunk_other_f0 < PI_O_other.AC_keys.length) ? PI_O_other.AC_keys[I_chunk_other_f0] : Integer.MAX_VALUE;
+			if (I_key < I_key_other) {  // chunk only in this set
+			   if (PI_I_op != I_op_and) {
+				  AC_keys[I_nbr_chunks_f1]          = this.AC_keys[I_chunk_f0];
+				  AAC_values[I_nbr_chunks_f1]       = this.AAC_values[I_chunk_f0];
+				  AAL_words[I_nbr_chunks_f1]        = this.AAL_words[I_chunk_f0];
+				  AI_cardinalities[I_nbr_chunks_f1] = this.AI_cardinalities[I_chunk_f0];
+				  I_nbr_chunks_f1++;
+			      }
+			   I_chunk_f0++;
+			   }
+			else if (I_key_other < I_key) {  // chunk only in the other set
+			   if (PI_I_op == I_op_or) {
+				  AC_keys[I_nbr_chunks_f1]          = PI_O_other.AC_keys[I_chunk_other_f0];
+				  AAC_values[I_nbr_chunks_f1]       = PI_O_other.AAC_values[I_chunk_other_f0];
+				  AAL_words[I_nbr_chunks_f1]        = PI_O_other.AAL_words[I_chunk_other_f0];
+				  AI_cardinalities[I_nbr_chunks_f1] = PI_O_other.AI_cardinalities[I_chunk_other_f0];
+				  I_nbr_chunks_f1++;
+			      }
+			   I_chunk_other_f0++;
+			   }
+			else {
+			   AC_keys[I_nbr_chunks_f1] = (char)I_key;
+			   if ((this.AAC_values[I_chunk_f0] != null) && (PI_O_other.AAC_values[I_chunk_other_f0] != null)) {
+				  FV_combine_arrays(this.AAC_values[I_chunk_f0], PI_O_other.AAC_values[I_chunk_other_f0], PI_I_op,
+						  AAC_values, AAL_words, AI_cardinalities, I_nbr_chunks_f1);
+			      }
+			   else {
+				  FV_combine_words(
+						  FAL_get_words(this.AAC_values[I_chunk_f0], this.AAL_words[I_chunk_f0]),
+						  FAL_get_words(PI_O_other.AAC_values[I_chunk_other_f0], PI_O_other.AAL_words[I_chunk_other_f0]),
+						  PI_I_op, AAC_values, AAL_words, AI_cardinalities, I_nbr_chunks_f1);
+			      }
+			   if (AI_cardinalities[I_nbr_chunks_f1] > 0) {
+				  I_nbr_chunks_f1++;
+			      }
+			   I_chunk_f0++;
+			   I_chunk_other_f0++;
+			   }
+		    }
+		O_retval_set = new PckgIdSet(
+				Arrays.copyOf(AC_keys, I_nbr_chunks_f1),
+				Arrays.copyOf(AAC_values, I_nbr_chunks_f1),
+				Arrays.copyOf(AAL_words, I_nbr_chunks_f1),
+				Arrays.copyOf(AI_cardinalities, I_nbr_chunks_f1));
+		return O_retval_set;
+	}
+
+	protected static long[] FAL_get_words(
+			final char PI_AC_values[],
+			final long PI_AL_words[]) {
+
+		long AL_retval_words[];
+		int  i1;
+
+		if (PI_AC_values == null) {
+		   return PI_AL_words;
+		   }
+		AL_retval_words = new long[I_nbr_words];
+		for (i1 = 0; i1 < PI_AC_values.length; i1++) {
+			AL_retval_words[PI_AC_values[i1] >>> 6] |= 1L << PI_AC_values[i1];
+		    }
+		return AL_retval_words;
+	}
+
+	/**
+	 * Merges two sorted array chunks into chunk <tt>PI_I_chunk_f0</tt> of the result.
+	 */
+	protected static void FV_combine_arrays(
+			final char PI_AC_values_1[],
+			final char PI_AC_values_2[],
+			final int  PI_I_op,
+			final char PO_AAC_values[][],
+			final long PO_AAL_words[][],
+			final int  PO_AI_cardinalities[],
+			final int  PI_I_chunk_f0) {
+
+		char AC_values[];
+		int  i1, i2, I_nbr_values_f1;
+
+		AC_values = new char[(PI_I_op == I_op_or) ? (PI_AC_values_1.length + PI_AC_values_2.length) : PI_AC_values_1.length];
+		I_nbr_values_f1 = 0;
+		i1 = 0;
+		i2 = 0;
+		while ((i1 < PI_AC_values_1.length) && (i2 < PI_AC_values_2.length)) {
+			if (PI_AC_values_1[i1] < PI_AC_values_2[i2]) {
+			   if (PI_I_op != I_op_and) {
+				  AC_values[I_nbr_values_f1++] = PI_AC_values_1[i1];
+			      }
+			   i1++;
+			   }
+			else if (PI_AC_values_2[i2] < PI_AC_values_1[i1]) {
+			   if (PI_I_op == I_op_or) {
+				  AC_values[I_nbr_values_f1++] = PI_AC_values_2[i2];
+			      }
+			   i2++;
+			   }
+			else {
+			   if (PI_I_op != I_op_and_not) {
+				  AC_values[I_nbr_values_f1++] = PI_AC_values_1[i1];
+			      }
+			   i1++;
+			   i2++;
+			   }
+		    }
+		if (PI_I_op != I_op_and) {
+		   while (i1 < PI_AC_values_1.length) {
+			   AC_values[I_nbr_values_f1++] = PI_AC_values_1[i1++];
+		       }
+		   }
+		if (PI_I_op == I_op_or) {
+		   while (i2 < PI_AC_values_2.length) {
+			   AC_values[I_nbr_values_f1++] = PI_AC_values_2[i2++];
+		       }
+		   }
+		PO_AI_cardinalities[PI_I_chunk_f0] = I_nbr_values_f1;
+		if (I_nbr_values_f1 > I_max_array_size) {
+		   PO_AAL_words[PI_I_chunk_f0] = FAL_get_words(Arrays.copyOf(AC_values, I_nbr_values_f1), null);
+		   }
+		else {
+		   PO_AAC_values[PI_I_chunk_f0] = Arrays.copyOf(AC_values, I_nbr_values_f1);
+		   }
+		return;
+	}
+
+	/**
+	 * Combines two bitmap chunks into chunk <tt>PI_I_chunk_f0</tt> of the result,
+	 * which becomes an array chunk again if it is sparse enough.
+	 */
+	protected static void FV_combine_words(
+			final long PI_AL_words_1[],
+			final long PI_AL_words_2[],
+			final int  PI_I_op,
+			final char PO_AAC_values[][],
+			final long PO_AAL_words[][],
+			final int  PO_AI_cardinalities[],
+			final int  PI_I_chunk_f0) {
+
+		char AC_values[];
+		long AL_words[], L_word;
+		int  i1, I_cardinality_f1, I_nbr_values_f1;
+
+		AL_words = new long[I_nbr_words];
+		I_cardinality_f1 = 0;
+		for (i1 = 0; i1 < I_nbr_words; i1++) {
+			switch (PI_I_op) {
+			case I_op_and:
+				L_word = PI_AL_words_1[i1] & PI_AL_words_2[i1];
+				break;
+			case I_op_or:
+				L_word = PI_AL_words_1[i1] | PI_AL_words_2[i1];
+				break;
+			default:
+				L_word = PI_AL_words_1[i1] & ~PI_AL_words_2[i1];
+				break;
+			    }
+			AL_words[i1] = L_word;
+			I_cardinality_f1 += Long.bitCount(L_word);
+		    }
+		PO_AI_cardinalities[PI_I_chunk_f0] = I_cardinality_f1;
+		if (I_cardinality_f1 > I_max_array_size) {
+		   PO_AAL_words[PI_I_chunk_f0] = AL_words;
+		   return;
+		   }
+		AC_values = new char[I_cardinality_f1];
+		I_nbr_values_f1 = 0;
+		for (i1 = 0; i1 < I_nbr_words; i1++) {
+			L_word = AL_words[i1];
+			while (L_word != 0) {
+				AC_values[I_nbr_values_f1++] = (char)(64 * i1 + Long.numberOfTrailingZeros(L_word));
+				L_word &= L_word - 1;
+			    }
+		    }
+		PO_AAC_values[PI_I_chunk_f0] = AC_values;
+		return;
+	}
+
+	@Override
+	public boolean equals(final Object PI_O_other) {
+
+		PckgIdSet O_other;
+		int I_pckg_id, I_pckg_id_other;
+
+		if (!(PI_O_other instanceof PckgIdSet)) {
+		   return false;
+		   }
+		O_other = (PckgIdSet)PI_O_other;
+		if (O_other.I_cardinality_f1 != this.I_cardinality_f1) {
+		   return false;
+		   }
+		I_pckg_id       = FI_next(0);
+		I_pckg_id_other = O_other.FI_next(0);
+		while (I_pckg_id >= 0) {
+			if (I_pckg_id != I_pckg_id_other) {
+			   return false;
+			   }
+			I_pckg_id       = FI_next(I_pckg_id + 1);
+			I_pckg_id_other = O_other.FI_next(I_pckg_id_other + 1);
+		    }
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+
+		int I_retval_hash, I_pckg_id;
+
+		I_retval_hash = 1;
+		for (I_pckg_id = FI_next(0); I_pckg_id >= 0; I_pckg_id = FI_next(I_pckg_id + 1)) {
+			I_retval_hash = 31 * I_retval_hash + I_pckg_id;
+		    }
+		return I_retval_hash;
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(FAI_to_array());
+	}
+}
@@ -0,0 +1,434 @@
+package com.github.michaelederaut.cygwinparser;
+
+import java.util.Arrays;
+
+/**
+ * Trie over the package names of a {@link PckgTable}, one node per character, kept in parallel arrays.<br>
+ * The nodes are numbered in preorder with children sorted by character, so the names ending in the subtree
+ * of a node are a contiguous range of the names in sorted order. This range gives the answer of a prefix query
+ * without visiting the subtree.<br>
+ * Glob patterns (<tt>*</tt>, <tt>?</tt> and character classes) are matched by walking the trie with the set of pattern positions
+ * reached so far as bit mask, names within a small edit distance with one row of the Levenshtein matrix per level.
+ * Both walks leave subtrees which can not match any more.<br>
+ * All queries return package ids in ascending order. The index is immutable, queries may run concurrently.
+ */
+public class PckgNameIndex {
+
+	public static final int I_max_glob_len = 63;
+
+	public final PckgTable O_pckg_table;
+	public final int       I_nbr_nodes_f1;
+
+	// indexed by node, node 0 is the root
+	protected final char AC_labels[];         // character leading to the node
+	protected final int  AI_first_child[];    // -1 if none
+	protected final int  AI_next_sibling[];   // -1 if none
+	protected final int  AI_pckg_ids[];       // package whose name ends at the node, -1 if none
+	protected final int  AI_subtree_ends[];   // nodes of the subtree of i1 are [i1 .. AI_subtree_ends[i1])
+	protected final int  AI_rank_starts[];    // number of names ending before the node, one more element
+
+	protected final int  AI_ranked_pckg_ids[];  // package ids sorted by name
+	protected final int  I_max_depth;
+
+	public PckgNameIndex(final PckgTable PI_O_pckg_table) {
+
+		Integer AI_name_order[];
+		String  AS_names[], S_name, S_name_prev;
+		int     AI_path[];
+		int i1, i2, I_nbr_pckgs_f1, I_nbr_nodes_f1, I_nbr_chars_f1, I_max_depth, I_common_f1, I_pckg_id, I_parent, I_node;
+
+		I_nbr_pckgs_f1 = PI_O_pckg_table.I_nbr_pckgs_f1;
+		this.O_pckg_table = PI_O_pckg_table;
+		AS_names       = new String[I_nbr_pckgs_f1];
+		AI_name_order  = new Integer[I_nbr_pckgs_f1];
+		I_nbr_chars_f1 = 0;
+		I_max_depth    = 0;
+		for (i1 = 0; i1 < I_nbr_pckgs_f1; i1++) {
+			AS_names[i1]      = PI_O_pckg_table.FS_get_name(i1);
+			AI_name_order[i1] = i1;
+			I_nbr_chars_f1   += AS_names[i1].length();
+			I_max_depth       = Math.max(I_max_depth, AS_names[i1].length());
+		    }
+		Arrays.sort(AI_name_order, (Integer PI_I_id_1, Integer PI_I_id_2) -> AS_names[PI_I_id_1].compareTo(AS_names[PI_I_id_2]));
+		this.I_max_depth = I_max_depth;
+
+		// at most one node per character
+		this.AC_labels          = new char[I_nbr_chars_f1 + 1];
+		this.AI_first_child     = new int[I_nbr_chars_f1 + 1];
+		this.AI_next_sibling    = new int[I_nbr_chars_f1 + 1];
+		this.AI_pckg_ids        = new int[I_nbr_chars_f1 + 1];
+		this.AI_subtree_ends    = new int[I_nbr_chars_f1 + 1];
+		this.AI_rank_starts     = new int[I_nbr_chars_f1 + 2];
+		this.AI_ranked_pckg_ids = new int[I_nbr_pckgs_f1];
+		Arrays.fill(this.AI_first_child, -1);
+		Arrays.fill(this.AI_next_sibling, -1);
+		Arrays.fill(this.AI_pckg_ids, -1);
+
+		AI_path        = new int[I_max_depth + 1];  // nodes of the previous name by depth
+		AI_path[0]     = 0;
+		I_nbr_nodes_f1 = 1;
+		S_name_prev    = "";
+		for (i1 = 0; i1 < I_nbr_pckgs_f1; i1++) {
+			I_pckg_id = AI_name_order[i1];
+			S_name    = AS_names[I_pckg_id];
+			this.AI_ranked_pckg_ids[i1] = I_pckg_id;
+			I_common_f1 = 0;
+			while ((I_common_f1 < S_name_prev.length()) && (I_common_f1 < S_name.length()) &&
+			       (S_name_prev.charAt(I_common_f1) == S_name.charAt(I_common_f1))) {
+				I_common_f1++;
+			    }
+			// subtrees of the previous name below the common prefix are complete
+			for (i2 = S_name_prev.length(); i2 > I_common_f1; i2--) {
+				this.AI_subtree_ends[AI_path[i2]] = I_nbr_nodes_f1;
+			    }
+			// sorted names: a name is never a prefix of an earlier one, it adds at least one node
+			for (i2 = I_common_f1; i2 < S_name.length(); i2++) {
+				I_parent = AI_path[i2];
+				I_node   = I_nbr_nodes_f1++;
+				this.AC_labels[I_node]      = S_name.charAt(i2);
+				this.AI_rank_starts[I_node] = i1;
+				if ((i2 == I_common_f1) && (I_common_f1 < S_name_prev.length())) {
+				   this.AI_next_sibling[AI_path[i2 + 1]] = I_node;  // last child of the parent so far
+				   }
+				else {
+				   this.AI_first_child[I_parent] = I_node;
+				   }
+				AI_path[i2 + 1] = I_node;
+			    }
+			this.AI_pckg_ids[AI_path[S_name.length()]] = I_pckg_id;
+			S_name_prev = S_name;
+		    }
+		for (i2 = S_name_prev.length(); i2 >= 0; i2--) {
+			this.AI_subtree_ends[AI_path[i2]] = I_nbr_nodes_f1;
+		    }
+		this.AI_rank_starts[I_nbr_nodes_f1] = I_nbr_pckgs_f1;
+		this.I_nbr_nodes_f1 = I_nbr_nodes_f1;
+	}
+
+	/**
+	 *
+	 * @return child of the node reached by the character, -1 if none
+	 */
+	protected int FI_get_child(
+			final int  PI_I_node,
+			final char PI_C_label) {
+
+		int I_retval_child;
+
+		I_retval_child = this.AI_first_child[PI_I_node];
+		while ((I_retval_child >= 0) && (this.AC_labels[I_retval_child] < PI_C_label)) {
+			I_retval_child = this.AI_next_sibling[I_retval_child];
+		    }
+		if ((I_retval_child >= 0) && (this.AC_labels[I_retval_child] != PI_C_label)) {
+		   I_retval_child = -1;
+		   }
+		return I_retval_child;
+	}
+
+	/**
+	 *
+	 * @return package id, -1 if there is no package of this name
+	 */
+	public int FI_get_pckg_id(final String PI_S_pckg_name) {
+
+		int i1, I_node;
+
+		I_node = 0;
+		for (i1 = 0; (i1 < PI_S_pckg_name.length()) && (I_node >= 0); i1++) {
+			I_node = FI_get_child(I_node, PI_S_pckg_name.charAt(i1));
+		    }
+		return (I_node < 0) ? -1 : this.AI_pckg_ids[I_node];
+	}
+
+	/**
+	 *
+	 * @return the packages whose name starts with <tt>PI_S_prefix</tt>
+	 */
+	public int[] FAI_find_prefix(final String PI_S_prefix) {
+
+		int AI_retval_pckg_ids[];
+		int i1, I_node;
+
+		I_node = 0;
+		for (i1 = 0; (i1 < PI_S_prefix.length()) && (I_node >= 0); i1++) {
+			I_node = FI_get_child(I_node, PI_S_prefix.charAt(i1));
+		    }
+		if (I_node < 0) {
+		   return new int[0];
+		   }
+		AI_retval_pckg_ids = Arrays.copyOfRange(this.AI_ranked_pckg_ids,
+				this.AI_rank_starts[I_node], this.AI_rank_starts[this.AI_subtree_ends[I_node]]);
+		Arrays.sort(AI_retval_pckg_ids);
+		return AI_retval_pckg_ids;
+	}
+
+	/**
+	 * Result of a trie walk, package ids as they are found.
+	 */
+	protected static class PckgIds {
+		public int AI_pckg_ids[], I_nbr_pckgs_f1;
+
+		public PckgIds() {
+			this.AI_pckg_ids    = new int[16];
+			this.I_nbr_pckgs_f1 = 0;
+		    }
+
+		public void FV_add(final int PI_I_pckg_id) {
+			if (this.I_nbr_pckgs_f1 == this.AI_pckg_ids.length) {
+			   this.AI_pckg_ids = Arrays.copyOf(this.AI_pckg_ids, 2 * this.I_nbr_pckgs_f1);
+			   }
+			this.AI_pckg_ids[this.I_nbr_pckgs_f1++] = PI_I_pckg_id;
+		    }
+
+		public int[] FAI_get_sorted() {
+			int AI_retval_pckg_ids[];
+
+			AI_retval_pckg_ids = Arrays.copyOf(this.AI_pckg_ids, this.I_nbr_pckgs_f1);
+			Arrays.sort(AI_retval_pckg_ids);
+			return AI_retval_pckg_ids;
+		    }
+	}
+
+	/**
+	 * Glob pattern compiled to bit masks over its positions, bit i1 set in a state means
+	 * the first i1 positions of the pattern have been matched. A character class takes one position.
+	 */
+	protected static class Glob {
+		public final long   L_star, L_any, L_accept;
+		public final char   AC_literals[];
+		public final long   AL_literal_masks[];
+		public final String AS_class_ranges[];  // pairs of first and last character
+		public final boolean AB_class_negated[];
+		public final long   AL_class_masks[];
+
+		public Glob(final String PI_S_pattern) {
+
+			RuntimeException         E_rt;
+			IllegalArgumentException E_ill_arg;
+			StringBuilder S_ranges;
+			String   S_msg_1, S_msg_2, AS_class_ranges[];
+			char     C_char, AC_literals[];
+			boolean  AB_class_negated[];
+			long     AL_literal_masks[], AL_class_masks[], L_star, L_any, L_pos;
+			int      i1, i2, I_pos_f0, I_end_f0, I_nbr_literals_f1, I_nbr_classes_f1;
+
+			AC_literals       = new char[PI_S_pattern.length()];
+			AL_literal_masks  = new long[PI_S_pattern.length()];
+			AS_class_ranges   = new String[PI_S_pattern.length()];
+			AB_class_negated  = new boolean[PI_S_pattern.length()];
+			AL_class_masks    = new long[PI_S_pattern.length()];
+			I_nbr_literals_f1 = 0;
+			I_nbr_classes_f1  = 0;
+			L_star = 0;
+			L_any  = 0;
+			I_pos_f0 = 0;
+			LOOP_CHARS: for (i1 = 0; i1 < PI_S_pattern.length(); i1++, I_pos_f0++) {
+				if (I_pos_f0 >= I_max_glob_len) {
+				   S_msg_1 = "Pattern \'" + PI_S_pattern + "\' longer than " + I_max_glob_len + " characters";
+				   E_ill_arg = new IllegalArgumentException(S_msg_1);
+				   S_msg_2 = "Unable to compile glob pattern for type: \'" + PckgNameIndex.class.getName() + "\'";
+				   E_rt = new RuntimeException(S_msg_2, E_ill_arg);
+				   throw E_rt;
+				   }
+				C_char = PI_S_pattern.charAt(i1);
+				L_pos  = 1L << I_pos_f0;
+				if (C_char == '*') {
+				   L_star |= L_pos;
+				   continue LOOP_CHARS;
+				   }
+				if (C_char == '?') {
+				   L_any |= L_pos;
+				   continue LOOP_CHARS;
+				   }
+				if (C_char == '[') {  // [abc], [a-z], [!a-z] or [^a-z], a leading ] belongs to the class
+				   I_end_f0 = i1 + 1;
+				   if ((I_end_f0 < PI_S_pattern.length()) && ((PI_S_pattern.charAt(I_end_f0) == '!') || (PI_S_pattern.charAt(I_end_f0) == '^'))) {
+					  AB_class_negated[I_nbr_classes_f1] = true;
+					  I_end_f0++;
+				      }
+				   i2 = I_end_f0;
+				   I_end_f0 = PI_S_pattern.indexOf(']', I_end_f0 + 1);
+				   if (I_end_f0 >= 0) {
+					  S_ranges = new StringBuilder();
+					  while (i2 < I_end_f0) {
+						  C_char = PI_S_pattern.charAt(i2);
+						  if ((i2 + 2 < I_end_f0) && (PI_S_pattern.charAt(i2 + 1) == '-')) {
+							 S_ranges.append(C_char).append(PI_S_pattern.charAt(i2 + 2));
+							 i2 += 3;
+						     }
+						  else {
+							 S_ranges.append(C_char).append(C_char);
+							 i2++;
+						     }
+					      }
+					  AS_class_ranges[I_nbr_classes_f1] = S_ranges.toString();
+					  AL_class_masks[I_nbr_classes_f1]  = L_pos;
+					  I_nbr_classes_f1++;
+					  i1 = I_end_f0;
+					  continue LOOP_CHARS;
+				      }
+				   AB_class_negated[I_nbr_classes_f1] = false;  // unclosed, a literal [
+				   }
+				for (i2 = 0; i2 < I_nbr_literals_f1; i2++) {
+					if (AC_literals[i2] == C_char) {
+					   AL_literal_masks[i2] |= L_pos;
+					   continue LOOP_CHARS;
+					   }
+				    }
+				AC_literals[I_nbr_literals_f1]      = C_char;
+				AL_literal_masks[I_nbr_literals_f1] = L_pos;
+				I_nbr_literals_f1++;
+			    }
+			this.L_star           = L_star;
+			this.L_any            = L_any;
+			this.L_accept         = 1L << I_pos_f0;
+			this.AC_literals      = Arrays.copyOf(AC_literals, I_nbr_literals_f1);
+			this.AL_literal_masks = Arrays.copyOf(AL_literal_masks, I_nbr_literals_f1);
+			this.AS_class_ranges  = Arrays.copyOf(AS_class_ranges, I_nbr_classes_f1);
+			this.AB_class_negated = Arrays.copyOf(AB_class_negated, I_nbr_classes_f1);
+			this.AL_class_masks   = Arrays.copyOf(AL_class_masks, I_nbr_classes_f1);
+		    }
+
+		/**
+		 * A <tt>*</tt> may match nothing, so its position implies the next one.
+		 */
+		public long FL_close(final long PI_L_state) {
+			long L_retval_state, L_state_prev;
+
+			L_retval_state = PI_L_state;
+			do {
+				L_state_prev = L_retval_state;
+				L_retval_state |= (L_retval_state & this.L_star) << 1;
+			} while (L_retval_state != L_state_prev);
+			return L_retval_state;
+		    }
+
+		public long FL_step(
+				final long PI_L_state,
+				final char PI_C_char) {
+
+			String  S_ranges;
+			boolean B_in_class;
+			long    L_matching;
+			int     i1, i2;
+
+			L_matching = this.L_any;
+			for (i1 = 0; i1 < this.AC_literals.length; i1++) {
+				if (this.AC_literals[i1] == PI_C_char) {
+				   L_matching |= this.AL_literal_masks[i1];
+				   break;
+				   }
+			    }
+			for (i1 = 0; i1 < this.AS_class_ranges.length; i1++) {
+				S_ranges   = this.AS_class_ranges[i1];
+				B_in_class = false;
+				for (i2 = 0; (i2 < S_ranges.length()) && !B_in_class; i2 += 2) {
+					B_in_class = (PI_C_char >= S_ranges.charAt(i2)) && (PI_C_char <= S_ranges.charAt(i2 + 1));
+				    }
+				if (B_in_class != this.AB_class_negated[i1]) {
+				   L_matching |= this.AL_class_masks[i1];
+				   }
+			    }
+			return FL_close(((PI_L_state & L_matching) << 1) | (PI_L_state & this.L_star));
+		    }
+	}
+
+	/**
+	 *
+	 * @param PI_S_pattern <tt>*</tt> matches any sequence, <tt>?</tt> any single character,
+	 * <tt>[a-z_]</tt> any character of the class and <tt>[!a-z_]</tt> any other one,
+	 * at most {@link #I_max_glob_len} positions
+	 * @return the packages whose name matches the pattern
+	 */
+	public int[] FAI_find_glob(final String PI_S_pattern) {
+
+		Glob    O_glob;
+		PckgIds O_pckg_ids;
+
+		O_glob     = new Glob(PI_S_pattern);
+		O_pckg_ids = new PckgIds();
+		FV_walk_glob(O_glob, 0, O_glob.FL_close(1L), O_pckg_ids);
+		return O_pckg_ids.FAI_get_sorted();
+	}
+
+	protected void FV_walk_glob(
+			final Glob    PI_O_glob,
+			final int     PI_I_node,
+			final long    PI_L_state,
+			final PckgIds PB_O_pckg_ids) {
+
+		long L_state;
+		int  I_child;
+
+		if (((PI_L_state & PI_O_glob.L_accept) != 0) && (this.AI_pckg_ids[PI_I_node] >= 0)) {
+		   PB_O_pckg_ids.FV_add(this.AI_pckg_ids[PI_I_node]);
+		   }
+		for (I_child = this.AI_first_child[PI_I_node]; I_child >= 0; I_child = this.AI_next_sibling[I_child]) {
+			L_state = PI_O_glob.FL_step(PI_L_state, this.AC_labels[I_child]);
+			if (L_state != 0) {
+			   FV_walk_glob(PI_O_glob, I_child, L_state, PB_O_pckg_ids);
+			   }
+		    }
+		return;
+	}
+
+	/**
+	 *
+	 * @param PI_I_max_distance greatest number of characters inserted, deleted or replaced
+	 * @return the packages whose name is within the Levenshtein distance of <tt>PI_S_name</tt>
+	 */
+	public int[] FAI_find_similar(
+			final String PI_S_name,
+			final int    PI_I_max_distance) {
+
+		PckgIds O_pckg_ids;
+		int     AAI_rows[][];
+		int     i1;
+
+		AAI_rows = new int[this.I_max_depth + 1][PI_S_name.length() + 1];
+		for (i1 = 0; i1 <= PI_S_name.length(); i1++) {
+			AAI_rows[0][i1] = i1;
+		    }
+		O_pckg_ids = new PckgIds();
+		FV_walk_similar(PI_S_name, PI_I_max_distance, 0, 0, AAI_rows, O_pckg_ids);
+		return O_pckg_ids.FAI_get_sorted();
+	}
+
+	/**
+	 *
+	 * @param PB_AAI_rows row of the node is <tt>PB_AAI_rows[PI_I_depth]</tt>, the deeper rows are overwritten
+	 */
+	protected void FV_walk_similar(
+			final String  PI_S_name,
+			final int     PI_I_max_distance,
+			final int     PI_I_node,
+			final int     PI_I_depth,
+			final int     PB_AAI_rows[][],
+			final PckgIds PB_O_pckg_ids) {
+
+		int AI_row[], AI_row_child[];
+		int i1, I_child, I_min_f0, I_len_f1;
+		char C_label;
+
+		I_len_f1 = PI_S_name.length();
+		AI_row   = PB_AAI_rows[PI_I_depth];
+		if ((AI_row[I_len_f1] <= PI_I_max_distance) && (this.AI_pckg_ids[PI_I_node] >= 0)) {
+		   PB_O_pckg_ids.FV_add(this.AI_pckg_ids[PI_I_node]);
+		   }
+		for (I_child = this.AI_first_child[PI_I_node]; I_child >= 0; I_child = this.AI_next_sibling[I_child]) {
+			C_label      = this.AC_labels[I_child];
+			AI_row_child = PB_AAI_rows[PI_I_depth + 1];
+			AI_row_child[0] = AI_row[0] + 1;
+			I_min_f0 = AI_row_child[0];
+			for (i1 = 1; i1 <= I_len_f1; i1++) {
+				AI_row_child[i1] = Math.min(Math.min(AI_row[i1] + 1, AI_row_child[i1 - 1] + 1),
+						AI_row[i1 - 1] + ((PI_S_name.charAt(i1 - 1) == C_label) ? 0 : 1));
+				I_min_f0 = Math.min(I_min_f0, AI_row_child[i1]);
+			    }
+			if (I_min_f0 <= PI_I_max_distance) {  // otherwise no name below can be close enough
+			   FV_walk_similar(PI_S_name, PI_I_max_distance, I_child, PI_I_depth + 1, PB_AAI_rows, PB_O_pckg_ids);
+			   }
+		    }
+		return;
+	}
+}
@@ -0,0 +1,624 @@
+package com.github.michaelederaut.cygwinparser;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import com.github.michaelederaut.cygwinparser.SetupIniContents.ArchInfo;
+import com.github.michaelederaut.cygwinparser.SetupIniContents.ArchInfo.DlStatus;
+import com.github.michaelederaut.cygwinparser.SetupIniContents.PckgInfo;
+
+/**
+ * Column-wise copy of the packages of a {@link SetupIniContents} or a {@link CatalogSnapshot} for full-catalog scans.<br>
+ * Each package has a dense int id, its position on {@link SetupIniContents#AO_pckg_info} or in the snapshot,
+ * both in the order of <tt>setup.ini</tt>.
+ * Its fields are kept in parallel primitive arrays: names, categories, requires and versions
+ * as ids of the shared {@link SymbolTable}, categories and requires as ranges of one int array each.<br>
+ * The archives are kept in slots, {@link #I_nbr_slots} per package, see {@link #FI_get_slot(int, int, int)},
+ * with their digests in one long array of {@link #I_nbr_hash_longs} longs per slot.
+ * The download status determined by {@link ArchiveChecker} is stored per slot as well.<br>
+ * The packages of each category are kept as {@link PckgIdSet}, combined with sets selected by
+ * download status like {@link #FO_get_pckgs_below(int, DlStatus)} they answer queries such as
+ * <tt>Devel</tt> minus <tt>Base</tt> with a status below <tt>sizeOk</tt>.<br>
+ * A table is a snapshot, see {@link SetupIniContents#FO_get_pckg_table()} for an up to date one.<br>
+ * Built from a {@link CatalogSnapshot} it is the only copy of the packages, no {@link PckgInfo} is created.
+ * Built from a {@link SetupIniContents} it is an index derived from the parsed {@link PckgInfo}s,
+ * which stay the primary representation.
+ */
+public class PckgTable {
+
+	public static final int I_nbr_versions   = 2;  // current and [prev]
+	public static final int I_nbr_purposes   = 2;  // install and source
+	public static final int I_nbr_slots      = I_nbr_versions * I_nbr_purposes;
+	public static final int I_nbr_hash_longs = ArchInfo.I_len_hash_bytes / 8;
+
+	protected static final DlStatus AE_dl_status[] = DlStatus.values();
+
+	public final SymbolTable O_symbols;
+	public final int         I_nbr_pckgs_f1;
+
+	// indexed by package id
+	public final int    AI_name_ids[];
+	public final String AS_sdescs[];
+	public final int    AI_line_nbrs_f1[];
+	public final byte   AY_nbr_versions[];
+	// categories of package i1 are AI_category_ids[AI_category_offsets[i1] .. AI_category_offsets[i1 + 1]), requires alike
+	public final int    AI_category_offsets[], AI_category_ids[];
+	public final int    AI_require_offsets[],  AI_require_ids[];
+
+	// indexed by slot
+	public final int    AI_version_ids[];      // -1 if there is no such archive
+	public final int    AI_sizes[];
+	public final String AS_archive_paths[];    // relative to the mirror root
+	public final long   AL_hashes[];           // I_nbr_hash_longs per slot
+	public final byte   AY_dl_status[];        // ordinal of DlStatus
+	public final String AS_versions_found[];   // version of another archive found instead, see DlStatus.prev
+
+	// package ids of each category, categories sorted by name
+	public NavigableMap<String, PckgIdSet> HO_category_pckgs;  // set once by the constructors
+
+	protected int AI_pckg_ids[];  // indexed by symbol id of the name, -1 if none
+
+	/**
+	 * Lightweight view of one package of the table, it may be moved to another package.
+	 */
+	public class PckgView {
+
+		public int I_pckg_id;
+
+		public PckgView(final int PI_I_pckg_id) {
+			this.I_pckg_id = PI_I_pckg_id;
+		    }
+
+		public String FS_get_name() {
+			return PckgTable.this.O_symbols.FS_get_symbol(PckgTable.this.AI_name_ids[this.I_pckg_id]);
+		    }
+
+		public String FS_get_sdesc() {
+			return PckgTable.this.AS_sdescs[this.I_pckg_id];
+		    }
+
+		public int FI_get_nbr_versions() {
+			return PckgTable.this.AY_nbr_versions[this.I_pckg_id];
+		    }
+
+		public String[] FAS_get_categories() {
+			return FAS_get_symbols(PckgTable.this.AI_category_offsets, PckgTable.this.AI_category_ids, this.I_pckg_id);
+		    }
+
+		public String[] FAS_get_requires() {
+			return FAS_get_symbols(PckgTable.this.AI_require_offsets, PckgTable.this.AI_require_ids, this.I_pckg_id);
+		    }
+
+		/**
+		 *
+		 * @param PI_I_version_idx_f0 0 for the current version, 1 for <tt>[prev]</tt>
+		 * @param PI_I_purpose_f0 0 for install, 1 for source
+		 */
+		public int FI_get_slot(
+				final int PI_I_version_idx_f0,
+				final int PI_I_purpose_f0) {
+			return PckgTable.FI_get_slot(this.I_pckg_id, PI_I_version_idx_f0, PI_I_purpose_f0);
+		    }
+
+		public String FS_get_version(
+				final int PI_I_version_idx_f0,
+				final int PI_I_purpose_f0) {
+			return PckgTable.this.FS_get_version(FI_get_slot(PI_I_version_idx_f0, PI_I_purpose_f0));
+		    }
+
+		public int FI_get_size(
+				final int PI_I_version_idx_f0,
+				final int PI_I_purpose_f0) {
+			return PckgTable.this.AI_sizes[FI_get_slot(PI_I_version_idx_f0, PI_I_purpose_f0)];
+		    }
+
+		public DlStatus FE_get_dl_status(
+				final int PI_I_version_idx_f0,
+				final int PI_I_purpose_f0) {
+			return PckgTable.this.FE_get_dl_status(FI_get_slot(PI_I_version_idx_f0, PI_I_purpose_f0));
+		    }
+	}
+
+	/**
+	 * Allocates the arrays, the download status of all archives is {@link DlStatus#unknown}.
+	 *
+	 * @param PI_I_nbr_categories_f1 number of the categories of all packages
+	 * @param PI_I_nbr_requires_f1 number of the <tt>requires:</tt> entries of all packages
+	 */
+	protected PckgTable(
+			final SymbolTable PI_O_symbols,
+			final int         PI_I_nbr_pckgs_f1,
+			final int         PI_I_nbr_categories_f1,
+			final int         PI_I_nbr_requires_f1) {
+
+		this.O_symbols      = PI_O_symbols;
+		this.I_nbr_pckgs_f1 = PI_I_nbr_pckgs_f1;
+
+		this.AI_name_ids         = new int[PI_I_nbr_pckgs_f1];
+		this.AS_sdescs           = new String[PI_I_nbr_pckgs_f1];
+		this.AI_line_nbrs_f1     = new int[PI_I_nbr_pckgs_f1];
+		this.AY_nbr_versions     = new byte[PI_I_nbr_pckgs_f1];
+		this.AI_category_offsets = new int[PI_I_nbr_pckgs_f1 + 1];
+		this.AI_require_offsets  = new int[PI_I_nbr_pckgs_f1 + 1];
+		this.AI_category_ids     = new int[PI_I_nbr_categories_f1];
+		this.AI_require_ids      = new int[PI_I_nbr_requires_f1];
+
+		this.AI_version_ids    = new int[I_nbr_slots * PI_I_nbr_pckgs_f1];
+		this.AI_sizes          = new int[I_nbr_slots * PI_I_nbr_pckgs_f1];
+		this.AS_archive_paths  = new String[I_nbr_slots * PI_I_nbr_pckgs_f1];
+		this.AL_hashes         = new long[I_nbr_hash_longs * I_nbr_slots * PI_I_nbr_pckgs_f1];
+		this.AY_dl_status      = new byte[I_nbr_slots * PI_I_nbr_pckgs_f1];
+		this.AS_versions_found = new String[I_nbr_slots * PI_I_nbr_pckgs_f1];
+		Arrays.fill(this.AI_version_ids, -1);
+
+		this.AI_pckg_ids = new int[Math.max(16, PI_O_symbols.FI_size())];
+		Arrays.fill(this.AI_pckg_ids, -1);
+	}
+
+	/**
+	 * Copies the packages of <tt>PI_O_setup_ini_contents</tt>.
+	 *
+	 * @param PI_O_setup_ini_contents parsed packages, their names, categories, requires and versions
+	 * are interned in {@link SetupIniContents#O_symbols} if not done yet
+	 * @param PI_O_pckg_table_prev former table of the same contents, may be null.<br>
+	 * The download status of an archive is taken over if path, version, size and digest are unchanged.
+	 */
+	public PckgTable(
+			final SetupIniContents PI_O_setup_ini_contents,
+			final PckgTable        PI_O_pckg_table_prev) {
+
+		this(PI_O_setup_ini_contents.O_symbols,
+			 PI_O_setup_ini_contents.AO_pckg_info.size(),
+			 FI_get_nbr_categories(PI_O_setup_ini_contents),
+			 FI_get_nbr_requires(PI_O_setup_ini_contents));
+
+		PckgInfo    O_pckg_info;
+		ArchInfo    O_archinfo;
+		int i1, i2, i3, I_nbr_categories_f1, I_nbr_requires_f1, I_nbr_versions_f1,
+		    I_slot_f0, I_name_id;
+
+		I_nbr_categories_f1 = 0;
+		I_nbr_requires_f1   = 0;
+		for (i1 = 0; i1 < this.I_nbr_pckgs_f1; i1++) {
+			O_pckg_info = PI_O_setup_ini_contents.AO_pckg_info.get(i1);
+			this.AI_category_offsets[i1] = I_nbr_categories_f1;
+			this.AI_require_offsets[i1]  = I_nbr_requires_f1;
+			I_nbr_categories_f1 += O_pckg_info.AS_categories.length;
+			I_nbr_requires_f1   += O_pckg_info.AS_requires.length;
+		    }
+		this.AI_category_offsets[this.I_nbr_pckgs_f1] = I_nbr_categories_f1;
+		this.AI_require_offsets[this.I_nbr_pckgs_f1]  = I_nbr_requires_f1;
+
+		for (i1 = 0; i1 < this.I_nbr_pckgs_f1; i1++) {
+			O_pckg_info = PI_O_setup_ini_contents.AO_pckg_info.get(i1);
+			I_name_id = FI_intern(O_pckg_info.S_name);
+			this.AI_name_ids[i1] = I_name_id;
+			FV_set_pckg_id(I_name_id, i1);
+			this.AS_sdescs[i1]       = O_pckg_info.S_sdesc;
+			this.AI_line_nbrs_f1[i1] = PI_O_setup_ini_contents.HS_package_names.get(O_pckg_info.S_name).I_line_nbr_f1;
+			for (i2 = 0; i2 < O_pckg_info.AS_categories.length; i2++) {
+				this.AI_category_ids[this.AI_category_offsets[i1] + i2] = FI_intern(O_pckg_info.AS_categories[i2]);
+			    }
+			for (i2 = 0; i2 < O_pckg_info.AS_requires.length; i2++) {
+				this.AI_require_ids[this.AI_require_offsets[i1] + i2] = FI_intern(O_pckg_info.AS_requires[i2]);
+			    }
+			I_nbr_versions_f1 = Math.min(I_nbr_versions, O_pckg_info.AAO_archinfos[0].length);
+			this.AY_nbr_versions[i1] = (byte)I_nbr_versions_f1;
+			for (i2 = 0; i2 < I_nbr_versions_f1; i2++) {
+				for (i3 = 0; i3 < I_nbr_purposes; i3++) {
+					O_archinfo = (i2 < O_pckg_info.AAO_archinfos[i3].length) ? O_pckg_info.AAO_archinfos[i3][i2] : null;
+					if (O_archinfo == null) {
+					   continue;
+					   }
+					I_slot_f0 = FI_get_slot(i1, i2, i3);
+					FV_set_archive(I_slot_f0, O_archinfo);
+					if (PI_O_pckg_table_prev != null) {
+					   FV_take_over_dl_status(PI_O_pckg_table_prev, I_slot_f0, I_name_id, i2, i3);
+					   }
+				    }
+			    }
+		    }
+		this.HO_category_pckgs = Collections.unmodifiableNavigableMap(FHO_get_category_pckgs());
+	}
+
+	/**
+	 * Fills the table straight from the mapping of a snapshot, no {@link PckgInfo} or {@link ArchInfo} is created.<br>
+	 * Each string of the snapshot is decoded once, only names, categories, requires and versions
+	 * are interned in <tt>PB_O_symbols</tt>. The download status of all archives is {@link DlStatus#unknown}.
+	 *
+	 * @param PI_O_snapshot snapshot, see {@link CatalogSnapshot#FO_open(java.io.File, java.io.File)}
+	 * @param PB_O_symbols table the ids refer to
+	 */
+	public PckgTable(
+			final CatalogSnapshot PI_O_snapshot,
+			final SymbolTable     PB_O_symbols) {
+
+		this(PB_O_symbols,
+			 PI_O_snapshot.FI_get_nbr_pckgs(),
+			 FI_get_nbr_categories(PI_O_snapshot),
+			 FI_get_nbr_requires(PI_O_snapshot));
+
+		String AS_strings[];
+		int    AI_symbol_ids[];
+		int i1, i2, i3, i4, I_nbr_strings_f1, I_nbr_categories_f1, I_nbr_requires_f1, I_nbr_versions_f1,
+		    I_slot_f0, I_version_id, I_name_id;
+
+		I_nbr_strings_f1 = PI_O_snapshot.FI_get_nbr_strings();
+		AS_strings    = new String[I_nbr_strings_f1];
+		AI_symbol_ids = new int[I_nbr_strings_f1];
+		for (i1 = 0; i1 < I_nbr_strings_f1; i1++) {
+			AS_strings[i1] = PI_O_snapshot.FS_get_string(i1);
+		    }
+		Arrays.fill(AI_symbol_ids, -1);  // interned on first use
+
+		I_nbr_categories_f1 = 0;
+		I_nbr_requires_f1   = 0;
+		for (i1 = 0; i1 < this.I_nbr_pckgs_f1; i1++) {
+			I_name_id = FI_intern(AS_strings, AI_symbol_ids, PI_O_snapshot.FI_get_name_id(i1));
+			this.AI_name_ids[i1] = I_name_id;
+			FV_set_pckg_id(I_name_id, i1);
+			this.AS_sdescs[i1]       = AS_strings[PI_O_snapshot.FI_get_sdesc_id(i1)];
+			this.AI_line_nbrs_f1[i1] = PI_O_snapshot.FI_get_line_nbr_f1(i1);
+			this.AI_category_offsets[i1] = I_nbr_categories_f1;
+			for (i2 = 0; i2 < PI_O_snapshot.FI_get_nbr_categories(i1); i2++) {
+				this.AI_category_ids[I_nbr_categories_f1++] = FI_intern(AS_strings, AI_symbol_ids, PI_O_snapshot.FI_get_category_id(i1, i2));
+			    }
+			this.AI_require_offsets[i1] = I_nbr_requires_f1;
+			for (i2 = 0; i2 < PI_O_snapshot.FI_get_nbr_requires(i1); i2++) {
+				this.AI_require_ids[I_nbr_requires_f1++] = FI_intern(AS_strings, AI_symbol_ids, PI_O_snapshot.FI_get_require_id(i1, i2));
+			    }
+			I_nbr_versions_f1 = Math.min(I_nbr_versions, PI_O_snapshot.FI_get_nbr_versions(i1));
+			this.AY_nbr_versions[i1] = (byte)I_nbr_versions_f1;
+			for (i2 = 0; i2 < I_nbr_versions_f1; i2++) {
+				for (i3 = 0; i3 < I_nbr_purposes; i3++) {
+					I_version_id = PI_O_snapshot.FI_get_version_id(i1, i2, i3);
+					if (I_version_id < 0) {
+					   continue;
+					   }
+					I_slot_f0 = FI_get_slot(i1, i2, i3);
+					this.AI_version_ids[I_slot_f0]   = FI_intern(AS_strings, AI_symbol_ids, I_version_id);
+					this.AI_sizes[I_slot_f0]         = PI_O_snapshot.FI_get_size(i1, i2, i3);
+					this.AS_archive_paths[I_slot_f0] = FS_get_string(AS_strings, PI_O_snapshot.FI_get_path_id(i1, i2, i3));
+					for (i4 = 0; i4 < I_nbr_hash_longs; i4++) {
+						this.AL_hashes[I_nbr_hash_longs * I_slot_f0 + i4] = PI_O_snapshot.FL_get_hash(i1, i2, i3, i4);
+					    }
+				    }
+			    }
+		    }
+		this.AI_category_offsets[this.I_nbr_pckgs_f1] = I_nbr_categories_f1;
+		this.AI_require_offsets[this.I_nbr_pckgs_f1]  = I_nbr_requires_f1;
+		this.HO_category_pckgs = Collections.unmodifiableNavigableMap(FHO_get_category_pckgs());
+	}
+
+	protected static int FI_get_nbr_categories(final SetupIniContents PI_O_setup_ini_contents) {
+		int I_retval_nbr_f1;
+
+		I_retval_nbr_f1 = 0;
+		for (PckgInfo O_pckg_info: PI_O_setup_ini_contents.AO_pckg_info) {
+			I_retval_nbr_f1 += O_pckg_info.AS_categories.length;
+		    }
+		return I_retval_nbr_f1;
+	}
+
+	protected static int FI_get_nbr_requires(final SetupIniContents PI_O_setup_ini_contents) {
+		int I_retval_nbr_f1;
+
+		I_retval_nbr_f1 = 0;
+		for (PckgInfo O_pckg_info: PI_O_setup_ini_contents.AO_pckg_info) {
+			I_retval_nbr_f1 += O_pckg_info.AS_requires.length;
+		    }
+		return I_retval_nbr_f1;
+	}
+
+	protected static int FI_get_nbr_categories(final CatalogSnapshot PI_O_snapshot) {
+		int I_retval_nbr_f1, i1;
+
+		I_retval_nbr_f1 = 0;
+		for (i1 = 0; i1 < PI_O_snapshot.FI_get_nbr_pckgs(); i1++) {
+			I_retval_nbr_f1 += PI_O_snapshot.FI_get_nbr_categories(i1);
+		    }
+		return I_retval_nbr_f1;
+	}
+
+	protected static int FI_get_nbr_requires(final CatalogSnapshot PI_O_snapshot) {
+		int I_retval_nbr_f1, i1;
+
+		I_retval_nbr_f1 = 0;
+		for (i1 = 0; i1 < PI_O_snapshot.FI_get_nbr_pckgs(); i1++) {
+			I_retval_nbr_f1 += PI_O_snapshot.FI_get_nbr_requires(i1);
+		    }
+		return I_retval_nbr_f1;
+	}
+
+	/**
+	 *
+	 * @param PI_AS_strings strings of a snapshot indexed by their id there
+	 * @param PB_AI_symbol_ids symbol ids of these strings, -1 if not interned yet
+	 * @return symbol id of the string
+	 */
+	protected int FI_intern(
+			final String PI_AS_strings[],
+			final int    PB_AI_symbol_ids[],
+			final int    PI_I_string_id) {
+
+		int I_retval_id;
+
+		I_retval_id = PB_AI_symbol_ids[PI_I_string_id];
+		if (I_retval_id < 0) {
+		   I_retval_id = FI_intern(PI_AS_strings[PI_I_string_id]);
+		   PB_AI_symbol_ids[PI_I_string_id] = I_retval_id;
+		   }
+		return I_retval_id;
+	}
+
+	/**
+	 *
+	 * @return the string of the id, null for id -1
+	 */
+	protected static String FS_get_string(
+			final String PI_AS_strings[],
+			final int    PI_I_string_id) {
+		return (PI_I_string_id < 0) ? null : PI_AS_strings[PI_I_string_id];
+	}
+
+	/**
+	 * The packages are visited in ascending order, so each category's ids arrive ascending.
+	 */
+	protected TreeMap<String, PckgIdSet> FHO_get_category_pckgs() {
+
+		TreeMap<String, PckgIdSet> HO_retval_category_pckgs;
+		PckgIdSet.Builder AO_builders[];
+		int i1, i2, I_category_id;
+
+		AO_builders = new PckgIdSet.Builder[this.O_symbols.FI_size()];
+		for (i1 = 0; i1 < this.I_nbr_pckgs_f1; i1++) {
+			for (i2 = this.AI_category_offsets[i1]; i2 < this.AI_category_offsets[i1 + 1]; i2++) {
+				I_category_id = this.AI_category_ids[i2];
+				if (AO_builders[I_category_id] == null) {
+				   AO_builders[I_category_id] = new PckgIdSet.Builder();
+				   }
+				else if (AO_builders[I_category_id].I_last_id == i1) {
+				   continue;  // category listed twice
+				   }
+				AO_builders[I_category_id].FV_add(i1);
+			    }
+		    }
+		HO_retval_category_pckgs = new TreeMap<String, PckgIdSet>();
+		for (i1 = 0; i1 < AO_builders.length; i1++) {
+			if (AO_builders[i1] != null) {
+			   HO_retval_category_pckgs.put(this.O_symbols.FS_get_symbol(i1), AO_builders[i1].FO_build());
+			   }
+		    }
+		return HO_retval_category_pckgs;
+	}
+
+	/**
+	 *
+	 * @return the packages of the category, an empty set for an unknown category
+	 */
+	public PckgIdSet FO_get_category(final String PI_S_category) {
+
+		PckgIdSet O_retval_pckgs;
+
+		O_retval_pckgs = this.HO_category_pckgs.get(PI_S_category);
+		if (O_retval_pckgs == null) {
+		   O_retval_pckgs = PckgIdSet.O_empty;
+		   }
+		return O_retval_pckgs;
+	}
+
+	/**
+	 *
+	 * @param PI_I_version_idx_f0 0 for the current version, 1 for <tt>[prev]</tt>
+	 * @param PI_E_dl_status_min lowest status not selected
+	 * @return the packages having an archive of this version with a download status below <tt>PI_E_dl_status_min</tt>,
+	 * either the one for install or for source
+	 */
+	public PckgIdSet FO_get_pckgs_below(
+			final int      PI_I_version_idx_f0,
+			final DlStatus PI_E_dl_status_min) {
+
+		PckgIdSet.Builder O_builder;
+		int i1, i2, I_slot_f0;
+
+		O_builder = new PckgIdSet.Builder();
+		LOOP_PCKGS: for (i1 = 0; i1 < this.I_nbr_pckgs_f1; i1++) {
+			for (i2 = 0; i2 < I_nbr_purposes; i2++) {
+				I_slot_f0 = FI_get_slot(i1, PI_I_version_idx_f0, i2);
+				if ((this.AI_version_ids[I_slot_f0] >= 0) && (this.AY_dl_status[I_slot_f0] < PI_E_dl_status_min.ordinal())) {
+				   O_builder.FV_add(i1);
+				   continue LOOP_PCKGS;
+				   }
+			    }
+		    }
+		return O_builder.FO_build();
+	}
+
+	protected int FI_intern(final String PI_S_symbol) {
+		int I_retval_id;
+
+		I_retval_id = this.O_symbols.FI_intern(PI_S_symbol, 0, PI_S_symbol.length());
+		return I_retval_id;
+	}
+
+	protected void FV_set_pckg_id(
+			final int PI_I_name_id,
+			final int PI_I_pckg_id) {
+
+		int I_size_old_f1;
+
+		if (PI_I_name_id >= this.AI_pckg_ids.length) {
+		   I_size_old_f1 = this.AI_pckg_ids.length;
+		   this.AI_pckg_ids = Arrays.copyOf(this.AI_pckg_ids, Math.max(2 * I_size_old_f1, PI_I_name_id + 1));
+		   Arrays.fill(this.AI_pckg_ids, I_size_old_f1, this.AI_pckg_ids.length, -1);
+		   }
+		this.AI_pckg_ids[PI_I_name_id] = PI_I_pckg_id;
+		return;
+	}
+
+	protected void FV_set_archive(
+			final int      PI_I_slot_f0,
+			final ArchInfo PI_O_archinfo) {
+
+		int I_hash_f0;
+
+		this.AI_version_ids[PI_I_slot_f0]   = FI_intern(PI_O_archinfo.S_version);
+		this.AI_sizes[PI_I_slot_f0]         = PI_O_archinfo.I_size;
+		this.AS_archive_paths[PI_I_slot_f0] = PI_O_archinfo.S_pnr_archive;
+		I_hash_f0 = I_nbr_hash_longs * PI_I_slot_f0;
+		this.AL_hashes[I_hash_f0]     = PI_O_archinfo.L_hash_0;
+		this.AL_hashes[I_hash_f0 + 1] = PI_O_archinfo.L_hash_1;
+		this.AL_hashes[I_hash_f0 + 2] = PI_O_archinfo.L_hash_2;
+		this.AL_hashes[I_hash_f0 + 3] = PI_O_archinfo.L_hash_3;
+		this.AL_hashes[I_hash_f0 + 4] = PI_O_archinfo.L_hash_4;
+		this.AL_hashes[I_hash_f0 + 5] = PI_O_archinfo.L_hash_5;
+		this.AL_hashes[I_hash_f0 + 6] = PI_O_archinfo.L_hash_6;
+		this.AL_hashes[I_hash_f0 + 7] = PI_O_archinfo.L_hash_7;
+		this.AY_dl_status[PI_I_slot_f0] = (byte)PI_O_archinfo.E_dl_status.ordinal();
+		return;
+	}
+
+	protected void FV_take_over_dl_status(
+			final PckgTable PI_O_pckg_table_prev,
+			final int       PI_I_slot_f0,
+			final int       PI_I_name_id,
+			final int       PI_I_version_idx_f0,
+			final int       PI_I_purpose_f0) {
+
+		int i1, I_pckg_id_prev, I_slot_prev_f0;
+
+		if (PI_O_pckg_table_prev.O_symbols != this.O_symbols) {
+		   return;  // ids not comparable
+		   }
+		I_pckg_id_prev = PI_O_pckg_table_prev.FI_get_pckg_id(PI_I_name_id);
+		if ((I_pckg_id_prev < 0) || (PI_I_version_idx_f0 >= PI_O_pckg_table_prev.AY_nbr_versions[I_pckg_id_prev])) {
+		   return;
+		   }
+		I_slot_prev_f0 = FI_get_slot(I_pckg_id_prev, PI_I_version_idx_f0, PI_I_purpose_f0);
+		if ((PI_O_pckg_table_prev.AI_version_ids[I_slot_prev_f0] != this.AI_version_ids[PI_I_slot_f0]) ||
+		    (PI_O_pckg_table_prev.AI_sizes[I_slot_prev_f0] != this.AI_sizes[PI_I_slot_f0]) ||
+		    !Objects.equals(PI_O_pckg_table_prev.AS_archive_paths[I_slot_prev_f0], this.AS_archive_paths[PI_I_slot_f0])) {
+		   return;
+		   }
+		for (i1 = 0; i1 < I_nbr_hash_longs; i1++) {
+			if (PI_O_pckg_table_prev.AL_hashes[I_nbr_hash_longs * I_slot_prev_f0 + i1] !=
+				this.AL_hashes[I_nbr_hash_longs * PI_I_slot_f0 + i1]) {
+			   return;
+			   }
+		    }
+		this.AY_dl_status[PI_I_slot_f0]      = PI_O_pckg_table_prev.AY_dl_status[I_slot_prev_f0];
+		this.AS_versions_found[PI_I_slot_f0] = PI_O_pckg_table_prev.AS_versions_found[I_slot_prev_f0];
+		return;
+	}
+
+	/**
+	 *
+	 * @param PI_I_pckg_id package id
+	 * @param PI_I_version_idx_f0 0 for the current version, 1 for <tt>[prev]</tt>
+	 * @param PI_I_purpose_f0 0 for install, 1 for source
+	 * @return index of the archive in the slot arrays
+	 */
+	public static int FI_get_slot(
+			final int PI_I_pckg_id,
+			final int PI_I_version_idx_f0,
+			final int PI_I_purpose_f0) {
+
+		int I_retval_slot_f0;
+
+		I_retval_slot_f0 = I_nbr_slots * PI_I_pckg_id + I_nbr_purposes * PI_I_version_idx_f0 + PI_I_purpose_f0;
+		return I_retval_slot_f0;
+	}
+
+	/**
+	 *
+	 * @param PI_I_name_id symbol id of the package name
+	 * @return package id, -1 if there is no package of this name
+	 */
+	public int FI_get_pckg_id(final int PI_I_name_id) {
+		int I_retval_pckg_id;
+
+		if ((PI_I_name_id < 0) || (PI_I_name_id >= this.AI_pckg_ids.length)) {
+		   return -1;
+		   }
+		I_retval_pckg_id = this.AI_pckg_ids[PI_I_name_id];
+		return I_retval_pckg_id;
+	}
+
+	/**
+	 *
+	 * @return package id, -1 if there is no package of this name
+	 */
+	public int FI_get_pckg_id(final String PI_S_pckg_name) {
+		int I_retval_pckg_id;
+
+		I_retval_pckg_id = FI_get_pckg_id(this.O_symbols.FI_get_id(PI_S_pckg_name));
+		return I_retval_pckg_id;
+	}
+
+	public String FS_get_name(final int PI_I_pckg_id) {
+		return this.O_symbols.FS_get_symbol(this.AI_name_ids[PI_I_pckg_id]);
+	}
+
+	protected String[] FAS_get_symbols(
+			final int PI_AI_offsets[],
+			final int PI_AI_ids[],
+			final int PI_I_pckg_id) {
+
+		String AS_retval[];
+		int i1, I_start_f0;
+
+		I_start_f0 = PI_AI_offsets[PI_I_pckg_id];
+		AS_retval  = new String[PI_AI_offsets[PI_I_pckg_id + 1] - I_start_f0];
+		for (i1 = 0; i1 < AS_retval.length; i1++) {
+			AS_retval[i1] = this.O_symbols.FS_get_symbol(PI_AI_ids[I_start_f0 + i1]);
+		    }
+		return AS_retval;
+	}
+
+	/**
+	 *
+	 * @return the version of the archive in the slot, null if there is none
+	 */
+	public String FS_get_version(final int PI_I_slot_f0) {
+		String S_retval_version;
+		int I_version_id;
+
+		I_version_id = this.AI_version_ids[PI_I_slot_f0];
+		S_retval_version = (I_version_id < 0) ? null : this.O_symbols.FS_get_symbol(I_version_id);
+		return S_retval_version;
+	}
+
+	public DlStatus FE_get_dl_status(final int PI_I_slot_f0) {
+		return AE_dl_status[this.AY_dl_status[PI_I_slot_f0]];
+	}
+
+	public void FV_set_dl_status(
+			final int      PI_I_slot_f0,
+			final DlStatus PI_E_dl_status) {
+		this.AY_dl_status[PI_I_slot_f0] = (byte)PI_E_dl_status.ordinal();
+	}
+
+	/**
+	 *
+	 * @param PI_AY_digest computed digest, see {@link ArchInfo#FB_hash_equals(byte[], int)}
+	 * @return true if the digest equals the one of the archive in the slot
+	 */
+	public boolean FB_hash_equals(
+			final int  PI_I_slot_f0,
+			final byte PI_AY_digest[],
+			final int  PI_I_start_f0) {
+
+		int i1, I_hash_f0;
+
+		I_hash_f0 = I_nbr_hash_longs * PI_I_slot_f0;
+		for (i1 = 0; i1 < I_nbr_hash_longs; i1++) {
+			if (this.AL_hashes[I_hash_f0 + i1] != ArchInfo.FL_get_long(PI_AY_digest, PI_I_start_f0 + 8 * i1)) {
+			   return false;
+			   }
+		    }
+		return true;
+	}
+}
@@ -0,0 +1,438 @@
+package com.github.michaelederaut.cygwinparser;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.function.IntFunction;
+
+/**
+ * Inverted index of the words of the short and long descriptions of the packages of a {@link PckgTable}.<br>
+ * The short descriptions are taken from the table, the long ones from the parse result or from the
+ * {@link CatalogSnapshot} the table was built from.<br>
+ * Words are maximal runs of letters and digits, compared in lower case.
+ * The posting list of a word is <tt>AI_posting_pckg_ids[AI_posting_offsets[i1] .. AI_posting_offsets[i1 + 1])</tt>,
+ * ascending package ids, with the number of occurrences alongside. Occurrences in the short description count
+ * {@link #I_sdesc_weight} times.<br>
+ * Queries are ranked by BM25. All words of an AND query must occur, the posting lists are intersected
+ * starting with the shortest one; an OR query adds up the scores of the packages having any of the words.
+ * The index is immutable, queries may run concurrently.
+ */
+public class PckgTextIndex {
+
+	public static final int       I_sdesc_weight = 3;
+	protected static final double D_k1 = 1.2;
+	protected static final double D_b  = 0.75;
+
+	public final PckgTable O_pckg_table;
+
+	protected final HashMap<String, Integer> HS_term_ids;
+	protected final int    AI_posting_offsets[], AI_posting_pckg_ids[], AI_posting_freqs[];
+	protected final double AD_idfs[];       // indexed by word id
+	protected final int    AI_doc_lens[];   // weighted number of words, indexed by package id
+	protected final double D_avg_doc_len;
+
+	/**
+	 * Packages found by a query, best first.
+	 */
+	public static class Hits {
+		public final int    AI_pckg_ids[];
+		public final double AD_scores[];
+
+		public Hits(
+				final int    PI_AI_pckg_ids[],
+				final double PI_AD_scores[]) {
+			this.AI_pckg_ids = PI_AI_pckg_ids;
+			this.AD_scores   = PI_AD_scores;
+		    }
+	}
+
+	/**
+	 *
+	 * @param PI_O_setup_ini_contents contents the table was built from, the long descriptions are decoded
+	 * from it one by one and not kept
+	 */
+	public PckgTextIndex(
+			final SetupIniContents PI_O_setup_ini_contents,
+			final PckgTable        PI_O_pckg_table) {
+		this(PI_O_pckg_table, (int PI_I_pckg_id) -> PI_O_setup_ini_contents.AO_pckg_info.get(PI_I_pckg_id).FS_get_ldesc());
+	}
+
+	/**
+	 *
+	 * @param PI_O_snapshot snapshot the table was built from, not closed yet,
+	 * see {@link PckgTable#PckgTable(CatalogSnapshot, SymbolTable)}
+	 */
+	public PckgTextIndex(
+			final CatalogSnapshot PI_O_snapshot,
+			final PckgTable       PI_O_pckg_table) {
+		this(PI_O_pckg_table, PI_O_snapshot::FS_get_ldesc);
+	}
+
+	/**
+	 *
+	 * @param PI_O_ldescs long description by package id, called once per package
+	 */
+	public PckgTextIndex(
+			final PckgTable           PI_O_pckg_table,
+			final IntFunction<String> PI_O_ldescs) {
+
+		int  AI_terms[], AI_entry_terms[], AI_entry_pckg_ids[], AI_entry_freqs[], AI_next_f0[];
+		long L_total_len;
+		int i1, i2, I_nbr_pckgs_f1, I_nbr_terms_f1, I_nbr_entries_f1, I_freq, I_doc_len;
+
+		I_nbr_pckgs_f1    = PI_O_pckg_table.I_nbr_pckgs_f1;
+		this.O_pckg_table = PI_O_pckg_table;
+		this.HS_term_ids  = new HashMap<String, Integer>();
+		this.AI_doc_lens  = new int[I_nbr_pckgs_f1];
+		AI_terms          = new int[64];
+		AI_entry_terms    = new int[4 * I_nbr_pckgs_f1 + 16];
+		AI_entry_pckg_ids = new int[AI_entry_terms.length];
+		AI_entry_freqs    = new int[AI_entry_terms.length];
+		I_nbr_entries_f1  = 0;
+		L_total_len       = 0;
+
+		// one entry per package and distinct word, in package order
+		for (i1 = 0; i1 < I_nbr_pckgs_f1; i1++) {
+			AI_terms  = FAI_add_terms(PI_O_pckg_table.AS_sdescs[i1], AI_terms, 0, I_sdesc_weight, true);
+			AI_terms  = FAI_add_terms(PI_O_ldescs.apply(i1), AI_terms, AI_terms[0], 1, true);
+			I_doc_len = AI_terms[0];
+			Arrays.sort(AI_terms, 1, I_doc_len + 1);
+			for (i2 = 1; i2 <= I_doc_len; i2 += I_freq) {
+				I_freq = 1;
+				while ((i2 + I_freq <= I_doc_len) && (AI_terms[i2 + I_freq] == AI_terms[i2])) {
+					I_freq++;
+				    }
+				if (I_nbr_entries_f1 == AI_entry_terms.length) {
+				   AI_entry_terms    = Arrays.copyOf(AI_entry_terms, 2 * I_nbr_entries_f1);
+				   AI_entry_pckg_ids = Arrays.copyOf(AI_entry_pckg_ids, 2 * I_nbr_entries_f1);
+				   AI_entry_freqs    = Arrays.copyOf(AI_entry_freqs, 2 * I_nbr_entries_f1);
+				   }
+				AI_entry_terms[I_nbr_entries_f1]    = AI_terms[i2];
+				AI_entry_pckg_ids[I_nbr_entries_f1] = i1;
+				AI_entry_freqs[I_nbr_entries_f1]    = I_freq;
+				I_nbr_entries_f1++;
+			    }
+			this.AI_doc_lens[i1] = I_doc_len;
+			L_total_len += I_doc_len;
+		    }
+		this.D_avg_doc_len = (I_nbr_pckgs_f1 == 0) ? 1.0 : Math.max(1.0, (double)L_total_len / I_nbr_pckgs_f1);
+
+		// counting sort by word, package ids stay ascending within a word
+		I_nbr_terms_f1 = this.HS_term_ids.size();
+		this.AI_posting_offsets  = new int[I_nbr_terms_f1 + 1];
+		this.AI_posting_pckg_ids = new int[I_nbr_entries_f1];
+		this.AI_posting_freqs    = new int[I_nbr_entries_f1];
+		for (i1 = 0; i1 < I_nbr_entries_f1; i1++) {
+			this.AI_posting_offsets[AI_entry_terms[i1] + 1]++;
+		    }
+		for (i1 = 0; i1 < I_nbr_terms_f1; i1++) {
+			this.AI_posting_offsets[i1 + 1] += this.AI_posting_offsets[i1];
+		    }
+		AI_next_f0 = Arrays.copyOf(this.AI_posting_offsets, I_nbr_terms_f1);
+		for (i1 = 0; i1 < I_nbr_entries_f1; i1++) {
+			i2 = AI_next_f0[AI_entry_terms[i1]]++;
+			this.AI_posting_pckg_ids[i2] = AI_entry_pckg_ids[i1];
+			this.AI_posting_freqs[i2]    = AI_entry_freqs[i1];
+		    }
+		this.AD_idfs = new double[I_nbr_terms_f1];
+		for (i1 = 0; i1 < I_nbr_terms_f1; i1++) {
+			I_freq = this.AI_posting_offsets[i1 + 1] - this.AI_posting_offsets[i1];
+			this.AD_idfs[i1] = Math.log(1.0 + (I_nbr_pckgs_f1 - I_freq + 0.5) / (I_freq + 0.5));
+		    }
+	}
+
+	/**
+	 * Splits a text into words and appends their ids to a list.
+	 *
+	 * @param PB_AI_terms list of word ids starting at element 1, element 0 receives their number
+	 * @param PI_I_nbr_terms_f1 number of word ids in the list already
+	 * @param PI_I_weight number of times each word is appended
+	 * @param PI_B_add true to assign ids to new words, else unknown words are appended as -1
+	 * @return the list, enlarged if necessary
+	 */
+	protected int[] FAI_add_terms(
+			final String  PI_S_text,
+			final int     PB_AI_terms[],
+			final int     PI_I_nbr_terms_f1,
+			final int     PI_I_weight,
+			final boolean PI_B_add) {
+
+		Integer I_term_id;
+		String  S_term;
+		int     AI_retval_terms[];
+		int     i1, i2, I_start_f0, I_nbr_terms_f1;
+
+		AI_retval_terms = PB_AI_terms;
+		I_nbr_terms_f1  = PI_I_nbr_terms_f1;
+		i1 = 0;
+		LOOP_WORDS: while (PI_S_text != null) {
+			while ((i1 < PI_S_text.length()) && !Character.isLetterOrDigit(PI_S_text.charAt(i1))) {
+				i1++;
+			    }
+			I_start_f0 = i1;
+			while ((i1 < PI_S_text.length()) && Character.isLetterOrDigit(PI_S_text.charAt(i1))) {
+				i1++;
+			    }
+			if (i1 == I_start_f0) {
+			   break LOOP_WORDS;
+			   }
+			S_term    = PI_S_text.substring(I_start_f0, i1).toLowerCase();
+			I_term_id = this.HS_term_ids.get(S_term);
+			if (I_term_id == null) {
+			   if (PI_B_add) {
+				  I_term_id = this.HS_term_ids.size();
+				  this.HS_term_ids.put(S_term, I_term_id);
+			      }
+			   else {
+				  I_term_id = -1;
+			      }
+			   }
+			for (i2 = 0; i2 < PI_I_weight; i2++) {
+				if (I_nbr_terms_f1 + 1 >= AI_retval_terms.length) {
+				   AI_retval_terms = Arrays.copyOf(AI_retval_terms, 2 * AI_retval_terms.length);
+				   }
+				AI_retval_terms[++I_nbr_terms_f1] = I_term_id;
+			    }
+		    }
+		AI_retval_terms[0] = I_nbr_terms_f1;
+		return AI_retval_terms;
+	}
+
+	/**
+	 *
+	 * @return number of packages whose descriptions contain the word
+	 */
+	public int FI_get_doc_freq(final String PI_S_term) {
+
+		Integer I_term_id;
+
+		I_term_id = this.HS_term_ids.get(PI_S_term.toLowerCase());
+		if (I_term_id == null) {
+		   return 0;
+		   }
+		return this.AI_posting_offsets[I_term_id + 1] - this.AI_posting_offsets[I_term_id];
+	}
+
+	protected double FD_get_score(
+			final int PI_I_term_id,
+			final int PI_I_posting_f0) {
+
+		double D_freq, D_norm;
+		int    I_pckg_id;
+
+		I_pckg_id = this.AI_posting_pckg_ids[PI_I_posting_f0];
+		D_freq    = this.AI_posting_freqs[PI_I_posting_f0];
+		D_norm    = D_k1 * (1.0 - D_b + D_b * this.AI_doc_lens[I_pckg_id] / this.D_avg_doc_len);
+		return this.AD_idfs[PI_I_term_id] * D_freq * (D_k1 + 1.0) / (D_freq + D_norm);
+	}
+
+	/**
+	 *
+	 * @param PI_S_query words separated by anything but letters and digits
+	 * @param PI_B_all true if all words must occur, false if any of them
+	 * @param PI_I_max_hits greatest number of packages returned
+	 * @return the packages found, highest score first, equal scores by package id
+	 */
+	public Hits FO_search(
+			final String  PI_S_query,
+			final boolean PI_B_all,
+			final int     PI_I_max_hits) {
+
+		int    AI_terms[], AI_pckg_ids[];
+		double AD_scores[];
+		int    i1, I_nbr_terms_f1, I_nbr_hits_f1;
+
+		AI_terms = FAI_add_terms(PI_S_query, new int[16], 0, 1, false);
+		I_nbr_terms_f1 = AI_terms[0];
+		Arrays.sort(AI_terms, 1, I_nbr_terms_f1 + 1);
+		// distinct words, unknown ones (-1) sort first
+		I_nbr_hits_f1 = 0;
+		for (i1 = 1; i1 <= I_nbr_terms_f1; i1++) {
+			if ((i1 == 1) || (AI_terms[i1] != AI_terms[i1 - 1])) {
+			   AI_terms[I_nbr_hits_f1++] = AI_terms[i1];
+			   }
+		    }
+		AI_terms = Arrays.copyOf(AI_terms, I_nbr_hits_f1);
+		if ((AI_terms.length == 0) || (PI_B_all && (AI_terms[0] < 0))) {
+		   return new Hits(new int[0], new double[0]);
+		   }
+		if (AI_terms[0] < 0) {
+		   AI_terms = Arrays.copyOfRange(AI_terms, 1, AI_terms.length);
+		   }
+
+		AI_pckg_ids = new int[this.O_pckg_table.I_nbr_pckgs_f1];
+		AD_scores   = new double[this.O_pckg_table.I_nbr_pckgs_f1];
+		if (PI_B_all) {
+		   I_nbr_hits_f1 = FI_intersect(AI_terms, AI_pckg_ids, AD_scores);
+		   }
+		else {
+		   I_nbr_hits_f1 = FI_unite(AI_terms, AI_pckg_ids, AD_scores);
+		   }
+		return FO_get_best(AI_pckg_ids, AD_scores, I_nbr_hits_f1, PI_I_max_hits);
+	}
+
+	/**
+	 * Walks the shortest posting list and looks its packages up in the others by binary search,
+	 * starting behind the last position found.
+	 *
+	 * @return number of packages having all words, stored in <tt>PO_AI_pckg_ids</tt> and <tt>PO_AD_scores</tt>
+	 */
+	protected int FI_intersect(
+			final int    PI_AI_term_ids[],
+			final int    PO_AI_pckg_ids[],
+			final double PO_AD_scores[]) {
+
+		int    AI_positions_f0[];
+		double D_score;
+		int    i1, i2, I_shortest, I_len_f1, I_pckg_id, I_pos_f0, I_nbr_hits_f1, I_term_id;
+
+		I_shortest = 0;
+		for (i1 = 1; i1 < PI_AI_term_ids.length; i1++) {
+			I_len_f1 = this.AI_posting_offsets[PI_AI_term_ids[i1] + 1] - this.AI_posting_offsets[PI_AI_term_ids[i1]];
+			if (I_len_f1 < this.AI_posting_offsets[PI_AI_term_ids[I_shortest] + 1] - this.AI_posting_offsets[PI_AI_term_ids[I_shortest]]) {
+			   I_shortest = i1;
+			   }
+		    }
+		AI_positions_f0 = new int[PI_AI_term_ids.length];
+		for (i1 = 0; i1 < PI_AI_term_ids.length; i1++) {
+			AI_positions_f0[i1] = this.AI_posting_offsets[PI_AI_term_ids[i1]];
+		    }
+		I_nbr_hits_f1 = 0;
+		I_term_id = PI_AI_term_ids[I_shortest];
+		LOOP_POSTINGS: for (i1 = this.AI_posting_offsets[I_term_id]; i1 < this.AI_posting_offsets[I_term_id + 1]; i1++) {
+			I_pckg_id = this.AI_posting_pckg_ids[i1];
+			D_score   = FD_get_score(I_term_id, i1);
+			for (i2 = 0; i2 < PI_AI_term_ids.length; i2++) {
+				if (i2 == I_shortest) {
+				   continue;
+				   }
+				I_pos_f0 = Arrays.binarySearch(this.AI_posting_pckg_ids, AI_positions_f0[i2],
+						this.AI_posting_offsets[PI_AI_term_ids[i2] + 1], I_pckg_id);
+				if (I_pos_f0 < 0) {
+				   AI_positions_f0[i2] = -I_pos_f0 - 1;
+				   continue LOOP_POSTINGS;
+				   }
+				AI_positions_f0[i2] = I_pos_f0 + 1;
+				D_score += FD_get_score(PI_AI_term_ids[i2], I_pos_f0);
+			    }
+			PO_AI_pckg_ids[I_nbr_hits_f1] = I_pckg_id;
+			PO_AD_scores[I_nbr_hits_f1]   = D_score;
+			I_nbr_hits_f1++;
+		    }
+		return I_nbr_hits_f1;
+	}
+
+	/**
+	 *
+	 * @return number of packages having any of the words, stored in <tt>PO_AI_pckg_ids</tt> and <tt>PO_AD_scores</tt>
+	 */
+	protected int FI_unite(
+			final int    PI_AI_term_ids[],
+			final int    PO_AI_pckg_ids[],
+			final double PO_AD_scores[]) {
+
+		double AD_scores[];
+		int    i1, i2, I_pckg_id, I_nbr_hits_f1;
+
+		AD_scores = new double[this.O_pckg_table.I_nbr_pckgs_f1];  // indexed by package id
+		I_nbr_hits_f1 = 0;
+		for (i1 = 0; i1 < PI_AI_term_ids.length; i1++) {
+			for (i2 = this.AI_posting_offsets[PI_AI_term_ids[i1]]; i2 < this.AI_posting_offsets[PI_AI_term_ids[i1] + 1]; i2++) {
+				I_pckg_id = this.AI_posting_pckg_ids[i2];
+				if (AD_scores[I_pckg_id] == 0.0) {
+				   PO_AI_pckg_ids[I_nbr_hits_f1++] = I_pckg_id;
+				   }
+				AD_scores[I_pckg_id] += FD_get_score(PI_AI_term_ids[i1], i2);
+			    }
+		    }
+		for (i1 = 0; i1 < I_nbr_hits_f1; i1++) {
+			PO_AD_scores[i1] = AD_scores[PO_AI_pckg_ids[i1]];
+		    }
+		return I_nbr_hits_f1;
+	}
+
+	/**
+	 * True if hit 1 ranks before hit 2.
+	 */
+	protected static boolean FB_is_better(
+			final int    PI_AI_pckg_ids[],
+			final double PI_AD_scores[],
+			final int    PI_I_hit_1,
+			final int    PI_I_hit_2) {
+
+		if (PI_AD_scores[PI_I_hit_1] != PI_AD_scores[PI_I_hit_2]) {
+		   return (PI_AD_scores[PI_I_hit_1] > PI_AD_scores[PI_I_hit_2]);
+		   }
+		return (PI_AI_pckg_ids[PI_I_hit_1] < PI_AI_pckg_ids[PI_I_hit_2]);
+	}
+
+	/**
+	 * Moves the hit at <tt>PI_I_pos_f0</tt> of the heap down, the worst hit is at the top.
+	 */
+	protected static void FV_sift_down(
+			final int    PB_AI_heap[],
+			final int    PI_I_heap_size_f1,
+			final int    PI_I_pos_f0,
+			final int    PI_AI_pckg_ids[],
+			final double PI_AD_scores[]) {
+
+		int I_pos_f0, I_child_f0, I_hit;
+
+		I_pos_f0 = PI_I_pos_f0;
+		I_hit    = PB_AI_heap[I_pos_f0];
+		while ((I_child_f0 = 2 * I_pos_f0 + 1) < PI_I_heap_size_f1) {
+			if ((I_child_f0 + 1 < PI_I_heap_size_f1) &&
+			    FB_is_better(PI_AI_pckg_ids, PI_AD_scores, PB_AI_heap[I_child_f0], PB_AI_heap[I_child_f0 + 1])) {
+			   I_child_f0++;
+			   }
+			if (!FB_is_better(PI_AI_pckg_ids, PI_AD_scores, I_hit, PB_AI_heap[I_child_f0])) {
+			   break;
+			   }
+			PB_AI_heap[I_pos_f0] = PB_AI_heap[I_child_f0];
+			I_pos_f0 = I_child_f0;
+		    }
+		PB_AI_heap[I_pos_f0] = I_hit;
+		return;
+	}
+
+	/**
+	 * Keeps the best <tt>PI_I_max_hits</tt> hits in a heap, then takes them out worst first.
+	 */
+	protected static Hits FO_get_best(
+			final int    PI_AI_pckg_ids[],
+			final double PI_AD_scores[],
+			final int    PI_I_nbr_hits_f1,
+			final int    PI_I_max_hits) {
+
+		int    AI_heap[], AI_pckg_ids[];
+		double AD_scores[];
+		int    i1, i2, I_heap_size_f1, I_max_hits;
+
+		I_max_hits = Math.min(PI_I_nbr_hits_f1, Math.max(0, PI_I_max_hits));
+		AI_heap = new int[I_max_hits];
+		I_heap_size_f1 = 0;
+		for (i1 = 0; i1 < PI_I_nbr_hits_f1; i1++) {
+			if (I_heap_size_f1 < I_max_hits) {
+			   AI_heap[I_heap_size_f1++] = i1;
+			   if (I_heap_size_f1 == I_max_hits) {
+				  for (i2 = I_heap_size_f1 / 2 - 1; i2 >= 0; i2--) {
+					  FV_sift_down(AI_heap, I_heap_size_f1, i2, PI_AI_pckg_ids, PI_AD_scores);
+				      }
+			      }
+			   }
+			else if ((I_max_hits > 0) && FB_is_better(PI_AI_pckg_ids, PI_AD_scores, i1, AI_heap[0])) {
+			   AI_heap[0] = i1;
+			   FV_sift_down(AI_heap, I_heap_size_f1, 0, PI_AI_pckg_ids, PI_AD_scores);
+			   }
+		    }
+		AI_pckg_ids = new int[I_heap_size_f1];
+		AD_scores   = new double[I_heap_size_f1];
+		while (I_heap_size_f1 > 0) {
+			I_heap_size_f1--;
+			AI_pckg_ids[I_heap_size_f1] = PI_AI_pckg_ids[AI_heap[0]];
+			AD_scores[I_heap_size_f1]   = PI_AD_scores[AI_heap[0]];
+			AI_heap[0] = AI_heap[I_heap_size_f1];
+			FV_sift_down(AI_heap, I_heap_size_f1, 0, PI_AI_pckg_ids, PI_AD_scores);
+		    }
+		return new Hits(AI_pckg_ids, AD_scores);
+	}
+}
@@ -0,0 +1,317 @@
+package com.github.michaelederaut.cygwinparser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import com.github.michaelederaut.cygwinparser.ArchiveChecker.ArchPurpose;
+
+/**
+ * Versions of the archives found in the folders of the packages of one site, each folder is listed once.<br>
+ * The basenames are parsed by {@link ArchiveName#FO_parse(String)}, the archives of each package are kept
+ * newest first according to {@link #FI_compare_versions(String, String)}, so the newest older version of an
+ * archive of a package is a map lookup, see {@link #FS_get_newest_version(String, String, String, ArchPurpose)}.
+ * Files are taken from a {@link MirrorIndex} if given, otherwise from the file system,
+ * down to {@link #I_max_depth_f1} levels below the folder.<br>
+ * An index is a snapshot, it may be used by several threads.
+ */
+public class PckgVersionIndex {
+
+	public static final int I_max_depth_f1 = 3;  // the folder and two levels of sub folders
+
+	protected static final List<String> AS_compressions = Arrays.asList(ArchiveChecker.S_archive_suffixes.split("\\|"));
+	protected static final String S_ext_tar = ".tar.";
+	protected static final String S_ext_src = "-src";
+
+	/**
+	 * Basename of an archive, <tt>name-version-release[-src].tar.compression</tt>.
+	 */
+	public static class ArchiveName {
+
+		public final String      S_bn;
+		public final String      S_pckg_name;
+		public final String      S_version;      // version and release, as in setup.ini
+		public final ArchPurpose E_purpose;
+		public final String      S_compression;  // one of ArchiveChecker.S_archive_suffixes
+
+		protected ArchiveName(
+				final String      PI_S_bn,
+				final String      PI_S_pckg_name,
+				final String      PI_S_version,
+				final ArchPurpose PI_E_purpose,
+				final String      PI_S_compression) {
+			this.S_bn          = PI_S_bn;
+			this.S_pckg_name   = PI_S_pckg_name;
+			this.S_version     = PI_S_version;
+			this.E_purpose     = PI_E_purpose;
+			this.S_compression = PI_S_compression;
+		    }
+
+		/**
+		 * Splits the basename from its end: compression, <tt>-src</tt>, release and version,
+		 * the rest is the name of the package, which may contain <tt>'-'</tt> itself.
+		 *
+		 * @return the parts, null if the basename is not one of an archive
+		 */
+		public static ArchiveName FO_parse(final String PI_S_bn) {
+
+			ArchPurpose E_purpose;
+			String S_compression, S_stem;
+			int I_pos_tar_f0, I_pos_release_f0, I_pos_version_f0;
+
+			I_pos_tar_f0 = PI_S_bn.lastIndexOf(S_ext_tar);
+			if (I_pos_tar_f0 <= 0) {
+			   return null;
+			   }
+			S_compression = PI_S_bn.substring(I_pos_tar_f0 + S_ext_tar.length());
+			if (!AS_compressions.contains(S_compression)) {
+			   return null;
+			   }
+			S_stem = PI_S_bn.substring(0, I_pos_tar_f0);
+			if (S_stem.endsWith(S_ext_src)) {
+			   E_purpose = ArchPurpose.source;
+			   S_stem = S_stem.substring(0, S_stem.length() - S_ext_src.length());
+			   }
+			else {
+			   E_purpose = ArchPurpose.install;
+			   }
+			I_pos_release_f0 = S_stem.lastIndexOf('-');
+			if (I_pos_release_f0 <= 0) {
+			   return null;
+			   }
+			I_pos_version_f0 = S_stem.lastIndexOf('-', I_pos_release_f0 - 1);
+			if ((I_pos_version_f0 <= 0) || (I_pos_version_f0 == (I_pos_release_f0 - 1)) ||
+				(I_pos_release_f0 == (S_stem.length() - 1))) {
+			   return null;
+			   }
+			return new ArchiveName(
+					PI_S_bn,
+					S_stem.substring(0, I_pos_version_f0),
+					S_stem.substring(I_pos_version_f0 + 1),
+					E_purpose,
+					S_compression);
+		}
+	}
+
+	public final String      S_dnr_site;
+	public final Path        FP_dna_site;
+	public final MirrorIndex O_mirror_index;  // null to list the folders on the file system
+
+	// by pathname of the folder relative to the site, then by name of the package
+	protected final ConcurrentHashMap<String, Map<String, ArchiveName[]>> HO_dirs;
+
+	/**
+	 *
+	 * @param PI_O_mirror_index index of the site to take the files from, null to list them on the file system
+	 */
+	public PckgVersionIndex(
+			final String      PI_S_dnr_site,
+			final Path        PI_FP_dna_site,
+			final MirrorIndex PI_O_mirror_index) {
+		this.S_dnr_site     = PI_S_dnr_site;
+		this.FP_dna_site    = PI_FP_dna_site;
+		this.O_mirror_index = PI_O_mirror_index;
+		this.HO_dirs        = new ConcurrentHashMap<String, Map<String, ArchiveName[]>>();
+	    }
+
+	/**
+	 * Compares the numeric and alphabetic segments of two strings one by one, separators are skipped.
+	 * Numbers are compared by value, a number is newer than letters, more segments are newer.
+	 */
+	protected static int FI_compare_segments(
+			final String PI_S_1,
+			final String PI_S_2) {
+
+		int I_pos_1_f0, I_pos_2_f0, I_end_1_f0, I_end_2_f0, I_retval_cmp;
+		boolean B_numeric;
+
+		I_pos_1_f0 = 0;
+		I_pos_2_f0 = 0;
+		while (true) {
+			while ((I_pos_1_f0 < PI_S_1.length()) && !Character.isLetterOrDigit(PI_S_1.charAt(I_pos_1_f0))) {
+				I_pos_1_f0++;
+			    }
+			while ((I_pos_2_f0 < PI_S_2.length()) && !Character.isLetterOrDigit(PI_S_2.charAt(I_pos_2_f0))) {
+				I_pos_2_f0++;
+			    }
+			if ((I_pos_1_f0 == PI_S_1.length()) || (I_pos_2_f0 == PI_S_2.length())) {
+			   break;
+			   }
+			B_numeric = Character.isDigit(PI_S_1.charAt(I_pos_1_f0));
+			if (B_numeric != Character.isDigit(PI_S_2.charAt(I_pos_2_f0))) {
+			   return B_numeric ? 1 : -1;
+			   }
+			I_end_1_f0 = I_pos_1_f0;
+			while ((I_end_1_f0 < PI_S_1.length()) && (B_numeric ?
+					Character.isDigit(PI_S_1.charAt(I_end_1_f0)) : Character.isLetter(PI_S_1.charAt(I_end_1_f0)))) {
+				I_end_1_f0++;
+			    }
+			I_end_2_f0 = I_pos_2_f0;
+			while ((I_end_2_f0 < PI_S_2.length()) && (B_numeric ?
+					Character.isDigit(PI_S_2.charAt(I_end_2_f0)) : Character.isLetter(PI_S_2.charAt(I_end_2_f0)))) {
+				I_end_2_f0++;
+			    }
+			if (B_numeric) {
+			   while ((I_pos_1_f0 < (I_end_1_f0 - 1)) && (PI_S_1.charAt(I_pos_1_f0) == '0')) {
+				   I_pos_1_f0++;
+			       }
+			   while ((I_pos_2_f0 < (I_end_2_f0 - 1)) && (PI_S_2.charAt(I_pos_2_f0) == '0')) {
+				   I_pos_2_f0++;
+			       }
+			   I_retval_cmp = Integer.compare(I_end_1_f0 - I_pos_1_f0, I_end_2_f0 - I_pos_2_f0);
+			   if (I_retval_cmp != 0) {
+				  return I_retval_cmp;
+			      }
+			   }
+			I_retval_cmp = PI_S_1.substring(I_pos_1_f0, I_end_1_f0).compareTo(PI_S_2.substring(I_pos_2_f0, I_end_2_f0));
+			if (I_retval_cmp != 0) {
+			   return Integer.signum(I_retval_cmp);
+			   }
+			I_pos_1_f0 = I_end_1_f0;
+			I_pos_2_f0 = I_end_2_f0;
+		    }
+		I_retval_cmp = Boolean.compare(I_pos_1_f0 < PI_S_1.length(), I_pos_2_f0 < PI_S_2.length());
+		return I_retval_cmp;
+	}
+
+	/**
+	 * Compares two versions <tt>version-release</tt>, first the versions, then the releases.
+	 *
+	 * @return &gt; 0 if <tt>PI_S_version_1</tt> is newer, 0 if equivalent, &lt; 0 if older
+	 */
+	public static int FI_compare_versions(
+			final String PI_S_version_1,
+			final String PI_S_version_2) {
+
+		int I_pos_release_1_f0, I_pos_release_2_f0, I_retval_cmp;
+
+		I_pos_release_1_f0 = PI_S_version_1.lastIndexOf('-');
+		I_pos_release_2_f0 = PI_S_version_2.lastIndexOf('-');
+		if ((I_pos_release_1_f0 < 0) || (I_pos_release_2_f0 < 0)) {
+		   return FI_compare_segments(PI_S_version_1, PI_S_version_2);
+		   }
+		I_retval_cmp = FI_compare_segments(
+				PI_S_version_1.substring(0, I_pos_release_1_f0),
+				PI_S_version_2.substring(0, I_pos_release_2_f0));
+		if (I_retval_cmp == 0) {
+		   I_retval_cmp = FI_compare_segments(
+				   PI_S_version_1.substring(I_pos_release_1_f0 + 1),
+				   PI_S_version_2.substring(I_pos_release_2_f0 + 1));
+		   }
+		return I_retval_cmp;
+	}
+
+	protected List<String> FAS_list_bns(final String PI_S_pnr_dir) {
+
+		RuntimeException E_rt;
+		List<String>     AS_retval_bns;
+		Path             FP_dna_dir;
+		String           S_msg_1;
+
+		AS_retval_bns = new ArrayList<String>();
+		if ((this.O_mirror_index != null) && this.O_mirror_index.FB_is_complete(PI_S_pnr_dir)) {
+		   if (this.O_mirror_index.FB_is_dir(PI_S_pnr_dir)) {
+			  for (int I_file_id: this.O_mirror_index.FAI_find_below(PI_S_pnr_dir, I_max_depth_f1)) {
+				  AS_retval_bns.add(this.O_mirror_index.FS_get_bn(I_file_id));
+			      }
+		      }
+		   return AS_retval_bns;
+		   }
+		FP_dna_dir = this.FP_dna_site.resolve(PI_S_pnr_dir);
+		if (!Files.isDirectory(FP_dna_dir)) {
+		   return AS_retval_bns;
+		   }
+		try (Stream<Path> AP_files = Files.find(FP_dna_dir, I_max_depth_f1,
+				(Path PI_FP_pna, BasicFileAttributes PI_O_attrs) -> PI_O_attrs.isRegularFile())) {
+			AP_files.forEach((Path PI_FP_pna) -> AS_retval_bns.add(PI_FP_pna.getFileName().toString()));
+		} catch (IOException PI_E_io) {
+			S_msg_1 = "Unable to find archives under \"" + FP_dna_dir + "\"";
+			E_rt = new RuntimeException(S_msg_1, PI_E_io);
+			throw E_rt;
+		    }
+		return AS_retval_bns;
+	}
+
+	protected Map<String, ArchiveName[]> FHO_index_dir(final String PI_S_pnr_dir) {
+
+		HashMap<String, List<ArchiveName>> HO_archives;
+		HashMap<String, ArchiveName[]>     HO_retval_archives;
+		List<ArchiveName>                  AO_archives;
+		ArchiveName                        O_archive_name, AO_sorted[];
+
+		HO_archives = new HashMap<String, List<ArchiveName>>();
+		for (String S_bn: FAS_list_bns(PI_S_pnr_dir)) {
+			O_archive_name = ArchiveName.FO_parse(S_bn);
+			if (O_archive_name == null) {
+			   continue;
+			   }
+			AO_archives = HO_archives.computeIfAbsent(O_archive_name.S_pckg_name, (String PI_S_pckg_name) -> new ArrayList<ArchiveName>());
+			AO_archives.add(O_archive_name);
+		    }
+		HO_retval_archives = new HashMap<String, ArchiveName[]>(2 * HO_archives.size());
+		for (Map.Entry<String, List<ArchiveName>> O_entry: HO_archives.entrySet()) {
+			AO_sorted = O_entry.getValue().toArray(new ArchiveName[0]);
+			Arrays.sort(AO_sorted, (ArchiveName PI_O_name_1, ArchiveName PI_O_name_2) ->
+					FI_compare_versions(PI_O_name_2.S_version, PI_O_name_1.S_version));  // newest first
+			HO_retval_archives.put(O_entry.getKey(), AO_sorted);
+		    }
+		return HO_retval_archives;
+	}
+
+	/**
+	 * The folder is listed outside of the map, a listing holding the lock of its bin would block
+	 * the lookups of other folders. Threads asking for the same folder at once may list it twice,
+	 * the first listing stored is kept.
+	 *
+	 * @param PI_S_pnr_dir folder relative to the site, separated by <tt>'/'</tt>, listed when first asked for
+	 * @return archives of the package in the folder, newest first
+	 */
+	public List<ArchiveName> FAO_get_archives(
+			final String PI_S_pnr_dir,
+			final String PI_S_pckg_name) {
+
+		Map<String, ArchiveName[]> HO_archives, HO_archives_prev;
+		ArchiveName                AO_archives[];
+
+		HO_archives = this.HO_dirs.get(PI_S_pnr_dir);
+		if (HO_archives == null) {
+		   HO_archives = FHO_index_dir(PI_S_pnr_dir);
+		   HO_archives_prev = this.HO_dirs.putIfAbsent(PI_S_pnr_dir, HO_archives);
+		   if (HO_archives_prev != null) {
+			  HO_archives = HO_archives_prev;
+		      }
+		   }
+		AO_archives = HO_archives.get(PI_S_pckg_name);
+		return (AO_archives == null) ? Collections.<ArchiveName>emptyList() : Collections.unmodifiableList(Arrays.asList(AO_archives));
+	}
+
+	/**
+	 * The version requested itself, e.g. in another compression, and newer versions are skipped.
+	 *
+	 * @param PI_S_version version of the archive requested
+	 * @return newest version of the archives of the package and purpose in the folder older than 
+	 * <tt>PI_S_version</tt>, null if there is none
+	 */
+	public String FS_get_newest_version(
+			final String      PI_S_pnr_dir,
+			final String      PI_S_pckg_name,
+			final String      PI_S_version,
+			final ArchPurpose PI_E_purpose) {
+
+		for (ArchiveName O_archive_name: FAO_get_archives(PI_S_pnr_dir, PI_S_pckg_name)) {
+			if ((O_archive_name.E_purpose == PI_E_purpose) && (FI_compare_versions(O_archive_name.S_version, PI_S_version) < 0)) {
+			   return O_archive_name.S_version;
+			   }
+		    }
+		return null;
+	}
+}
@@ -0,0 +1,20 @@
+package com.github.michaelederaut.cygwinparser;
+
+import com.github.michaelederaut.cygwinparser.SetupIniContents.PckgInfo;
+
+/**
+ * Receiver of the packages of <tt>setup.ini</tt>, see {@link IniFileParser#FV_parse(IniLineReader, PckgVisitor)}.<br>
+ * It is called once per package as soon as its stanza is complete, in file order.
+ */
+@FunctionalInterface
+public interface PckgVisitor {
+
+	/**
+	 *
+	 * @param PI_O_pckg_info package just parsed, the parser keeps no reference to it
+	 * @param PI_I_line_nbr_f1 line number of the package header <tt>"@ "</tt>
+	 */
+	public void FV_visit(
+			final PckgInfo PI_O_pckg_info,
+			final int      PI_I_line_nbr_f1);
+}
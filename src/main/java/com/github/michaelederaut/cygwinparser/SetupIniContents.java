@@ -1,12 +1,13 @@
 package com.github.michaelederaut.cygwinparser;
 
-import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Stack;
 import java.util.TreeMap;
-import java.util.TreeSet;
 // import java.util.concurrent.ConcurrentSkipListMap;
 
 import org.apache.commons.lang3.StringUtils;
@@ -20,15 +21,20 @@ public class SetupIniContents {
 	
 	public static class ArchInfo {
 		
-		public enum DlStatus {unknown, notFound, prev, exists, isFile, sizeOk, hashOk};
+		// hashMismatch: expected size, but a digest other than the one of setup.ini, see ArchiveVerifier
+		public enum DlStatus {unknown, notFound, prev, exists, isFile, hashMismatch, sizeOk, hashOk};
 		
 		public static final int I_dl_status_prev = DlStatus.prev.ordinal();
 		
+		public static final int I_len_hash_bytes = 64;   // SHA-512
+		public static final int I_len_hash_hex   = 2 * I_len_hash_bytes;
+		
 		public int        I_size;
-		public BigInteger O_hash_val;
+		// SHA-512 digest, big-endian, L_hash_0 holds the first 8 bytes
+		public long       L_hash_0, L_hash_1, L_hash_2, L_hash_3, L_hash_4, L_hash_5, L_hash_6, L_hash_7;
 	    public DlStatus   E_dl_status = DlStatus.unknown;
 	    public String     S_version;
-	    public String     S_pnr_archive;   // TODO
+	    public String     S_pnr_archive;   // relative to the mirror root, as in setup.ini
 	
 	public ArchInfo (
 			final String PI_S_version,
@@ -37,55 +43,87 @@ public class SetupIniContents {
 		
 		IllegalArgumentException E_ill_arg;
 		RuntimeException E_rt;
-		BigInteger O_hash_val;
 		String S_msg_1, S_msg_2;
 		
-		O_hash_val = null;
 		S_msg_1 = null;
-		try {
-			if (StringUtils.isBlank(PI_S_hash_val)) {
-			   S_msg_1 = "Archive-hash-string \'" + PI_S_size + "\' must not be null or blank";
-			   E_ill_arg = new IllegalArgumentException(S_msg_1);
-			   throw E_ill_arg;
-			   }
-			else {
-				try {
-			       O_hash_val = new BigInteger(PI_S_hash_val, 16);
-				} catch (NumberFormatException PI_E_nf) {
-					S_msg_1 = "Unable to convert hash-value String \"" + PI_S_hash_val + "\" to BigInteger";
-					E_ill_arg     = new IllegalArgumentException(S_msg_1, PI_E_nf);
-					throw E_ill_arg;
-				    }	
-			     }
-		} catch (IllegalArgumentException PI_E_ill_arg) {
-			 S_msg_2 = "Instantiation of object of type: \'" + ArchInfo.class.getName() + "\' failed.";
-		     E_rt = new RuntimeException(S_msg_2, PI_E_ill_arg);
-		     throw E_rt;
-			 }  
-		FV_ctor(this, PI_S_version, PI_S_size, O_hash_val);
+		if (StringUtils.isBlank(PI_S_hash_val)) {
+		   S_msg_1 = "Archive-hash-string \'" + PI_S_hash_val + "\' must not be null or blank";
+		   }
+		else if (!FB_is_hash_hex(PI_S_hash_val, 0, PI_S_hash_val.length())) {
+		   S_msg_1 = "Unable to convert hash-value String \"" + PI_S_hash_val + "\" to " + I_len_hash_bytes + " bytes";
+		   }
+		if (S_msg_1 != null) {
+		   E_ill_arg = new IllegalArgumentException(S_msg_1);
+		   S_msg_2 = "Instantiation of object of type: \'" + ArchInfo.class.getName() + "\' failed.";
+		   E_rt = new RuntimeException(S_msg_2, E_ill_arg);
+		   throw E_rt;
+		   }  
+		FV_ctor(this, PI_S_version, PI_S_size);
+		FV_set_hash(PI_S_hash_val, 0);
 		}
-
+	
+	/**
+	 * Allocation-free variant for the parser.
+	 * 
+	 * @param PI_S_line line containing the hash, already validated by {@link SetupIniLexer}
+	 * @param PI_I_hash_start_f0 position of the first of the {@link #I_len_hash_hex} hex digits
+	 */
 	public ArchInfo (
-			final String PI_S_version,
-			final String PI_S_size,
-			final BigInteger PI_O_hash_val) {
+			final String       PI_S_version,
+			final int          PI_I_size,
+			final CharSequence PI_S_line,
+			final int          PI_I_hash_start_f0) {
 		
-		FV_ctor(this, PI_S_version, PI_S_size, PI_O_hash_val);	
+		FV_ctor(this, PI_S_version, PI_I_size);
+		FV_set_hash(PI_S_line, PI_I_hash_start_f0);
 	}
 	
+	/**
+	 * 
+	 * @param PI_O_hash_src archive info the hash is copied from
+	 */
 	public ArchInfo (
-			final String PI_S_version,
-			final int PI_I_size,
-			final BigInteger PI_O_hash_val) {
+			final String   PI_S_version,
+			final int      PI_I_size,
+			final ArchInfo PI_O_hash_src) {
+		
+		FV_ctor(this, PI_S_version, PI_I_size);
+		this.L_hash_0 = PI_O_hash_src.L_hash_0;
+		this.L_hash_1 = PI_O_hash_src.L_hash_1;
+		this.L_hash_2 = PI_O_hash_src.L_hash_2;
+		this.L_hash_3 = PI_O_hash_src.L_hash_3;
+		this.L_hash_4 = PI_O_hash_src.L_hash_4;
+		this.L_hash_5 = PI_O_hash_src.L_hash_5;
+		this.L_hash_6 = PI_O_hash_src.L_hash_6;
+		this.L_hash_7 = PI_O_hash_src.L_hash_7;
+	}
+	
+	/**
+	 * 
+	 * @param PI_O_buffer buffer containing the digest as 8 big-endian longs, e.g. a {@link CatalogSnapshot}
+	 * @param PI_I_hash_start_f0 position of the first of the {@link #I_len_hash_bytes} bytes of the digest
+	 */
+	public ArchInfo (
+			final String     PI_S_version,
+			final int        PI_I_size,
+			final ByteBuffer PI_O_buffer,
+			final int        PI_I_hash_start_f0) {
 		
-		FV_ctor(this, PI_S_version, PI_I_size, PI_O_hash_val);	
+		FV_ctor(this, PI_S_version, PI_I_size);
+		this.L_hash_0 = PI_O_buffer.getLong(PI_I_hash_start_f0);
+		this.L_hash_1 = PI_O_buffer.getLong(PI_I_hash_start_f0 + 8);
+		this.L_hash_2 = PI_O_buffer.getLong(PI_I_hash_start_f0 + 16);
+		this.L_hash_3 = PI_O_buffer.getLong(PI_I_hash_start_f0 + 24);
+		this.L_hash_4 = PI_O_buffer.getLong(PI_I_hash_start_f0 + 32);
+		this.L_hash_5 = PI_O_buffer.getLong(PI_I_hash_start_f0 + 40);
+		this.L_hash_6 = PI_O_buffer.getLong(PI_I_hash_start_f0 + 48);
+		this.L_hash_7 = PI_O_buffer.getLong(PI_I_hash_start_f0 + 56);
 	}
 	
 	protected static void FV_ctor (
 				ArchInfo PO_O_archinfo,
 				final String PI_S_version,
-				final int PI_I_size,
-			    final BigInteger PI_O_hash_val) {
+				final int PI_I_size) {
 		
 		IllegalArgumentException E_ill_arg;
 		RuntimeException E_rt;
@@ -101,7 +139,6 @@ public class SetupIniContents {
 	  	
 		PO_O_archinfo.S_version = PI_S_version;
 		PO_O_archinfo.I_size = PI_I_size;
-		PO_O_archinfo.O_hash_val = PI_O_hash_val;
 		
 		return;
 	}
@@ -109,8 +146,7 @@ public class SetupIniContents {
 	protected static void FV_ctor (
 				ArchInfo PO_O_archinfo,
 				final String S_version,
-				final String PI_S_size,
-			    final BigInteger PI_O_hash_val) {
+				final String PI_S_size) {
 		
 		IllegalArgumentException E_ill_arg;
 		RuntimeException E_rt;
@@ -135,18 +171,131 @@ public class SetupIniContents {
 		   S_msg_2 = "Instantiation of object of type: \'" + ArchInfo.class.getName() + "\' failed.";
 		   E_rt = new RuntimeException(S_msg_2 , E_ill_arg);
 		   throw E_rt;
-		   }	
-		
-         FV_ctor(PO_O_archinfo, S_version, I_size, PI_O_hash_val);  
-//		try {
-//	       PO_O_archinfo.O_hash_val = new BigInteger(PI_S_hash_val, 16);
-//		} catch (NumberFormatException PI_E_nf) {
-//			S_msg_1 = "Unable to convert hash-value String \"" + PI_S_hash_val + "\" to BigInteger";
-//			E_rt    = new RuntimeException(S_msg_1, PI_E_nf);
-//			throw E_rt;
-//		    }		
+		   }
+         FV_ctor(PO_O_archinfo, S_version, I_size);  
 	return;	
 	     }
+	
+	/**
+	 * 
+	 * @return true if <tt>[PI_I_start_f0, PI_I_end_f0)</tt> consists of exactly {@link #I_len_hash_hex} hex digits
+	 */
+	public static boolean FB_is_hash_hex(
+			final CharSequence PI_S_chars,
+			final int          PI_I_start_f0,
+			final int          PI_I_end_f0) {
+		
+		int i1;
+		
+		if ((PI_I_end_f0 - PI_I_start_f0) != I_len_hash_hex) {
+		   return false;
+		   }
+		for (i1 = PI_I_start_f0; i1 < PI_I_end_f0; i1++) {
+			if (FI_hex_value(PI_S_chars.charAt(i1)) < 0) {
+			   return false;
+			   }
+		    }
+		return true;
+	}
+	
+	protected static int FI_hex_value(final char PI_C_char) {
+		int I_retval;
+		
+		if ((PI_C_char >= '0') && (PI_C_char <= '9')) {
+		   I_retval = PI_C_char - '0';
+		   }
+		else if ((PI_C_char >= 'a') && (PI_C_char <= 'f')) {
+		   I_retval = PI_C_char - 'a' + 10;
+		   }
+		else if ((PI_C_char >= 'A') && (PI_C_char <= 'F')) {
+		   I_retval = PI_C_char - 'A' + 10;
+		   }
+		else {
+		   I_retval = -1;
+		   }
+		return I_retval;
+	}
+	
+	/**
+	 * 
+	 * @return the 16 hex digits starting at <tt>PI_I_start_f0</tt> as long
+	 */
+	protected static long FL_decode_hex(
+			final CharSequence PI_S_chars,
+			final int          PI_I_start_f0) {
+		
+		long L_retval;
+		int i1;
+		
+		L_retval = 0L;
+		for (i1 = PI_I_start_f0; i1 < (PI_I_start_f0 + 16); i1++) {
+			L_retval = (L_retval << 4) | FI_hex_value(PI_S_chars.charAt(i1));
+		    }
+		return L_retval;
+	}
+	
+	protected static long FL_get_long(
+			final byte PI_AY_bytes[],
+			final int  PI_I_start_f0) {
+		
+		long L_retval;
+		int i1;
+		
+		L_retval = 0L;
+		for (i1 = PI_I_start_f0; i1 < (PI_I_start_f0 + 8); i1++) {
+			L_retval = (L_retval << 8) | (PI_AY_bytes[i1] & 0xFFL);
+		    }
+		return L_retval;
+	}
+	
+	public void FV_set_hash(
+			final CharSequence PI_S_chars,
+			final int          PI_I_start_f0) {
+		
+		this.L_hash_0 = FL_decode_hex(PI_S_chars, PI_I_start_f0);
+		this.L_hash_1 = FL_decode_hex(PI_S_chars, PI_I_start_f0 + 16);
+		this.L_hash_2 = FL_decode_hex(PI_S_chars, PI_I_start_f0 + 32);
+		this.L_hash_3 = FL_decode_hex(PI_S_chars, PI_I_start_f0 + 48);
+		this.L_hash_4 = FL_decode_hex(PI_S_chars, PI_I_start_f0 + 64);
+		this.L_hash_5 = FL_decode_hex(PI_S_chars, PI_I_start_f0 + 80);
+		this.L_hash_6 = FL_decode_hex(PI_S_chars, PI_I_start_f0 + 96);
+		this.L_hash_7 = FL_decode_hex(PI_S_chars, PI_I_start_f0 + 112);
+	}
+	
+	/**
+	 * 
+	 * @param PI_AY_digest computed digest, e.g. by {@link java.security.MessageDigest#digest(byte[], int, int)}
+	 * @param PI_I_start_f0 position of the first of the {@link #I_len_hash_bytes} bytes of the digest
+	 * @return true if the digest equals the one of this archive
+	 */
+	public boolean FB_hash_equals(
+			final byte PI_AY_digest[],
+			final int  PI_I_start_f0) {
+		
+		boolean B_retval;
+		
+		B_retval = (FL_get_long(PI_AY_digest, PI_I_start_f0)      == this.L_hash_0) &&
+				   (FL_get_long(PI_AY_digest, PI_I_start_f0 + 8)  == this.L_hash_1) &&
+				   (FL_get_long(PI_AY_digest, PI_I_start_f0 + 16) == this.L_hash_2) &&
+				   (FL_get_long(PI_AY_digest, PI_I_start_f0 + 24) == this.L_hash_3) &&
+				   (FL_get_long(PI_AY_digest, PI_I_start_f0 + 32) == this.L_hash_4) &&
+				   (FL_get_long(PI_AY_digest, PI_I_start_f0 + 40) == this.L_hash_5) &&
+				   (FL_get_long(PI_AY_digest, PI_I_start_f0 + 48) == this.L_hash_6) &&
+				   (FL_get_long(PI_AY_digest, PI_I_start_f0 + 56) == this.L_hash_7);
+		return B_retval;
+	}
+	
+	public String FS_get_hash_hex() {
+		StringBuilder SB_retval;
+		
+		SB_retval = new StringBuilder(I_len_hash_hex);
+		for (long L_hash: new long[] {
+				this.L_hash_0, this.L_hash_1, this.L_hash_2, this.L_hash_3, 
+				this.L_hash_4, this.L_hash_5, this.L_hash_6, this.L_hash_7}) {
+			SB_retval.append(String.format("%016x", L_hash));
+		    }
+		return SB_retval.toString();
+	}
 	}  // END of ArchInfo
 	
 	public static class PckgArchInfos {
@@ -208,6 +357,9 @@ public class SetupIniContents {
 	public static class PckgPosition {
        int I_line_nbr_f1;
        int I_pos_on_stack_f0;
+       // stanza of the package, see StanzaScanner, I_stanza_len_f1 == 0 if unknown
+       int  I_stanza_start_f0, I_stanza_len_f1;
+       long L_fingerprint;
        
        public PckgPosition (
            int PI_I_line_nbr_f1,
@@ -218,6 +370,37 @@ public class SetupIniContents {
 		   }
 	}
 	
+	/**
+	 * Result of {@link IniFileParser#FO_parse_incremental(SetupIniContents, MappedIniLineReader)}.
+	 */
+	public static class PckgChanges {
+		
+		public List<String> AS_added, AS_changed, AS_removed;
+		
+		public PckgChanges() {
+			this.AS_added   = new ArrayList<String>();
+			this.AS_changed = new ArrayList<String>();
+			this.AS_removed = new ArrayList<String>();
+		    }
+		
+		/**
+		 * 
+		 * @return names of the packages added or changed, i.e. the ones to be checked again
+		 */
+		public List<String> FAS_get_affected() {
+			List<String> AS_retval_affected;
+			
+			AS_retval_affected = new ArrayList<String>(this.AS_added.size() + this.AS_changed.size());
+			AS_retval_affected.addAll(this.AS_added);
+			AS_retval_affected.addAll(this.AS_changed);
+			return AS_retval_affected;
+		    }
+		
+		public int FI_size() {
+			return this.AS_added.size() + this.AS_changed.size() + this.AS_removed.size();
+		    }
+	}
+	
 	public static class PckgVersionInfo {
 			
 		public String     S_version;
@@ -267,8 +450,43 @@ public class SetupIniContents {
 public static class PckgInfo extends PckgArchInfos  {
 	public String S_sdesc, S_ldesc, AS_categories[], AS_requires[];
 	
+	// long description not decoded yet, see FS_get_ldesc(),
+	// bytes of the reader while parsing, of a LdescArena once stored in a SetupIniContents
+	public ByteBuffer O_ldesc_bytes;
+	public int        I_ldesc_start_f0, I_ldesc_len_f1;
+	
 //	public PckgArchInfos O_pckg_arch_infos_current, O_pckg_arch_infos_prev;
 
+	/**
+	 * Checks the bytes of the lines <tt>"ldesc: ..."</tt> without decoding them.
+	 * 
+	 * @return true if the range is empty or there is nothing but quotes and white space behind the key
+	 */
+	protected static boolean FB_is_blank(
+			final ByteBuffer PI_O_ldesc_bytes,
+			final int        PI_I_start_f0,
+			final int        PI_I_len_f1) {
+		
+		int i1, I_start_f0, I_end_f0;
+		byte Y_byte;
+		
+		I_end_f0   = PI_I_start_f0 + PI_I_len_f1;
+		I_start_f0 = PI_I_start_f0;
+		for (i1 = PI_I_start_f0; i1 < I_end_f0; i1++) {
+			if (PI_O_ldesc_bytes.get(i1) == ':') {
+			   I_start_f0 = i1 + 1;
+			   break;
+			   }
+		    }
+		for (i1 = I_start_f0; i1 < I_end_f0; i1++) {
+			Y_byte = PI_O_ldesc_bytes.get(i1);
+			if ((Y_byte != '\"') && (Y_byte != ' ') && (Y_byte != '\t') && (Y_byte != '\r') && (Y_byte != '\n')) {
+			   return false;
+			   }
+		    }
+		return true;
+	}
+
 	public static void FV_ctor(
 			  final PckgInfo PO_O_pckg_info, 
 			  final String PI_S_name,
@@ -296,9 +514,14 @@ public static class PckgInfo extends PckgArchInfos  {
           else if (StringUtils.isBlank(PI_S_sdesc)) {
         	 S_msg_1 = "Short description:\'" + PI_S_sdesc + "\' of package \'" + PI_S_name + "\' must not be null or blank"; 
              }
-          else if (StringUtils.isBlank(PI_S_ldesc)) {
+          else if ((PO_O_pckg_info.O_ldesc_bytes == null) && StringUtils.isBlank(PI_S_ldesc)) {
         	 S_msg_1 = "Long description: \'" + PI_S_ldesc + "\' of package \'" + PI_S_name + "\' must not be null or blank";
              }
+          else if ((PO_O_pckg_info.O_ldesc_bytes != null) && 
+        		   FB_is_blank(PO_O_pckg_info.O_ldesc_bytes, PO_O_pckg_info.I_ldesc_start_f0, PO_O_pckg_info.I_ldesc_len_f1)) {
+        	 S_msg_1 = "Long description of " + PO_O_pckg_info.I_ldesc_len_f1 + " bytes at offset " + PO_O_pckg_info.I_ldesc_start_f0 + 
+        			   " of package \'" + PI_S_name + "\' must not be empty or blank";
+             }
           else if (ArrayUtils.isEmpty(PI_AS_categories)) {
         	  S_msg_1 = "Categories: \'" + ArrayUtils.toString(PI_AS_categories, "(String[])null") + "\' of package \'" + PI_S_name + "\' must not be null or empty";
               }
@@ -359,11 +582,11 @@ public PckgInfo (
 				{new ArchInfo(
 					PI_O_version_current.S_version, 
 					PI_O_version_current.O_install.I_size, 
-					PI_O_version_current.O_install.O_hash_val)}, 
+					PI_O_version_current.O_install)}, 
 				{new ArchInfo(
 					PI_O_version_current.S_version,
 					PI_O_version_current.O_src.I_size,
-				    PI_O_version_current.O_src.O_hash_val)}});  
+				    PI_O_version_current.O_src)}});  
 	 
 	   FV_ctor(
 		this,
@@ -389,20 +612,20 @@ public PckgInfo (
 				{new ArchInfo(
 					PI_O_version_current.S_version, 
 					PI_O_version_current.O_install.I_size, 
-					PI_O_version_current.O_install.O_hash_val)}, 
+					PI_O_version_current.O_install)}, 
 				{new ArchInfo(
 					PI_O_version_current.S_version,
 					PI_O_version_current.O_src.I_size,
-				    PI_O_version_current.O_src.O_hash_val)},
+				    PI_O_version_current.O_src)},
 			    null,
 			    {new ArchInfo(
 					PI_O_version_prev.S_version, 
 					PI_O_version_prev.O_install.I_size, 
-					PI_O_version_prev.O_install.O_hash_val)}, 
+					PI_O_version_prev.O_install)}, 
 				{new ArchInfo(
 					PI_O_version_prev.S_version,
 					PI_O_version_prev.O_src.I_size,
-				    PI_O_version_prev.O_src.O_hash_val)},
+				    PI_O_version_prev.O_src)},
 			    
 			});  
 	 
@@ -414,13 +637,212 @@ public PckgInfo (
 		PI_AS_categories,
 		PI_AS_requires); 
 		}
+
+/**
+ * 
+ * @param PI_O_archinfos_current archives of the current version as parsed, <tt>{{install}, {source}}</tt>
+ * @param PI_O_archinfos_prev archives of the <tt>[prev]</tt> version, may be null<br>
+ * The archive infos are arranged by purpose, the current version first, followed by the previous one if any.
+ */
+public PckgInfo ( 
+		  final String PI_S_name,
+		  final String PI_S_sdesc,
+		  final String PI_S_ldesc,
+		  final String PI_AS_categories[],
+		  final String PI_AS_requires[],
+		  final PckgArchInfos PI_O_archinfos_current,
+		  final PckgArchInfos PI_O_archinfos_prev) {
+	
+	this(PI_S_name, PI_S_sdesc, PI_S_ldesc, null, 0, 0, PI_AS_categories, PI_AS_requires, 
+		 PI_O_archinfos_current, PI_O_archinfos_prev);
+		}
+
+/**
+ * 
+ * @param PI_S_ldesc long description, null if it is to be decoded from <tt>PI_O_ldesc_bytes</tt> on demand
+ * @param PI_O_ldesc_bytes bytes of <tt>setup.ini</tt>, see {@link IniLineReader#FO_get_bytes()}
+ * @param PI_I_ldesc_start_f0 start of the line <tt>"ldesc: ..."</tt>
+ * @param PI_I_ldesc_len_f1 number of bytes up to the closing quote of the long description
+ */
+public PckgInfo ( 
+		  final String PI_S_name,
+		  final String PI_S_sdesc,
+		  final String PI_S_ldesc,
+		  final ByteBuffer PI_O_ldesc_bytes,
+		  final int PI_I_ldesc_start_f0,
+		  final int PI_I_ldesc_len_f1,
+		  final String PI_AS_categories[],
+		  final String PI_AS_requires[],
+		  final PckgArchInfos PI_O_archinfos_current,
+		  final PckgArchInfos PI_O_archinfos_prev) {
+	
+	super(PI_S_name, FAAO_get_archinfos(PI_O_archinfos_current, PI_O_archinfos_prev));
+	
+	if (PI_S_ldesc == null) {
+	   this.O_ldesc_bytes    = PI_O_ldesc_bytes;
+	   this.I_ldesc_start_f0 = PI_I_ldesc_start_f0;
+	   this.I_ldesc_len_f1   = PI_I_ldesc_len_f1;
+	   }
+	   FV_ctor(
+		this,
+		PI_S_name,
+		PI_S_sdesc,
+		PI_S_ldesc,
+		PI_AS_categories,
+		PI_AS_requires); 
+		}
+
+protected static ArchInfo[][] FAAO_get_archinfos(
+		  final PckgArchInfos PI_O_archinfos_current,
+		  final PckgArchInfos PI_O_archinfos_prev) {
+	
+	ArchInfo AAO_retval_archinfos[][];
+	
+	if (PI_O_archinfos_prev == null) {
+	   AAO_retval_archinfos = new ArchInfo[][] {
+		   {PI_O_archinfos_current.AAO_archinfos[0][0]},
+		   {PI_O_archinfos_current.AAO_archinfos[1][0]}};
+	   }
+	else {
+	   AAO_retval_archinfos = new ArchInfo[][] {
+		   {PI_O_archinfos_current.AAO_archinfos[0][0], PI_O_archinfos_prev.AAO_archinfos[0][0]},
+		   {PI_O_archinfos_current.AAO_archinfos[1][0], PI_O_archinfos_prev.AAO_archinfos[1][0]}};
+	   }
+	return AAO_retval_archinfos;
+	}
+
+/**
+ * 
+ * @return the long description, decoded from {@link #O_ldesc_bytes} on each call<br>
+ * if it was not stored as String, see {@link LdescCache} to keep recently used ones.
+ */
+public String FS_get_ldesc() {
+	String S_retval_ldesc;
+	
+	if (this.S_ldesc != null) {
+	   return this.S_ldesc;
+	   }
+	S_retval_ldesc = IniFileParser.FS_parse_ldesc(new MappedIniLineReader(
+			this.O_ldesc_bytes, 
+			this.I_ldesc_start_f0, 
+			this.I_ldesc_start_f0 + this.I_ldesc_len_f1));
+	return S_retval_ldesc;
 	}
+}
+
+/**
+ * Heap copies of the undecoded long descriptions of the packages of one {@link SetupIniContents}.<br>
+ * While parsing, a {@link PckgInfo} addresses its long description in the bytes of the reader, for a
+ * {@link MappedIniLineReader} the mapping of <tt>setup.ini</tt>. Kept that way, any package still alive would keep
+ * the file mapped, locked on Windows, and a later rewrite of the file would leave its offsets stale.
+ * {@link SetupIniContents#FV_add(PckgInfo, int)} therefore copies the bytes into blocks of this arena
+ * and points the package to them. The bytes stay undecoded and are smaller than the decoded Strings.<br>
+ * Not thread-safe, packages are added by one thread.
+ */
+public static class LdescArena {
+	
+	public static final int I_dflt_block_size = 1 << 18;
+	
+	public final int I_block_size_f1;
+	protected ByteBuffer O_block;
+	protected int        I_used_f1;
+	public long          L_nbr_bytes_f1;
+	
+	public LdescArena() {
+		this(I_dflt_block_size);
+	    }
+	
+	public LdescArena(final int PI_I_block_size_f1) {
+		this.I_block_size_f1 = PI_I_block_size_f1;
+		this.O_block         = null;
+		this.I_used_f1       = 0;
+		this.L_nbr_bytes_f1  = 0L;
+	    }
+	
+	/**
+	 * Copies the undecoded long description of a package into the arena, unless it is on the heap already.
+	 * 
+	 * @param PB_O_pckg_info package, its long description is re-addressed to the copy
+	 */
+	public void FV_store(final PckgInfo PB_O_pckg_info) {
+		
+		ByteBuffer O_block;
+		int I_len_f1;
+		
+		if ((PB_O_pckg_info.O_ldesc_bytes == null) || !PB_O_pckg_info.O_ldesc_bytes.isDirect()) {
+		   return;
+		   }
+		I_len_f1 = PB_O_pckg_info.I_ldesc_len_f1;
+		if (I_len_f1 > (this.I_block_size_f1 / 4)) {  // a block of its own
+		   O_block = ByteBuffer.allocate(I_len_f1);
+		   PB_O_pckg_info.O_ldesc_bytes.get(PB_O_pckg_info.I_ldesc_start_f0, O_block.array(), 0, I_len_f1);
+		   PB_O_pckg_info.I_ldesc_start_f0 = 0;
+		   }
+		else {
+		   if ((this.O_block == null) || ((this.I_used_f1 + I_len_f1) > this.I_block_size_f1)) {
+			  this.O_block   = ByteBuffer.allocate(this.I_block_size_f1);
+			  this.I_used_f1 = 0;
+		      }
+		   O_block = this.O_block;
+		   PB_O_pckg_info.O_ldesc_bytes.get(PB_O_pckg_info.I_ldesc_start_f0, O_block.array(), this.I_used_f1, I_len_f1);
+		   PB_O_pckg_info.I_ldesc_start_f0 = this.I_used_f1;
+		   this.I_used_f1 += I_len_f1;
+		   }
+		PB_O_pckg_info.O_ldesc_bytes = O_block;
+		this.L_nbr_bytes_f1 += I_len_f1;
+		return;
+	    }
+}
+
+/**
+ * Least recently used long descriptions of {@link PckgInfo}s which don't store them as String.
+ */
+public static class LdescCache {
+	
+	public static final int I_dflt_max_size = 256;
+	
+	protected LinkedHashMap<PckgInfo, String> HS_ldescs;
+	public int I_max_size_f1;
+	
+	public LdescCache() {
+		this(I_dflt_max_size);
+	    }
+	
+	public LdescCache(final int PI_I_max_size_f1) {
+		this.I_max_size_f1 = PI_I_max_size_f1;
+		this.HS_ldescs = new LinkedHashMap<PckgInfo, String>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<PckgInfo, String> PI_O_eldest) {
+				return size() > LdescCache.this.I_max_size_f1;
+			    }
+			};
+	    }
+	
+	public synchronized String FS_get_ldesc(final PckgInfo PI_O_pckg_info) {
+		String S_retval_ldesc;
+		
+		S_retval_ldesc = this.HS_ldescs.get(PI_O_pckg_info);
+		if (S_retval_ldesc == null) {
+		   S_retval_ldesc = PI_O_pckg_info.FS_get_ldesc();
+		   this.HS_ldescs.put(PI_O_pckg_info, S_retval_ldesc);
+		   }
+		return S_retval_ldesc;
+	    }
+}
 
     public Stack<PckgInfo>                      AO_pckg_info;
     public HashMap<Integer, Line>               HI_O_lines;
     public TreeMap<Long, Integer>               HL_address_to_line_nbrs;
     public HashMap<String, PckgPosition>        HS_package_names;
-    public TreeMap<String, TreeSet<String>>     HAS_categories;  
+    public SymbolTable                          O_symbols;  // canonical names, categories, requires and versions
+    public LdescArena                           O_ldesc_arena;
+    protected PckgTable                         O_pckg_table;
+    protected boolean                           B_pckg_table_stale;
+    protected DependencyGraph                   O_dependency_graph;
+    protected PckgNameIndex                     O_name_index;
+    protected PckgTextIndex                     O_text_index;
     
     public SetupIniContents(LineNbrRandomAccessFile PI_O_buff_rdr) {
     	this.HI_O_lines              =  PI_O_buff_rdr.HI_lines;
@@ -428,9 +850,189 @@ public PckgInfo (
     	
     	this.AO_pckg_info = new Stack<PckgInfo>();
         this.HS_package_names   = new HashMap<String, PckgPosition>();
-        this.HAS_categories    = new TreeMap<String, TreeSet<String>>(); // category packages
+        this.O_symbols         = new SymbolTable();
+        this.O_ldesc_arena     = new LdescArena();
+    	}
+    
+    /**
+     * 
+     * @param PI_O_buff_rdr reader the contents are parsed from.<br>
+     * The line tables {@link #HI_O_lines} and {@link #HL_address_to_line_nbrs} are only available<br>
+     * for a {@link IniLineReader.LineNbrRafReader}, they remain null for a {@link MappedIniLineReader}.
+     */
+    public SetupIniContents(IniLineReader PI_O_buff_rdr) {
+    	LineNbrRandomAccessFile O_buff_rdr;
+    	
+    	if (PI_O_buff_rdr instanceof IniLineReader.LineNbrRafReader) {
+    	   O_buff_rdr = ((IniLineReader.LineNbrRafReader)PI_O_buff_rdr).O_buff_reader;
+    	   this.HI_O_lines              =  O_buff_rdr.HI_lines;
+    	   this.HL_address_to_line_nbrs =  O_buff_rdr.HL_address_to_line_nbrs;
+    	   }
+    	this.AO_pckg_info = new Stack<PckgInfo>();
+        this.HS_package_names   = new HashMap<String, PckgPosition>();
+        this.O_symbols         = new SymbolTable();
+        this.O_ldesc_arena     = new LdescArena();
     	}
         
+    /**
+     * Appends the packages of a partial parse, as if they had been added to this object one by one.<br>
+     * Their names, categories, requires and versions are re-interned in {@link #O_symbols}.
+     * 
+     * @param PI_O_setup_ini_contents partial result
+     * @param PI_I_line_offset_f0 number of lines in front of the range the partial result was parsed from
+     */
+    public void FV_append(
+    	final SetupIniContents PI_O_setup_ini_contents,
+    	final int              PI_I_line_offset_f0) {
+    	
+    	  PckgPosition     O_pckg_pos;
+    	  
+    	  for (PckgInfo O_pckg_info: PI_O_setup_ini_contents.AO_pckg_info) {
+    		  O_pckg_pos = PI_O_setup_ini_contents.HS_package_names.get(O_pckg_info.S_name);
+    		  FV_intern(O_pckg_info);
+    		  FV_add(O_pckg_info, O_pckg_pos.I_line_nbr_f1 + PI_I_line_offset_f0);
+    	      }
+    	return;
+    }
+    
+    /**
+     * Records the stanzas of the packages of a complete parse,
+     * the base for {@link IniFileParser#FO_parse_incremental(SetupIniContents, MappedIniLineReader)}.
+     * 
+     * @param PI_O_buff_reader the file this object was parsed from
+     */
+    public void FV_set_fingerprints(final MappedIniLineReader PI_O_buff_reader) {
+    	
+    	StanzaScanner O_stanza_scanner;
+    	PckgPosition  O_pckg_pos;
+    	
+    	O_stanza_scanner = new StanzaScanner(PI_O_buff_reader, this.O_symbols);
+    	while (O_stanza_scanner.FB_next()) {
+    		if (O_stanza_scanner.S_pckg_name == null) {
+    		   continue;
+    		   }
+    		O_pckg_pos = this.HS_package_names.get(O_stanza_scanner.S_pckg_name);
+    		if (O_pckg_pos != null) {
+    		   O_pckg_pos.I_stanza_start_f0 = O_stanza_scanner.I_start_f0;
+    		   O_pckg_pos.I_stanza_len_f1   = O_stanza_scanner.I_end_f0 - O_stanza_scanner.I_start_f0;
+    		   O_pckg_pos.L_fingerprint     = O_stanza_scanner.L_fingerprint;
+    		   }
+    	    }
+    	return;
+    }
+    
+    protected void FV_intern(final PckgInfo PB_O_pckg_info) {
+    	
+    	ArchInfo AO_archinfos[];
+    	String   AS_tokens[];
+    	int i1, i2;
+    	
+    	PB_O_pckg_info.S_name = this.O_symbols.FS_intern(PB_O_pckg_info.S_name);
+    	AS_tokens = PB_O_pckg_info.AS_categories;
+    	for (i1 = 0; i1 < AS_tokens.length; i1++) {
+    		AS_tokens[i1] = this.O_symbols.FS_intern(AS_tokens[i1]);
+    	    }
+    	AS_tokens = PB_O_pckg_info.AS_requires;
+    	for (i1 = 0; i1 < AS_tokens.length; i1++) {
+    		AS_tokens[i1] = this.O_symbols.FS_intern(AS_tokens[i1]);
+    	    }
+    	for (i1 = 0; i1 < PB_O_pckg_info.AAO_archinfos.length; i1++) {
+    		AO_archinfos = PB_O_pckg_info.AAO_archinfos[i1];
+    		for (i2 = 0; i2 < AO_archinfos.length; i2++) {
+    			if (AO_archinfos[i2] != null) {
+    			   AO_archinfos[i2].S_version = this.O_symbols.FS_intern(AO_archinfos[i2].S_version);
+    			   }
+    		    }
+    	    }
+    	return;
+    }
+    
+    /**
+     * Stores a package, usable as {@link PckgVisitor}: <tt>O_setup_ini_contents::FV_add</tt><br>
+     * An undecoded long description is copied from the bytes of the reader into {@link #O_ldesc_arena}.
+     * 
+     * @param PI_O_pckg_info package to be stored
+     * @param PI_I_curr_line_f1 line number of its package header
+     */
+    public void FV_add(
+    	final PckgInfo PI_O_pckg_info,
+		final int      PI_I_curr_line_f1) {
+    	
+    	  PckgPosition O_pckg_pos;
+    	  int I_idx_f0;
+    	  
+    	  this.O_ldesc_arena.FV_store(PI_O_pckg_info);
+    	  I_idx_f0 =  this.AO_pckg_info.size();
+    	  this.AO_pckg_info.add(PI_O_pckg_info);
+    	  O_pckg_pos = new PckgPosition(PI_I_curr_line_f1, I_idx_f0);
+    	  
+    	  this.HS_package_names.put(PI_O_pckg_info.S_name, O_pckg_pos);
+    	  this.B_pckg_table_stale = true;
+    	return;
+    }
+    
+    /**
+     * 
+     * @return column-wise table of the packages, rebuilt if packages were added or re-parsed since the last call.<br>
+     * The download status of archives unchanged since then is kept.
+     */
+    public PckgTable FO_get_pckg_table() {
+    	
+    	if ((this.O_pckg_table == null) || this.B_pckg_table_stale) {
+    	   this.O_pckg_table = new PckgTable(this, this.O_pckg_table);
+    	   this.B_pckg_table_stale = false;
+    	   }
+    	return this.O_pckg_table;
+    }
+    
+    /**
+     * 
+     * @return graph of the <tt>requires:</tt> lists over the ids of {@link #FO_get_pckg_table()},
+     * rebuilt together with the table
+     */
+    public DependencyGraph FO_get_dependency_graph() {
+    	
+    	PckgTable O_pckg_table;
+    	
+    	O_pckg_table = FO_get_pckg_table();
+    	if ((this.O_dependency_graph == null) || (this.O_dependency_graph.O_pckg_table != O_pckg_table)) {
+    	   this.O_dependency_graph = new DependencyGraph(O_pckg_table);
+    	   }
+    	return this.O_dependency_graph;
+    }
+    
+    /**
+     * 
+     * @return prefix, glob and edit distance search over the package names of {@link #FO_get_pckg_table()},
+     * rebuilt together with the table
+     */
+    public PckgNameIndex FO_get_name_index() {
+    	
+    	PckgTable O_pckg_table;
+    	
+    	O_pckg_table = FO_get_pckg_table();
+    	if ((this.O_name_index == null) || (this.O_name_index.O_pckg_table != O_pckg_table)) {
+    	   this.O_name_index = new PckgNameIndex(O_pckg_table);
+    	   }
+    	return this.O_name_index;
+    }
+    
+    /**
+     * 
+     * @return full-text search over the short and long descriptions, built on the first call
+     * and rebuilt together with {@link #FO_get_pckg_table()}
+     */
+    public PckgTextIndex FO_get_text_index() {
+    	
+    	PckgTable O_pckg_table;
+    	
+    	O_pckg_table = FO_get_pckg_table();
+    	if ((this.O_text_index == null) || (this.O_text_index.O_pckg_table != O_pckg_table)) {
+    	   this.O_text_index = new PckgTextIndex(this, O_pckg_table);
+    	   }
+    	return this.O_text_index;
+    }
+    
     public void FV_add(
     	final String PI_S_pckg_name,
 		final String PI_S_sdesc,
@@ -442,10 +1044,6 @@ public PckgInfo (
 		final int PI_I_curr_line_f1) {
     	
     	  PckgInfo O_pckg_info;
-    	  PckgPosition O_pckg_pos;
-    	  String S_category, AS_categories[];
-    	  int i1, I_nbr_categories_f1, I_idx_f0;
-    	  TreeSet<String> AO_pckgs;
     	  
     	  O_pckg_info = new PckgInfo(
 					PI_S_pckg_name,
@@ -456,23 +1054,7 @@ public PckgInfo (
 					PI_O_version_current, 
 					PI_O_version_prev);
     	  
-    	  I_idx_f0 =  this.AO_pckg_info.size();
-    	  this.AO_pckg_info.add(O_pckg_info);
-    	  O_pckg_pos = new PckgPosition(PI_I_curr_line_f1, I_idx_f0);
-    	  
-    	  this.HS_package_names.put(PI_S_pckg_name, O_pckg_pos);
-    	  I_nbr_categories_f1 = PI_AS_categories.length;
-    	  for (i1 = 0; i1 < I_nbr_categories_f1; i1++) {
-    		  S_category = PI_AS_categories[i1];
-    		  if (HAS_categories.containsKey(S_category)) {
-    			  HAS_categories.get(S_category).add(PI_S_pckg_name);
-    		      }
-    		  else {
-    			  AO_pckgs = new TreeSet<String>() {{add(PI_S_pckg_name); }};
-    			  HAS_categories.put(S_category, AO_pckgs);
-    		  }
-    	  }
-    	  
+    	  FV_add(O_pckg_info, PI_I_curr_line_f1);
     	return;
     }
     
@@ -489,10 +1071,6 @@ public PckgInfo (
 		final int PI_I_curr_line_f1) {
     	
     	  PckgInfo O_pckg_info;
-    	  PckgPosition O_pckg_pos;
-    	  String S_category, AS_categories[];
-    	  int i1, I_nbr_categories_f1, I_idx_f0;
-    	  TreeSet<String> AO_pckgs;
     	  
     	  O_pckg_info = new PckgInfo(
 					PI_S_pckg_name,
@@ -500,26 +1078,10 @@ public PckgInfo (
 					PI_S_ldesc,
 					PI_AS_categories,
 					PI_AS_requires,
-					PI_AO_archinfos_current.AAO_archinfos[0], // TODO
-					PI_AO_archinfos_prev.AAO_archinfos[0]); // TODO
-    	  
-    	  I_idx_f0 =  this.AO_pckg_info.size();
-    	  this.AO_pckg_info.add(O_pckg_info);
-    	  O_pckg_pos = new PckgPosition(PI_I_curr_line_f1, I_idx_f0);
-    	  
-    	  this.HS_package_names.put(PI_S_pckg_name, O_pckg_pos);
-    	  I_nbr_categories_f1 = PI_AS_categories.length;
-    	  for (i1 = 0; i1 < I_nbr_categories_f1; i1++) {
-    		  S_category = PI_AS_categories[i1];
-    		  if (HAS_categories.containsKey(S_category)) {
-    			  HAS_categories.get(S_category).add(PI_S_pckg_name);
-    		      }
-    		  else {
-    			  AO_pckgs = new TreeSet<String>() {{add(PI_S_pckg_name); }};
-    			  HAS_categories.put(S_category, AO_pckgs);
-    		  }
-    	  }
+					PI_AO_archinfos_current,
+					PI_AO_archinfos_prev);
     	  
+    	  FV_add(O_pckg_info, PI_I_curr_line_f1);
     	return;
  //-------	
  
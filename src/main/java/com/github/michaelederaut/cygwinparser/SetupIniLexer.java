@@ -0,0 +1,555 @@
+package com.github.michaelederaut.cygwinparser;
+
+/**
+ * Regex-free lexer for the lines of a <tt>setup.ini</tt> file.<br>
+ * A line is classified by its leading characters and the value of the recognised key
+ * is kept as a slice <tt>[I_val_start_f0, I_val_end_f0)</tt> of the line, so no
+ * {@link java.util.regex.Matcher} and no map of named groups is created per line.<br>
+ * The accepted grammar is the one of the reference patterns in {@link IniFileParser}.<br>
+ * One instance is reused for all lines of a parse and is therefore not thread-safe.<br>
+ * Names, tokens and versions are returned as canonical instances of a {@link SymbolTable} if one is given.
+ */
+public class SetupIniLexer {
+
+	public enum LineKind {blank, comment, pckgHdr, sdesc, ldesc, category, requires, version, install, source, prev, other};
+
+	public static final String KEY_SDESC    = "sdesc:";
+	public static final String KEY_LDESC    = "ldesc:";
+	public static final String KEY_CATEGORY = "category:";
+	public static final String KEY_REQUIRES = "requires:";
+	public static final String KEY_VERSION  = "version:";
+	public static final String KEY_INSTALL  = "install:";
+	public static final String KEY_SOURCE   = "source:";
+	public static final String PREV_MARKER  = "[prev]";
+
+	public static final int I_len_hash_hex = 128;
+
+	public LineKind E_line_kind;
+	public int      I_val_start_f0, I_val_end_f0;
+	public boolean  B_closing_quote;
+	public int      I_path_start_f0, I_path_end_f0, I_size_start_f0, I_size_end_f0, I_hash_start_f0, I_hash_end_f0;
+	public SymbolTable O_symbols;
+
+	public SetupIniLexer() {
+		this.O_symbols = null;
+	}
+
+	public SetupIniLexer(final SymbolTable PI_O_symbols) {
+		this.O_symbols = PI_O_symbols;
+	}
+
+	/**
+	 *
+	 * @param PI_C_char character to be examined
+	 * @return true if the argument is matched by <tt>\s</tt> in a {@link java.util.regex.Pattern}
+	 */
+	protected static boolean FB_is_space(final char PI_C_char) {
+		boolean B_retval;
+
+		B_retval = ((PI_C_char == ' ')  || (PI_C_char == '\t') || (PI_C_char == '\n') ||
+				    (PI_C_char == 0x0B) || (PI_C_char == '\f') || (PI_C_char == '\r'));
+		return B_retval;
+	}
+
+	/**
+	 *
+	 * @param PI_C_char character to be examined
+	 * @return true if the argument is matched by <tt>[A-Za-z0-9._+\-]</tt>
+	 */
+	protected static boolean FB_is_name_char(final char PI_C_char) {
+		boolean B_retval;
+
+		B_retval = (((PI_C_char >= 'a') && (PI_C_char <= 'z')) ||
+				    ((PI_C_char >= 'A') && (PI_C_char <= 'Z')) ||
+				    ((PI_C_char >= '0') && (PI_C_char <= '9')) ||
+				     (PI_C_char == '.') || (PI_C_char == '_') || (PI_C_char == '+') || (PI_C_char == '-'));
+		return B_retval;
+	}
+
+	protected static boolean FB_is_hex_digit(final char PI_C_char) {
+		boolean B_retval;
+
+		B_retval = (((PI_C_char >= '0') && (PI_C_char <= '9')) ||
+			        ((PI_C_char >= 'a') && (PI_C_char <= 'f')) ||
+			        ((PI_C_char >= 'A') && (PI_C_char <= 'F')));
+		return B_retval;
+	}
+
+	protected static boolean FB_starts_with(
+			final CharSequence PI_S_line,
+			final String       PI_S_key) {
+
+		int i1, I_len_key_f1;
+
+		I_len_key_f1 = PI_S_key.length();
+		if (PI_S_line.length() < I_len_key_f1) {
+		   return false;
+		   }
+		for (i1 = 0; i1 < I_len_key_f1; i1++) {
+			if (PI_S_line.charAt(i1) != PI_S_key.charAt(i1)) {
+			   return false;
+			   }
+		    }
+		return true;
+	}
+
+	/**
+	 *
+	 * @return position of the first character behind at least one space
+	 * following position <tt>PI_I_pos_f0</tt>, -1 if there is no space there.
+	 */
+	protected static int FI_skip_mandatory_spaces(
+			final CharSequence PI_S_line,
+			final int          PI_I_pos_f0,
+			final int          PI_I_len_f1) {
+
+		int I_pos_f0;
+
+		I_pos_f0 = PI_I_pos_f0;
+		if ((I_pos_f0 >= PI_I_len_f1) || !FB_is_space(PI_S_line.charAt(I_pos_f0))) {
+		   return -1;
+		   }
+		while ((I_pos_f0 < PI_I_len_f1) && FB_is_space(PI_S_line.charAt(I_pos_f0))) {
+			I_pos_f0++;
+		    }
+		return I_pos_f0;
+	}
+
+	/**
+	 * Classifies a line and records the slice of its value.
+	 *
+	 * @param PI_S_line line without line terminator
+	 * @return the kind of the line, {@link LineKind#other} if the line starts with a known key<br>
+	 * but its value is malformed.
+	 */
+	public LineKind FE_lex(final CharSequence PI_S_line) {
+
+		LineKind E_retval_line_kind;
+		char     C_first;
+		int      i1, I_len_f1;
+		boolean  B_blank;
+
+		this.B_closing_quote = false;
+		I_len_f1 = PI_S_line.length();
+		B_blank = true;
+		LOOP_CHARS: for (i1 = 0; i1 < I_len_f1; i1++) {
+			if (!Character.isWhitespace(PI_S_line.charAt(i1))) {
+			   B_blank = false;
+			   break LOOP_CHARS;
+			   }
+		    }
+		if (B_blank) {
+		   this.E_line_kind = LineKind.blank;
+		   return this.E_line_kind;
+		   }
+
+		C_first = PI_S_line.charAt(0);
+		switch (C_first) {
+			case '#':
+				E_retval_line_kind = LineKind.comment;
+				break;
+			case '@':
+				E_retval_line_kind = FE_lex_pckg_hdr(PI_S_line, I_len_f1);
+				break;
+			case 's':
+				if (FB_starts_with(PI_S_line, KEY_SDESC)) {
+				   E_retval_line_kind = FE_lex_quoted(PI_S_line, I_len_f1, KEY_SDESC, LineKind.sdesc);
+				   }
+				else if (FB_starts_with(PI_S_line, KEY_SOURCE)) {
+				   E_retval_line_kind = FE_lex_archinfo(PI_S_line, I_len_f1, KEY_SOURCE, LineKind.source);
+				   }
+				else {
+				   E_retval_line_kind = LineKind.other;
+				   }
+				break;
+			case 'l':
+				E_retval_line_kind = FE_lex_quoted(PI_S_line, I_len_f1, KEY_LDESC, LineKind.ldesc);
+				break;
+			case 'c':
+				E_retval_line_kind = FE_lex_names(PI_S_line, I_len_f1, KEY_CATEGORY, LineKind.category);
+				break;
+			case 'r':
+				E_retval_line_kind = FE_lex_unquoted(PI_S_line, I_len_f1, KEY_REQUIRES, LineKind.requires);
+				break;
+			case 'v':
+				E_retval_line_kind = FE_lex_names(PI_S_line, I_len_f1, KEY_VERSION, LineKind.version);
+				if ((E_retval_line_kind == LineKind.version) &&
+					(FI_next_space(PI_S_line, this.I_val_start_f0, this.I_val_end_f0) < this.I_val_end_f0)) {
+				   E_retval_line_kind = LineKind.other;  // only one single version allowed
+				   }
+				break;
+			case 'i':
+				E_retval_line_kind = FE_lex_archinfo(PI_S_line, I_len_f1, KEY_INSTALL, LineKind.install);
+				break;
+			case '[':
+				E_retval_line_kind = FB_starts_with(PI_S_line, PREV_MARKER) ? LineKind.prev : LineKind.other;
+				break;
+			default:
+				E_retval_line_kind = LineKind.other;
+		}
+		this.E_line_kind = E_retval_line_kind;
+		return E_retval_line_kind;
+	}
+
+	protected static int FI_next_space(
+			final CharSequence PI_S_line,
+			final int          PI_I_start_f0,
+			final int          PI_I_end_f0) {
+		int I_pos_f0;
+
+		I_pos_f0 = PI_I_start_f0;
+		while ((I_pos_f0 < PI_I_end_f0) && !FB_is_space(PI_S_line.charAt(I_pos_f0))) {
+			I_pos_f0++;
+		    }
+		return I_pos_f0;
+	}
+
+	/**
+	 * <tt>^@\s+([A-Za-z0-9._+\-]+)\s*$</tt>
+	 */
+	protected LineKind FE_lex_pckg_hdr(
+			final CharSequence PI_S_line,
+			final int          PI_I_len_f1) {
+
+		int I_pos_f0, I_end_f0;
+
+		I_pos_f0 = FI_skip_mandatory_spaces(PI_S_line, 1, PI_I_len_f1);
+		if (I_pos_f0 < 0) {
+		   return LineKind.other;
+		   }
+		I_end_f0 = I_pos_f0;
+		while ((I_end_f0 < PI_I_len_f1) && FB_is_name_char(PI_S_line.charAt(I_end_f0))) {
+			I_end_f0++;
+		    }
+		if ((I_end_f0 == I_pos_f0) || !FB_is_trailing_space(PI_S_line, I_end_f0, PI_I_len_f1)) {
+		   return LineKind.other;
+		   }
+		this.I_val_start_f0 = I_pos_f0;
+		this.I_val_end_f0   = I_end_f0;
+		return LineKind.pckgHdr;
+	}
+
+	protected static boolean FB_is_trailing_space(
+			final CharSequence PI_S_line,
+			final int          PI_I_pos_f0,
+			final int          PI_I_len_f1) {
+		int i1;
+
+		for (i1 = PI_I_pos_f0; i1 < PI_I_len_f1; i1++) {
+			if (!FB_is_space(PI_S_line.charAt(i1))) {
+			   return false;
+			   }
+		    }
+		return true;
+	}
+
+	/**
+	 * <tt>^key\:\s+"([^"]*?)"$</tt> for <tt>sdesc</tt>, closing quote optional for <tt>ldesc</tt>.
+	 */
+	protected LineKind FE_lex_quoted(
+			final CharSequence PI_S_line,
+			final int          PI_I_len_f1,
+			final String       PI_S_key,
+			final LineKind     PI_E_line_kind) {
+
+		int I_pos_f0, I_quote_f0;
+
+		if (!FB_starts_with(PI_S_line, PI_S_key)) {
+		   return LineKind.other;
+		   }
+		I_pos_f0 = FI_skip_mandatory_spaces(PI_S_line, PI_S_key.length(), PI_I_len_f1);
+		if ((I_pos_f0 < 0) || (PI_S_line.charAt(I_pos_f0) != '"')) {
+		   return LineKind.other;
+		   }
+		I_pos_f0++;
+		I_quote_f0 = FI_index_of_quote(PI_S_line, I_pos_f0, PI_I_len_f1);
+		if (I_quote_f0 < 0) {
+		   if (PI_E_line_kind == LineKind.sdesc) {
+			  return LineKind.other;
+		      }
+		   this.I_val_end_f0 = PI_I_len_f1;
+		   }
+		else if (I_quote_f0 == (PI_I_len_f1 - 1)) {
+		   this.I_val_end_f0    = I_quote_f0;
+		   this.B_closing_quote = true;
+		   }
+		else {
+		   return LineKind.other;  // quote inside of the description
+		   }
+		this.I_val_start_f0 = I_pos_f0;
+		return PI_E_line_kind;
+	}
+
+	protected static int FI_index_of_quote(
+			final CharSequence PI_S_line,
+			final int          PI_I_start_f0,
+			final int          PI_I_end_f0) {
+		int i1;
+
+		for (i1 = PI_I_start_f0; i1 < PI_I_end_f0; i1++) {
+			if (PI_S_line.charAt(i1) == '"') {
+			   return i1;
+			   }
+		    }
+		return -1;
+	}
+
+	/**
+	 * Continuation line of a long description: <tt>^([^"]*?)(")?$</tt>
+	 *
+	 * @param PI_S_line line following an unterminated <tt>ldesc</tt> line
+	 * @return false if the line contains a quote which is not its last character.
+	 */
+	public boolean FB_lex_ldesc_cont(final CharSequence PI_S_line) {
+
+		int I_len_f1, I_quote_f0;
+
+		I_len_f1 = PI_S_line.length();
+		I_quote_f0 = FI_index_of_quote(PI_S_line, 0, I_len_f1);
+		if (I_quote_f0 < 0) {
+		   this.I_val_end_f0    = I_len_f1;
+		   this.B_closing_quote = false;
+		   }
+		else if (I_quote_f0 == (I_len_f1 - 1)) {
+		   this.I_val_end_f0    = I_quote_f0;
+		   this.B_closing_quote = true;
+		   }
+		else {
+		   return false;
+		   }
+		this.I_val_start_f0 = 0;
+		return true;
+	}
+
+	/**
+	 * <tt>^key\:\s+([a-zA-Z0-9._+\-]+(\s+[a-zA-Z0-9._+\-]+)*)\s*$</tt>
+	 */
+	protected LineKind FE_lex_names(
+			final CharSequence PI_S_line,
+			final int          PI_I_len_f1,
+			final String       PI_S_key,
+			final LineKind     PI_E_line_kind) {
+
+		char C_char;
+		int i1, I_pos_f0, I_end_f0;
+
+		if (!FB_starts_with(PI_S_line, PI_S_key)) {
+		   return LineKind.other;
+		   }
+		I_pos_f0 = FI_skip_mandatory_spaces(PI_S_line, PI_S_key.length(), PI_I_len_f1);
+		if (I_pos_f0 < 0) {
+		   return LineKind.other;
+		   }
+		I_end_f0 = I_pos_f0;
+		for (i1 = I_pos_f0; i1 < PI_I_len_f1; i1++) {
+			C_char = PI_S_line.charAt(i1);
+			if (FB_is_name_char(C_char)) {
+			   I_end_f0 = i1 + 1;
+			   }
+			else if (!FB_is_space(C_char)) {
+			   return LineKind.other;
+			   }
+		    }
+		if (I_end_f0 == I_pos_f0) {
+		   return LineKind.other;
+		   }
+		this.I_val_start_f0 = I_pos_f0;
+		this.I_val_end_f0   = I_end_f0;
+		return PI_E_line_kind;
+	}
+
+	/**
+	 * <tt>^key\:\s+([^"]*?)$</tt>
+	 */
+	protected LineKind FE_lex_unquoted(
+			final CharSequence PI_S_line,
+			final int          PI_I_len_f1,
+			final String       PI_S_key,
+			final LineKind     PI_E_line_kind) {
+
+		int I_pos_f0;
+
+		if (!FB_starts_with(PI_S_line, PI_S_key)) {
+		   return LineKind.other;
+		   }
+		I_pos_f0 = FI_skip_mandatory_spaces(PI_S_line, PI_S_key.length(), PI_I_len_f1);
+		if ((I_pos_f0 < 0) || (FI_index_of_quote(PI_S_line, I_pos_f0, PI_I_len_f1) >= 0)) {
+		   return LineKind.other;
+		   }
+		this.I_val_start_f0 = I_pos_f0;
+		this.I_val_end_f0   = PI_I_len_f1;
+		return PI_E_line_kind;
+	}
+
+	/**
+	 * <tt>^key\:\s+([a-zA-Z0-9._+\-/]+)\s+(\d+)\s+(\p{XDigit}{128})$</tt>
+	 */
+	protected LineKind FE_lex_archinfo(
+			final CharSequence PI_S_line,
+			final int          PI_I_len_f1,
+			final String       PI_S_key,
+			final LineKind     PI_E_line_kind) {
+
+		char C_char;
+		int I_pos_f0, I_end_f0;
+
+		if (FE_lex_unquoted(PI_S_line, PI_I_len_f1, PI_S_key, PI_E_line_kind) != PI_E_line_kind) {
+		   return LineKind.other;
+		   }
+		I_pos_f0 = this.I_val_start_f0;
+		I_end_f0 = I_pos_f0;
+		while ((I_end_f0 < PI_I_len_f1) &&
+			   (FB_is_name_char(C_char = PI_S_line.charAt(I_end_f0)) || (C_char == '/'))) {
+			I_end_f0++;
+		    }
+		if (I_end_f0 == I_pos_f0) {
+		   return LineKind.other;
+		   }
+		this.I_path_start_f0 = I_pos_f0;
+		this.I_path_end_f0   = I_end_f0;
+
+		I_pos_f0 = FI_skip_mandatory_spaces(PI_S_line, I_end_f0, PI_I_len_f1);
+		if (I_pos_f0 < 0) {
+		   return LineKind.other;
+		   }
+		I_end_f0 = I_pos_f0;
+		while ((I_end_f0 < PI_I_len_f1) &&
+			   ((C_char = PI_S_line.charAt(I_end_f0)) >= '0') && (C_char <= '9')) {
+			I_end_f0++;
+		    }
+		if (I_end_f0 == I_pos_f0) {
+		   return LineKind.other;
+		   }
+		this.I_size_start_f0 = I_pos_f0;
+		this.I_size_end_f0   = I_end_f0;
+
+		I_pos_f0 = FI_skip_mandatory_spaces(PI_S_line, I_end_f0, PI_I_len_f1);
+		if ((I_pos_f0 < 0) || ((PI_I_len_f1 - I_pos_f0) != I_len_hash_hex)) {
+		   return LineKind.other;
+		   }
+		for (I_end_f0 = I_pos_f0; I_end_f0 < PI_I_len_f1; I_end_f0++) {
+			if (!FB_is_hex_digit(PI_S_line.charAt(I_end_f0))) {
+			   return LineKind.other;
+			   }
+		    }
+		this.I_hash_start_f0 = I_pos_f0;
+		this.I_hash_end_f0   = I_end_f0;
+		return PI_E_line_kind;
+	}
+
+	public String FS_get_value(final CharSequence PI_S_line) {
+		String S_retval;
+
+		S_retval = PI_S_line.subSequence(this.I_val_start_f0, this.I_val_end_f0).toString();
+		return S_retval;
+	}
+
+	/**
+	 *
+	 * @param PI_S_line the line last passed to {@link #FE_lex(CharSequence)}
+	 * @return the value, interned in {@link #O_symbols} if present
+	 */
+	public String FS_get_symbol(final CharSequence PI_S_line) {
+		String S_retval;
+
+		S_retval = FS_get_slice(PI_S_line, this.I_val_start_f0, this.I_val_end_f0);
+		return S_retval;
+	}
+
+	protected String FS_get_slice(
+			final CharSequence PI_S_line,
+			final int          PI_I_start_f0,
+			final int          PI_I_end_f0) {
+		String S_retval;
+
+		if (this.O_symbols == null) {
+		   S_retval = PI_S_line.subSequence(PI_I_start_f0, PI_I_end_f0).toString();
+		   }
+		else {
+		   S_retval = this.O_symbols.FS_intern(PI_S_line, PI_I_start_f0, PI_I_end_f0);
+		   }
+		return S_retval;
+	}
+
+	public String FS_get_archive_path(final CharSequence PI_S_line) {
+		String S_retval;
+
+		S_retval = PI_S_line.subSequence(this.I_path_start_f0, this.I_path_end_f0).toString();
+		return S_retval;
+	}
+
+	public String FS_get_archive_size(final CharSequence PI_S_line) {
+		String S_retval;
+
+		S_retval = PI_S_line.subSequence(this.I_size_start_f0, this.I_size_end_f0).toString();
+		return S_retval;
+	}
+
+	/**
+	 *
+	 * @param PI_S_line the line last passed to {@link #FE_lex(CharSequence)}
+	 * @return the archive size, parsed without creating a String
+	 * @throws NumberFormatException if the size exceeds {@link Integer#MAX_VALUE}
+	 */
+	public int FI_get_archive_size(final CharSequence PI_S_line) {
+		long L_size;
+		int i1;
+
+		L_size = 0L;
+		for (i1 = this.I_size_start_f0; i1 < this.I_size_end_f0; i1++) {
+			L_size = 10L * L_size + (PI_S_line.charAt(i1) - '0');
+			if (L_size > Integer.MAX_VALUE) {
+			   throw new NumberFormatException("Archive size \'" + FS_get_archive_size(PI_S_line) + "\' exceeds " + Integer.MAX_VALUE);
+			   }
+		    }
+		return (int)L_size;
+	}
+
+	public String FS_get_archive_hash(final CharSequence PI_S_line) {
+		String S_retval;
+
+		S_retval = PI_S_line.subSequence(this.I_hash_start_f0, this.I_hash_end_f0).toString();
+		return S_retval;
+	}
+
+	/**
+	 * Splits the current value at whitespace, the equivalent of <tt>value.split("\\s+")</tt><br>
+	 * without compiling a {@link java.util.regex.Pattern}. Like <tt>split</tt> an empty value,
+	 * e.g. of <tt>"requires: "</tt>, gives one empty token.
+	 *
+	 * @param PI_S_line the line last passed to {@link #FE_lex(CharSequence)}
+	 * @return the whitespace separated tokens of the value, interned in {@link #O_symbols} if present
+	 */
+	public String[] FAS_get_tokens(final CharSequence PI_S_line) {
+
+		String AS_retval_tokens[];
+		int i1, I_nbr_tokens_f1, I_pos_f0, I_end_f0;
+
+		I_nbr_tokens_f1 = 0;
+		I_pos_f0 = this.I_val_start_f0;
+		while (I_pos_f0 < this.I_val_end_f0) {
+			while ((I_pos_f0 < this.I_val_end_f0) && FB_is_space(PI_S_line.charAt(I_pos_f0))) {
+				I_pos_f0++;
+			    }
+			if (I_pos_f0 < this.I_val_end_f0) {
+			   I_nbr_tokens_f1++;
+			   I_pos_f0 = FI_next_space(PI_S_line, I_pos_f0, this.I_val_end_f0);
+			   }
+		    }
+		if (I_nbr_tokens_f1 == 0) {
+		   AS_retval_tokens = new String[] {FS_get_slice(PI_S_line, this.I_val_start_f0, this.I_val_start_f0)};
+		   return AS_retval_tokens;
+		   }
+		AS_retval_tokens = new String[I_nbr_tokens_f1];
+		I_pos_f0 = this.I_val_start_f0;
+		for (i1 = 0; i1 < I_nbr_tokens_f1; i1++) {
+			while (FB_is_space(PI_S_line.charAt(I_pos_f0))) {
+				I_pos_f0++;
+			    }
+			I_end_f0 = FI_next_space(PI_S_line, I_pos_f0, this.I_val_end_f0);
+			AS_retval_tokens[i1] = FS_get_slice(PI_S_line, I_pos_f0, I_end_f0);
+			I_pos_f0 = I_end_f0;
+		    }
+		return AS_retval_tokens;
+	}
+}
@@ -0,0 +1,129 @@
+package com.github.michaelederaut.cygwinparser;
+
+import java.nio.ByteBuffer;
+
+import com.github.michaelederaut.cygwinparser.MappedIniLineReader.ByteLine;
+import com.github.michaelederaut.cygwinparser.SetupIniLexer.LineKind;
+
+/**
+ * Divides a mapped <tt>setup.ini</tt> into package stanzas without parsing them.<br>
+ * A stanza starts with a package header line <tt>"@ "</tt> and ends in front of the next one,
+ * a header line inside of a long description does not count, see
+ * {@link MappedIniLineReader#FB_is_pckg_start(ByteBuffer, int, int, int, SetupIniLexer)}.
+ * For each stanza the package name, the byte range, the line number of its header
+ * and a 64 bit FNV-1a fingerprint of its bytes are determined.<br>
+ * The results of the current stanza are kept in the public fields, see {@link #FB_next()}.
+ */
+public class StanzaScanner {
+
+	public static final long L_fnv_offset_basis = 0xcbf29ce484222325L;
+	public static final long L_fnv_prime        = 0x100000001b3L;
+
+	protected ByteBuffer    O_buffer;
+	protected ByteLine      O_hdr_line;
+	protected SetupIniLexer O_lexer;
+	protected int           I_pos_f0, I_limit_f0, I_nbr_lines_f1;
+
+	public String S_pckg_name;  // null if the header line is not a valid package header
+	public int    I_start_f0, I_end_f0, I_line_nbr_f1;
+	public long   L_fingerprint;
+
+	/**
+	 *
+	 * @param PI_O_buff_reader mapped file, only its bytes are used
+	 * @param PI_O_symbols table the package names are interned in, may be null
+	 */
+	public StanzaScanner(
+			final MappedIniLineReader PI_O_buff_reader,
+			final SymbolTable         PI_O_symbols) {
+
+		this.O_buffer       = PI_O_buff_reader.O_buffer;
+		this.O_hdr_line     = new ByteLine(this.O_buffer);
+		this.O_lexer        = new SetupIniLexer(PI_O_symbols);
+		this.I_pos_f0       = 0;
+		this.I_limit_f0     = PI_O_buff_reader.I_limit_f0;
+		this.I_nbr_lines_f1 = 0;
+	}
+
+	/**
+	 *
+	 * @param PI_I_pos_f0 start of the line to be examined
+	 * @param PI_I_start_f0 start of a line in front of it outside of any long description
+	 */
+	protected boolean FB_is_pckg_hdr(
+			final int PI_I_pos_f0,
+			final int PI_I_start_f0) {
+		boolean B_retval;
+
+		B_retval = MappedIniLineReader.FB_is_pckg_start(this.O_buffer, PI_I_pos_f0, PI_I_start_f0, this.I_limit_f0, this.O_lexer);
+		return B_retval;
+	}
+
+	/**
+	 * Advances to the next stanza.
+	 *
+	 * @return false at the end of the file
+	 */
+	public boolean FB_next() {
+
+		ByteBuffer O_buffer;
+		LineKind   E_line_kind;
+		long       L_hash;
+		int        I_pos_f0, I_hdr_end_f0;
+		byte       Y_byte;
+
+		O_buffer = this.O_buffer;
+		I_pos_f0 = this.I_pos_f0;
+		LOOP_SKIP_LINES: while (I_pos_f0 < this.I_limit_f0) {  // lines in front of the first stanza
+			if (FB_is_pckg_hdr(I_pos_f0, this.I_pos_f0)) {
+			   break LOOP_SKIP_LINES;
+			   }
+			while ((I_pos_f0 < this.I_limit_f0) && (O_buffer.get(I_pos_f0++) != '\n')) {
+				// skip
+			    }
+			this.I_nbr_lines_f1++;
+		    }
+		if (I_pos_f0 >= this.I_limit_f0) {
+		   this.I_pos_f0 = I_pos_f0;
+		   return false;
+		   }
+		this.I_start_f0    = I_pos_f0;
+		this.I_line_nbr_f1 = this.I_nbr_lines_f1 + 1;
+		I_hdr_end_f0 = -1;
+		L_hash = L_fnv_offset_basis;
+		LOOP_STANZA_LINES: do {
+			while (I_pos_f0 < this.I_limit_f0) {
+				Y_byte = O_buffer.get(I_pos_f0++);
+				L_hash = (L_hash ^ (Y_byte & 0xFF)) * L_fnv_prime;
+				if (Y_byte == '\n') {
+				   break;
+				   }
+			    }
+			this.I_nbr_lines_f1++;
+			if (I_hdr_end_f0 < 0) {
+			   I_hdr_end_f0 = I_pos_f0;
+			   }
+			if ((I_pos_f0 < this.I_limit_f0) && FB_is_pckg_hdr(I_pos_f0, this.I_start_f0)) {
+			   break LOOP_STANZA_LINES;
+			   }
+		    } while (I_pos_f0 < this.I_limit_f0);
+		this.I_end_f0      = I_pos_f0;
+		this.I_pos_f0      = I_pos_f0;
+		this.L_fingerprint = L_hash;
+
+		while ((I_hdr_end_f0 > this.I_start_f0) &&
+			   ((O_buffer.get(I_hdr_end_f0 - 1) == '\n') || (O_buffer.get(I_hdr_end_f0 - 1) == '\r'))) {
+			I_hdr_end_f0--;
+		    }
+		this.O_hdr_line.I_start_f0 = this.I_start_f0;
+		this.O_hdr_line.I_end_f0   = I_hdr_end_f0;
+		E_line_kind = this.O_lexer.FE_lex(this.O_hdr_line);
+		if (E_line_kind == LineKind.pckgHdr) {
+		   this.S_pckg_name = this.O_lexer.FS_get_symbol(this.O_hdr_line);
+		   }
+		else {
+		   this.S_pckg_name = null;
+		   }
+		return true;
+	}
+}
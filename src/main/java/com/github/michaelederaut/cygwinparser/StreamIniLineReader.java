@@ -0,0 +1,214 @@
+package com.github.michaelederaut.cygwinparser;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+
+import com.github.michaelederaut.cygwinparser.MappedIniLineReader.ByteLine;
+
+/**
+ * Reads <tt>setup.ini</tt> forward-only from an {@link InputStream} or a {@link ReadableByteChannel}.<br>
+ * Only a window of the input is kept, the current line is handed out as one reusable {@link ByteLine}.<br>
+ * {@link #FO_open(File)} and {@link #FO_create(InputStream, String)} recognise compressed input like
+ * <tt>setup.xz</tt>, <tt>setup.zst</tt> or a bzip2 file by its signature and decompress it while it is parsed.
+ * xz and zstd require <tt>org.tukaani:xz</tt> resp. <tt>com.github.luben:zstd-jni</tt> at runtime.
+ */
+public class StreamIniLineReader extends IniLineReader {
+
+	public static final int I_dflt_buffer_size = 1 << 16;
+
+	protected ReadableByteChannel O_channel;
+	protected ByteBuffer          O_buffer;   // window of the input, [I_pos_f0, I_fill_f0) not read yet
+	protected ByteLine            O_line;
+	protected int                 I_pos_f0, I_fill_f0;
+	protected boolean             B_eof_input;
+
+	/**
+	 *
+	 * @param PI_O_channel uncompressed input, closed by {@link #FV_close()}
+	 * @param PI_S_pn name of the input for messages
+	 */
+	public StreamIniLineReader(
+			final ReadableByteChannel PI_O_channel,
+			final String              PI_S_pn) {
+
+		this.S_pn            = PI_S_pn;
+		this.O_channel       = PI_O_channel;
+		this.O_buffer        = ByteBuffer.allocate(I_dflt_buffer_size);
+		this.O_line          = new ByteLine(this.O_buffer);
+		this.I_pos_f0        = 0;
+		this.I_fill_f0       = 0;
+		this.I_curr_line_nbr = 0;
+		this.B_eof_input     = false;
+	}
+
+	/**
+	 *
+	 * @param PI_O_input_stream uncompressed input, closed by {@link #FV_close()}
+	 * @param PI_S_pn name of the input for messages
+	 */
+	public StreamIniLineReader(
+			final InputStream PI_O_input_stream,
+			final String      PI_S_pn) {
+
+		this(Channels.newChannel(PI_O_input_stream), PI_S_pn);
+	}
+
+	/**
+	 *
+	 * @param PI_O_input_stream input, compressed or not
+	 * @param PI_S_pn name of the input for messages
+	 * @return reader of the decompressed input
+	 */
+	public static StreamIniLineReader FO_create(
+			final InputStream PI_O_input_stream,
+			final String      PI_S_pn) {
+
+		RuntimeException    E_rt;
+		InputStream         O_input_stream;
+		StreamIniLineReader O_retval_reader;
+		String              S_compressor, S_msg_1;
+
+		O_input_stream = PI_O_input_stream.markSupported() ? PI_O_input_stream : new BufferedInputStream(PI_O_input_stream);
+		try {
+			try {
+				S_compressor = CompressorStreamFactory.detect(O_input_stream);
+			} catch (CompressorException PI_E_compressor) {
+				if (PI_E_compressor.getCause() instanceof IOException) {
+				   throw (IOException)PI_E_compressor.getCause();
+				   }
+				S_compressor = null;  // no known signature, plain text
+			    }
+			if (S_compressor != null) {
+			   O_input_stream = CompressorStreamFactory.getSingleton().createCompressorInputStream(
+					   S_compressor, O_input_stream, true);
+			   }
+		} catch (IOException | CompressorException PI_E_io) {
+			S_msg_1 = "Unable to open input stream \"" + PI_S_pn + "\"";
+			E_rt = new RuntimeException(S_msg_1, PI_E_io);
+			throw E_rt;
+		    }
+		O_retval_reader = new StreamIniLineReader(O_input_stream, PI_S_pn);
+		return O_retval_reader;
+	}
+
+	/**
+	 *
+	 * @param PI_F_pna_setup_ini <tt>setup.ini</tt>, <tt>setup.xz</tt>, <tt>setup.zst</tt> or <tt>setup.bz2</tt>
+	 */
+	public static StreamIniLineReader FO_open(final File PI_F_pna_setup_ini) {
+
+		RuntimeException    E_rt;
+		FileInputStream     O_file_input_stream;
+		StreamIniLineReader O_retval_reader;
+		String              S_msg_1;
+
+		try {
+			O_file_input_stream = new FileInputStream(PI_F_pna_setup_ini);
+		} catch (IOException PI_E_io) {
+			S_msg_1 = "Unable to instantiate a file-object of type \'" + StreamIniLineReader.class.getName() + "\' " +
+		              "from path \"" + PI_F_pna_setup_ini.getPath() + "\"";
+			E_rt = new RuntimeException(S_msg_1, PI_E_io);
+			throw E_rt;
+		    }
+		O_retval_reader = FO_create(new BufferedInputStream(O_file_input_stream, I_dflt_buffer_size), PI_F_pna_setup_ini.getPath());
+		return O_retval_reader;
+	}
+
+	/**
+	 * Moves the unread bytes to the start of the window, enlarges it if they fill it completely,
+	 * and reads as much input as fits.
+	 *
+	 * @return false if there was no more input
+	 */
+	protected boolean FB_fill() {
+
+		RuntimeException E_rt;
+		ByteBuffer       O_buffer;
+		String           S_msg_1;
+		int              I_nbr_unread_f1, I_nbr_read_f1;
+
+		I_nbr_unread_f1 = this.I_fill_f0 - this.I_pos_f0;
+		if ((this.I_pos_f0 == 0) && (I_nbr_unread_f1 == this.O_buffer.capacity())) {
+		   O_buffer = ByteBuffer.allocate(2 * this.O_buffer.capacity());
+		   this.O_line = new ByteLine(O_buffer);
+		   }
+		else {
+		   O_buffer = this.O_buffer;
+		   }
+		System.arraycopy(this.O_buffer.array(), this.I_pos_f0, O_buffer.array(), 0, I_nbr_unread_f1);
+		this.O_buffer  = O_buffer;
+		this.I_pos_f0  = 0;
+		this.I_fill_f0 = I_nbr_unread_f1;
+		O_buffer.position(I_nbr_unread_f1);
+		try {
+			I_nbr_read_f1 = this.O_channel.read(O_buffer);
+		} catch (IOException PI_E_io) {
+			S_msg_1 = "Unable to read from \"" + this.S_pn + "\"";
+			E_rt = new RuntimeException(S_msg_1, PI_E_io);
+			throw E_rt;
+		    }
+		if (I_nbr_read_f1 < 0) {
+		   this.B_eof_input = true;
+		   return false;
+		   }
+		this.I_fill_f0 = O_buffer.position();
+		return true;
+	}
+
+	@Override
+	public CharSequence FO_read_line() {
+
+		byte AY_bytes[];
+		int  I_pos_f0, I_end_f0, I_nbr_scanned_f1;
+
+		I_nbr_scanned_f1 = 0;
+		LOOP_FIND_EOL: while (true) {
+			AY_bytes = this.O_buffer.array();
+			I_pos_f0 = this.I_pos_f0 + I_nbr_scanned_f1;
+			while ((I_pos_f0 < this.I_fill_f0) && (AY_bytes[I_pos_f0] != '\n')) {
+				I_pos_f0++;
+			    }
+			if ((I_pos_f0 < this.I_fill_f0) || this.B_eof_input) {
+			   break LOOP_FIND_EOL;
+			   }
+			I_nbr_scanned_f1 = I_pos_f0 - this.I_pos_f0;
+			FB_fill();
+		    }
+		if (this.I_pos_f0 >= this.I_fill_f0) {
+		   return null;
+		   }
+		I_end_f0 = I_pos_f0;
+		if ((I_end_f0 > this.I_pos_f0) && (AY_bytes[I_end_f0 - 1] == '\r')) {
+		   I_end_f0--;
+		   }
+		this.O_line.I_start_f0 = this.I_pos_f0;
+		this.O_line.I_end_f0   = I_end_f0;
+		this.I_pos_f0 = Math.min(I_pos_f0 + 1, this.I_fill_f0);
+		this.I_curr_line_nbr++;
+		return this.O_line;
+	}
+
+	@Override
+	public void FV_close() {
+
+		RuntimeException E_rt;
+		String S_msg_1;
+
+		try {
+			this.O_channel.close();
+		} catch (IOException PI_E_io) {
+			S_msg_1 = "Unable to close " + this.O_channel.getClass().getSimpleName() + " \"" + this.S_pn + "\"";
+			E_rt = new RuntimeException(S_msg_1, PI_E_io);
+			throw E_rt;
+		    }
+	}
+}
@@ -0,0 +1,188 @@
+package com.github.michaelederaut.cygwinparser;
+
+/**
+ * Canonical String instances for the recurring tokens of <tt>setup.ini</tt>:<br>
+ * package and category names, dependencies and versions.<br>
+ * Tokens are looked up directly from slices of a line, a String is only created for a token not seen before.
+ * Each symbol has a small int id, ids are assigned consecutively from 0.<br>
+ * An instance belongs to one parse and is not thread-safe.
+ */
+public class SymbolTable {
+
+	public static final int I_dflt_capacity = 1024;
+
+	protected String AS_symbols[];    // indexed by id
+	protected int    AI_hashes[];     // indexed by id
+	protected int    AI_slots[];      // id + 1, 0 if empty
+	protected int    I_nbr_symbols_f1;
+
+	public SymbolTable() {
+		this(I_dflt_capacity);
+	}
+
+	public SymbolTable(final int PI_I_capacity_f1) {
+		int I_nbr_slots_f1;
+
+		I_nbr_slots_f1 = Integer.highestOneBit(Math.max(16, PI_I_capacity_f1) * 4 - 1);
+		this.AS_symbols = new String[I_nbr_slots_f1 / 2];
+		this.AI_hashes  = new int[I_nbr_slots_f1 / 2];
+		this.AI_slots   = new int[I_nbr_slots_f1];
+		this.I_nbr_symbols_f1 = 0;
+	}
+
+	protected static int FI_spread(final int PI_I_hash) {
+		return PI_I_hash ^ (PI_I_hash >>> 16);
+	}
+
+	/**
+	 *
+	 * @param PI_S_chars line or String the token is taken from
+	 * @param PI_I_start_f0 start of the token
+	 * @param PI_I_end_f0 first position behind the token
+	 * @return id of the token, it is added if not yet known
+	 */
+	public int FI_intern(
+			final CharSequence PI_S_chars,
+			final int          PI_I_start_f0,
+			final int          PI_I_end_f0) {
+
+		String S_symbol;
+		char C_char;
+		int i1, I_hash, I_mask, I_slot_f0, I_id_f1, I_len_f1;
+
+		I_hash = 0;
+		for (i1 = PI_I_start_f0; i1 < PI_I_end_f0; i1++) {
+			C_char = PI_S_chars.charAt(i1);
+			if (C_char >= 0x80) {  // a ByteLine returns single bytes of UTF-8 sequences, compare decoded
+			   S_symbol = PI_S_chars.subSequence(PI_I_start_f0, PI_I_end_f0).toString();
+			   return FI_intern(S_symbol, 0, S_symbol.length(), S_symbol.hashCode(), S_symbol);
+			   }
+			I_hash = 31 * I_hash + C_char;
+		    }
+		I_len_f1  = PI_I_end_f0 - PI_I_start_f0;
+		I_mask    = this.AI_slots.length - 1;
+		I_slot_f0 = FI_spread(I_hash) & I_mask;
+		LOOP_SLOTS: while ((I_id_f1 = this.AI_slots[I_slot_f0]) != 0) {
+			if (this.AI_hashes[I_id_f1 - 1] == I_hash) {
+			   S_symbol = this.AS_symbols[I_id_f1 - 1];
+			   if (S_symbol.length() == I_len_f1) {
+				  for (i1 = 0; i1 < I_len_f1; i1++) {
+					  if (S_symbol.charAt(i1) != PI_S_chars.charAt(PI_I_start_f0 + i1)) {
+						 I_slot_f0 = (I_slot_f0 + 1) & I_mask;
+						 continue LOOP_SLOTS;
+					     }
+				      }
+				  return I_id_f1 - 1;
+			      }
+			   }
+			I_slot_f0 = (I_slot_f0 + 1) & I_mask;
+		    }
+		S_symbol = PI_S_chars.subSequence(PI_I_start_f0, PI_I_end_f0).toString();
+		return FV_add(S_symbol, I_hash, I_slot_f0);
+	}
+
+	protected int FI_intern(
+			final CharSequence PI_S_chars,
+			final int          PI_I_start_f0,
+			final int          PI_I_end_f0,
+			final int          PI_I_hash,
+			final String       PI_S_symbol) {
+
+		int I_mask, I_slot_f0, I_id_f1;
+
+		I_mask    = this.AI_slots.length - 1;
+		I_slot_f0 = FI_spread(PI_I_hash) & I_mask;
+		while ((I_id_f1 = this.AI_slots[I_slot_f0]) != 0) {
+			if ((this.AI_hashes[I_id_f1 - 1] == PI_I_hash) && this.AS_symbols[I_id_f1 - 1].equals(PI_S_symbol)) {
+			   return I_id_f1 - 1;
+			   }
+			I_slot_f0 = (I_slot_f0 + 1) & I_mask;
+		    }
+		return FV_add(PI_S_symbol, PI_I_hash, I_slot_f0);
+	}
+
+	protected int FV_add(
+			final String PI_S_symbol,
+			final int    PI_I_hash,
+			final int    PI_I_slot_f0) {
+
+		String AS_symbols[];
+		int AI_hashes[], AI_slots[];
+		int i1, I_id_f0, I_mask, I_slot_f0;
+
+		I_id_f0 = this.I_nbr_symbols_f1;
+		this.AS_symbols[I_id_f0] = PI_S_symbol;
+		this.AI_hashes[I_id_f0]  = PI_I_hash;
+		this.AI_slots[PI_I_slot_f0] = I_id_f0 + 1;
+		this.I_nbr_symbols_f1++;
+		if (this.I_nbr_symbols_f1 == this.AS_symbols.length) {  // load factor 1/2 reached
+		   AS_symbols = new String[this.AS_symbols.length * 2];
+		   AI_hashes  = new int[AS_symbols.length];
+		   AI_slots   = new int[this.AI_slots.length * 2];
+		   System.arraycopy(this.AS_symbols, 0, AS_symbols, 0, this.I_nbr_symbols_f1);
+		   System.arraycopy(this.AI_hashes,  0, AI_hashes,  0, this.I_nbr_symbols_f1);
+		   I_mask = AI_slots.length - 1;
+		   for (i1 = 0; i1 < this.I_nbr_symbols_f1; i1++) {
+			   I_slot_f0 = FI_spread(AI_hashes[i1]) & I_mask;
+			   while (AI_slots[I_slot_f0] != 0) {
+				   I_slot_f0 = (I_slot_f0 + 1) & I_mask;
+			       }
+			   AI_slots[I_slot_f0] = i1 + 1;
+		       }
+		   this.AS_symbols = AS_symbols;
+		   this.AI_hashes  = AI_hashes;
+		   this.AI_slots   = AI_slots;
+		   }
+		return I_id_f0;
+	}
+
+	/**
+	 *
+	 * @return the canonical instance of the token <tt>[PI_I_start_f0, PI_I_end_f0)</tt>
+	 */
+	public String FS_intern(
+			final CharSequence PI_S_chars,
+			final int          PI_I_start_f0,
+			final int          PI_I_end_f0) {
+
+		String S_retval;
+
+		S_retval = this.AS_symbols[FI_intern(PI_S_chars, PI_I_start_f0, PI_I_end_f0)];
+		return S_retval;
+	}
+
+	/**
+	 *
+	 * @return the canonical instance of <tt>PI_S_symbol</tt>, null for null
+	 */
+	public String FS_intern(final String PI_S_symbol) {
+
+		String S_retval;
+
+		if (PI_S_symbol == null) {
+		   return null;
+		   }
+		S_retval = this.AS_symbols[FI_intern(PI_S_symbol, 0, PI_S_symbol.length(), PI_S_symbol.hashCode(), PI_S_symbol)];
+		return S_retval;
+	}
+
+	/**
+	 *
+	 * @return id of <tt>PI_S_symbol</tt>, it is added if not yet known
+	 */
+	public int FI_get_id(final String PI_S_symbol) {
+
+		int I_retval_id_f0;
+
+		I_retval_id_f0 = FI_intern(PI_S_symbol, 0, PI_S_symbol.length(), PI_S_symbol.hashCode(), PI_S_symbol);
+		return I_retval_id_f0;
+	}
+
+	public String FS_get_symbol(final int PI_I_id_f0) {
+		return this.AS_symbols[PI_I_id_f0];
+	}
+
+	public int FI_size() {
+		return this.I_nbr_symbols_f1;
+	}
+}
@@ -0,0 +1,185 @@
+package com.github.michaelederaut.cygwinparser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import com.github.michaelederaut.cygwinparser.SetupIniContents.ArchInfo.DlStatus;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * {@link ArchiveChecker} on a mirror tree written by the test: the concurrent check
+ * has to give each slot the same status as the sequential one.
+ */
+public class ArchiveCheckerTest extends TestCase {
+
+	protected static final String S_dnr_site     = "site";
+	protected static final int    I_nbr_pckgs_f1 = 300;
+
+	protected Path FP_dna_root;
+	protected File F_pna_setup_ini;
+
+	public ArchiveCheckerTest(final String PI_S_test_name) {
+		super(PI_S_test_name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(ArchiveCheckerTest.class);
+	}
+
+	/**
+	 * Writes the <tt>setup.ini</tt> of {@link IniFileParserTest#FV_write_setup_ini(File, int)} and a tree
+	 * where each archive is either there, there with a wrong size, missing, missing with another version
+	 * of it in the folder or a folder instead of a file.
+	 */
+	@Override
+	protected void setUp() throws IOException {
+
+		SetupIniContents O_setup_ini_contents;
+		PckgTable        O_pckg_table;
+		Random           O_rnd;
+		File             F_pna_archive;
+		String           S_pnr_archive;
+		int i1, I_slot_f0, I_size;
+
+		this.FP_dna_root = Files.createTempDirectory("mirror-");
+		this.F_pna_setup_ini = this.FP_dna_root.resolve("setup.ini").toFile();
+		IniFileParserTest.FV_write_setup_ini(this.F_pna_setup_ini, I_nbr_pckgs_f1);
+		O_setup_ini_contents = FO_parse();
+		O_pckg_table = O_setup_ini_contents.FO_get_pckg_table();
+		O_rnd = new Random(22);
+		for (i1 = 0; i1 < O_pckg_table.I_nbr_pckgs_f1; i1++) {
+			for (I_slot_f0 = PckgTable.I_nbr_slots * i1; I_slot_f0 < PckgTable.I_nbr_slots * (i1 + 1); I_slot_f0++) {
+				S_pnr_archive = O_pckg_table.AS_archive_paths[I_slot_f0];
+				if (S_pnr_archive == null) {
+				   continue;
+				   }
+				F_pna_archive = this.FP_dna_root.resolve(S_dnr_site).resolve(S_pnr_archive).toFile();
+				F_pna_archive.getParentFile().mkdirs();
+				I_size = O_pckg_table.AI_sizes[I_slot_f0];
+				switch (O_rnd.nextInt(5)) {
+				case 0:
+					FV_create(F_pna_archive, I_size);
+					break;
+				case 1:
+					FV_create(F_pna_archive, I_size + 1);
+					break;
+				case 2:  // missing
+					break;
+				case 3:
+					FV_create(new File(F_pna_archive.getParentFile(), F_pna_archive.getName().replace("-1." + i1 + "-1", "-0.9-1")), 10);
+					break;
+				default:
+					F_pna_archive.mkdirs();
+					break;
+				    }
+			    }
+		    }
+		return;
+	}
+
+	@Override
+	protected void tearDown() throws IOException {
+
+		try (Stream<Path> AFP_pnas = Files.walk(this.FP_dna_root)) {
+			AFP_pnas.sorted(Comparator.reverseOrder()).forEach((Path PI_FP_pna) -> PI_FP_pna.toFile().delete());
+		    }
+		return;
+	}
+
+	protected static void FV_create(
+			final File PI_F_pna,
+			final int  PI_I_size) throws IOException {
+
+		try (RandomAccessFile O_raf = new RandomAccessFile(PI_F_pna, "rw")) {
+			O_raf.setLength(PI_I_size);
+		    }
+		return;
+	}
+
+	protected SetupIniContents FO_parse() {
+
+		MappedIniLineReader O_buff_reader;
+
+		O_buff_reader = new MappedIniLineReader(this.F_pna_setup_ini);
+		try {
+			return IniFileParser.FO_parse(O_buff_reader);
+		} finally {
+			O_buff_reader.FV_close();
+		    }
+	}
+
+	protected static void FV_assert_equals(
+			final PckgTable PI_O_expected,
+			final PckgTable PI_O_actual) {
+
+		int I_slot_f0;
+
+		for (I_slot_f0 = 0; I_slot_f0 < PI_O_expected.AY_dl_status.length; I_slot_f0++) {
+			assertEquals("slot " + I_slot_f0, PI_O_expected.FE_get_dl_status(I_slot_f0), PI_O_actual.FE_get_dl_status(I_slot_f0));
+			assertEquals("slot " + I_slot_f0, PI_O_expected.AS_versions_found[I_slot_f0], PI_O_actual.AS_versions_found[I_slot_f0]);
+		    }
+		return;
+	}
+
+	protected void FV_check(final ArchiveChecker PI_O_checker) {
+
+		ExecutorService   O_executor;
+		PckgTable         O_sequential, O_concurrent, O_pooled;
+		EnumSet<DlStatus> AE_found;
+		int I_nbr_found_f1, I_slot_f0;
+
+		O_sequential = FO_parse().FO_get_pckg_table();
+		O_concurrent = FO_parse().FO_get_pckg_table();
+		O_pooled     = FO_parse().FO_get_pckg_table();
+		I_nbr_found_f1 = PI_O_checker.FI_check_pckgs(S_dnr_site, O_sequential);
+
+		O_executor = Executors.newCachedThreadPool();
+		try {
+			assertEquals(I_nbr_found_f1, PI_O_checker.FI_check_pckgs(S_dnr_site, O_concurrent, O_executor, 16));
+		} finally {
+			O_executor.shutdown();
+		    }
+		FV_assert_equals(O_sequential, O_concurrent);
+		assertEquals(I_nbr_found_f1, PI_O_checker.FI_check_pckgs(S_dnr_site, O_pooled, 4));
+		FV_assert_equals(O_sequential, O_pooled);
+
+		AE_found = EnumSet.noneOf(DlStatus.class);
+		for (I_slot_f0 = 0; I_slot_f0 < O_sequential.AY_dl_status.length; I_slot_f0++) {
+			if (O_sequential.AS_archive_paths[I_slot_f0] != null) {
+			   AE_found.add(O_sequential.FE_get_dl_status(I_slot_f0));
+			   }
+		    }
+		assertEquals(
+				EnumSet.of(DlStatus.unknown, DlStatus.prev, DlStatus.exists, DlStatus.isFile, DlStatus.sizeOk),
+				AE_found);
+		assertTrue(Arrays.asList(O_sequential.AS_versions_found).contains("0.9-1"));
+		return;
+	}
+
+	public void testConcurrentAsSequential() {
+		FV_check(new ArchiveChecker(this.FP_dna_root.toString()));
+	}
+
+	public void testConcurrentAsSequentialIndexed() {
+
+		ArchiveChecker O_checker;
+
+		O_checker = new ArchiveChecker(this.FP_dna_root.toString());
+		O_checker.FO_index_mirror(S_dnr_site, ForkJoinPool.commonPool());
+		FV_check(O_checker);
+	}
+}
@@ -0,0 +1,233 @@
+package com.github.michaelederaut.cygwinparser;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import com.github.michaelederaut.cygwinparser.SetupIniContents.ArchInfo.DlStatus;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * {@link ArchiveVerifier} on archives written by the test, their digests listed in a <tt>setup.ini</tt>.<br>
+ * Package <tt>p1</tt> has an install archive with other contents than the ones hashed,
+ * the install archive of <tt>p2</tt> is deleted after the check.
+ */
+public class ArchiveVerifierTest extends TestCase {
+
+	protected static final String S_dnr_site      = "site";
+	protected static final int    I_nbr_pckgs_f1  = 6;
+	protected static final int    I_block_size_f1 = 4096;
+
+	protected Path      FP_dna_root;
+	protected PckgTable O_pckg_table;
+
+	public ArchiveVerifierTest(final String PI_S_test_name) {
+		super(PI_S_test_name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(ArchiveVerifierTest.class);
+	}
+
+	protected static String FS_get_hex(final byte PI_AY_bytes[]) {
+
+		StringBuilder O_sb;
+
+		O_sb = new StringBuilder(2 * PI_AY_bytes.length);
+		for (byte Y_byte: PI_AY_bytes) {
+			O_sb.append(String.format("%02x", Y_byte & 0xFF));
+		    }
+		return O_sb.toString();
+	}
+
+	protected static byte[] FAY_sha512(final byte PI_AY_contents[]) {
+
+		RuntimeException E_rt;
+		String           S_msg_1;
+
+		try {
+			return MessageDigest.getInstance(ArchiveVerifier.S_digest_algorithm).digest(PI_AY_contents);
+		} catch (NoSuchAlgorithmException PI_E_nsa) {
+			S_msg_1 = "Digest algorithm \"" + ArchiveVerifier.S_digest_algorithm + "\" not available";
+			E_rt = new RuntimeException(S_msg_1, PI_E_nsa);
+			throw E_rt;
+		    }
+	}
+
+	/**
+	 * Writes archives of sizes around multiples of {@link #I_block_size_f1} and the <tt>setup.ini</tt> listing them,
+	 * then determines their download status.
+	 */
+	@Override
+	protected void setUp() throws IOException {
+
+		StringBuilder  O_sb;
+		Random         O_rnd;
+		ArchiveChecker O_checker;
+		String         S_name, S_pnr_install, S_pnr_source;
+		byte AY_install[], AY_source[];
+		int i1, i2, I_slot_f0;
+
+		this.FP_dna_root = Files.createTempDirectory("mirror-");
+		O_rnd = new Random(23);
+		O_sb  = new StringBuilder("release: cygwin\narch: x86_64\n\n");
+		for (i1 = 0; i1 < I_nbr_pckgs_f1; i1++) {
+			S_name        = "p" + i1;
+			S_pnr_install = "x86_64/release/" + S_name + "/" + S_name + "-1.0-1.tar.xz";
+			S_pnr_source  = "x86_64/release/" + S_name + "/" + S_name + "-1.0-1-src.tar.xz";
+			AY_install = new byte[i1 * I_block_size_f1 + ((i1 % 2 == 0) ? 0 : 17)];
+			AY_source  = new byte[3 * I_block_size_f1 - i1];
+			O_rnd.nextBytes(AY_install);
+			O_rnd.nextBytes(AY_source);
+			O_sb.append("@ " + S_name + "\n");
+			O_sb.append("sdesc: \"Package " + S_name + "\"\n");
+			O_sb.append("ldesc: \"Package " + S_name + "\"\n");
+			O_sb.append("category: Base\n");
+			O_sb.append("requires: cygwin\n");
+			O_sb.append("version: 1.0-1\n");
+			O_sb.append("install: " + S_pnr_install + " " + AY_install.length + " " + FS_get_hex(FAY_sha512(AY_install)) + "\n");
+			O_sb.append("source: " + S_pnr_source + " " + AY_source.length + " " + FS_get_hex(FAY_sha512(AY_source)) + "\n\n");
+			if (i1 == 1) {  // same size, other contents
+			   AY_install = AY_install.clone();
+			   AY_install[AY_install.length / 2] ^= 1;
+			   }
+			Files.createDirectories(this.FP_dna_root.resolve(S_dnr_site).resolve(S_pnr_install).getParent());
+			Files.write(this.FP_dna_root.resolve(S_dnr_site).resolve(S_pnr_install), AY_install);
+			Files.write(this.FP_dna_root.resolve(S_dnr_site).resolve(S_pnr_source), AY_source);
+		    }
+		this.O_pckg_table = IniFileParser.FO_parse(
+				new ByteArrayInputStream(O_sb.toString().getBytes(StandardCharsets.UTF_8)),
+				"verify.ini").FO_get_pckg_table();
+		O_checker = new ArchiveChecker(this.FP_dna_root.toString());
+		O_checker.FI_check_pckgs(S_dnr_site, this.O_pckg_table);
+		for (i1 = 0; i1 < I_nbr_pckgs_f1; i1++) {
+			for (i2 = 0; i2 < PckgTable.I_nbr_purposes; i2++) {
+				I_slot_f0 = PckgTable.FI_get_slot(i1, 0, i2);
+				assertTrue("slot " + I_slot_f0, this.O_pckg_table.AI_version_ids[I_slot_f0] >= 0);
+				assertEquals("slot " + I_slot_f0, DlStatus.sizeOk, this.O_pckg_table.FE_get_dl_status(I_slot_f0));
+			    }
+		    }
+		Files.delete(this.FP_dna_root.resolve(S_dnr_site).resolve(this.O_pckg_table.AS_archive_paths[FI_get_install_slot(2)]));
+		return;
+	}
+
+	@Override
+	protected void tearDown() throws IOException {
+
+		try (Stream<Path> AFP_pnas = Files.walk(this.FP_dna_root)) {
+			AFP_pnas.sorted(Comparator.reverseOrder()).forEach((Path PI_FP_pna) -> PI_FP_pna.toFile().delete());
+		    }
+		return;
+	}
+
+	protected int FI_get_install_slot(final String PI_S_pckg_name) {
+		return PckgTable.FI_get_slot(this.O_pckg_table.FI_get_pckg_id(PI_S_pckg_name), 0, 0);
+	}
+
+	protected int FI_get_install_slot(final int PI_I_pckg_nbr) {
+		return FI_get_install_slot("p" + PI_I_pckg_nbr);
+	}
+
+	/**
+	 * Asserts the status of all archives: <tt>p1</tt> mismatching, <tt>p2</tt> unreadable, the others ok.
+	 */
+	protected void FV_assert_result(final ArchiveVerifier.Result PI_O_result) {
+
+		int I_slot_mismatch_f0, I_slot_missing_f0, I_slot_f0, i1, i2;
+
+		I_slot_mismatch_f0 = FI_get_install_slot(1);
+		I_slot_missing_f0  = FI_get_install_slot(2);
+		assertEquals(2 * I_nbr_pckgs_f1, PI_O_result.I_nbr_archives_f1);
+		assertEquals(2 * I_nbr_pckgs_f1 - 2, PI_O_result.I_nbr_hash_ok_f1);
+		assertEquals(1, PI_O_result.I_nbr_mismatches_f1);
+		assertTrue(Arrays.equals(new int[] {I_slot_mismatch_f0}, PI_O_result.AI_mismatch_slots));
+		assertEquals(1, PI_O_result.I_nbr_failures_f1);
+		assertTrue(Arrays.equals(new int[] {I_slot_missing_f0}, PI_O_result.AI_failed_slots));
+		assertTrue(PI_O_result.AE_failures[0] instanceof NoSuchFileException);
+		for (i1 = 0; i1 < I_nbr_pckgs_f1; i1++) {
+			for (i2 = 0; i2 < PckgTable.I_nbr_purposes; i2++) {
+				I_slot_f0 = PckgTable.FI_get_slot(i1, 0, i2);
+				if (I_slot_f0 == I_slot_mismatch_f0) {
+				   assertEquals(DlStatus.hashMismatch, this.O_pckg_table.FE_get_dl_status(I_slot_f0));
+				   }
+				else if (I_slot_f0 == I_slot_missing_f0) {
+				   assertEquals(DlStatus.sizeOk, this.O_pckg_table.FE_get_dl_status(I_slot_f0));
+				   }
+				else {
+				   assertEquals(DlStatus.hashOk, this.O_pckg_table.FE_get_dl_status(I_slot_f0));
+				   }
+			    }
+		    }
+		assertEquals(1, this.O_pckg_table.FO_get_pckgs_below(0, DlStatus.sizeOk).FI_cardinality());
+		return;
+	}
+
+	public void testDigest() throws IOException {
+
+		File F_pna_archive;
+		byte AY_contents[];
+
+		for (int I_size : new int[] {0, 1, I_block_size_f1 - 1, I_block_size_f1, 2 * I_block_size_f1 + 1}) {
+			AY_contents = new byte[I_size];
+			new Random(I_size).nextBytes(AY_contents);
+			F_pna_archive = File.createTempFile("archive-", ".tar.xz");
+			try {
+				Files.write(F_pna_archive.toPath(), AY_contents);
+				assertTrue(Arrays.equals(FAY_sha512(AY_contents), ArchiveVerifier.FAY_digest(F_pna_archive.toPath(), I_block_size_f1)));
+			} finally {
+				F_pna_archive.delete();
+			    }
+		    }
+	}
+
+	public void testVerify() {
+
+		ArchiveVerifier        O_verifier;
+		ArchiveVerifier.Result O_result;
+
+		O_verifier = new ArchiveVerifier(new ArchiveChecker(this.FP_dna_root.toString()), I_block_size_f1);
+		O_result   = O_verifier.FO_verify(S_dnr_site, this.O_pckg_table, 3);
+		FV_assert_result(O_result);
+		assertEquals(0, O_result.I_nbr_cached_f1);
+	}
+
+	/**
+	 * A second run takes the digests of the unchanged archives from the cache, the mismatching one included.
+	 * The archive deleted is no longer found by the check, so it is not verified again.
+	 */
+	public void testVerifyCached() {
+
+		ArchiveChecker         O_checker;
+		ArchiveVerifier        O_verifier;
+		ArchiveVerifier.Result O_result;
+
+		O_checker  = new ArchiveChecker(this.FP_dna_root.toString());
+		O_verifier = new ArchiveVerifier(O_checker, I_block_size_f1);
+		O_verifier.O_digest_cache = DigestCache.FO_open(this.FP_dna_root.resolve(DigestCache.S_bn_digest_cache).toFile());
+		FV_assert_result(O_verifier.FO_verify(S_dnr_site, this.O_pckg_table, 3));
+
+		O_checker.FI_check_pckgs(S_dnr_site, this.O_pckg_table);  // back to sizeOk
+		O_verifier.O_digest_cache = DigestCache.FO_open(this.FP_dna_root.resolve(DigestCache.S_bn_digest_cache).toFile());
+		O_result = O_verifier.FO_verify(S_dnr_site, this.O_pckg_table, 3);
+		assertEquals(2 * I_nbr_pckgs_f1 - 1, O_result.I_nbr_archives_f1);
+		assertEquals(2 * I_nbr_pckgs_f1 - 1, O_result.I_nbr_cached_f1);
+		assertEquals(2 * I_nbr_pckgs_f1 - 2, O_result.I_nbr_hash_ok_f1);
+		assertTrue(Arrays.equals(new int[] {FI_get_install_slot(1)}, O_result.AI_mismatch_slots));
+		assertEquals(0, O_result.I_nbr_failures_f1);
+		assertEquals(0L, O_result.L_nbr_bytes_f1);
+		assertEquals(DlStatus.hashMismatch, this.O_pckg_table.FE_get_dl_status(FI_get_install_slot(1)));
+	}
+}
@@ -0,0 +1,264 @@
+package com.github.michaelederaut.cygwinparser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import com.github.michaelederaut.cygwinparser.SetupIniContents.PckgChanges;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * {@link CatalogSnapshot} of the <tt>setup.ini</tt> of {@link IniFileParserTest#FV_write_setup_ini(File, int)}:
+ * the table read from the snapshot against the one of the parse, the key of the snapshot,
+ * damaged snapshots and the update of a snapshot of a former version.
+ */
+public class CatalogSnapshotTest extends TestCase {
+
+	protected static final int I_nbr_pckgs_f1 = 50;
+
+	protected Path FP_dna_root;
+	protected File F_pna_setup_ini, F_pna_snapshot;
+
+	public CatalogSnapshotTest(final String PI_S_test_name) {
+		super(PI_S_test_name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(CatalogSnapshotTest.class);
+	}
+
+	@Override
+	protected void setUp() throws IOException {
+
+		this.FP_dna_root     = Files.createTempDirectory("snapshot-");
+		this.F_pna_setup_ini = this.FP_dna_root.resolve("setup.ini").toFile();
+		this.F_pna_snapshot  = this.FP_dna_root.resolve(CatalogSnapshot.S_bn_snapshot).toFile();
+		IniFileParserTest.FV_write_setup_ini(this.F_pna_setup_ini, I_nbr_pckgs_f1);
+		return;
+	}
+
+	@Override
+	protected void tearDown() throws IOException {
+
+		try (Stream<Path> AFP_pnas = Files.walk(this.FP_dna_root)) {
+			AFP_pnas.sorted(Comparator.reverseOrder()).forEach((Path PI_FP_pna) -> PI_FP_pna.toFile().delete());
+		    }
+		return;
+	}
+
+	/**
+	 * Parses <tt>setup.ini</tt> and writes its snapshot.
+	 *
+	 * @return the packages parsed
+	 */
+	protected SetupIniContents FO_write_snapshot() {
+
+		MappedIniLineReader O_buff_reader;
+		SetupIniContents    O_retval_setup_ini_contents;
+
+		O_buff_reader = new MappedIniLineReader(this.F_pna_setup_ini);
+		try {
+			O_retval_setup_ini_contents = IniFileParser.FO_parse(O_buff_reader);
+			O_retval_setup_ini_contents.FV_set_fingerprints(O_buff_reader);
+			assertTrue(CatalogSnapshot.FB_write(this.F_pna_snapshot, O_buff_reader, O_retval_setup_ini_contents));
+		} finally {
+			O_buff_reader.FV_close();
+		    }
+		return O_retval_setup_ini_contents;
+	}
+
+	protected CatalogSnapshot FO_open() {
+		return CatalogSnapshot.FO_open(this.F_pna_snapshot, this.F_pna_setup_ini);
+	}
+
+	/**
+	 * Asserts the same packages, archives and categories, the names compared as strings
+	 * as the tables have symbol tables of their own.
+	 */
+	protected static void FV_assert_equals(
+			final PckgTable PI_O_expected,
+			final PckgTable PI_O_actual) {
+
+		PckgTable.PckgView O_view_expected, O_view_actual;
+		int i1, I_slot_f0;
+
+		assertEquals(PI_O_expected.I_nbr_pckgs_f1, PI_O_actual.I_nbr_pckgs_f1);
+		for (i1 = 0; i1 < PI_O_expected.I_nbr_pckgs_f1; i1++) {
+			O_view_expected = PI_O_expected.new PckgView(i1);
+			O_view_actual   = PI_O_actual.new PckgView(i1);
+			assertEquals(O_view_expected.FS_get_name(), O_view_actual.FS_get_name());
+			assertEquals(PI_O_expected.AS_sdescs[i1], PI_O_actual.AS_sdescs[i1]);
+			assertEquals(PI_O_expected.AI_line_nbrs_f1[i1], PI_O_actual.AI_line_nbrs_f1[i1]);
+			assertEquals(PI_O_expected.AY_nbr_versions[i1], PI_O_actual.AY_nbr_versions[i1]);
+			assertEquals(Arrays.asList(O_view_expected.FAS_get_categories()), Arrays.asList(O_view_actual.FAS_get_categories()));
+			assertEquals(Arrays.asList(O_view_expected.FAS_get_requires()),   Arrays.asList(O_view_actual.FAS_get_requires()));
+			assertEquals(i1, PI_O_actual.FI_get_pckg_id(O_view_expected.FS_get_name()));
+		    }
+		for (I_slot_f0 = 0; I_slot_f0 < PckgTable.I_nbr_slots * PI_O_expected.I_nbr_pckgs_f1; I_slot_f0++) {
+			assertEquals("slot " + I_slot_f0, PI_O_expected.FS_get_version(I_slot_f0),  PI_O_actual.FS_get_version(I_slot_f0));
+			assertEquals("slot " + I_slot_f0, PI_O_expected.AI_sizes[I_slot_f0],         PI_O_actual.AI_sizes[I_slot_f0]);
+			assertEquals("slot " + I_slot_f0, PI_O_expected.AS_archive_paths[I_slot_f0], PI_O_actual.AS_archive_paths[I_slot_f0]);
+			assertEquals("slot " + I_slot_f0, PI_O_expected.FE_get_dl_status(I_slot_f0), PI_O_actual.FE_get_dl_status(I_slot_f0));
+		    }
+		assertTrue(Arrays.equals(PI_O_expected.AL_hashes, PI_O_actual.AL_hashes));
+		assertEquals(PI_O_expected.HO_category_pckgs, PI_O_actual.HO_category_pckgs);
+		return;
+	}
+
+	public void testRoundTrip() {
+
+		SetupIniContents O_setup_ini_contents;
+		CatalogSnapshot  O_snapshot;
+
+		O_setup_ini_contents = FO_write_snapshot();
+		O_snapshot = FO_open();
+		assertNotNull(O_snapshot);
+		try {
+			assertEquals(I_nbr_pckgs_f1, O_snapshot.FI_get_nbr_pckgs());
+			FV_assert_equals(O_setup_ini_contents.FO_get_pckg_table(), new PckgTable(O_snapshot, new SymbolTable()));
+			IniFileParserTest.FV_assert_equals(O_setup_ini_contents, O_snapshot.FO_get_setup_ini_contents());
+			assertEquals("Package number 4 spans several lines", O_snapshot.FS_get_ldesc(4));
+			assertEquals(17, O_snapshot.FI_find_pckg("pckg-17"));
+			assertEquals(-1, O_snapshot.FI_find_pckg("pckg-"));
+		} finally {
+			O_snapshot.FV_close();
+		    }
+	}
+
+	/**
+	 * A snapshot is out of date once size, modification time or contents of <tt>setup.ini</tt> change.
+	 */
+	public void testKey() throws IOException {
+
+		Path     FP_pna_setup_ini;
+		FileTime O_mtime;
+		String   S_contents;
+
+		FO_write_snapshot();
+		FP_pna_setup_ini = this.F_pna_setup_ini.toPath();
+		O_mtime    = Files.getLastModifiedTime(FP_pna_setup_ini);
+		S_contents = Files.readString(FP_pna_setup_ini, StandardCharsets.UTF_8);
+
+		Files.writeString(FP_pna_setup_ini, S_contents + "\n", StandardCharsets.UTF_8);
+		Files.setLastModifiedTime(FP_pna_setup_ini, O_mtime);
+		assertNull(FO_open());
+
+		Files.writeString(FP_pna_setup_ini, S_contents, StandardCharsets.UTF_8);
+		Files.setLastModifiedTime(FP_pna_setup_ini, FileTime.fromMillis(O_mtime.toMillis() + 2000L));
+		assertNull(FO_open());
+
+		Files.writeString(FP_pna_setup_ini, 
+				S_contents.replace("sdesc: \"Package number 7\"", "sdesc: \"Package number 8\""), StandardCharsets.UTF_8);
+		Files.setLastModifiedTime(FP_pna_setup_ini, O_mtime);
+		assertNull(FO_open());
+
+		Files.writeString(FP_pna_setup_ini, S_contents, StandardCharsets.UTF_8);
+		Files.setLastModifiedTime(FP_pna_setup_ini, O_mtime);
+		FO_open().FV_close();
+	}
+
+	/**
+	 * Writes a damaged copy of the snapshot, it must neither be opened as current nor as previous one.
+	 */
+	protected void FV_assert_rejected(
+			final String PI_S_damage,
+			final byte   PI_AY_snapshot[]) throws IOException {
+
+		Files.write(this.F_pna_snapshot.toPath(), PI_AY_snapshot);
+		assertNull(PI_S_damage, FO_open());
+		assertNull(PI_S_damage, CatalogSnapshot.FO_open_previous(this.F_pna_snapshot, this.F_pna_setup_ini));
+		return;
+	}
+
+	public void testDamaged() throws IOException {
+
+		ByteBuffer O_snapshot;
+		byte       AY_snapshot[];
+
+		FO_write_snapshot();
+		AY_snapshot = Files.readAllBytes(this.F_pna_snapshot.toPath());
+		FV_assert_rejected("truncated by one byte", Arrays.copyOf(AY_snapshot, AY_snapshot.length - 1));
+		FV_assert_rejected("truncated in the packages",
+				Arrays.copyOf(AY_snapshot, ByteBuffer.wrap(AY_snapshot).getInt(CatalogSnapshot.I_off_sect_pckgs) + 100));
+		FV_assert_rejected("truncated in the header", Arrays.copyOf(AY_snapshot, CatalogSnapshot.I_len_header - 1));
+		FV_assert_rejected("appended to", Arrays.copyOf(AY_snapshot, AY_snapshot.length + 8));
+
+		O_snapshot = ByteBuffer.wrap(AY_snapshot.clone());
+		O_snapshot.putLong(CatalogSnapshot.I_off_magic, 0L);
+		FV_assert_rejected("magic", O_snapshot.array());
+
+		O_snapshot = ByteBuffer.wrap(AY_snapshot.clone());
+		O_snapshot.putInt(CatalogSnapshot.I_off_format_version, CatalogSnapshot.I_format_version + 1);
+		FV_assert_rejected("format version", O_snapshot.array());
+
+		O_snapshot = ByteBuffer.wrap(AY_snapshot.clone());
+		O_snapshot.putInt(CatalogSnapshot.I_off_nbr_strings, O_snapshot.getInt(CatalogSnapshot.I_off_nbr_strings) + 1000);
+		FV_assert_rejected("number of strings", O_snapshot.array());
+
+		O_snapshot = ByteBuffer.wrap(AY_snapshot.clone());
+		O_snapshot.putInt(CatalogSnapshot.I_off_sect_names, O_snapshot.getInt(CatalogSnapshot.I_off_sect_strings) - 8);
+		FV_assert_rejected("section offset", O_snapshot.array());
+
+		O_snapshot = ByteBuffer.wrap(AY_snapshot.clone());
+		O_snapshot.putInt(O_snapshot.getInt(CatalogSnapshot.I_off_sect_pckgs) + (I_nbr_pckgs_f1 - 1) * CatalogSnapshot.I_len_pckg_rec + 
+				CatalogSnapshot.I_off_ldesc_len, 1 << 20);
+		FV_assert_rejected("length of the last ldesc", O_snapshot.array());
+
+		Files.write(this.F_pna_snapshot.toPath(), AY_snapshot);
+		FO_open().FV_close();
+	}
+
+	/**
+	 * The snapshot of the former version of <tt>setup.ini</tt> is brought up to date by the incremental parse
+	 * and written again.
+	 */
+	public void testPreviousIncremental() throws IOException {
+
+		MappedIniLineReader O_buff_reader;
+		CatalogSnapshot     O_snapshot_prev, O_snapshot;
+		SetupIniContents    O_setup_ini_contents, O_contents_full;
+		PckgChanges         O_pckg_changes;
+		String              S_contents;
+
+		FO_write_snapshot();
+		S_contents = Files.readString(this.F_pna_setup_ini.toPath(), StandardCharsets.UTF_8);
+		S_contents = S_contents.replace("version: 1.7-1", "version: 1.7-2").replace("sdesc: \"Package number 9\"", "sdesc: \"Package nine\"");
+		Files.writeString(this.F_pna_setup_ini.toPath(), S_contents, StandardCharsets.UTF_8);
+		assertNull(FO_open());
+
+		O_snapshot_prev = CatalogSnapshot.FO_open_previous(this.F_pna_snapshot, this.F_pna_setup_ini);
+		assertNotNull(O_snapshot_prev);
+		O_setup_ini_contents = O_snapshot_prev.FO_get_setup_ini_contents();
+		O_snapshot_prev.FV_close();
+		O_buff_reader = new MappedIniLineReader(this.F_pna_setup_ini);
+		try {
+			O_pckg_changes  = IniFileParser.FO_parse_incremental(O_setup_ini_contents, O_buff_reader);
+			O_contents_full = IniFileParser.FO_parse(new MappedIniLineReader(O_buff_reader, 0, O_buff_reader.I_limit_f0));
+			assertTrue(CatalogSnapshot.FB_write(this.F_pna_snapshot, O_buff_reader, O_setup_ini_contents));
+		} finally {
+			O_buff_reader.FV_close();
+		    }
+		assertEquals(Arrays.asList(), O_pckg_changes.AS_added);
+		assertEquals(Arrays.asList("pckg-7", "pckg-9"), O_pckg_changes.AS_changed);
+		assertEquals(Arrays.asList(), O_pckg_changes.AS_removed);
+		IniFileParserTest.FV_assert_equals(O_contents_full, O_setup_ini_contents);
+
+		O_snapshot = FO_open();
+		assertNotNull(O_snapshot);
+		try {
+			FV_assert_equals(O_contents_full.FO_get_pckg_table(), new PckgTable(O_snapshot, new SymbolTable()));
+		} finally {
+			O_snapshot.FV_close();
+		    }
+	}
+}
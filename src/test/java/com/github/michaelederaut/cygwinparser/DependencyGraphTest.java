@@ -0,0 +1,149 @@
+package com.github.michaelederaut.cygwinparser;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * {@link DependencyGraph} on a small hand-made <tt>setup.ini</tt>:<br>
+ * <tt>a</tt> requires <tt>b</tt>, <tt>b</tt> and <tt>c</tt> require each other,
+ * <tt>d</tt> requires <tt>a</tt> and a package not listed, <tt>e</tt> requires itself
+ * and <tt>f</tt> only requires a package not listed.
+ */
+public class DependencyGraphTest extends TestCase {
+
+	protected static final String AS_names[]    = {"a", "b", "c", "d", "e", "f"};
+	protected static final String AS_requires[] = {"b", "c c", "b", "a missing", "e", "missing"};
+
+	public DependencyGraphTest(final String PI_S_test_name) {
+		super(PI_S_test_name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(DependencyGraphTest.class);
+	}
+
+	protected static DependencyGraph FO_get_graph() {
+		return FO_get_graph(AS_names, AS_requires);
+	}
+
+	protected static DependencyGraph FO_get_graph(
+			final String PI_AS_names[],
+			final String PI_AS_requires[]) {
+
+		StringBuilder    O_sb;
+		SetupIniContents O_setup_ini_contents;
+		String           S_hash;
+		int i1;
+
+		S_hash = "0123456789abcdef".repeat(8);
+		O_sb = new StringBuilder("release: cygwin\narch: x86_64\n\n");
+		for (i1 = 0; i1 < PI_AS_names.length; i1++) {
+			O_sb.append("@ " + PI_AS_names[i1] + "\n");
+			O_sb.append("sdesc: \"Package " + PI_AS_names[i1] + "\"\n");
+			O_sb.append("ldesc: \"Package " + PI_AS_names[i1] + "\"\n");
+			O_sb.append("category: Base\n");
+			O_sb.append("requires: " + PI_AS_requires[i1] + "\n");
+			O_sb.append("version: 1.0-1\n");
+			O_sb.append("install: x86_64/release/" + PI_AS_names[i1] + "/" + PI_AS_names[i1] + "-1.0-1.tar.xz 100 " + S_hash + "\n");
+			O_sb.append("source: x86_64/release/" + PI_AS_names[i1] + "/" + PI_AS_names[i1] + "-1.0-1-src.tar.xz 10 " + S_hash + "\n\n");
+		    }
+		O_setup_ini_contents = IniFileParser.FO_parse(
+				new ByteArrayInputStream(O_sb.toString().getBytes(StandardCharsets.UTF_8)),
+				"graph.ini");
+		return new DependencyGraph(O_setup_ini_contents.FO_get_pckg_table());
+	}
+
+	protected static BitSet FO_get_set(final int... PI_AI_pckg_ids) {
+
+		BitSet O_retval_set;
+
+		O_retval_set = new BitSet();
+		for (int I_pckg_id : PI_AI_pckg_ids) {
+			O_retval_set.set(I_pckg_id);
+		    }
+		return O_retval_set;
+	}
+
+	public void testSccs() {
+
+		DependencyGraph O_graph;
+		List<int[]>     AAI_cycles;
+		int AI_scc[], AI_order[];
+		int i1;
+
+		O_graph = FO_get_graph();
+		for (i1 = 0; i1 < AS_names.length; i1++) {
+			assertEquals(i1, O_graph.O_pckg_table.FI_get_pckg_id(AS_names[i1]));
+		    }
+		assertEquals(2, O_graph.I_nbr_unresolved_f1);
+		assertEquals(1, O_graph.FI_get_nbr_dependencies(1));  // the duplicate is dropped
+		assertEquals(5, O_graph.I_nbr_sccs_f1);
+
+		assertEquals(O_graph.AI_scc_ids[1], O_graph.AI_scc_ids[2]);
+		AI_scc = O_graph.FAI_get_scc(O_graph.AI_scc_ids[1]);
+		Arrays.sort(AI_scc);
+		assertTrue(Arrays.equals(new int[] {1, 2}, AI_scc));
+		for (int I_pckg_id : new int[] {0, 3, 4, 5}) {
+			assertEquals(1, O_graph.FAI_get_scc(O_graph.AI_scc_ids[I_pckg_id]).length);
+		    }
+		// each component after all components it depends on
+		assertTrue(O_graph.AI_scc_ids[1] < O_graph.AI_scc_ids[0]);
+		assertTrue(O_graph.AI_scc_ids[0] < O_graph.AI_scc_ids[3]);
+
+		assertTrue(O_graph.FB_is_cyclic(1));
+		assertTrue(O_graph.FB_is_cyclic(2));
+		assertTrue(O_graph.FB_is_cyclic(4));
+		assertFalse(O_graph.FB_is_cyclic(0));
+		assertFalse(O_graph.FB_is_cyclic(3));
+		assertFalse(O_graph.FB_is_cyclic(5));
+		AAI_cycles = O_graph.FAAI_get_cycles();
+		assertEquals(2, AAI_cycles.size());
+
+		AI_order = O_graph.FAI_get_install_order(O_graph.FO_get_closure(3));
+		assertEquals(4, AI_order.length);
+		assertEquals(FO_get_set(1, 2), FO_get_set(AI_order[0], AI_order[1]));
+		assertEquals(0, AI_order[2]);
+		assertEquals(3, AI_order[3]);
+	}
+
+	public void testDependants() {
+
+		DependencyGraph O_graph;
+		int AI_expected[];
+		int i1;
+
+		O_graph = FO_get_graph();
+		AI_expected = new int[] {1, 3, 3, 0, 0, 0};
+		for (i1 = 0; i1 < AS_names.length; i1++) {
+			assertEquals(AS_names[i1], AI_expected[i1], O_graph.FI_get_nbr_dependants(i1));
+			assertEquals(AS_names[i1], AI_expected[i1], O_graph.FO_get_dependants(i1).cardinality());
+		    }
+		assertEquals(FO_get_set(0, 2, 3), O_graph.FO_get_dependants(1));
+		assertEquals(FO_get_set(0, 1, 3), O_graph.FO_get_dependants(2));
+		assertEquals(FO_get_set(3),       O_graph.FO_get_dependants(0));
+		assertEquals(2, O_graph.FI_get_nbr_direct_dependants(1));  // a and c
+		assertEquals(1, O_graph.FI_get_nbr_direct_dependants(4));  // e itself
+		assertEquals(0, O_graph.FI_get_nbr_direct_dependants(5));
+		assertTrue(Arrays.equals(new int[] {1, 2, 0, 3, 4, 5}, O_graph.FAI_get_by_criticality()));
+	}
+
+	public void testEmptyRequires() {
+
+		DependencyGraph O_graph;
+
+		O_graph = FO_get_graph(new String[] {"a", "b", "c"}, new String[] {"", "a", ""});
+		assertEquals(0, O_graph.I_nbr_unresolved_f1);
+		assertEquals(0, O_graph.FI_get_nbr_dependencies(0));
+		assertEquals(1, O_graph.FI_get_nbr_dependencies(1));
+		assertEquals(0, O_graph.FI_get_nbr_dependencies(2));
+		assertEquals(1, O_graph.FI_get_nbr_dependants(0));
+		assertEquals(3, O_graph.I_nbr_sccs_f1);
+	}
+}
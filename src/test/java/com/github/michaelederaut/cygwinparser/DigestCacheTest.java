@@ -0,0 +1,257 @@
+package com.github.michaelederaut.cygwinparser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import com.github.michaelederaut.cygwinparser.SetupIniContents.ArchInfo;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * {@link DigestCache} on archives and a cache file written by the test:
+ * lookups after reopening, after an archive changed and on a cache file cut or corrupted.
+ */
+public class DigestCacheTest extends TestCase {
+
+	protected static final int I_nbr_archives_f1 = 4;
+
+	protected Path FP_dna_root;
+	protected File F_pna_cache;
+
+	public DigestCacheTest(final String PI_S_test_name) {
+		super(PI_S_test_name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(DigestCacheTest.class);
+	}
+
+	@Override
+	protected void setUp() throws IOException {
+
+		int i1;
+
+		this.FP_dna_root = Files.createTempDirectory("digests-");
+		this.F_pna_cache = this.FP_dna_root.resolve(DigestCache.S_bn_digest_cache).toFile();
+		for (i1 = 0; i1 < I_nbr_archives_f1; i1++) {
+			Files.write(this.FP_dna_root.resolve(FS_get_pnr(i1)), new byte[10 * (i1 + 1)]);
+		    }
+		return;
+	}
+
+	@Override
+	protected void tearDown() throws IOException {
+
+		try (Stream<Path> AFP_pnas = Files.walk(this.FP_dna_root)) {
+			AFP_pnas.sorted(Comparator.reverseOrder()).forEach((Path PI_FP_pna) -> PI_FP_pna.toFile().delete());
+		    }
+		return;
+	}
+
+	protected static String FS_get_pnr(final int PI_I_archive_nbr) {
+		return "p" + PI_I_archive_nbr + "-1.0-1.tar.xz";
+	}
+
+	protected static byte[] FAY_get_digest(final int PI_I_seed) {
+
+		byte AY_retval_digest[];
+
+		AY_retval_digest = new byte[ArchInfo.I_len_hash_bytes];
+		Arrays.fill(AY_retval_digest, (byte)PI_I_seed);
+		return AY_retval_digest;
+	}
+
+	protected BasicFileAttributes FO_get_attrs(final int PI_I_archive_nbr) throws IOException {
+		return Files.readAttributes(this.FP_dna_root.resolve(FS_get_pnr(PI_I_archive_nbr)), BasicFileAttributes.class);
+	}
+
+	/**
+	 * Stores the digest <tt>i</tt> for each archive <tt>i</tt> and flushes.
+	 */
+	protected void FV_put_all() throws IOException {
+
+		DigestCache O_cache;
+		int i1;
+
+		O_cache = DigestCache.FO_open(this.F_pna_cache);
+		for (i1 = 0; i1 < I_nbr_archives_f1; i1++) {
+			O_cache.FV_put(FS_get_pnr(i1), FO_get_attrs(i1), FAY_get_digest(i1));
+		    }
+		O_cache.FV_flush();
+		return;
+	}
+
+	/**
+	 * Asserts the digests of the first archives found, no entry for the others.
+	 */
+	protected void FV_assert_found(
+			final DigestCache PI_O_cache,
+			final int         PI_I_nbr_found_f1) throws IOException {
+
+		int i1;
+
+		assertEquals(PI_I_nbr_found_f1, PI_O_cache.FI_get_nbr_entries());
+		for (i1 = 0; i1 < I_nbr_archives_f1; i1++) {
+			if (i1 < PI_I_nbr_found_f1) {
+			   assertTrue(Arrays.equals(FAY_get_digest(i1), PI_O_cache.FAY_get_digest(FS_get_pnr(i1), FO_get_attrs(i1))));
+			   }
+			else {
+			   assertNull(PI_O_cache.FAY_get_digest(FS_get_pnr(i1), FO_get_attrs(i1)));
+			   }
+		    }
+		return;
+	}
+
+	public void testMissingFile() throws IOException {
+
+		DigestCache O_cache;
+
+		O_cache = DigestCache.FO_open(this.F_pna_cache);
+		FV_assert_found(O_cache, 0);
+		O_cache.FV_close();
+		assertFalse(this.F_pna_cache.exists());  // nothing to write
+	}
+
+	public void testReopen() throws IOException {
+		FV_put_all();
+		FV_assert_found(DigestCache.FO_open(this.F_pna_cache), I_nbr_archives_f1);
+	}
+
+	public void testLongPathname() throws IOException {
+
+		DigestCache O_cache;
+		String      S_pnr_long, S_pnr_too_long;
+
+		S_pnr_long     = "d/".repeat(20000) + FS_get_pnr(0);  // length above Short.MAX_VALUE
+		S_pnr_too_long = "d/".repeat(DigestCache.I_max_len_path / 2) + FS_get_pnr(0);
+		O_cache = DigestCache.FO_open(this.F_pna_cache);
+		O_cache.FV_put(S_pnr_long,     FO_get_attrs(0), FAY_get_digest(1));
+		O_cache.FV_put(S_pnr_too_long, FO_get_attrs(0), FAY_get_digest(2));
+		O_cache.FV_put(FS_get_pnr(0),  FO_get_attrs(0), FAY_get_digest(0));
+		assertEquals(2, O_cache.FI_get_nbr_entries());
+		O_cache.FV_close();
+
+		O_cache = DigestCache.FO_open(this.F_pna_cache);
+		assertEquals(2, O_cache.FI_get_nbr_entries());
+		assertTrue(Arrays.equals(FAY_get_digest(1), O_cache.FAY_get_digest(S_pnr_long, FO_get_attrs(0))));
+		assertNull(O_cache.FAY_get_digest(S_pnr_too_long, FO_get_attrs(0)));
+		assertTrue(Arrays.equals(FAY_get_digest(0), O_cache.FAY_get_digest(FS_get_pnr(0), FO_get_attrs(0))));
+	}
+
+	public void testChangedArchive() throws IOException {
+
+		DigestCache O_cache;
+		Path        FP_pna_archive;
+
+		FV_put_all();
+		FP_pna_archive = this.FP_dna_root.resolve(FS_get_pnr(0));
+		Files.setLastModifiedTime(FP_pna_archive,
+				FileTime.fromMillis(Files.getLastModifiedTime(FP_pna_archive).toMillis() - 60000L));
+		FP_pna_archive = this.FP_dna_root.resolve(FS_get_pnr(1));
+		Files.write(FP_pna_archive, new byte[1], StandardOpenOption.APPEND);
+
+		O_cache = DigestCache.FO_open(this.F_pna_cache);
+		assertNull(O_cache.FAY_get_digest(FS_get_pnr(0), FO_get_attrs(0)));
+		assertNull(O_cache.FAY_get_digest(FS_get_pnr(1), FO_get_attrs(1)));
+		assertTrue(Arrays.equals(FAY_get_digest(2), O_cache.FAY_get_digest(FS_get_pnr(2), FO_get_attrs(2))));
+		assertEquals(I_nbr_archives_f1, O_cache.FI_get_nbr_entries());
+	}
+
+	/**
+	 * A torn last record is skipped and cut off by the next append.
+	 */
+	public void testTruncatedRecord() throws IOException {
+
+		DigestCache O_cache;
+		long        L_len_f1;
+
+		FV_put_all();
+		L_len_f1 = this.F_pna_cache.length();
+		try (RandomAccessFile O_raf = new RandomAccessFile(this.F_pna_cache, "rw")) {
+			O_raf.setLength(L_len_f1 - 5);
+		    }
+		O_cache = DigestCache.FO_open(this.F_pna_cache);
+		FV_assert_found(O_cache, I_nbr_archives_f1 - 1);
+
+		O_cache.FV_put(FS_get_pnr(I_nbr_archives_f1 - 1), FO_get_attrs(I_nbr_archives_f1 - 1), FAY_get_digest(I_nbr_archives_f1 - 1));
+		O_cache.FV_flush();
+		assertEquals(L_len_f1, this.F_pna_cache.length());
+		FV_assert_found(DigestCache.FO_open(this.F_pna_cache), I_nbr_archives_f1);
+	}
+
+	/**
+	 * Reading stops at a record failing its CRC, the records behind it are lost.
+	 */
+	public void testCorruptRecord() throws IOException {
+
+		long L_len_rec_f1;
+
+		FV_put_all();
+		L_len_rec_f1 = (this.F_pna_cache.length() - DigestCache.I_len_header) / I_nbr_archives_f1;  // pathnames of equal length
+		try (RandomAccessFile O_raf = new RandomAccessFile(this.F_pna_cache, "rw")) {
+			O_raf.seek(DigestCache.I_len_header + 2 * L_len_rec_f1 + DigestCache.I_off_digest);
+			O_raf.write(0xFF);
+		    }
+		FV_assert_found(DigestCache.FO_open(this.F_pna_cache), 2);
+	}
+
+	public void testCompaction() throws IOException {
+
+		DigestCache O_cache;
+		long        L_len_f1;
+		int i1;
+
+		O_cache = DigestCache.FO_open(this.F_pna_cache);
+		for (i1 = 0; i1 <= DigestCache.I_min_nbr_records_compaction; i1++) {
+			O_cache.FV_put(FS_get_pnr(i1 % I_nbr_archives_f1), FO_get_attrs(i1 % I_nbr_archives_f1), FAY_get_digest(i1 % I_nbr_archives_f1));
+		    }
+		O_cache.FV_flush();
+		L_len_f1 = this.F_pna_cache.length();
+		assertTrue(O_cache.FB_compact());
+		assertFalse(O_cache.FB_compact());
+		assertTrue(this.F_pna_cache.length() < L_len_f1 / 100);
+		FV_assert_found(O_cache, I_nbr_archives_f1);
+		FV_assert_found(DigestCache.FO_open(this.F_pna_cache), I_nbr_archives_f1);
+
+		O_cache.FV_put(FS_get_pnr(0), FO_get_attrs(0), FAY_get_digest(0));  // appended to the new file
+		O_cache.FV_flush();
+		assertEquals(I_nbr_archives_f1 + 1, O_cache.I_nbr_records_f1);
+		FV_assert_found(DigestCache.FO_open(this.F_pna_cache), I_nbr_archives_f1);
+	}
+
+	/**
+	 * Two caches on one file, each reading only what the other appended since its own last append.
+	 */
+	public void testTwoWriters() throws IOException {
+
+		DigestCache O_cache_1, O_cache_2;
+		long        L_end_f0;
+
+		O_cache_1 = DigestCache.FO_open(this.F_pna_cache);
+		O_cache_2 = DigestCache.FO_open(this.F_pna_cache);
+		O_cache_1.FV_put(FS_get_pnr(0), FO_get_attrs(0), FAY_get_digest(0));
+		O_cache_1.FV_flush();
+		O_cache_2.FV_put(FS_get_pnr(1), FO_get_attrs(1), FAY_get_digest(1));
+		O_cache_2.FV_flush();
+		FV_assert_found(O_cache_2, 2);
+
+		L_end_f0 = O_cache_1.L_end_f0;
+		O_cache_1.FV_put(FS_get_pnr(2), FO_get_attrs(2), FAY_get_digest(2));
+		O_cache_1.FV_flush();
+		assertTrue(O_cache_1.L_end_f0 > L_end_f0);
+		assertEquals(3, O_cache_1.I_nbr_records_f1);
+		FV_assert_found(O_cache_1, 3);
+		FV_assert_found(DigestCache.FO_open(this.F_pna_cache), 3);
+	}
+}
@@ -0,0 +1,624 @@
+package com.github.michaelederaut.cygwinparser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+
+import com.github.michaelederaut.cygwinparser.SetupIniContents.ArchInfo;
+import com.github.michaelederaut.cygwinparser.SetupIniContents.PckgInfo;
+import com.github.michaelederaut.cygwinparser.SetupIniContents.PckgPosition;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * {@link IniFileParser} on the sample <tt>setup.ini</tt> of the test resources.<br>
+ * The expected values are those of the former regex based parser, which split
+ * <tt>category:</tt> and <tt>requires:</tt> values by <tt>String.split("\\s+")</tt>.
+ */
+public class IniFileParserTest extends TestCase {
+
+	public IniFileParserTest(final String PI_S_test_name) {
+		super(PI_S_test_name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(IniFileParserTest.class);
+	}
+
+	protected static File FF_get_resource(final String PI_S_bn) {
+
+		RuntimeException E_rt;
+		File             F_retval_pna;
+		String           S_msg_1;
+
+		try {
+			F_retval_pna = new File(IniFileParserTest.class.getResource(PI_S_bn).toURI());
+		} catch (URISyntaxException PI_E_uri) {
+			S_msg_1 = "Unable to locate test resource \'" + PI_S_bn + "\'";
+			E_rt = new RuntimeException(S_msg_1, PI_E_uri);
+			throw E_rt;
+		    }
+		return F_retval_pna;
+	}
+
+	protected static SetupIniContents FO_parse_sample() {
+
+		MappedIniLineReader O_buff_reader;
+		SetupIniContents    O_retval_setup_ini_contents;
+
+		O_buff_reader = new MappedIniLineReader(FF_get_resource("setup.ini"));
+		try {
+			O_retval_setup_ini_contents = IniFileParser.FO_parse(O_buff_reader);
+		} finally {
+			O_buff_reader.FV_close();
+		    }
+		return O_retval_setup_ini_contents;
+	}
+
+	/**
+	 * Writes a <tt>setup.ini</tt> of generated packages <tt>pckg-0, pckg-1, ...</tt>,<br>
+	 * every third one with a <tt>[prev]</tt> version, every fourth one with a long description
+	 * on several lines and every fifth one with two categories.
+	 *
+	 * @param PI_F_pna_setup_ini file to be written
+	 * @param PI_I_nbr_pckgs_f1 number of packages
+	 */
+	protected static void FV_write_setup_ini(
+			final File PI_F_pna_setup_ini,
+			final int  PI_I_nbr_pckgs_f1) throws IOException {
+
+		String S_name, S_hash;
+		int i1;
+
+		S_hash = "0123456789abcdef".repeat(8);
+		try (PrintWriter O_writer = new PrintWriter(PI_F_pna_setup_ini, StandardCharsets.UTF_8)) {
+			O_writer.print("# generated\nrelease: cygwin\narch: x86_64\n\n");
+			for (i1 = 0; i1 < PI_I_nbr_pckgs_f1; i1++) {
+				S_name = "pckg-" + i1;
+				O_writer.print("@ " + S_name + "\n");
+				O_writer.print("sdesc: \"Package number " + i1 + "\"\n");
+				if ((i1 % 4) == 0) {
+				   O_writer.print("ldesc: \"Package number " + i1 + "\nspans\n\nseveral lines\"\n");
+				   }
+				else {
+				   O_writer.print("ldesc: \"Package number " + i1 + "\"\n");
+				   }
+				O_writer.print("category: " + (((i1 % 5) == 0) ? "Base Devel" : "Libs") + "\n");
+				O_writer.print("requires: " + ((i1 == 0) ? "cygwin" : ("pckg-" + (i1 - 1) + " cygwin")) + "\n");
+				O_writer.print("version: 1." + i1 + "-1\n");
+				O_writer.print("install: x86_64/release/" + S_name + "/" + S_name + "-1." + i1 + "-1.tar.xz " + (1000 + i1) + " " + S_hash + "\n");
+				O_writer.print("source: x86_64/release/" + S_name + "/" + S_name + "-1." + i1 + "-1-src.tar.xz " + (100 + i1) + " " + S_hash + "\n");
+				if ((i1 % 3) == 0) {
+				   O_writer.print("[prev]\nversion: 1.0-1\n");
+				   O_writer.print("install: x86_64/release/" + S_name + "/" + S_name + "-1.0-1.tar.xz 900 " + S_hash + "\n");
+				   O_writer.print("source: x86_64/release/" + S_name + "/" + S_name + "-1.0-1-src.tar.xz 90 " + S_hash + "\n");
+				   }
+				O_writer.print("\n");
+			    }
+		    }
+		return;
+	}
+
+	/**
+	 * Asserts that two parse results hold the same packages in the same order.
+	 */
+	protected static void FV_assert_equals(
+			final SetupIniContents PI_O_expected,
+			final SetupIniContents PI_O_actual) {
+
+		PckgInfo     O_pckg_expected, O_pckg_actual;
+		PckgPosition O_pos_expected, O_pos_actual;
+		ArchInfo     O_archinfo_expected, O_archinfo_actual;
+		int i1, i2, i3;
+
+		assertEquals(PI_O_expected.AO_pckg_info.size(), PI_O_actual.AO_pckg_info.size());
+		assertEquals(PI_O_expected.HS_package_names.keySet(), PI_O_actual.HS_package_names.keySet());
+		for (i1 = 0; i1 < PI_O_expected.AO_pckg_info.size(); i1++) {
+			O_pckg_expected = PI_O_expected.AO_pckg_info.get(i1);
+			O_pckg_actual   = PI_O_actual.AO_pckg_info.get(i1);
+			assertEquals(O_pckg_expected.S_name,          O_pckg_actual.S_name);
+			assertEquals(O_pckg_expected.S_sdesc,         O_pckg_actual.S_sdesc);
+			assertEquals(O_pckg_expected.FS_get_ldesc(),  O_pckg_actual.FS_get_ldesc());
+			assertEquals(Arrays.asList(O_pckg_expected.AS_categories), Arrays.asList(O_pckg_actual.AS_categories));
+			assertEquals(Arrays.asList(O_pckg_expected.AS_requires),   Arrays.asList(O_pckg_actual.AS_requires));
+			O_pos_expected = PI_O_expected.HS_package_names.get(O_pckg_expected.S_name);
+			O_pos_actual   = PI_O_actual.HS_package_names.get(O_pckg_actual.S_name);
+			assertEquals(O_pckg_expected.S_name, O_pos_expected.I_line_nbr_f1,     O_pos_actual.I_line_nbr_f1);
+			assertEquals(O_pckg_expected.S_name, O_pos_expected.I_pos_on_stack_f0, O_pos_actual.I_pos_on_stack_f0);
+			assertEquals(O_pckg_expected.AAO_archinfos.length, O_pckg_actual.AAO_archinfos.length);
+			for (i2 = 0; i2 < O_pckg_expected.AAO_archinfos.length; i2++) {
+				assertEquals(O_pckg_expected.AAO_archinfos[i2].length, O_pckg_actual.AAO_archinfos[i2].length);
+				for (i3 = 0; i3 < O_pckg_expected.AAO_archinfos[i2].length; i3++) {
+					O_archinfo_expected = O_pckg_expected.AAO_archinfos[i2][i3];
+					O_archinfo_actual   = O_pckg_actual.AAO_archinfos[i2][i3];
+					assertEquals(O_archinfo_expected.S_version,         O_archinfo_actual.S_version);
+					assertEquals(O_archinfo_expected.S_pnr_archive,     O_archinfo_actual.S_pnr_archive);
+					assertEquals(O_archinfo_expected.I_size,            O_archinfo_actual.I_size);
+					assertEquals(O_archinfo_expected.FS_get_hash_hex(), O_archinfo_actual.FS_get_hash_hex());
+				    }
+			    }
+		    }
+		return;
+	}
+
+	protected static PckgInfo FO_get_pckg(
+			final SetupIniContents PI_O_setup_ini_contents,
+			final String           PI_S_name) {
+
+		for (PckgInfo O_pckg_info: PI_O_setup_ini_contents.AO_pckg_info) {
+			if (O_pckg_info.S_name.equals(PI_S_name)) {
+			   return O_pckg_info;
+			   }
+		    }
+		fail("Package \'" + PI_S_name + "\' not found");
+		return null;
+	}
+
+	/**
+	 * Tokens of the lexer compared with <tt>String.split</tt> of the regex group value.
+	 */
+	public void testTokensAsSplit() {
+
+		SetupIniLexer O_lexer;
+		String        AS_values[], S_line;
+
+		AS_values = new String[] {"cygwin", "cygwin libgcc1", "cygwin  libgcc1 ", "a\tb", ""};
+		O_lexer = new SetupIniLexer();
+		for (String S_value: AS_values) {
+			S_line = SetupIniLexer.KEY_REQUIRES + " " + S_value;
+			assertEquals(S_line, SetupIniLexer.LineKind.requires, O_lexer.FE_lex(S_line));
+			assertEquals(S_line, Arrays.asList(S_value.split("\\s+")), Arrays.asList(O_lexer.FAS_get_tokens(S_line)));
+		    }
+	}
+
+	public void testSample() {
+
+		SetupIniContents O_setup_ini_contents;
+		PckgInfo         O_pckg_info;
+		ArchInfo         O_archinfo;
+
+		O_setup_ini_contents = FO_parse_sample();
+		assertEquals(3, O_setup_ini_contents.AO_pckg_info.size());
+		for (PckgInfo O_pckg: O_setup_ini_contents.AO_pckg_info) {  // no reference to the mapping of the closed reader
+			assertTrue(O_pckg.S_name, (O_pckg.O_ldesc_bytes == null) || !O_pckg.O_ldesc_bytes.isDirect());
+		    }
+
+		O_pckg_info = FO_get_pckg(O_setup_ini_contents, "alpha");
+		assertEquals("Alpha test package", O_pckg_info.S_sdesc);
+		assertEquals("First line of the long description of alpha, continued on a third line", O_pckg_info.FS_get_ldesc());
+		assertEquals(Arrays.asList("Base", "Utils"), Arrays.asList(O_pckg_info.AS_categories));
+		assertEquals(Arrays.asList("cygwin", "libgcc1"), Arrays.asList(O_pckg_info.AS_requires));
+		assertEquals(2, O_pckg_info.AAO_archinfos[0].length);
+		O_archinfo = O_pckg_info.AAO_archinfos[0][0];
+		assertEquals("1.2.3-1", O_archinfo.S_version);
+		assertEquals(12345, O_archinfo.I_size);
+		assertEquals("x86_64/release/alpha/alpha-1.2.3-1.tar.xz", O_archinfo.S_pnr_archive);
+		assertEquals(
+				"609f005c4b5fe5d70e47c8e70a694b6bde60d989b9183e2f3882e8d95f84c0ac" +
+				"d7c197d431c8b64e957ecb6d588ce6b97090c08fcea9611dfbaad457011660c4",
+				O_archinfo.FS_get_hash_hex());
+		O_archinfo = O_pckg_info.AAO_archinfos[1][1];
+		assertEquals("1.2.2-2", O_archinfo.S_version);
+		assertEquals(2300, O_archinfo.I_size);
+
+		O_pckg_info = FO_get_pckg(O_setup_ini_contents, "beta");
+		assertEquals(Arrays.asList("Libs"), Arrays.asList(O_pckg_info.AS_categories));
+		assertEquals(Arrays.asList(""), Arrays.asList(O_pckg_info.AS_requires));  // "".split("\\s+")
+		assertEquals(1, O_pckg_info.AAO_archinfos[0].length);
+
+		O_pckg_info = FO_get_pckg(O_setup_ini_contents, "gamma");
+		assertEquals("Gamma", O_pckg_info.FS_get_ldesc());
+		assertEquals(Arrays.asList("alpha"), Arrays.asList(O_pckg_info.AS_requires));
+		assertEquals(2, O_pckg_info.AAO_archinfos[1][0].I_size);
+	}
+
+	/**
+	 * Compresses a <tt>setup.ini</tt> and parses it by a {@link StreamIniLineReader}, which must recognise the compressor.
+	 *
+	 * @param PI_S_compressor name of the compressor, see {@link CompressorStreamFactory}
+	 */
+	protected static void FV_assert_compressed_as_plain(
+			final File   PI_F_pna_setup_ini,
+			final String PI_S_compressor) throws IOException, CompressorException {
+
+		MappedIniLineReader O_buff_reader;
+		StreamIniLineReader O_stream_reader;
+		SetupIniContents    O_contents_plain, O_contents_compressed;
+		File                F_pna_compressed;
+
+		O_buff_reader = new MappedIniLineReader(PI_F_pna_setup_ini);
+		try {
+			O_contents_plain = IniFileParser.FO_parse(O_buff_reader);
+		} finally {
+			O_buff_reader.FV_close();
+		    }
+		F_pna_compressed = File.createTempFile("setup-", "." + PI_S_compressor);
+		try {
+			try (OutputStream O_output_stream = CompressorStreamFactory.getSingleton().createCompressorOutputStream(
+					PI_S_compressor, Files.newOutputStream(F_pna_compressed.toPath()))) {
+				Files.copy(PI_F_pna_setup_ini.toPath(), O_output_stream);
+			    }
+			O_stream_reader = StreamIniLineReader.FO_open(F_pna_compressed);
+			try {
+				O_contents_compressed = IniFileParser.FO_parse(O_stream_reader);
+			} finally {
+				O_stream_reader.FV_close();
+			    }
+		} finally {
+			F_pna_compressed.delete();
+		    }
+		FV_assert_equals(O_contents_plain, O_contents_compressed);
+		return;
+	}
+
+	/**
+	 * The sample and a generated <tt>setup.ini</tt> larger than the window of the reader.
+	 */
+	protected static void FV_assert_compressed_as_plain(final String PI_S_compressor) throws IOException, CompressorException {
+
+		File F_pna_setup_ini;
+
+		FV_assert_compressed_as_plain(FF_get_resource("setup.ini"), PI_S_compressor);
+		F_pna_setup_ini = File.createTempFile("setup-", ".ini");
+		try {
+			FV_write_setup_ini(F_pna_setup_ini, 1000);
+			assertTrue(F_pna_setup_ini.length() > 2 * StreamIniLineReader.I_dflt_buffer_size);
+			FV_assert_compressed_as_plain(F_pna_setup_ini, PI_S_compressor);
+		} finally {
+			F_pna_setup_ini.delete();
+		    }
+		return;
+	}
+
+	public void testXz() throws IOException, CompressorException {
+		FV_assert_compressed_as_plain(CompressorStreamFactory.XZ);
+	}
+
+	public void testZstd() throws IOException, CompressorException {
+		FV_assert_compressed_as_plain(CompressorStreamFactory.ZSTANDARD);
+	}
+
+	public void testBzip2() throws IOException, CompressorException {
+		FV_assert_compressed_as_plain(CompressorStreamFactory.BZIP2);
+	}
+
+	public void testArchiveSizeTooLarge() throws IOException {
+
+		MappedIniLineReader O_buff_reader;
+		File                F_pna_setup_ini;
+		String              S_contents;
+
+		F_pna_setup_ini = File.createTempFile("setup-", ".ini");
+		try {
+			FV_write_setup_ini(F_pna_setup_ini, 3);
+			S_contents = Files.readString(F_pna_setup_ini.toPath(), StandardCharsets.UTF_8);
+			Files.writeString(F_pna_setup_ini.toPath(), S_contents.replace(" 1001 ", " 4294967296 "), StandardCharsets.UTF_8);
+			O_buff_reader = new MappedIniLineReader(F_pna_setup_ini);
+			try {
+				IniFileParser.FO_parse(O_buff_reader);
+				fail("Size exceeding an int accepted");
+			} catch (RuntimeException PI_E_rt) {
+				assertTrue(PI_E_rt.getMessage(), PI_E_rt.getMessage().contains("\'pckg-1\'"));
+				assertTrue(PI_E_rt.getCause() instanceof NumberFormatException);
+			} finally {
+				O_buff_reader.FV_close();
+			    }
+		} finally {
+			F_pna_setup_ini.delete();
+		    }
+	}
+
+	/**
+	 * Blank short descriptions of <tt>pckg-2</tt> and of the last package, <tt>pckg-4</tt>,
+	 * which is only completed by the end of the file.
+	 */
+	public void testLenientRejected() throws IOException {
+
+		MappedIniLineReader O_buff_reader;
+		SetupIniContents    O_setup_ini_contents;
+		ParseDiagnostics    O_diagnostics;
+		ParseDiagnostics.Diagnostic O_diagnostic;
+		File                F_pna_setup_ini;
+		String              S_contents, AS_lines[];
+
+		F_pna_setup_ini = File.createTempFile("setup-", ".ini");
+		try {
+			FV_write_setup_ini(F_pna_setup_ini, 5);
+			S_contents = Files.readString(F_pna_setup_ini.toPath(), StandardCharsets.UTF_8);
+			S_contents = S_contents.replace("sdesc: \"Package number 2\"", "sdesc: \"\"").replace("sdesc: \"Package number 4\"", "sdesc: \" \"");
+			Files.writeString(F_pna_setup_ini.toPath(), S_contents, StandardCharsets.UTF_8);
+			AS_lines = S_contents.split("\n", -1);
+			O_buff_reader = new MappedIniLineReader(F_pna_setup_ini);
+			try {
+				IniFileParser.FO_parse(O_buff_reader);
+				fail("Blank sdesc accepted");
+			} catch (RuntimeException PI_E_rt) {
+				assertTrue(PI_E_rt.getCause() instanceof IllegalArgumentException);
+			} finally {
+				O_buff_reader.FV_close();
+			    }
+			O_diagnostics = new ParseDiagnostics();
+			O_buff_reader = new MappedIniLineReader(F_pna_setup_ini);
+			try {
+				O_setup_ini_contents = IniFileParser.FO_parse(O_buff_reader, O_diagnostics);
+			} finally {
+				O_buff_reader.FV_close();
+			    }
+		} finally {
+			F_pna_setup_ini.delete();
+		    }
+		assertEquals(new HashSet<String>(Arrays.asList("pckg-0", "pckg-1", "pckg-3")), 
+				O_setup_ini_contents.HS_package_names.keySet());
+		assertEquals(3, O_setup_ini_contents.AO_pckg_info.size());
+		assertEquals(2, O_diagnostics.FI_get_nbr_problems());
+		O_diagnostic = O_diagnostics.FAO_get_diagnostics().get(0);
+		assertEquals("pckg-2", O_diagnostic.S_pckg_name);
+		assertEquals("@ pckg-2", AS_lines[O_diagnostic.I_pckg_line_nbr_f1 - 1]);
+		assertTrue(O_diagnostic.S_reason, O_diagnostic.S_reason.contains("Short description"));
+		O_diagnostic = O_diagnostics.FAO_get_diagnostics().get(1);
+		assertEquals("pckg-4", O_diagnostic.S_pckg_name);
+		assertEquals("@ pckg-4", AS_lines[O_diagnostic.I_pckg_line_nbr_f1 - 1]);
+	}
+
+	/**
+	 * Long descriptions which are empty or blank, on one line or several, are rejected whether they are
+	 * kept as bytes of a {@link MappedIniLineReader} or decoded by a {@link StreamIniLineReader}.
+	 */
+	public void testBlankLdescRejected() throws IOException {
+
+		MappedIniLineReader O_buff_reader;
+		StreamIniLineReader O_stream_reader;
+		SetupIniContents    O_contents_mapped, O_contents_streamed;
+		ParseDiagnostics    O_diagnostics;
+		File                F_pna_setup_ini;
+		String              S_contents;
+		int i1;
+
+		F_pna_setup_ini = File.createTempFile("setup-", ".ini");
+		try {
+			FV_write_setup_ini(F_pna_setup_ini, 6);
+			S_contents = Files.readString(F_pna_setup_ini.toPath(), StandardCharsets.UTF_8);
+			S_contents = S_contents
+					.replace("ldesc: \"Package number 1\"", "ldesc: \"\"")
+					.replace("ldesc: \"Package number 2\"", "ldesc: \" \t \"")
+					.replace("ldesc: \"Package number 4\nspans\n\nseveral lines\"", "ldesc: \" \n  \n\n \"");
+			Files.writeString(F_pna_setup_ini.toPath(), S_contents, StandardCharsets.UTF_8);
+			O_buff_reader = new MappedIniLineReader(F_pna_setup_ini);
+			try {
+				IniFileParser.FO_parse(O_buff_reader);
+				fail("Blank ldesc accepted");
+			} catch (RuntimeException PI_E_rt) {
+				assertTrue(PI_E_rt.getCause() instanceof IllegalArgumentException);
+			} finally {
+				O_buff_reader.FV_close();
+			    }
+			O_diagnostics = new ParseDiagnostics();
+			O_buff_reader = new MappedIniLineReader(F_pna_setup_ini);
+			try {
+				O_contents_mapped = IniFileParser.FO_parse(O_buff_reader, O_diagnostics);
+			} finally {
+				O_buff_reader.FV_close();
+			    }
+			O_stream_reader = StreamIniLineReader.FO_open(F_pna_setup_ini);
+			try {
+				O_contents_streamed = IniFileParser.FO_parse(O_stream_reader, new ParseDiagnostics());
+			} finally {
+				O_stream_reader.FV_close();
+			    }
+		} finally {
+			F_pna_setup_ini.delete();
+		    }
+		assertEquals(new HashSet<String>(Arrays.asList("pckg-0", "pckg-3", "pckg-5")), 
+				O_contents_mapped.HS_package_names.keySet());
+		assertEquals(3, O_diagnostics.FI_get_nbr_problems());
+		for (i1 = 0; i1 < 3; i1++) {
+			assertEquals(Arrays.asList("pckg-1", "pckg-2", "pckg-4").get(i1), O_diagnostics.FAO_get_diagnostics().get(i1).S_pckg_name);
+			assertTrue(O_diagnostics.FAO_get_diagnostics().get(i1).S_reason.contains("Long description"));
+		    }
+		FV_assert_equals(O_contents_streamed, O_contents_mapped);
+	}
+
+	/**
+	 * Update of 20 packages after changing <tt>pckg-7</tt> and blanking the sdesc of <tt>pckg-5</tt>,
+	 * compared with a lenient parse of the new file.
+	 */
+	public void testIncrementalSkipsMalformed() throws IOException {
+
+		MappedIniLineReader O_buff_reader;
+		SetupIniContents    O_setup_ini_contents, O_contents_full;
+		SetupIniContents.PckgChanges O_pckg_changes;
+		ParseDiagnostics    O_diagnostics, O_diagnostics_full;
+		ParseDiagnostics.Diagnostic O_diagnostic, O_diagnostic_full;
+		File                F_pna_setup_ini;
+		String              S_contents, AS_lines[];
+
+		F_pna_setup_ini = File.createTempFile("setup-", ".ini");
+		try {
+			FV_write_setup_ini(F_pna_setup_ini, 20);
+			O_buff_reader = new MappedIniLineReader(F_pna_setup_ini);
+			try {
+				O_setup_ini_contents = IniFileParser.FO_parse(O_buff_reader);
+				O_setup_ini_contents.FV_set_fingerprints(O_buff_reader);
+			} finally {
+				O_buff_reader.FV_close();
+			    }
+			S_contents = Files.readString(F_pna_setup_ini.toPath(), StandardCharsets.UTF_8);
+			S_contents = S_contents.replace("sdesc: \"Package number 5\"", "sdesc: \"\"").replace("version: 1.7-1", "version: 1.7-2");
+			Files.writeString(F_pna_setup_ini.toPath(), S_contents, StandardCharsets.UTF_8);
+			AS_lines = S_contents.split("\n", -1);
+			O_diagnostics      = new ParseDiagnostics();
+			O_diagnostics_full = new ParseDiagnostics();
+			O_buff_reader = new MappedIniLineReader(F_pna_setup_ini);
+			try {
+				O_pckg_changes  = IniFileParser.FO_parse_incremental(O_setup_ini_contents, O_buff_reader, O_diagnostics);
+				O_contents_full = IniFileParser.FO_parse(new MappedIniLineReader(O_buff_reader, 0, O_buff_reader.I_limit_f0), O_diagnostics_full);
+			} finally {
+				O_buff_reader.FV_close();
+			    }
+		} finally {
+			F_pna_setup_ini.delete();
+		    }
+		assertEquals(Arrays.asList(), O_pckg_changes.AS_added);
+		assertEquals(Arrays.asList("pckg-7"), O_pckg_changes.AS_changed);
+		assertEquals(Arrays.asList("pckg-5"), O_pckg_changes.AS_removed);
+		assertEquals(1, O_diagnostics.FI_get_nbr_problems());
+		O_diagnostic      = O_diagnostics.FAO_get_diagnostics().get(0);
+		O_diagnostic_full = O_diagnostics_full.FAO_get_diagnostics().get(0);
+		assertEquals("@ pckg-5", AS_lines[O_diagnostic.I_pckg_line_nbr_f1 - 1]);
+		assertEquals(O_diagnostic_full.I_pckg_line_nbr_f1, O_diagnostic.I_pckg_line_nbr_f1);
+		assertEquals(O_diagnostic_full.S_reason,           O_diagnostic.S_reason);
+		FV_assert_equals(O_contents_full, O_setup_ini_contents);
+	}
+
+	/**
+	 * Update after changing <tt>pckg-8</tt>, whose long description contains a header line like all multi-line ones,
+	 * compared with a full parse of the new file. The stanzas must not be cut at these lines.
+	 */
+	public void testIncrementalHeaderInLdesc() throws IOException {
+
+		MappedIniLineReader O_buff_reader;
+		SetupIniContents    O_setup_ini_contents, O_contents_full;
+		SetupIniContents.PckgChanges O_pckg_changes;
+		File                F_pna_setup_ini;
+		String              S_contents;
+
+		F_pna_setup_ini = File.createTempFile("setup-", ".ini");
+		try {
+			S_contents = FS_write_setup_ini_hdr_in_ldesc(F_pna_setup_ini, 20);
+			O_buff_reader = new MappedIniLineReader(F_pna_setup_ini);
+			try {
+				O_setup_ini_contents = IniFileParser.FO_parse(O_buff_reader);
+				O_setup_ini_contents.FV_set_fingerprints(O_buff_reader);
+			} finally {
+				O_buff_reader.FV_close();
+			    }
+			Files.writeString(F_pna_setup_ini.toPath(), S_contents.replace("version: 1.8-1", "version: 1.8-2"), StandardCharsets.UTF_8);
+			O_buff_reader = new MappedIniLineReader(F_pna_setup_ini);
+			try {
+				O_pckg_changes  = IniFileParser.FO_parse_incremental(O_setup_ini_contents, O_buff_reader);
+				O_contents_full = IniFileParser.FO_parse(new MappedIniLineReader(O_buff_reader, 0, O_buff_reader.I_limit_f0));
+			} finally {
+				O_buff_reader.FV_close();
+			    }
+		} finally {
+			F_pna_setup_ini.delete();
+		    }
+		assertEquals(Arrays.asList(), O_pckg_changes.AS_added);
+		assertEquals(Arrays.asList("pckg-8"), O_pckg_changes.AS_changed);
+		assertEquals(Arrays.asList(), O_pckg_changes.AS_removed);
+		assertEquals("1.8-2", FO_get_pckg(O_setup_ini_contents, "pckg-8").AAO_archinfos[0][0].S_version);
+		FV_assert_equals(O_contents_full, O_setup_ini_contents);
+	}
+
+	/**
+	 * 500 packages on a pool of 4 threads give 16 chunks.
+	 */
+	public void testParallelAsSequential() throws IOException {
+
+		MappedIniLineReader O_buff_reader;
+		ForkJoinPool        O_pool;
+		SetupIniContents    O_contents_sequential, O_contents_parallel;
+		File                F_pna_setup_ini;
+
+		F_pna_setup_ini = File.createTempFile("setup-", ".ini");
+		O_pool = new ForkJoinPool(4);
+		try {
+			FV_write_setup_ini(F_pna_setup_ini, 500);
+			O_buff_reader = new MappedIniLineReader(F_pna_setup_ini);
+			try {
+				assertTrue(O_buff_reader.FAI_get_pckg_boundaries(4 * IniFileParser.I_nbr_chunks_per_thread).length > 2);
+				O_contents_sequential = IniFileParser.FO_parse(O_buff_reader);
+			} finally {
+				O_buff_reader.FV_close();
+			    }
+			O_buff_reader = new MappedIniLineReader(F_pna_setup_ini);
+			try {
+				O_contents_parallel = IniFileParser.FO_parse_parallel(O_buff_reader, O_pool);
+			} finally {
+				O_buff_reader.FV_close();
+			    }
+		} finally {
+			O_pool.shutdown();
+			F_pna_setup_ini.delete();
+		    }
+		assertEquals(500, O_contents_sequential.AO_pckg_info.size());
+		FV_assert_equals(O_contents_sequential, O_contents_parallel);
+	}
+
+	/**
+	 * Writes the <tt>setup.ini</tt> of {@link #FV_write_setup_ini(File, int)} with a line <tt>"@ pckg-1"</tt>
+	 * inside of each long description on several lines, which continues the description.
+	 *
+	 * @return contents of the file
+	 */
+	protected static String FS_write_setup_ini_hdr_in_ldesc(
+			final File PI_F_pna_setup_ini,
+			final int  PI_I_nbr_pckgs_f1) throws IOException {
+
+		String S_retval_contents;
+
+		FV_write_setup_ini(PI_F_pna_setup_ini, PI_I_nbr_pckgs_f1);
+		S_retval_contents = Files.readString(PI_F_pna_setup_ini.toPath(), StandardCharsets.UTF_8);
+		S_retval_contents = S_retval_contents.replace("\nspans\n", "\nspans\n@ pckg-1\n");
+		Files.writeString(PI_F_pna_setup_ini.toPath(), S_retval_contents, StandardCharsets.UTF_8);
+		return S_retval_contents;
+	}
+
+	/**
+	 * A chunk must not start at a header line inside of a long description,
+	 * the search for a package start skips it up to the next package.
+	 */
+	public void testParallelHeaderInLdesc() throws IOException {
+
+		MappedIniLineReader O_buff_reader;
+		ForkJoinPool        O_pool;
+		SetupIniContents    O_contents_sequential, O_contents_parallel;
+		File                F_pna_setup_ini;
+		String              S_contents;
+		int I_pos_f0, I_nbr_hdrs_f1;
+
+		F_pna_setup_ini = File.createTempFile("setup-", ".ini");
+		O_pool = new ForkJoinPool(4);
+		try {
+			S_contents = FS_write_setup_ini_hdr_in_ldesc(F_pna_setup_ini, 500);
+			O_buff_reader = new MappedIniLineReader(F_pna_setup_ini);
+			try {
+				I_nbr_hdrs_f1 = 0;
+				for (I_pos_f0 = S_contents.indexOf("\n@ pckg-1\n"); I_pos_f0 >= 0; I_pos_f0 = S_contents.indexOf("\n@ pckg-1\n", I_pos_f0 + 1)) {
+					if (S_contents.startsWith("spans", I_pos_f0 - 5)) {
+					   assertEquals(S_contents.indexOf("\n\n@ ", I_pos_f0) + 2, O_buff_reader.FI_find_pckg_start(I_pos_f0 + 1));
+					   I_nbr_hdrs_f1++;
+					   }
+				    }
+				assertEquals(125, I_nbr_hdrs_f1);
+				O_contents_sequential = IniFileParser.FO_parse(O_buff_reader);
+			} finally {
+				O_buff_reader.FV_close();
+			    }
+			O_buff_reader = new MappedIniLineReader(F_pna_setup_ini);
+			try {
+				O_contents_parallel = IniFileParser.FO_parse_parallel(O_buff_reader, O_pool);
+			} finally {
+				O_buff_reader.FV_close();
+			    }
+		} finally {
+			O_pool.shutdown();
+			F_pna_setup_ini.delete();
+		    }
+		assertEquals(500, O_contents_sequential.AO_pckg_info.size());
+		assertEquals("Package number 4 spans @ pckg-1 several lines", FO_get_pckg(O_contents_sequential, "pckg-4").FS_get_ldesc());
+		FV_assert_equals(O_contents_sequential, O_contents_parallel);
+	}
+}
@@ -0,0 +1,159 @@
+package com.github.michaelederaut.cygwinparser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import com.github.michaelederaut.cygwinparser.SetupIniContents.ArchInfo.DlStatus;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * {@link MirrorIndex} of a tree with a link to a folder, a link to a folder above it, a dangling link
+ * and a folder which can not be listed, walked sequentially and in parallel.
+ */
+public class MirrorIndexTest extends TestCase {
+
+	protected static final String S_dnr_site = "site";
+
+	protected Path    FP_dna_root, FP_dna_site, FP_dna_locked;
+	protected boolean B_links;
+
+	public MirrorIndexTest(final String PI_S_test_name) {
+		super(PI_S_test_name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(MirrorIndexTest.class);
+	}
+
+	@Override
+	protected void setUp() throws IOException {
+
+		this.FP_dna_root = Files.createTempDirectory("mirror-index-");
+		this.FP_dna_site = this.FP_dna_root.resolve(S_dnr_site);
+		Files.createDirectories(this.FP_dna_site.resolve("a"));
+		Files.write(this.FP_dna_site.resolve("a/x-1.0-1.tar.xz"), new byte[3]);
+		Files.createDirectories(this.FP_dna_site.resolve("c"));
+		Files.createDirectories(this.FP_dna_site.resolve("d"));
+		Files.write(this.FP_dna_site.resolve("d/y-1.0-1.tar.xz"), new byte[5]);
+		try {
+			Files.createSymbolicLink(this.FP_dna_site.resolve("b"), this.FP_dna_site.resolve("a"));
+			Files.createSymbolicLink(this.FP_dna_site.resolve("a/loop"), this.FP_dna_site);
+			Files.createSymbolicLink(this.FP_dna_site.resolve("c/dangling"), this.FP_dna_site.resolve("none"));
+			this.B_links = true;
+		} catch (UnsupportedOperationException | IOException PI_E_link) {
+			this.B_links = false;  // e.g. Windows without the privilege
+		    }
+		this.FP_dna_locked = this.FP_dna_site.resolve("d");
+		try {
+			Files.setPosixFilePermissions(this.FP_dna_locked, PosixFilePermissions.fromString("---------"));
+		} catch (UnsupportedOperationException PI_E_posix) {
+			this.FP_dna_locked = null;
+		    }
+		return;
+	}
+
+	@Override
+	protected void tearDown() throws IOException {
+
+		if (this.FP_dna_locked != null) {
+		   Files.setPosixFilePermissions(this.FP_dna_locked, PosixFilePermissions.fromString("rwx------"));
+		   }
+		try (Stream<Path> AFP_pnas = Files.walk(this.FP_dna_root)) {
+			AFP_pnas.sorted(Comparator.reverseOrder()).forEach((Path PI_FP_pna) -> PI_FP_pna.toFile().delete());
+		    }
+		return;
+	}
+
+	/**
+	 * Without the privileges to lock a folder, e.g. as root, the folder is listed.
+	 */
+	protected boolean FB_is_locked() {
+		return (this.FP_dna_locked != null) && !Files.isReadable(this.FP_dna_locked);
+	}
+
+	protected void FV_assert_index(final MirrorIndex PI_O_mirror_index) {
+
+		int I_file_id;
+
+		I_file_id = PI_O_mirror_index.FI_get_file_id("a/x-1.0-1.tar.xz");
+		assertTrue(I_file_id >= 0);
+		assertEquals(3L, PI_O_mirror_index.AL_sizes[I_file_id]);
+		assertTrue(PI_O_mirror_index.FB_is_complete("a/x-1.0-1.tar.xz"));
+		if (FB_is_locked()) {
+		   assertEquals(-1, PI_O_mirror_index.FI_get_file_id("d/y-1.0-1.tar.xz"));
+		   assertTrue(PI_O_mirror_index.FB_is_dir("d"));
+		   assertFalse(PI_O_mirror_index.FB_is_complete("d/y-1.0-1.tar.xz"));
+		   assertFalse(PI_O_mirror_index.FB_is_complete("d"));
+		   assertTrue(Arrays.asList(PI_O_mirror_index.AS_pnr_unlisted).contains("d"));
+		   }
+		else {
+		   assertTrue(PI_O_mirror_index.FI_get_file_id("d/y-1.0-1.tar.xz") >= 0);
+		   assertTrue(PI_O_mirror_index.FB_is_complete("d/y-1.0-1.tar.xz"));
+		   }
+		if (!this.B_links) {
+		   return;
+		   }
+		I_file_id = PI_O_mirror_index.FI_get_file_id("b/x-1.0-1.tar.xz");  // link to a folder followed
+		assertTrue(I_file_id >= 0);
+		assertEquals(3L, PI_O_mirror_index.AL_sizes[I_file_id]);
+		assertTrue(PI_O_mirror_index.FB_is_dir("b"));
+		assertTrue(PI_O_mirror_index.FB_is_dir("a/loop"));
+		assertTrue(PI_O_mirror_index.FB_is_complete("b/x-1.0-1.tar.xz"));
+		assertFalse(PI_O_mirror_index.FB_is_complete("a/loop/a/x-1.0-1.tar.xz"));  // asked on the file system
+		assertFalse(PI_O_mirror_index.FB_is_complete("a"));
+		assertTrue(Arrays.asList(PI_O_mirror_index.AS_pnr_unlisted).containsAll(Arrays.asList("a/loop", "b/loop")));
+		assertEquals(-1, PI_O_mirror_index.FI_get_file_id("c/dangling"));
+		assertFalse(PI_O_mirror_index.FB_is_dir("c/dangling"));
+		assertTrue(PI_O_mirror_index.FB_is_complete("c/dangling"));
+		return;
+	}
+
+	public void testSequential() {
+		FV_assert_index(MirrorIndex.FO_build(this.FP_dna_site, S_dnr_site, null));
+	}
+
+	public void testParallel() {
+
+		MirrorIndex O_sequential, O_parallel;
+
+		O_parallel = MirrorIndex.FO_build(this.FP_dna_site, S_dnr_site, ForkJoinPool.commonPool());
+		FV_assert_index(O_parallel);
+		O_sequential = MirrorIndex.FO_build(this.FP_dna_site, S_dnr_site, null);
+		assertEquals(Arrays.asList(O_sequential.AS_pnr_files),    Arrays.asList(O_parallel.AS_pnr_files));
+		assertEquals(Arrays.asList(O_sequential.AS_pnr_unlisted), Arrays.asList(O_parallel.AS_pnr_unlisted));
+		assertTrue(Arrays.equals(O_sequential.AL_sizes, O_parallel.AL_sizes));
+	}
+
+	/**
+	 * An archive below a link to a folder above it is checked on the file system.
+	 */
+	public void testCheckBelowLoop() {
+
+		ArchiveChecker O_checker;
+		PckgTable      O_pckg_table;
+
+		if (!this.B_links) {
+		   return;
+		   }
+		O_pckg_table = IniFileParser.FO_parse(new ByteArrayInputStream((
+				"release: cygwin\narch: x86_64\n\n@ x\nsdesc: \"x\"\nldesc: \"x\"\ncategory: Base\nrequires: cygwin\nversion: 1.0-1\n" +
+				"install: a/loop/a/x-1.0-1.tar.xz 3 " + "0123456789abcdef".repeat(8) + "\n" +
+				"source: a/loop/b/x-1.0-1-src.tar.xz 4 " + "0123456789abcdef".repeat(8) + "\n").getBytes(StandardCharsets.UTF_8)), "loop.ini").FO_get_pckg_table();
+		O_checker = new ArchiveChecker(this.FP_dna_root.toString());
+		O_checker.FO_index_mirror(S_dnr_site, ForkJoinPool.commonPool());
+		assertEquals(1, O_checker.FI_check_pckgs(S_dnr_site, O_pckg_table));
+		assertEquals(DlStatus.sizeOk, O_pckg_table.FE_get_dl_status(PckgTable.FI_get_slot(0, 0, 0)));
+		assertEquals(DlStatus.unknown, O_pckg_table.FE_get_dl_status(PckgTable.FI_get_slot(0, 0, 1)));
+	}
+}
@@ -0,0 +1,171 @@
+package com.github.michaelederaut.cygwinparser;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * {@link PckgIdSet} against {@link BitSet} around {@link PckgIdSet#I_max_array_size},
+ * where a chunk changes from a sorted array to a bitmap and back.
+ */
+public class PckgIdSetTest extends TestCase {
+
+	protected static final int I_chunk_size = 1 << 16;
+
+	public PckgIdSetTest(final String PI_S_test_name) {
+		super(PI_S_test_name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(PckgIdSetTest.class);
+	}
+
+	protected static PckgIdSet FO_build(final BitSet PI_O_ids) {
+
+		PckgIdSet.Builder O_builder;
+		int I_pckg_id;
+
+		O_builder = new PckgIdSet.Builder();
+		for (I_pckg_id = PI_O_ids.nextSetBit(0); I_pckg_id >= 0; I_pckg_id = PI_O_ids.nextSetBit(I_pckg_id + 1)) {
+			O_builder.FV_add(I_pckg_id);
+		    }
+		return O_builder.FO_build();
+	}
+
+	/**
+	 *
+	 * @param PI_I_nbr_ids_f1 number of distinct ids, at most {@link #I_chunk_size} per chunk
+	 * @param PI_AI_keys the chunks of the ids, the upper 16 bits
+	 */
+	protected static BitSet FO_get_random(
+			final Random PI_O_rnd,
+			final int    PI_I_nbr_ids_f1,
+			final int... PI_AI_keys) {
+
+		BitSet O_retval_ids;
+		int I_key, I_pckg_id, I_nbr_ids_f1;
+
+		O_retval_ids = new BitSet();
+		I_nbr_ids_f1 = 0;
+		while (I_nbr_ids_f1 < PI_I_nbr_ids_f1) {
+			I_key = PI_AI_keys[PI_O_rnd.nextInt(PI_AI_keys.length)];
+			I_pckg_id = (I_key << 16) | PI_O_rnd.nextInt(I_chunk_size);
+			if (!O_retval_ids.get(I_pckg_id)) {
+			   O_retval_ids.set(I_pckg_id);
+			   I_nbr_ids_f1++;
+			   }
+		    }
+		return O_retval_ids;
+	}
+
+	/**
+	 * Asserts the same ids, each chunk an array up to {@link PckgIdSet#I_max_array_size} ids and a bitmap beyond,
+	 * and {@link PckgIdSet#FI_next(int)} like {@link BitSet#nextSetBit(int)} from any position.
+	 */
+	protected static void FV_assert_equals(
+			final BitSet    PI_O_expected,
+			final PckgIdSet PI_O_actual) {
+
+		BitSet O_actual;
+		int i1, I_from, I_next_expected;
+
+		O_actual = new BitSet();
+		for (I_from = PI_O_actual.FI_next(0); I_from >= 0; I_from = PI_O_actual.FI_next(I_from + 1)) {
+			O_actual.set(I_from);
+		    }
+		assertEquals(PI_O_expected, O_actual);
+		assertEquals(PI_O_expected.cardinality(), PI_O_actual.FI_cardinality());
+		for (i1 = 0; i1 < PI_O_actual.AC_keys.length; i1++) {
+			assertTrue(PI_O_actual.AI_cardinalities[i1] > 0);
+			assertEquals(
+					"chunk " + (int)PI_O_actual.AC_keys[i1] + " of " + PI_O_actual.AI_cardinalities[i1] + " ids",
+					PI_O_actual.AI_cardinalities[i1] <= PckgIdSet.I_max_array_size,
+					PI_O_actual.AAC_values[i1] != null);
+		    }
+		for (I_from = 0; I_from < (3 * I_chunk_size); I_from += 97) {
+			I_next_expected = PI_O_expected.nextSetBit(I_from);
+			assertEquals(I_next_expected, PI_O_actual.FI_next(I_from));
+			if (I_next_expected >= 0) {
+			   assertTrue(PI_O_actual.FB_contains(I_next_expected));
+			   assertEquals(I_next_expected, PI_O_actual.FI_next(I_next_expected));
+			   }
+		    }
+		assertEquals(-1, PI_O_actual.FI_next(PI_O_expected.length()));
+		return;
+	}
+
+	public void testBuilderTransition() {
+
+		BitSet O_ids;
+		int i1, I_nbr_ids_f1;
+
+		for (I_nbr_ids_f1 = PckgIdSet.I_max_array_size - 1; I_nbr_ids_f1 <= PckgIdSet.I_max_array_size + 1; I_nbr_ids_f1++) {
+			O_ids = new BitSet();
+			for (i1 = 0; i1 < I_nbr_ids_f1; i1++) {
+				O_ids.set(I_chunk_size + 5 * i1);  // second chunk only
+			    }
+			O_ids.set(2 * I_chunk_size + 7);
+			FV_assert_equals(O_ids, FO_build(O_ids));
+		    }
+	}
+
+	public void testOperations() {
+
+		Random    O_rnd;
+		BitSet    O_ids_1, O_ids_2, O_expected;
+		PckgIdSet O_set_1, O_set_2;
+		int AI_sizes[];
+		int i1, i2;
+
+		O_rnd = new Random(4096);
+		// array and array to bitmap, bitmap and bitmap to array, array and bitmap
+		AI_sizes = new int[] {100, 2048, 2049, 4095, 4096, 4097, 6000, 60000};
+		for (i1 = 0; i1 < AI_sizes.length; i1++) {
+			for (i2 = 0; i2 < AI_sizes.length; i2++) {
+				O_ids_1 = FO_get_random(O_rnd, AI_sizes[i1], 0);
+				O_ids_2 = FO_get_random(O_rnd, AI_sizes[i2], 0);
+				if ((i1 % 2) == 0) {  // a chunk of one set only
+				   O_ids_1.set(2 * I_chunk_size + i2);
+				   }
+				else {
+				   O_ids_2.set(I_chunk_size + i1);
+				   }
+				O_set_1 = FO_build(O_ids_1);
+				O_set_2 = FO_build(O_ids_2);
+				FV_assert_equals(O_ids_1, O_set_1);
+				FV_assert_equals(O_ids_2, O_set_2);
+
+				O_expected = (BitSet)O_ids_1.clone();
+				O_expected.and(O_ids_2);
+				FV_assert_equals(O_expected, O_set_1.FO_and(O_set_2));
+
+				O_expected = (BitSet)O_ids_1.clone();
+				O_expected.or(O_ids_2);
+				FV_assert_equals(O_expected, O_set_1.FO_or(O_set_2));
+
+				O_expected = (BitSet)O_ids_1.clone();
+				O_expected.andNot(O_ids_2);
+				FV_assert_equals(O_expected, O_set_1.FO_and_not(O_set_2));
+			    }
+		    }
+		// exactly at the limit in both directions
+		O_ids_1 = new BitSet();
+		O_ids_1.set(0, 2 * PckgIdSet.I_max_array_size);
+		O_ids_2 = new BitSet();
+		O_ids_2.set(0, PckgIdSet.I_max_array_size);
+		O_set_1 = FO_build(O_ids_1);
+		O_set_2 = FO_build(O_ids_2);
+		O_expected = new BitSet();
+		O_expected.set(PckgIdSet.I_max_array_size, 2 * PckgIdSet.I_max_array_size);
+		FV_assert_equals(O_expected, O_set_1.FO_and_not(O_set_2));
+		FV_assert_equals(O_ids_2, O_set_1.FO_and(O_set_2));
+		O_ids_2.set(PckgIdSet.I_max_array_size);
+		FV_assert_equals(O_ids_2, O_set_1.FO_and(FO_build(O_ids_2)));
+		assertEquals(O_set_2, FO_build(O_ids_1).FO_and_not(FO_build(O_expected)));
+		assertTrue(O_set_1.FO_and_not(O_set_1).FB_is_empty());
+		assertEquals(O_set_1, PckgIdSet.O_empty.FO_or(O_set_1));
+	}
+}
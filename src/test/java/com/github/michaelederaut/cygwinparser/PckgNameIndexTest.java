@@ -0,0 +1,223 @@
+package com.github.michaelederaut.cygwinparser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Prefix, glob and similarity queries of {@link PckgNameIndex} against a scan over all package names.
+ */
+public class PckgNameIndexTest extends TestCase {
+
+	protected static final String AS_stems[]    = {"gcc", "g++", "zlib", "libxml2", "python3", "python39", "perl", "bash", "xz", 
+			"zstd", "git", "vim", "nano", "make", "cmake", "curl", "wget", "openssl", "libssl", "libcurl4", "a"};
+	protected static final String AS_suffixes[] = {"", "-devel", "-doc", "-debuginfo", "1", "-src", "_x"};
+
+	protected Path          FP_dna_root;
+	protected String        AS_names[];
+	protected PckgNameIndex O_name_index;
+
+	public PckgNameIndexTest(final String PI_S_test_name) {
+		super(PI_S_test_name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(PckgNameIndexTest.class);
+	}
+
+	@Override
+	protected void setUp() throws IOException {
+
+		MappedIniLineReader O_buff_reader;
+		SetupIniContents    O_setup_ini_contents;
+		String AAS_pckgs[][];
+		File   F_pna_setup_ini;
+		int i1, i2;
+
+		AAS_pckgs = new String[AS_stems.length * AS_suffixes.length][];
+		for (i1 = 0; i1 < AS_stems.length; i1++) {
+			for (i2 = 0; i2 < AS_suffixes.length; i2++) {
+				AAS_pckgs[i1 * AS_suffixes.length + i2] = new String[] {
+						AS_stems[i1] + AS_suffixes[i2], "Package " + i1, "Suffix " + i2};
+			    }
+		    }
+		this.FP_dna_root = Files.createTempDirectory("name-index-");
+		F_pna_setup_ini  = this.FP_dna_root.resolve("setup.ini").toFile();
+		PckgTextIndexTest.FV_write_setup_ini(F_pna_setup_ini, AAS_pckgs);
+		O_buff_reader = new MappedIniLineReader(F_pna_setup_ini);
+		try {
+			O_setup_ini_contents = IniFileParser.FO_parse(O_buff_reader);
+		} finally {
+			O_buff_reader.FV_close();
+		    }
+		this.O_name_index = O_setup_ini_contents.FO_get_name_index();
+		this.AS_names = new String[this.O_name_index.O_pckg_table.I_nbr_pckgs_f1];
+		for (i1 = 0; i1 < this.AS_names.length; i1++) {
+			this.AS_names[i1] = this.O_name_index.O_pckg_table.new PckgView(i1).FS_get_name();
+		    }
+		assertEquals(AAS_pckgs.length, this.AS_names.length);
+		return;
+	}
+
+	@Override
+	protected void tearDown() throws IOException {
+
+		try (Stream<Path> AFP_pnas = Files.walk(this.FP_dna_root)) {
+			AFP_pnas.sorted(Comparator.reverseOrder()).forEach((Path PI_FP_pna) -> PI_FP_pna.toFile().delete());
+		    }
+		return;
+	}
+
+	/**
+	 *
+	 * @return ids of the packages whose name is accepted, ascending
+	 */
+	protected List<Integer> FAI_scan(final Predicate<String> PI_O_filter) {
+
+		List<Integer> AI_retval_pckg_ids;
+		int i1;
+
+		AI_retval_pckg_ids = new ArrayList<Integer>();
+		for (i1 = 0; i1 < this.AS_names.length; i1++) {
+			if (PI_O_filter.test(this.AS_names[i1])) {
+			   AI_retval_pckg_ids.add(i1);
+			   }
+		    }
+		return AI_retval_pckg_ids;
+	}
+
+	protected static List<Integer> FAI_as_list(final int PI_AI_pckg_ids[]) {
+
+		List<Integer> AI_retval_pckg_ids;
+
+		AI_retval_pckg_ids = new ArrayList<Integer>();
+		for (int I_pckg_id: PI_AI_pckg_ids) {
+			AI_retval_pckg_ids.add(I_pckg_id);
+		    }
+		return AI_retval_pckg_ids;
+	}
+
+	/**
+	 * Translates a well formed glob pattern into a regular expression.
+	 */
+	protected static Pattern FO_get_regex(final String PI_S_glob) {
+
+		StringBuilder S_regex;
+		char C_char;
+		int i1;
+
+		S_regex = new StringBuilder();
+		for (i1 = 0; i1 < PI_S_glob.length(); i1++) {
+			C_char = PI_S_glob.charAt(i1);
+			if (C_char == '*') {
+			   S_regex.append(".*");
+			   }
+			else if (C_char == '?') {
+			   S_regex.append('.');
+			   }
+			else if (C_char == '[') {
+			   S_regex.append('[');
+			   i1++;
+			   if ((PI_S_glob.charAt(i1) == '!') || (PI_S_glob.charAt(i1) == '^')) {
+				  S_regex.append('^');
+				  i1++;
+			      }
+			   do {
+				   C_char = PI_S_glob.charAt(i1);
+				   S_regex.append(((C_char == '-') || Character.isLetterOrDigit(C_char)) ? String.valueOf(C_char) : ("\\" + C_char));
+				   i1++;
+			   } while (PI_S_glob.charAt(i1) != ']');
+			   S_regex.append(']');
+			   }
+			else {
+			   S_regex.append(Pattern.quote(String.valueOf(C_char)));
+			   }
+		    }
+		return Pattern.compile(S_regex.toString());
+	}
+
+	protected static int FI_get_distance(
+			final String PI_S_name_1,
+			final String PI_S_name_2) {
+
+		int AAI_dist[][];
+		int i1, i2;
+
+		AAI_dist = new int[PI_S_name_1.length() + 1][PI_S_name_2.length() + 1];
+		for (i1 = 0; i1 <= PI_S_name_1.length(); i1++) {
+			for (i2 = 0; i2 <= PI_S_name_2.length(); i2++) {
+				if ((i1 == 0) || (i2 == 0)) {
+				   AAI_dist[i1][i2] = i1 + i2;
+				   }
+				else {
+				   AAI_dist[i1][i2] = Math.min(Math.min(AAI_dist[i1 - 1][i2] + 1, AAI_dist[i1][i2 - 1] + 1),
+						   AAI_dist[i1 - 1][i2 - 1] + ((PI_S_name_1.charAt(i1 - 1) == PI_S_name_2.charAt(i2 - 1)) ? 0 : 1));
+				   }
+			    }
+		    }
+		return AAI_dist[PI_S_name_1.length()][PI_S_name_2.length()];
+	}
+
+	public void testPrefix() {
+
+		String AS_prefixes[] = {"", "lib", "libx", "python3", "python39-", "g+", "g++-", "zzz", "a", "a_x", "a_x_"};
+
+		for (String S_prefix: AS_prefixes) {
+			assertEquals(S_prefix, FAI_scan((String PI_S_name) -> PI_S_name.startsWith(S_prefix)),
+					FAI_as_list(this.O_name_index.FAI_find_prefix(S_prefix)));
+		    }
+		for (String S_name: this.AS_names) {
+			assertEquals(FAI_scan((String PI_S_name) -> PI_S_name.equals(S_name)).get(0).intValue(), 
+					this.O_name_index.FI_get_pckg_id(S_name));
+		    }
+		assertEquals(-1, this.O_name_index.FI_get_pckg_id("lib"));
+	}
+
+	public void testGlob() {
+
+		String AS_globs[] = {"*", "", "lib*", "*-devel", "?z*", "python3?", "python3?*", "*[0-9]", "[gv]*", "[!l]*-doc", 
+				"[^a-z]*", "[a-c]*", "*-[dD]*", "g++*", "*[+_]*", "lib*2*", "????", "*l*l*", "[]-]*", "*[-]*", "a", "a?x", "**a"};
+
+		for (String S_glob: AS_globs) {
+			final Pattern O_regex = FO_get_regex(S_glob);
+			assertEquals(S_glob, FAI_scan((String PI_S_name) -> O_regex.matcher(PI_S_name).matches()),
+					FAI_as_list(this.O_name_index.FAI_find_glob(S_glob)));
+		    }
+		assertEquals(0, this.O_name_index.FAI_find_glob("[*").length);  // unclosed, a literal [
+		assertEquals(0, this.O_name_index.FAI_find_glob("[*]*").length);
+		assertEquals(this.AS_names.length, this.O_name_index.FAI_find_glob("*".repeat(PckgNameIndex.I_max_glob_len)).length);
+		assertEquals(0, this.O_name_index.FAI_find_glob("[a-z]".repeat(PckgNameIndex.I_max_glob_len)).length);  // a class is one position
+		try {
+			this.O_name_index.FAI_find_glob("[a-z]".repeat(PckgNameIndex.I_max_glob_len + 1));
+			fail("Pattern longer than " + PckgNameIndex.I_max_glob_len + " accepted");
+		} catch (RuntimeException PI_E_rt) {
+			assertTrue(PI_E_rt.getCause() instanceof IllegalArgumentException);
+		    }
+	}
+
+	public void testSimilar() {
+
+		String AS_queries[] = {"gcc", "gc", "libxml", "pyhton3", "zstd-devl", "", "a", "curl4", "openssl-doc", "xyzzy"};
+		int    I_max_distance;
+
+		for (String S_query: AS_queries) {
+			for (I_max_distance = 0; I_max_distance <= 3; I_max_distance++) {
+				final int I_max = I_max_distance;
+				assertEquals(S_query + " " + I_max, FAI_scan((String PI_S_name) -> FI_get_distance(S_query, PI_S_name) <= I_max),
+						FAI_as_list(this.O_name_index.FAI_find_similar(S_query, I_max)));
+			    }
+		    }
+	}
+}
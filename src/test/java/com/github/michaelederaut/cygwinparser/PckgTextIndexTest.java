@@ -0,0 +1,311 @@
+package com.github.michaelederaut.cygwinparser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Stream;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * BM25 ranking of {@link PckgTextIndex} against scores computed word by word from the descriptions,
+ * for an index built from the parse result and one built from a {@link CatalogSnapshot}.
+ */
+public class PckgTextIndexTest extends TestCase {
+
+	/**
+	 * name, sdesc and ldesc of the packages
+	 */
+	protected static final String AAS_pckgs[][] = {
+		{"zlib",    "Compression library", "Deflate compression library"},
+		{"xz",      "Compression utility", "LZMA compression utility and library"},
+		{"vim",     "Text editor",         "Vi improved text editor"},
+		{"nano",    "Small text editor",   "A small editor, compression of nothing"},
+		{"bash",    "Shell",               "The GNU Bourne again shell"},
+		{"zsh",     "Shell",               "Z shell with an editor mode"},
+		{"p-sdesc", "Rare",                "Common words here"},
+		{"p-ldesc", "Common",              "Rare words here"},
+		{"unique",  "Unique",              "Plain"},
+		{"ksh",     "Shell",               "Plain"}};
+
+	protected Path             FP_dna_root;
+	protected File             F_pna_setup_ini;
+	protected SetupIniContents O_setup_ini_contents;
+	protected PckgTable        O_pckg_table;
+	protected PckgTextIndex    O_text_index;
+
+	public PckgTextIndexTest(final String PI_S_test_name) {
+		super(PI_S_test_name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(PckgTextIndexTest.class);
+	}
+
+	/**
+	 * Writes one stanza with a single version per package.
+	 *
+	 * @param PI_AAS_pckgs name, sdesc and ldesc of the packages
+	 */
+	protected static void FV_write_setup_ini(
+			final File     PI_F_pna_setup_ini,
+			final String   PI_AAS_pckgs[][]) throws IOException {
+
+		String S_hash, S_name;
+		int i1;
+
+		S_hash = "0123456789abcdef".repeat(8);
+		try (PrintWriter O_writer = new PrintWriter(PI_F_pna_setup_ini, StandardCharsets.UTF_8)) {
+			O_writer.print("release: cygwin\narch: x86_64\n\n");
+			for (i1 = 0; i1 < PI_AAS_pckgs.length; i1++) {
+				S_name = PI_AAS_pckgs[i1][0];
+				O_writer.print("@ " + S_name + "\n");
+				O_writer.print("sdesc: \"" + PI_AAS_pckgs[i1][1] + "\"\n");
+				O_writer.print("ldesc: \"" + PI_AAS_pckgs[i1][2] + "\"\n");
+				O_writer.print("category: Base\n");
+				O_writer.print("requires: cygwin\n");
+				O_writer.print("version: 1.0-1\n");
+				O_writer.print("install: x86_64/release/" + S_name + "/" + S_name + "-1.0-1.tar.xz 1000 " + S_hash + "\n");
+				O_writer.print("source: x86_64/release/" + S_name + "/" + S_name + "-1.0-1-src.tar.xz 100 " + S_hash + "\n\n");
+			    }
+		    }
+		return;
+	}
+
+	@Override
+	protected void setUp() throws IOException {
+
+		MappedIniLineReader O_buff_reader;
+
+		this.FP_dna_root     = Files.createTempDirectory("text-index-");
+		this.F_pna_setup_ini = this.FP_dna_root.resolve("setup.ini").toFile();
+		FV_write_setup_ini(this.F_pna_setup_ini, AAS_pckgs);
+		O_buff_reader = new MappedIniLineReader(this.F_pna_setup_ini);
+		try {
+			this.O_setup_ini_contents = IniFileParser.FO_parse(O_buff_reader);
+			this.O_setup_ini_contents.FV_set_fingerprints(O_buff_reader);
+			assertTrue(CatalogSnapshot.FB_write(
+					this.FP_dna_root.resolve(CatalogSnapshot.S_bn_snapshot).toFile(), O_buff_reader, this.O_setup_ini_contents));
+		} finally {
+			O_buff_reader.FV_close();
+		    }
+		this.O_pckg_table = this.O_setup_ini_contents.FO_get_pckg_table();
+		this.O_text_index = this.O_setup_ini_contents.FO_get_text_index();
+		return;
+	}
+
+	@Override
+	protected void tearDown() throws IOException {
+
+		try (Stream<Path> AFP_pnas = Files.walk(this.FP_dna_root)) {
+			AFP_pnas.sorted(Comparator.reverseOrder()).forEach((Path PI_FP_pna) -> PI_FP_pna.toFile().delete());
+		    }
+		return;
+	}
+
+	protected static List<String> FAS_get_words(final String PI_S_text) {
+
+		List<String> AS_retval_words;
+
+		AS_retval_words = new ArrayList<String>();
+		for (String S_word: PI_S_text.toLowerCase().split("[^\\p{L}\\p{N}]+")) {
+			if (!S_word.isEmpty()) {
+			   AS_retval_words.add(S_word);
+			   }
+		    }
+		return AS_retval_words;
+	}
+
+	/**
+	 * BM25 score of each package for a query, computed from the descriptions of {@link #AAS_pckgs},
+	 * the words of the short description counted {@link PckgTextIndex#I_sdesc_weight} times.
+	 *
+	 * @return score by package id, {@link Double#NaN} if the package does not match
+	 */
+	protected static double[] FAD_get_scores(
+			final String  PI_S_query,
+			final boolean PI_B_all) {
+
+		List<HashMap<String, Integer>> AHS_freqs;
+		HashMap<String, Integer> HS_freqs;
+		HashSet<String> HS_query_words;
+		List<String>    AS_words;
+		double AD_retval_scores[], D_avg_len, D_idf, D_freq, D_norm;
+		int    AI_lens[], i1, i2, I_doc_freq, I_nbr_matches;
+
+		AHS_freqs = new ArrayList<HashMap<String, Integer>>();
+		AI_lens   = new int[AAS_pckgs.length];
+		D_avg_len = 0.0;
+		for (i1 = 0; i1 < AAS_pckgs.length; i1++) {
+			AS_words = new ArrayList<String>();
+			for (i2 = 0; i2 < PckgTextIndex.I_sdesc_weight; i2++) {
+				AS_words.addAll(FAS_get_words(AAS_pckgs[i1][1]));
+			    }
+			AS_words.addAll(FAS_get_words(AAS_pckgs[i1][2]));
+			HS_freqs = new HashMap<String, Integer>();
+			for (String S_word: AS_words) {
+				HS_freqs.merge(S_word, 1, Integer::sum);
+			    }
+			AHS_freqs.add(HS_freqs);
+			AI_lens[i1] = AS_words.size();
+			D_avg_len += AS_words.size();
+		    }
+		D_avg_len /= AAS_pckgs.length;
+		HS_query_words = new HashSet<String>(FAS_get_words(PI_S_query));
+		AD_retval_scores = new double[AAS_pckgs.length];
+		for (i1 = 0; i1 < AAS_pckgs.length; i1++) {
+			I_nbr_matches = 0;
+			for (String S_word: HS_query_words) {
+				if (!AHS_freqs.get(i1).containsKey(S_word)) {
+				   continue;
+				   }
+				I_doc_freq = 0;
+				for (HashMap<String, Integer> HS_doc_freqs: AHS_freqs) {
+					I_doc_freq += HS_doc_freqs.containsKey(S_word) ? 1 : 0;
+				    }
+				D_idf  = Math.log(1.0 + (AAS_pckgs.length - I_doc_freq + 0.5) / (I_doc_freq + 0.5));
+				D_freq = AHS_freqs.get(i1).get(S_word);
+				D_norm = PckgTextIndex.D_k1 * (1.0 - PckgTextIndex.D_b + PckgTextIndex.D_b * AI_lens[i1] / D_avg_len);
+				AD_retval_scores[i1] += D_idf * D_freq * (PckgTextIndex.D_k1 + 1.0) / (D_freq + D_norm);
+				I_nbr_matches++;
+			    }
+			if ((I_nbr_matches == 0) || (PI_B_all && (I_nbr_matches < HS_query_words.size()))) {
+			   AD_retval_scores[i1] = Double.NaN;
+			   }
+		    }
+		return AD_retval_scores;
+	}
+
+	/**
+	 * Asserts the hits of the index are the best <tt>PI_I_max_hits</tt> packages by {@link #FAD_get_scores(String, boolean)},
+	 * equal scores by package id.
+	 */
+	protected static void FV_assert_ranking(
+			final PckgTextIndex PI_O_text_index,
+			final String        PI_S_query,
+			final boolean       PI_B_all,
+			final int           PI_I_max_hits) {
+
+		PckgTextIndex.Hits O_hits;
+		List<Integer> AI_expected;
+		double AD_scores[];
+		String S_msg;
+		int i1;
+
+		AD_scores   = FAD_get_scores(PI_S_query, PI_B_all);
+		AI_expected = new ArrayList<Integer>();
+		for (i1 = 0; i1 < AD_scores.length; i1++) {
+			if (!Double.isNaN(AD_scores[i1])) {
+			   AI_expected.add(i1);
+			   }
+		    }
+		AI_expected.sort((Integer PI_I_pckg_1, Integer PI_I_pckg_2) -> (AD_scores[PI_I_pckg_1] != AD_scores[PI_I_pckg_2]) ?
+				Double.compare(AD_scores[PI_I_pckg_2], AD_scores[PI_I_pckg_1]) : Integer.compare(PI_I_pckg_1, PI_I_pckg_2));
+		if (AI_expected.size() > PI_I_max_hits) {
+		   AI_expected = AI_expected.subList(0, PI_I_max_hits);
+		   }
+		O_hits = PI_O_text_index.FO_search(PI_S_query, PI_B_all, PI_I_max_hits);
+		S_msg  = "\"" + PI_S_query + "\" " + (PI_B_all ? "all" : "any") + " " + PI_I_max_hits;
+		assertEquals(S_msg, AI_expected.size(), O_hits.AI_pckg_ids.length);
+		for (i1 = 0; i1 < O_hits.AI_pckg_ids.length; i1++) {
+			assertEquals(S_msg, AI_expected.get(i1).intValue(), O_hits.AI_pckg_ids[i1]);
+			assertEquals(S_msg, AD_scores[O_hits.AI_pckg_ids[i1]], O_hits.AD_scores[i1], 1e-9);
+		    }
+		return;
+	}
+
+	protected static void FV_assert_rankings(final PckgTextIndex PI_O_text_index) {
+
+		String AS_queries[] = {"compression", "editor", "shell editor", "text editor", "compression library", 
+				"rare", "common words", "unique shell", "plain", "gnu", "missing", "editor missing", ""};
+
+		for (String S_query: AS_queries) {
+			for (boolean B_all: new boolean[] {true, false}) {
+				for (int I_max_hits: new int[] {0, 1, 2, 3, 100}) {
+					FV_assert_ranking(PI_O_text_index, S_query, B_all, I_max_hits);
+				    }
+			    }
+		    }
+		return;
+	}
+
+	public void testRanking() {
+		FV_assert_rankings(this.O_text_index);
+	}
+
+	/**
+	 * Same words and length, the one in the short description counts {@link PckgTextIndex#I_sdesc_weight} times.
+	 */
+	public void testSdescWeight() {
+
+		PckgTextIndex.Hits O_hits;
+
+		O_hits = this.O_text_index.FO_search("rare", true, 10);
+		assertEquals(Arrays.asList(6, 7), Arrays.asList(O_hits.AI_pckg_ids[0], O_hits.AI_pckg_ids[1]));
+		assertTrue(O_hits.AD_scores[0] > O_hits.AD_scores[1]);
+		O_hits = this.O_text_index.FO_search("common", true, 10);
+		assertEquals(Arrays.asList(7, 6), Arrays.asList(O_hits.AI_pckg_ids[0], O_hits.AI_pckg_ids[1]));
+		assertEquals(3, this.O_text_index.FI_get_doc_freq("Compression"));
+	}
+
+	/**
+	 * Same frequency and length, the rarer word scores higher.
+	 */
+	public void testIdf() {
+
+		PckgTextIndex.Hits O_hits;
+
+		assertEquals(1, this.O_text_index.FI_get_doc_freq("unique"));
+		assertEquals(3, this.O_text_index.FI_get_doc_freq("shell"));
+		O_hits = this.O_text_index.FO_search("unique shell", false, 10);
+		assertEquals(8, O_hits.AI_pckg_ids[0]);
+		assertEquals(9, O_hits.AI_pckg_ids[1]);
+		assertTrue(O_hits.AD_scores[0] > O_hits.AD_scores[1]);
+		assertEquals(0, this.O_text_index.FO_search("unique shell", true, 10).AI_pckg_ids.length);
+	}
+
+	/**
+	 * The best hits are kept, whatever the order the packages are met in.
+	 */
+	public void testTopK() {
+
+		PckgTextIndex.Hits O_hits_all, O_hits_top;
+
+		O_hits_all = this.O_text_index.FO_search("shell editor compression", false, 100);
+		assertEquals(7, O_hits_all.AI_pckg_ids.length);
+		O_hits_top = this.O_text_index.FO_search("shell editor compression", false, 3);
+		assertEquals(3, O_hits_top.AI_pckg_ids.length);
+		assertTrue(Arrays.equals(Arrays.copyOf(O_hits_all.AI_pckg_ids, 3), O_hits_top.AI_pckg_ids));
+		assertTrue(Arrays.equals(Arrays.copyOf(O_hits_all.AD_scores, 3), O_hits_top.AD_scores));
+		assertEquals(0, this.O_text_index.FO_search("shell editor compression", false, 0).AI_pckg_ids.length);
+	}
+
+	/**
+	 * The index of a table loaded from a snapshot, without any {@link SetupIniContents.PckgInfo}.
+	 */
+	public void testSnapshot() {
+
+		CatalogSnapshot O_snapshot;
+		PckgTextIndex   O_text_index;
+
+		O_snapshot = CatalogSnapshot.FO_open(this.FP_dna_root.resolve(CatalogSnapshot.S_bn_snapshot).toFile(), this.F_pna_setup_ini);
+		assertNotNull(O_snapshot);
+		try {
+			O_text_index = new PckgTextIndex(O_snapshot, new PckgTable(O_snapshot, new SymbolTable()));
+		} finally {
+			O_snapshot.FV_close();
+		    }
+		FV_assert_rankings(O_text_index);
+	}
+}
@@ -0,0 +1,124 @@
+package com.github.michaelederaut.cygwinparser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import com.github.michaelederaut.cygwinparser.ArchiveChecker.ArchPurpose;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Order of versions by {@link PckgVersionIndex#FI_compare_versions(String, String)} and the lookup
+ * of an older version of an archive in a folder written by the test.
+ */
+public class PckgVersionIndexTest extends TestCase {
+
+	protected static final String S_dnr_site = "site";
+	protected static final String S_pnr_dir  = "x86_64/release/foo";
+
+	/**
+	 * oldest first
+	 */
+	protected static final String AS_versions[] = {
+			"0.9-1",
+			"1.0-1",
+			"1.0-1bl1",   // letters rank below numbers
+			"1.0-1.1",    // more segments
+			"1.0-2",
+			"1.0-10",     // numbers by value
+			"1.0a-1",     // the version ranks before the release
+			"1.0b-1",
+			"1.0.1-1",
+			"1.0.1.1-1",
+			"1.9-1",
+			"1.10-1",
+			"2.0-1"};
+
+	protected Path FP_dna_root;
+
+	public PckgVersionIndexTest(final String PI_S_test_name) {
+		super(PI_S_test_name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(PckgVersionIndexTest.class);
+	}
+
+	@Override
+	protected void setUp() throws IOException {
+
+		Path FP_dna_dir;
+
+		this.FP_dna_root = Files.createTempDirectory("versions-");
+		FP_dna_dir = this.FP_dna_root.resolve(S_dnr_site).resolve(S_pnr_dir);
+		Files.createDirectories(FP_dna_dir.resolve("sub"));
+		for (String S_bn: new String[] {
+				"foo-1.0-1.tar.xz", "foo-1.0-1.tar.zst", "foo-1.2-1.tar.xz", "sub/foo-0.9-1.tar.bz2",
+				"foo-0.9-1-src.tar.xz", "foo-0.8-1-src.tar.xz", "foo-2.0-1-src.tar.xz", 
+				"foo-bar-0.1-1.tar.xz", "setup.hint"}) {
+			Files.createFile(FP_dna_dir.resolve(S_bn));
+		    }
+		return;
+	}
+
+	@Override
+	protected void tearDown() throws IOException {
+
+		try (Stream<Path> AFP_pnas = Files.walk(this.FP_dna_root)) {
+			AFP_pnas.sorted(Comparator.reverseOrder()).forEach((Path PI_FP_pna) -> PI_FP_pna.toFile().delete());
+		    }
+		return;
+	}
+
+	public void testCompareVersions() {
+
+		int i1, i2;
+
+		for (i1 = 0; i1 < AS_versions.length; i1++) {
+			assertEquals(AS_versions[i1], 0, PckgVersionIndex.FI_compare_versions(AS_versions[i1], AS_versions[i1]));
+			for (i2 = i1 + 1; i2 < AS_versions.length; i2++) {
+				assertEquals(AS_versions[i1] + " " + AS_versions[i2], -1, PckgVersionIndex.FI_compare_versions(AS_versions[i1], AS_versions[i2]));
+				assertEquals(AS_versions[i2] + " " + AS_versions[i1],  1, PckgVersionIndex.FI_compare_versions(AS_versions[i2], AS_versions[i1]));
+			    }
+		    }
+		assertEquals(0, PckgVersionIndex.FI_compare_versions("1.010-1", "1.10-1"));  // leading zeros
+		assertEquals(0, PckgVersionIndex.FI_compare_versions("1.0-01",  "1.0-1"));
+		assertEquals(0, PckgVersionIndex.FI_compare_versions("1_0-1",   "1.0-1"));   // separators
+		assertEquals(1, PckgVersionIndex.FI_compare_versions("12345678901234567890-1", "9-1"));  // beyond long
+		assertEquals(1, PckgVersionIndex.FI_compare_versions("1.1", "1.0"));         // no release
+	}
+
+	protected static void FV_assert_newest_versions(final PckgVersionIndex PI_O_version_index) {
+
+		assertEquals("0.9-1", PI_O_version_index.FS_get_newest_version(S_pnr_dir, "foo", "1.0-1",  ArchPurpose.install));
+		assertEquals("0.9-1", PI_O_version_index.FS_get_newest_version(S_pnr_dir, "foo", "1.0-01", ArchPurpose.install));
+		assertEquals("1.0-1", PI_O_version_index.FS_get_newest_version(S_pnr_dir, "foo", "1.2-1",  ArchPurpose.install));
+		assertEquals("1.2-1", PI_O_version_index.FS_get_newest_version(S_pnr_dir, "foo", "3.0-1",  ArchPurpose.install));
+		assertNull(PI_O_version_index.FS_get_newest_version(S_pnr_dir, "foo", "0.9-1", ArchPurpose.install));
+		assertEquals("0.9-1", PI_O_version_index.FS_get_newest_version(S_pnr_dir, "foo", "1.0-1",  ArchPurpose.source));
+		assertEquals("0.8-1", PI_O_version_index.FS_get_newest_version(S_pnr_dir, "foo", "0.9-1",  ArchPurpose.source));
+		assertNull(PI_O_version_index.FS_get_newest_version(S_pnr_dir, "foo", "0.8-1", ArchPurpose.source));
+		assertEquals("0.1-1", PI_O_version_index.FS_get_newest_version(S_pnr_dir, "foo-bar", "1.0-1", ArchPurpose.install));
+		assertNull(PI_O_version_index.FS_get_newest_version(S_pnr_dir, "baz", "1.0-1", ArchPurpose.install));
+		assertNull(PI_O_version_index.FS_get_newest_version("x86_64/release/none", "foo", "1.0-1", ArchPurpose.install));
+		return;
+	}
+
+	public void testNewestVersion() {
+		FV_assert_newest_versions(new PckgVersionIndex(S_dnr_site, this.FP_dna_root.resolve(S_dnr_site), null));
+	}
+
+	public void testNewestVersionIndexed() {
+
+		MirrorIndex O_mirror_index;
+
+		O_mirror_index = MirrorIndex.FO_build(this.FP_dna_root.resolve(S_dnr_site), S_dnr_site, ForkJoinPool.commonPool());
+		FV_assert_newest_versions(new PckgVersionIndex(S_dnr_site, this.FP_dna_root.resolve(S_dnr_site), O_mirror_index));
+	}
+}